@@ -0,0 +1,281 @@
+package org.opensha.oaf.oetas.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opensha.oaf.oetas.OECatalogGenerator;
+import org.opensha.oaf.oetas.OECatalogParams;
+import org.opensha.oaf.oetas.OECatalogStorage;
+import org.opensha.oaf.oetas.OEConstants;
+import org.opensha.oaf.oetas.OEGenerationInfo;
+import org.opensha.oaf.oetas.OERandomGenerator;
+import org.opensha.oaf.oetas.OERupture;
+import org.opensha.oaf.oetas.OEStatsCalc;
+
+import org.opensha.oaf.oetas.fit.OEDisc2ExtFit;
+import org.opensha.oaf.oetas.fit.OEDisc2History;
+import org.opensha.oaf.oetas.fit.OEDiscFGHParams;
+import org.opensha.oaf.oetas.fit.OEMagCompFnDisc;
+
+import static org.opensha.oaf.oetas.OERupture.RUPPAR_SEED;
+
+
+// Synthetic but realistic inputs for the operational ETAS benchmarks.
+//
+// All inputs are generated from fixed random seeds, so that every run of a
+// benchmark works on the same sequences.
+
+public class OEBenchSupport {
+
+	//----- Forecast catalogs -----
+
+	// Branch ratio for forecast catalogs.
+
+	public static final double FC_N = 0.8;
+
+	// Omori and G-R parameters.
+
+	public static final double FC_P = 1.08;
+	public static final double FC_C = 0.01;
+	public static final double FC_B = 1.0;
+	public static final double FC_ALPHA = 1.0;
+
+	// Target generation size, and maximum number of generations.
+
+	public static final int FC_GEN_SIZE_TARGET = 100;
+	public static final int FC_GEN_COUNT_MAX = 100;
+
+	// Mainshock magnitude.
+
+	public static final double FC_MAG_MAIN = 7.0;
+
+	// Forecast begin time, in days after the mainshock.
+
+	public static final double FC_TBEGIN = 1.0;
+
+
+
+
+	// Make catalog parameters for a typical one-year forecast.
+
+	public static OECatalogParams make_forecast_cat_params () {
+		OECatalogParams cat_params = (new OECatalogParams()).set_to_typical (
+			0.0,					// a
+			FC_P,					// p
+			FC_C,					// c
+			FC_B,					// b
+			FC_ALPHA,				// alpha
+			FC_GEN_SIZE_TARGET,		// gen_size_target
+			FC_GEN_COUNT_MAX		// gen_count_max
+		);
+		cat_params.a = OEStatsCalc.calc_inv_branch_ratio (FC_N, cat_params);
+		cat_params.tbegin = FC_TBEGIN;
+		cat_params.tend = FC_TBEGIN + 365.0;
+		return cat_params;
+	}
+
+
+
+
+	// Begin a catalog and insert the mainshock as the seed generation.
+	// Parameters:
+	//  cat_storage = Storage to receive the catalog.
+	//  cat_params = Catalog parameters.
+	//  mag_main = Mainshock magnitude.
+	//  t_main = Mainshock time, in days.
+
+	public static void seed_mainshock (OECatalogStorage cat_storage, OECatalogParams cat_params, double mag_main, double t_main) {
+		cat_storage.begin_catalog (cat_params);
+
+		OEGenerationInfo gen_info = (new OEGenerationInfo()).set (
+			cat_params.mref,	// gen_mag_min
+			cat_params.msup		// gen_mag_max
+		);
+
+		cat_storage.begin_generation (gen_info);
+
+		double k_prod = OEStatsCalc.calc_k_corr (
+			mag_main,			// m0
+			cat_params,			// cat_params
+			gen_info			// gen_info
+		);
+
+		OERupture rup = (new OERupture()).set (
+			t_main,			// t_day
+			mag_main,		// rup_mag
+			k_prod,			// k_prod
+			RUPPAR_SEED,	// rup_parent
+			0.0,			// x_km
+			0.0				// y_km
+		);
+
+		cat_storage.add_rup (rup);
+		cat_storage.end_generation();
+		return;
+	}
+
+
+
+
+	// Generate a complete catalog.
+	// Parameters:
+	//  cat_storage = Storage to receive the catalog.
+	//  cat_generator = Generator to use.
+	//  rangen = Random number generator.
+	//  cat_params = Catalog parameters.
+	//  mag_main = Mainshock magnitude.
+	//  t_main = Mainshock time, in days.
+
+	public static void gen_catalog (OECatalogStorage cat_storage, OECatalogGenerator cat_generator, OERandomGenerator rangen,
+			OECatalogParams cat_params, double mag_main, double t_main) {
+		seed_mainshock (cat_storage, cat_params, mag_main, t_main);
+		cat_generator.setup (rangen, cat_storage, false);
+		cat_generator.calc_all_gen();
+		cat_generator.forget();
+		return;
+	}
+
+
+
+
+	// Generate a list of forecast catalogs.
+	// Parameters:
+	//  num_cats = Number of catalogs.
+	//  seed = Random seed.
+
+	public static List<OECatalogStorage> gen_forecast_catalogs (int num_cats, long seed) {
+		OECatalogParams cat_params = make_forecast_cat_params();
+		OERandomGenerator rangen = new OERandomGenerator (seed);
+		OECatalogGenerator cat_generator = new OECatalogGenerator();
+
+		List<OECatalogStorage> result = new ArrayList<OECatalogStorage>();
+		for (int n = 0; n < num_cats; ++n) {
+			OECatalogStorage cat_storage = new OECatalogStorage();
+			gen_catalog (cat_storage, cat_generator, rangen, cat_params, FC_MAG_MAIN, 0.0);
+			result.add (cat_storage);
+		}
+		return result;
+	}
+
+
+
+
+	//----- Fitting histories -----
+
+	// Branch ratio, Omori and G-R parameters used to simulate the observed sequence.
+
+	public static final double HS_N = 0.8;
+	public static final double HS_P = 1.08;
+	public static final double HS_C = 0.01;
+	public static final double HS_B = 1.0;
+	public static final double HS_ALPHA = 1.0;
+
+	// Magnitude range of the simulated sequence.
+
+	public static final double HS_MREF = 3.0;
+	public static final double HS_MSUP = 9.5;
+
+	// Mainshock magnitude.
+
+	public static final double HS_MAG_MAIN = 6.5;
+
+	// Length of the observed sequence, in days.
+
+	public static final double HS_DURATION = 10.0;
+
+
+
+
+	// Make catalog parameters for simulating and fitting an observed sequence.
+
+	public static OECatalogParams make_history_cat_params () {
+		OECatalogParams cat_params = (new OECatalogParams()).set_to_fixed_mag_br (
+			HS_N,			// n
+			HS_P,			// p
+			HS_C,			// c
+			HS_B,			// b
+			HS_ALPHA,		// alpha
+			HS_MREF,		// mref
+			HS_MSUP,		// msup
+			0.0,			// tbegin
+			HS_DURATION		// tend
+		);
+		return cat_params;
+	}
+
+
+
+
+	// Simulate an observed sequence, and make a discretized history from it.
+	// Parameters:
+	//  seed = Random seed.
+	// The history uses world-average Helmstetter incompleteness and the default discretization.
+
+	public static OEDisc2History make_history (long seed) {
+		OECatalogParams cat_params = make_history_cat_params();
+
+		// Simulate the sequence
+
+		OECatalogStorage cat_storage = new OECatalogStorage();
+		gen_catalog (cat_storage, new OECatalogGenerator(), new OERandomGenerator (seed), cat_params, HS_MAG_MAIN, 0.0);
+
+		List<OERupture> rup_list = new ArrayList<OERupture>();
+		cat_storage.dump_to_collection (rup_list, true, false);
+
+		// Discretize it
+
+		OEMagCompFnDisc.SplitFn split_fn = new OEMagCompFnDisc.SplitFnRatio (
+			OEConstants.DEF_DURLIM_RATIO,
+			OEConstants.DEF_DURLIM_MIN,
+			OEConstants.DEF_DURLIM_MAX
+		);
+
+		OEDiscFGHParams hist_params = new OEDiscFGHParams();
+
+		hist_params.set_sim_history_typical (
+			HS_MREF,							// magCat
+			OEConstants.HELM_PARAM_WORLD,		// helm_param
+			0.0,								// t_range_begin
+			HS_DURATION,						// t_range_end
+			OEConstants.DEF_DISC_DELTA,			// disc_delta
+			OEConstants.DEF_MAG_CAT_COUNT,		// mag_cat_count
+			HS_MAG_MAIN - 2.0,					// eligible_mag
+			OEConstants.DEF_ELIGIBLE_COUNT,		// eligible_count
+			split_fn,							// split_fn
+			0.0,								// t_interval_begin
+			OEConstants.DEF_BEFORE_MAX_COUNT,	// before_max_count
+			OEConstants.DEF_MAG_CAT_INT_JOIN	// mag_cat_int_join
+		);
+
+		OEDisc2History history = new OEDisc2History();
+		history.build_from_fgh (hist_params, rup_list);
+		return history;
+	}
+
+
+
+
+	// Make a fitter for a history, set up for likelihood calculation with intervals.
+	// Parameters:
+	//  history = The history.
+
+	public static OEDisc2ExtFit make_fitter (OEDisc2History history) {
+		OECatalogParams cat_params = make_history_cat_params();
+
+		OEDisc2ExtFit fitter = new OEDisc2ExtFit();
+
+		fitter.dfit_build (
+			history,								// history
+			cat_params.get_params_mags(),			// cat_params
+			true,									// f_intervals
+			true,									// f_likelihood
+			OEConstants.LMR_OPT_MCT_INFINITY,		// lmr_opt
+			false									// f_background
+		);
+
+		fitter.setup_grouping (null, null);
+		fitter.set_tint_br (cat_params.tend - cat_params.tbegin);
+		return fitter;
+	}
+
+}
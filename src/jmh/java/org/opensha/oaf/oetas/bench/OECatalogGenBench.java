@@ -0,0 +1,71 @@
+package org.opensha.oaf.oetas.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.opensha.oaf.oetas.OECatalogGenerator;
+import org.opensha.oaf.oetas.OECatalogParams;
+import org.opensha.oaf.oetas.OECatalogStorage;
+import org.opensha.oaf.oetas.OERandomGenerator;
+
+
+// Benchmark for OECatalogGenerator.calc_all_gen.
+//
+// Each invocation generates one catalog for a one-year forecast following a
+// magnitude 7 mainshock, including seeding.  The random generator is re-seeded
+// at the start of each iteration, so each iteration generates the same catalogs.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OECatalogGenBench {
+
+	private OECatalogParams cat_params;
+
+	private OECatalogStorage cat_storage;
+
+	private OECatalogGenerator cat_generator;
+
+	private OERandomGenerator rangen;
+
+
+	@Setup(Level.Trial)
+	public void setup_trial () {
+		cat_params = OEBenchSupport.make_forecast_cat_params();
+		cat_storage = new OECatalogStorage();
+		cat_generator = new OECatalogGenerator();
+	}
+
+
+	@Setup(Level.Iteration)
+	public void setup_iteration () {
+		rangen = new OERandomGenerator (20260101L);
+	}
+
+
+	// Generate one catalog, returning its size.
+
+	@Benchmark
+	public int calc_all_gen () {
+		OEBenchSupport.seed_mainshock (cat_storage, cat_params, OEBenchSupport.FC_MAG_MAIN, 0.0);
+		cat_generator.setup (rangen, cat_storage, false);
+		cat_generator.calc_all_gen();
+		cat_generator.forget();
+		return cat_storage.size();
+	}
+
+}
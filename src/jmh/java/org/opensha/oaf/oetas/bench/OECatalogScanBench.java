@@ -0,0 +1,93 @@
+package org.opensha.oaf.oetas.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.opensha.oaf.oetas.OEAccumRateTimeMag;
+import org.opensha.oaf.oetas.OECatalogScanner;
+import org.opensha.oaf.oetas.OECatalogStorage;
+import org.opensha.oaf.oetas.OEConstants;
+import org.opensha.oaf.oetas.OEEnsembleAccumulator;
+import org.opensha.oaf.oetas.OERandomGenerator;
+
+
+// Benchmark for OECatalogScanner.scan with an OEAccumRateTimeMag accumulator.
+//
+// A fixed set of forecast catalogs is generated once.  Each invocation scans one
+// of them, using the accumulation method used for production simulations.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OECatalogScanBench {
+
+	// Number of distinct catalogs to scan.
+
+	private static final int NUM_CATS = 32;
+
+	private List<OECatalogStorage> catalogs;
+
+	private OEAccumRateTimeMag time_mag_accum;
+
+	private OECatalogScanner cat_scanner;
+
+	private OERandomGenerator rangen;
+
+	private int next_cat;
+
+
+	@Setup(Level.Trial)
+	public void setup_trial () {
+		catalogs = OEBenchSupport.gen_forecast_catalogs (NUM_CATS, 20260102L);
+		next_cat = 0;
+	}
+
+
+	@Setup(Level.Iteration)
+	public void setup_iteration () {
+		time_mag_accum = new OEAccumRateTimeMag();
+		time_mag_accum.typical_test_setup (OEConstants.def_sim_accum_option(), OEBenchSupport.FC_TBEGIN);
+		time_mag_accum.begin_accumulation (NUM_CATS);
+
+		cat_scanner = new OECatalogScanner();
+		cat_scanner.setup (new OEEnsembleAccumulator[] {time_mag_accum});
+
+		rangen = new OERandomGenerator (20260103L);
+	}
+
+
+	@TearDown(Level.Iteration)
+	public void teardown_iteration () {
+		time_mag_accum.end_accumulation();
+	}
+
+
+	// Scan one catalog.
+
+	@Benchmark
+	public void scan () {
+		OECatalogStorage cat_storage = catalogs.get (next_cat);
+		next_cat = (next_cat + 1) % NUM_CATS;
+
+		cat_scanner.open();
+		cat_scanner.scan (cat_storage, rangen);
+		cat_scanner.close();
+	}
+
+}
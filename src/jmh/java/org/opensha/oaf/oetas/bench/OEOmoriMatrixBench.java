@@ -0,0 +1,153 @@
+package org.opensha.oaf.oetas.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.opensha.oaf.oetas.fit.OEDisc2ExtFit;
+import org.opensha.oaf.oetas.fit.OEDisc2History;
+
+
+// Benchmarks for OEDisc2ExtFit.OmoriMatrix: building the matrices, and applying them.
+//
+// The history is a simulated ten-day sequence following a magnitude 6.5 mainshock,
+// discretized the same way as for a production fit.  The apply benchmarks use a
+// matrix built once with typical (p, c) values, and random source and scaling vectors.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OEOmoriMatrixBench {
+
+	private OEDisc2ExtFit fitter;
+
+	private OEDisc2ExtFit.OmoriMatrixHandle omat_handle;
+
+	private OEDisc2ExtFit.OmoriMatrix omat;
+
+	// Vectors with length = rupture_count.
+
+	private double[] r_y1;
+	private double[] r_y2;
+	private double[] r_x1;
+	private double[] r_x2;
+	private double[] r_d;
+
+	// Vectors with length = interval_count.
+
+	private double[] i_y1;
+	private double[] i_y2;
+	private double[] i_x1;
+	private double[] i_x2;
+	private double[] i_dy;
+	private double[] i_dz;
+
+	// Scalars, as vectors of length 1.
+
+	private double[] z1;
+	private double[] z2;
+	private double[] o1;
+	private double[] o2;
+
+
+	// Make a vector of random values in [lo, hi).
+
+	private static double[] random_vector (Random random, int n, double lo, double hi) {
+		double[] v = new double[n];
+		for (int i = 0; i < n; ++i) {
+			v[i] = lo + ((hi - lo) * random.nextDouble());
+		}
+		return v;
+	}
+
+
+	@Setup(Level.Trial)
+	public void setup_trial () {
+		OEDisc2History history = OEBenchSupport.make_history (20260105L);
+		fitter = OEBenchSupport.make_fitter (history);
+
+		omat_handle = fitter.make_OmoriMatrixHandle();
+		omat_handle.omat_build (OEBenchSupport.HS_P, OEBenchSupport.HS_C);
+		omat = omat_handle.get_omat();
+
+		int rupture_count = history.rupture_count;
+		int interval_count = history.interval_count;
+		Random random = new Random (20260106L);
+
+		r_y1 = new double[rupture_count];
+		r_y2 = new double[rupture_count];
+		r_x1 = random_vector (random, rupture_count, 0.5, 2.0);
+		r_x2 = random_vector (random, rupture_count, 0.5, 2.0);
+		r_d = random_vector (random, rupture_count, 0.5, 2.0);
+
+		i_y1 = new double[interval_count];
+		i_y2 = new double[interval_count];
+		i_x1 = random_vector (random, interval_count, 0.0, 0.1);
+		i_x2 = random_vector (random, interval_count, 0.0, 0.1);
+		i_dy = random_vector (random, interval_count, 0.0, 0.01);
+		i_dz = random_vector (random, interval_count, 0.0, 0.01);
+
+		z1 = new double[1];
+		z2 = new double[1];
+		o1 = new double[1];
+		o2 = new double[1];
+	}
+
+
+	@TearDown(Level.Trial)
+	public void teardown_trial () {
+		omat_handle.close();
+	}
+
+
+	// Build all matrices for one (p, c) pair.
+
+	@Benchmark
+	public OEDisc2ExtFit.OmoriMatrix omat_build () {
+		omat.omat_build (OEBenchSupport.HS_P, OEBenchSupport.HS_C);
+		return omat;
+	}
+
+
+	// Apply the rupture-target, rupture-source matrix.
+
+	@Benchmark
+	public double[] apply_omat_rup_targ_rup_src () {
+		omat.apply_omat_rup_targ_rup_src (r_y1, r_y2, r_x1, r_x2, r_d);
+		return r_y1;
+	}
+
+
+	// Apply the interval-target, rupture-source matrix.
+
+	@Benchmark
+	public double[] apply_omat_int_targ_rup_src () {
+		omat.apply_omat_int_targ_rup_src (i_y1, i_y2, z1, z2, r_x1, r_x2, i_dy, i_dz);
+		return i_y1;
+	}
+
+
+	// Apply the interval-target, interval-source matrix (recurrence form).
+
+	@Benchmark
+	public double[] apply_omat_int_targ_int_src () {
+		omat.apply_omat_int_targ_int_src (i_y1, i_y2, z1, z2, i_x1, i_x2, o1, o2, i_dy, i_dz, 1.0);
+		return i_y1;
+	}
+
+}
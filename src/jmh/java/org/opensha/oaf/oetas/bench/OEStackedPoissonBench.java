@@ -0,0 +1,78 @@
+package org.opensha.oaf.oetas.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.opensha.oaf.oetas.OEStackedPoisson;
+
+
+// Benchmark for OEStackedPoisson.Accumulator.add_shifted_poisson.
+//
+// Each invocation clears an accumulator and adds a batch of shifted Poisson
+// distributions, with means spread log-uniformly over the range seen when
+// infilling forecast bins, and shifts of up to a few hundred.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OEStackedPoissonBench {
+
+	// Number of distributions added per invocation.
+
+	private static final int BATCH_SIZE = 256;
+
+	// Largest Poisson mean, as a power of 10 (smallest is 10^-2).
+
+	@Param({"1", "3"})
+	public int max_lambda_decades;
+
+	private OEStackedPoisson.Accumulator accumulator;
+
+	private double[] lambda;
+
+	private int[] shift;
+
+
+	@Setup(Level.Trial)
+	public void setup_trial () {
+		OEStackedPoisson stacked_poisson = OEStackedPoisson.get_singleton();
+		accumulator = stacked_poisson.new Accumulator();
+
+		Random random = new Random (20260104L);
+		lambda = new double[BATCH_SIZE];
+		shift = new int[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; ++i) {
+			lambda[i] = Math.pow (10.0, -2.0 + (random.nextDouble() * (2.0 + max_lambda_decades)));
+			shift[i] = (int)(Math.pow (10.0, random.nextDouble() * 2.5)) - 1;
+		}
+	}
+
+
+	// Add one batch of distributions.
+
+	@Benchmark
+	public OEStackedPoisson.Accumulator add_shifted_poisson () {
+		accumulator.clear();
+		for (int i = 0; i < BATCH_SIZE; ++i) {
+			accumulator.add_shifted_poisson (lambda[i], shift[i], 1.0);
+		}
+		return accumulator;
+	}
+
+}
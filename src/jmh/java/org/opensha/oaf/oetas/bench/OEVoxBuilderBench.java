@@ -0,0 +1,97 @@
+package org.opensha.oaf.oetas.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.opensha.oaf.util.AutoExecutorService;
+import org.opensha.oaf.util.SimpleExecTimer;
+
+import org.opensha.oaf.oetas.bay.OEBayPrior;
+import org.opensha.oaf.oetas.except.OEException;
+import org.opensha.oaf.oetas.fit.OEDisc2ExtFit;
+import org.opensha.oaf.oetas.fit.OEDisc2History;
+import org.opensha.oaf.oetas.fit.OEDisc2InitVoxBuilder;
+import org.opensha.oaf.oetas.fit.OEDisc2InitVoxSet;
+import org.opensha.oaf.oetas.fit.OEGridParams;
+import org.opensha.oaf.oetas.util.OEDiscreteRange;
+
+
+// Benchmark for OEDisc2InitVoxBuilder.build_voxels.
+//
+// Each invocation fits a simulated ten-day sequence over a grid of (c, p, n, zams)
+// values, with a uniform prior, using the configured number of threads.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class OEVoxBuilderBench {
+
+	// Number of threads, or -1 for the default.
+
+	@Param({"-1"})
+	public int num_threads;
+
+	private OEDisc2ExtFit fitter;
+
+	private OEGridParams grid_params;
+
+	private AutoExecutorService auto_executor;
+
+
+	@Setup(Level.Trial)
+	public void setup_trial () {
+		OEDisc2History history = OEBenchSupport.make_history (20260107L);
+		fitter = OEBenchSupport.make_fitter (history);
+
+		grid_params = new OEGridParams (
+			OEDiscreteRange.makeSingle (OEBenchSupport.HS_B),		// b_range
+			OEDiscreteRange.makeSingle (OEBenchSupport.HS_ALPHA),	// alpha_range
+			OEDiscreteRange.makeLog (5, 0.001, 0.1),				// c_range
+			OEDiscreteRange.makeLinear (5, 0.9, 1.3),				// p_range
+			OEDiscreteRange.makeLog (5, 0.05, 0.95),				// n_range
+			OEDiscreteRange.makeLinear (11, -1.0, 1.0),				// zams_range
+			OEDiscreteRange.makeSingle (0.0)						// zmu_range
+		);
+
+		auto_executor = new AutoExecutorService (num_threads);
+	}
+
+
+	@TearDown(Level.Trial)
+	public void teardown_trial () {
+		auto_executor.close();
+	}
+
+
+	// Build the voxels for the grid.
+
+	@Benchmark
+	public OEDisc2InitVoxSet build_voxels () throws OEException {
+		OEDisc2InitVoxSet voxel_set = new OEDisc2InitVoxSet();
+
+		OEDisc2InitVoxBuilder voxel_builder = new OEDisc2InitVoxBuilder();
+		voxel_builder.setup_vbld (voxel_set, fitter, OEBayPrior.makeUniform());
+		voxel_builder.setup_grid (grid_params);
+
+		SimpleExecTimer exec_timer = new SimpleExecTimer (SimpleExecTimer.NO_MAX_RUNTIME, SimpleExecTimer.NO_PROGRESS_TIME, auto_executor);
+		voxel_builder.build_voxels (exec_timer);
+		return voxel_set;
+	}
+
+}
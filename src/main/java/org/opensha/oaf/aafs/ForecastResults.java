@@ -5,6 +5,8 @@ import java.util.List;
 import java.util.Collections;
 import java.util.Map;
 import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import java.time.Instant;
 
@@ -760,7 +762,7 @@ public class ForecastResults implements Marshalable {
 			ObsEqkRupture mainshock = fcmain.get_eqk_rupture();
 			seq_spec_model = new RJ_AftershockModel_SequenceSpecific (mainshock, catalog_aftershocks,
 				get_catalog_fit_start_days (params.min_days), get_catalog_fit_end_days (params.max_days),
-				params.mag_comp_params, params.seq_spec_params);
+				params.mag_comp_params, params.seq_spec_params, rj_num_threads);
 
 			// Save the summary
 
@@ -831,7 +833,7 @@ public class ForecastResults implements Marshalable {
 				ObsEqkRupture mainshock = fcmain.get_eqk_rupture();
 				seq_spec_model = new RJ_AftershockModel_SequenceSpecific (mainshock, catalog_aftershocks,
 					get_catalog_fit_start_days (params.min_days), get_catalog_fit_end_days (params.max_days),
-					params.mag_comp_params, params.seq_spec_params);
+					params.mag_comp_params, params.seq_spec_params, rj_num_threads);
 
 			} catch (Exception e) {
 				throw new RuntimeException("ForecastResults.rebuild_seq_spec_results: Exception building sequence specific forecast", e);
@@ -1144,7 +1146,7 @@ public class ForecastResults implements Marshalable {
 
 			// Create multi-thread context
 
-			int num_threads = AutoExecutorService.AESNUM_DEFAULT;	// -1
+			int num_threads = etas_num_threads;		// AutoExecutorService.AESNUM_DEFAULT == -1 unless set
 
 			long max_runtime = my_action_config.get_etas_time_limit();
 			if (max_runtime == ActionConfigFile.NO_ETAS_TIME_LIMIT) {
@@ -1184,6 +1186,11 @@ public class ForecastResults implements Marshalable {
 					exec_env.filename_fc_json = null;
 					exec_env.filename_marginals = null;
 
+					// Use fit snapshots if the server has a directory for them
+
+					String etas_fit_dir = (new ServerConfig()).get_etas_fit_dir();
+					exec_env.fit_snapshot_dir = ((etas_fit_dir == null || etas_fit_dir.isEmpty()) ? null : etas_fit_dir);
+
 					// Set up the input area
 
 					exec_env.setup_input_area_from_compact (
@@ -1388,6 +1395,194 @@ public class ForecastResults implements Marshalable {
 	}
 
 
+	//----- Calculation control and timing -----
+
+	// True to run the forecast models concurrently, false to run them one after another.
+	// In concurrent mode, the ETAS forecast runs on a separate thread while the RJ models
+	// (generic, sequence specific, and Bayesian) run on the calling thread.  The catalog is
+	// always done first, because all models depend on it, and the Bayesian model always
+	// follows the generic and sequence specific models, because it combines them.
+	// This field is not marshaled.
+
+	public boolean calc_concurrent = true;
+
+	// Number of threads for computing the sequence specific likelihood, in the format
+	// used by AutoExecutorService.  AESNUM_DEFAULT uses the default number of threads.
+	// This field is not marshaled.
+
+	public int rj_num_threads = AutoExecutorService.AESNUM_DEFAULT;
+
+	// Number of threads for computing the sequence specific likelihood in concurrent mode,
+	// if rj_num_threads is AESNUM_DEFAULT.  The RJ models finish in seconds, so they get a
+	// small fixed pool and ETAS keeps all its threads for its much longer fit and simulation.
+
+	public static final int RJ_CONCURRENT_NUM_THREADS = 2;
+
+	// Number of threads for the ETAS calculation, in the format used by AutoExecutorService.
+	// AESNUM_DEFAULT uses the default number of threads.
+	// This field is not marshaled.
+
+	public int etas_num_threads = AutoExecutorService.AESNUM_DEFAULT;
+
+	// Elapsed time to calculate each result, in milliseconds, or -1L if not calculated.
+	// These fields are not marshaled.
+
+	public long calc_millis_catalog = -1L;
+	public long calc_millis_generic = -1L;
+	public long calc_millis_seq_spec = -1L;
+	public long calc_millis_bayesian = -1L;
+	public long calc_millis_etas = -1L;
+
+	// Clear the calculation times.
+
+	private void clear_calc_millis () {
+		calc_millis_catalog = -1L;
+		calc_millis_generic = -1L;
+		calc_millis_seq_spec = -1L;
+		calc_millis_bayesian = -1L;
+		calc_millis_etas = -1L;
+		return;
+	}
+
+	// Make a string showing the calculation times.
+
+	public String calc_millis_to_string () {
+		return "calc_millis: catalog = " + calc_millis_catalog
+			+ ", generic = " + calc_millis_generic
+			+ ", seq_spec = " + calc_millis_seq_spec
+			+ ", bayesian = " + calc_millis_bayesian
+			+ ", etas = " + calc_millis_etas;
+	}
+
+	// Calculate the RJ models: generic, sequence specific, and Bayesian, recording times.
+
+	private void calc_rj_models (ForecastMainshock fcmain, ForecastParameters params, boolean f_seq_spec) {
+		long t0 = System.currentTimeMillis();
+		calc_generic_results (fcmain, params);
+		long t1 = System.currentTimeMillis();
+		calc_millis_generic = t1 - t0;
+		calc_seq_spec_results (fcmain, params, f_seq_spec);
+		long t2 = System.currentTimeMillis();
+		calc_millis_seq_spec = t2 - t1;
+		calc_bayesian_results (fcmain, params);
+		calc_millis_bayesian = System.currentTimeMillis() - t2;
+		return;
+	}
+
+	// Calculate the ETAS model, recording time.
+
+	private void calc_etas_model (ForecastMainshock fcmain, ForecastParameters params) {
+		long t0 = System.currentTimeMillis();
+		calc_etas_results (fcmain, params);
+		calc_millis_etas = System.currentTimeMillis() - t0;
+		return;
+	}
+
+	// Calculate all the forecast models, after the catalog has been calculated.
+	// If f_seq_spec is false, then sequence specific results are not calculated.
+	// If calc_concurrent is true, ETAS runs concurrently with the RJ models.
+	// Each model writes only its own fields, and the catalog fields are only read.
+	// If both threads throw an exception, the exception from the RJ models is thrown,
+	// which is the one that would have been thrown when running sequentially.
+	// In concurrent mode, ETAS uses its usual number of threads, and unless rj_num_threads is set,
+	// the RJ models use a small fixed pool of RJ_CONCURRENT_NUM_THREADS threads.
+	// The console output of both goes directly to the log, so while the RJ models run their lines
+	// can interleave with ETAS lines; the ETAS thread marks the beginning and end of its output.
+	// The ETAS thread is always joined, or cancelled if this thread exits abnormally.
+
+	private void calc_models (final ForecastMainshock fcmain, final ForecastParameters params, boolean f_seq_spec) {
+
+		// Sequential mode
+
+		if (!( calc_concurrent )) {
+			calc_rj_models (fcmain, params, f_seq_spec);
+			calc_etas_model (fcmain, params);
+			return;
+		}
+
+		// Give the RJ models a small pool of threads, leaving the rest for ETAS
+
+		final int saved_rj_num_threads = rj_num_threads;
+
+		if (rj_num_threads == AutoExecutorService.AESNUM_DEFAULT) {
+			rj_num_threads = RJ_CONCURRENT_NUM_THREADS;
+		}
+
+		// Concurrent mode, use one extra thread for ETAS
+
+		try (
+			AutoExecutorService auto_executor = new AutoExecutorService (AutoExecutorService.AESNUM_SINGLE);
+		){
+			Future<?> etas_future = auto_executor.get_executor().submit (new Runnable() {
+				@Override
+				public void run () {
+					System.out.println ("ForecastResults.calc_models: ETAS calculation begin (concurrent with RJ models)");
+					try {
+						calc_etas_model (fcmain, params);
+					} finally {
+						System.out.println ("ForecastResults.calc_models: ETAS calculation end");
+					}
+				}
+			});
+
+			RuntimeException rj_exception = null;
+			RuntimeException etas_exception = null;
+
+			try {
+
+				// Run the RJ models in this thread
+
+				try {
+					calc_rj_models (fcmain, params, f_seq_spec);
+				} catch (RuntimeException e) {
+					rj_exception = e;
+				}
+
+				// Wait for ETAS to finish
+
+				try {
+					etas_future.get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						etas_exception = (RuntimeException)cause;
+					} else {
+						etas_exception = new RuntimeException ("ForecastResults.calc_models: Exception in ETAS thread", cause);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					etas_exception = new RuntimeException ("ForecastResults.calc_models: Interrupted while waiting for ETAS", e);
+				}
+			}
+
+			// If ETAS has not finished (because of an error or interrupt in this thread), cancel it
+
+			finally {
+				if (!( etas_future.isDone() )) {
+					etas_future.cancel (true);
+				}
+			}
+
+			// Report exceptions in sequential order
+
+			if (rj_exception != null) {
+				throw rj_exception;
+			}
+			if (etas_exception != null) {
+				throw etas_exception;
+			}
+		}
+
+		// Restore the thread settings
+
+		finally {
+			rj_num_threads = saved_rj_num_threads;
+		}
+
+		return;
+	}
+
+
 	//----- Construction -----
 
 	// Default constructor.
@@ -1401,11 +1596,11 @@ public class ForecastResults implements Marshalable {
 		result_time = the_result_time;
 		advisory_lag = the_advisory_lag;
 		injectable_text = ((the_injectable_text == null) ? "" : the_injectable_text);
+		clear_calc_millis();
+		long t0 = System.currentTimeMillis();
 		calc_catalog_results (fcmain, params);
-		calc_generic_results (fcmain, params);
-		calc_seq_spec_results (fcmain, params, f_seq_spec);
-		calc_bayesian_results (fcmain, params);
-		calc_etas_results (fcmain, params);
+		calc_millis_catalog = System.currentTimeMillis() - t0;
+		calc_models (fcmain, params, f_seq_spec);
 		return;
 	}
 
@@ -1419,11 +1614,11 @@ public class ForecastResults implements Marshalable {
 		result_time = the_result_time;
 		advisory_lag = the_advisory_lag;
 		injectable_text = ((the_injectable_text == null) ? "" : the_injectable_text);
+		clear_calc_millis();
+		long t0 = System.currentTimeMillis();
 		calc_catalog_results_from_known_as (fcmain, params, known_as);
-		calc_generic_results (fcmain, params);
-		calc_seq_spec_results (fcmain, params, f_seq_spec);
-		calc_bayesian_results (fcmain, params);
-		calc_etas_results (fcmain, params);
+		calc_millis_catalog = System.currentTimeMillis() - t0;
+		calc_models (fcmain, params, f_seq_spec);
 		return;
 	}
 
@@ -1453,7 +1648,10 @@ public class ForecastResults implements Marshalable {
 		result_time = the_result_time;
 		advisory_lag = the_advisory_lag;
 		injectable_text = ((the_injectable_text == null) ? "" : the_injectable_text);
+		clear_calc_millis();
+		long t0 = System.currentTimeMillis();
 		calc_catalog_results (fcmain, params);
+		calc_millis_catalog = System.currentTimeMillis() - t0;
 
 		saved_f_seq_spec = f_seq_spec;
 		f_did_catalog_only = true;
@@ -1470,10 +1668,7 @@ public class ForecastResults implements Marshalable {
 		}
 		boolean f_seq_spec = saved_f_seq_spec;
 
-		calc_generic_results (fcmain, params);
-		calc_seq_spec_results (fcmain, params, f_seq_spec);
-		calc_bayesian_results (fcmain, params);
-		calc_etas_results (fcmain, params);
+		calc_models (fcmain, params, f_seq_spec);
 		return;
 	}
 
@@ -1855,6 +2050,8 @@ public class ForecastResults implements Marshalable {
 			result.append ("etas_pdl = " + etas_pdl + "\n");
 		}
 
+		result.append (calc_millis_to_string() + "\n");
+
 		return result.toString();
 	}
 
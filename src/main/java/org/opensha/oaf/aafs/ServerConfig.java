@@ -188,6 +188,12 @@ public final class ServerConfig {
 		return param_set.forecast_fn_prefix;
 	}
 
+	// Directory for ETAS fit snapshots, or "" if none. [v4]
+
+	public String get_etas_fit_dir() {
+		return param_set.etas_fit_dir;
+	}
+
 	// Comcat URL.
 
 	public String get_comcat_url() {
@@ -781,6 +787,7 @@ public final class ServerConfig {
 			System.out.println("diag_seq_lo = " + server_config.get_diag_seq_lo());
 			System.out.println("diag_seq_hi = " + server_config.get_diag_seq_hi());
 			System.out.println("forecast_fn_prefix = " + server_config.get_forecast_fn_prefix());
+			System.out.println("etas_fit_dir = " + server_config.get_etas_fit_dir());
 			System.out.println("comcat_url = " + server_config.get_comcat_url());
 			System.out.println("feed_url = " + server_config.get_feed_url());
 			System.out.println("comcat_dev_url = " + server_config.get_comcat_dev_url());
@@ -48,6 +48,7 @@ import org.opensha.oaf.pdl.PDLAnySenderConfig;
  *  [v2] "diag_seq_lo" = Integer giving lower limit of diag file sequence number, inclusive, must be >= 0.
  *  [v2] "diag_seq_hi" = Integer giving upper limit of diag file sequence number, exclusive, must be >= diag_seq_lo.
  *	[v2] "forecast_fn_prefix" = String giving pattern for a forecast filename prefix, in the format of SimpleDateFormat.
+ *	[v4] "etas_fit_dir" = String giving directory for ETAS fit snapshots, or "" if none.
  *	"comcat_url" = String giving Comcat URL.
  *	"feed_url" = String giving real-time feed URL, or empty string to not use the feed.
  *	"comcat_dev_url" = String giving Comcat development URL.
@@ -150,6 +151,14 @@ public class ServerConfigFile implements Marshalable {
 
 	private static final String V1_FORECAST_FN_PREFIX = "'/data/aafs/forecasts/'yyyy-MM'/'yyyy-MM-dd-HH-mm-ss'-'";
 
+	// Directory for ETAS fit snapshots, or "" if none. [v4]
+	// If both servers use the same (shared) directory, a forecast that is retried on
+	// either server can reuse the parameter fitting done by the other.
+
+	public String etas_fit_dir;
+
+	private static final String V3_ETAS_FIT_DIR = "";		// Value for V1 thru V3 files
+
 	// Comcat URL.
 
 	public String comcat_url;
@@ -288,6 +297,7 @@ public class ServerConfigFile implements Marshalable {
 		diag_seq_lo = 0;
 		diag_seq_hi = 0;
 		forecast_fn_prefix = "";
+		etas_fit_dir = "";
 		comcat_url = "";
 		feed_url = "";
 		comcat_dev_url = "";
@@ -375,6 +385,10 @@ public class ServerConfigFile implements Marshalable {
 			throw new InvariantViolationException ("ServerConfigFile: Invalid forecast_fn_prefix: " + ((forecast_fn_prefix == null) ? "<null>" : forecast_fn_prefix));
 		}
 
+		if (!( etas_fit_dir != null )) {
+			throw new InvariantViolationException ("ServerConfigFile: Invalid etas_fit_dir: " + ((etas_fit_dir == null) ? "<null>" : etas_fit_dir));
+		}
+
 		if (!( comcat_url != null && comcat_url.trim().length() > 0 )) {
 			throw new InvariantViolationException ("ServerConfigFile: Invalid comcat_url: " + ((comcat_url == null) ? "<null>" : comcat_url));
 		}
@@ -513,6 +527,7 @@ public class ServerConfigFile implements Marshalable {
 		result.append ("diag_seq_lo = " + diag_seq_lo + "\n");
 		result.append ("diag_seq_hi = " + diag_seq_hi + "\n");
 		result.append ("forecast_fn_prefix = " + ((forecast_fn_prefix == null) ? "<null>" : forecast_fn_prefix) + "\n");
+		result.append ("etas_fit_dir = " + ((etas_fit_dir == null) ? "<null>" : etas_fit_dir) + "\n");
 		result.append ("comcat_url = " + ((comcat_url == null) ? "<null>" : comcat_url) + "\n");
 		result.append ("feed_url = " + ((feed_url == null) ? "<null>" : feed_url) + "\n");
 		result.append ("comcat_dev_url = " + ((comcat_dev_url == null) ? "<null>" : comcat_dev_url) + "\n");
@@ -762,6 +777,7 @@ public class ServerConfigFile implements Marshalable {
 	private static final int MARSHAL_VER_1 = 34001;
 	private static final int MARSHAL_VER_2 = 34002;
 	private static final int MARSHAL_VER_3 = 34003;
+	private static final int MARSHAL_VER_4 = 34004;
 
 	private static final String M_VERSION_NAME = "ServerConfigFile";
 
@@ -864,7 +880,7 @@ public class ServerConfigFile implements Marshalable {
 
 		// Version
 
-		int ver = MARSHAL_VER_3;
+		int ver = MARSHAL_VER_4;
 
 		writer.marshalInt (M_VERSION_NAME, ver);
 
@@ -984,6 +1000,49 @@ public class ServerConfigFile implements Marshalable {
 			PDLAwsSenderConfig.marshal_array (writer, "pdl_dev_aws_senders", pdl_dev_aws_senders);
 			PDLAwsSenderConfig.marshal_array (writer, "pdl_prod_aws_senders", pdl_prod_aws_senders);
 
+			break;
+
+		case MARSHAL_VER_4:
+
+			mongo_config.marshal    (writer, "mongo_config"                        );
+
+			writer.marshalString    (        "server_name"      , server_name      );
+			writer.marshalInt       (        "server_number"    , server_number    );
+			marshal_string_coll     (writer, "server_db_handles", server_db_handles);
+			writer.marshalString    (        "log_con_aafs"     , log_con_aafs     );
+			writer.marshalString    (        "log_con_intake"   , log_con_intake   );
+			writer.marshalString    (        "log_con_control"  , log_con_control  );
+			writer.marshalString    (        "log_summary"      , log_summary      );
+
+			writer.marshalString    (        "diag_fn_prefix"    , diag_fn_prefix    );
+			writer.marshalInt       (        "diag_seq_lo"       , diag_seq_lo       );
+			writer.marshalInt       (        "diag_seq_hi"       , diag_seq_hi       );
+			writer.marshalString    (        "forecast_fn_prefix", forecast_fn_prefix);
+			writer.marshalString    (        "etas_fit_dir"      , etas_fit_dir      );
+
+			writer.marshalString    (        "comcat_url"       , comcat_url       );
+			writer.marshalString    (        "feed_url"         , feed_url         );
+			writer.marshalString    (        "comcat_dev_url"   , comcat_dev_url   );
+			writer.marshalString    (        "feed_dev_url"     , feed_dev_url     );
+			writer.marshalDouble    (        "comcat_err_rate"  , comcat_err_rate  );
+			marshal_string_coll     (writer, "comcat_exclude"   , comcat_exclude   );
+			writer.marshalInt       (        "locat_bins"       , locat_bins       );
+			marshal_string_coll     (writer, "locat_filenames"  , locat_filenames  );
+			writer.marshalInt       (        "block_pdl_intake" , block_pdl_intake );
+			writer.marshalInt       (        "block_poll_intake", block_poll_intake);
+			writer.marshalInt       (        "block_fc_content" , block_fc_content );
+			writer.marshalDouble    (        "db_err_rate"      , db_err_rate      );
+			writer.marshalInt       (        "pdl_enable"       , pdl_enable       );
+			writer.marshalString    (        "pdl_key_filename" , pdl_key_filename );
+			writer.marshalDouble    (        "pdl_err_rate"     , pdl_err_rate     );
+			writer.marshalString    (        "pdl_oaf_source"   , pdl_oaf_source   );
+			writer.marshalString    (        "pdl_oaf_type"     , pdl_oaf_type     );
+			writer.marshalInt       (        "pdl_target"       , pdl_target       );
+			marshal_pdl_sender_list (writer, "pdl_dev_senders"  , pdl_dev_senders  );
+			marshal_pdl_sender_list (writer, "pdl_prod_senders" , pdl_prod_senders );
+			PDLAwsSenderConfig.marshal_array (writer, "pdl_dev_aws_senders", pdl_dev_aws_senders);
+			PDLAwsSenderConfig.marshal_array (writer, "pdl_prod_aws_senders", pdl_prod_aws_senders);
+
 			break;
 		}
 	
@@ -996,7 +1055,7 @@ public class ServerConfigFile implements Marshalable {
 	
 		// Version
 
-		int ver = reader.unmarshalInt (M_VERSION_NAME, MARSHAL_VER_1, MARSHAL_VER_3);
+		int ver = reader.unmarshalInt (M_VERSION_NAME, MARSHAL_VER_1, MARSHAL_VER_4);
 
 		// Contents
 
@@ -1019,6 +1078,7 @@ public class ServerConfigFile implements Marshalable {
 			diag_seq_lo = V1_DIAG_SEQ_LO;
 			diag_seq_hi = V1_DIAG_SEQ_HI;
 			forecast_fn_prefix = V1_FORECAST_FN_PREFIX;
+			etas_fit_dir = V3_ETAS_FIT_DIR;
 
 			comcat_url        = reader.unmarshalString    (        "comcat_url"       );
 			feed_url          = reader.unmarshalString    (        "feed_url"         );
@@ -1064,6 +1124,7 @@ public class ServerConfigFile implements Marshalable {
 			diag_seq_lo        = reader.unmarshalInt       (        "diag_seq_lo"       );
 			diag_seq_hi        = reader.unmarshalInt       (        "diag_seq_hi"       );
 			forecast_fn_prefix = reader.unmarshalString    (        "forecast_fn_prefix");
+			etas_fit_dir       = V3_ETAS_FIT_DIR;
 
 			comcat_url        = reader.unmarshalString    (        "comcat_url"       );
 			feed_url          = reader.unmarshalString    (        "feed_url"         );
@@ -1109,6 +1170,53 @@ public class ServerConfigFile implements Marshalable {
 			diag_seq_lo        = reader.unmarshalInt       (        "diag_seq_lo"       );
 			diag_seq_hi        = reader.unmarshalInt       (        "diag_seq_hi"       );
 			forecast_fn_prefix = reader.unmarshalString    (        "forecast_fn_prefix");
+			etas_fit_dir       = V3_ETAS_FIT_DIR;
+
+			comcat_url        = reader.unmarshalString    (        "comcat_url"       );
+			feed_url          = reader.unmarshalString    (        "feed_url"         );
+			comcat_dev_url    = reader.unmarshalString    (        "comcat_dev_url"   );
+			feed_dev_url      = reader.unmarshalString    (        "feed_dev_url"     );
+			comcat_err_rate   = reader.unmarshalDouble    (        "comcat_err_rate"  );
+			comcat_exclude = new LinkedHashSet<String>();
+			unmarshal_string_coll                         (reader, "comcat_exclude"   , comcat_exclude   );
+			locat_bins        = reader.unmarshalInt       (        "locat_bins"       );
+			locat_filenames = new ArrayList<String>();
+			unmarshal_string_coll                         (reader, "locat_filenames"  , locat_filenames  );
+			block_pdl_intake  = reader.unmarshalInt       (        "block_pdl_intake" );
+			block_poll_intake = reader.unmarshalInt       (        "block_poll_intake");
+			block_fc_content  = reader.unmarshalInt       (        "block_fc_content" );
+			db_err_rate       = reader.unmarshalDouble    (        "db_err_rate"      );
+			pdl_enable        = reader.unmarshalInt       (        "pdl_enable"       );
+			pdl_key_filename  = reader.unmarshalString    (        "pdl_key_filename" );
+			pdl_err_rate      = reader.unmarshalDouble    (        "pdl_err_rate"     );
+			pdl_oaf_source    = reader.unmarshalString    (        "pdl_oaf_source"   );
+			pdl_oaf_type      = reader.unmarshalString    (        "pdl_oaf_type"     );
+			pdl_target        = reader.unmarshalInt       (        "pdl_target"       );
+			pdl_dev_senders   = unmarshal_pdl_sender_list (reader, "pdl_dev_senders"  );
+			pdl_prod_senders  = unmarshal_pdl_sender_list (reader, "pdl_prod_senders" );
+			pdl_dev_aws_senders = PDLAwsSenderConfig.unmarshal_array (reader, "pdl_dev_aws_senders");
+			pdl_prod_aws_senders = PDLAwsSenderConfig.unmarshal_array (reader, "pdl_prod_aws_senders");
+
+			break;
+
+		case MARSHAL_VER_4:
+
+			mongo_config      = new MongoDBConfig         (reader, "mongo_config"     );
+
+			server_name       = reader.unmarshalString    (        "server_name"      );
+			server_number     = reader.unmarshalInt       (        "server_number"    );
+			server_db_handles = new ArrayList<String>();
+			unmarshal_string_coll                         (reader, "server_db_handles", server_db_handles);
+			log_con_aafs      = reader.unmarshalString    (        "log_con_aafs"     );
+			log_con_intake    = reader.unmarshalString    (        "log_con_intake"   );
+			log_con_control   = reader.unmarshalString    (        "log_con_control"  );
+			log_summary       = reader.unmarshalString    (        "log_summary"      );
+
+			diag_fn_prefix     = reader.unmarshalString    (        "diag_fn_prefix"    );
+			diag_seq_lo        = reader.unmarshalInt       (        "diag_seq_lo"       );
+			diag_seq_hi        = reader.unmarshalInt       (        "diag_seq_hi"       );
+			forecast_fn_prefix = reader.unmarshalString    (        "forecast_fn_prefix");
+			etas_fit_dir       = reader.unmarshalString    (        "etas_fit_dir"      );
 
 			comcat_url        = reader.unmarshalString    (        "comcat_url"       );
 			feed_url          = reader.unmarshalString    (        "feed_url"         );
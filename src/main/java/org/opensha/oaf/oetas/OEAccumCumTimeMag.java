@@ -9,6 +9,7 @@ import org.opensha.oaf.util.MarshalReader;
 import org.opensha.oaf.util.MarshalWriter;
 import org.opensha.oaf.util.MarshalException;
 import org.opensha.oaf.util.AutoExecutorService;
+import org.opensha.oaf.util.SimpleParallelHelper;
 
 import org.opensha.oaf.oetas.util.OEArraysCalc;
 
@@ -1228,6 +1229,18 @@ public class OEAccumCumTimeMag implements OEEnsembleAccumulator, OEAccumReadoutT
 
 
 
+	// Return true if consumers can consume a streamed catalog.
+	// Consumers do not use the catalog totals, and store results only when closed,
+	// and re-opening a consumer discards its counts.
+
+	@Override
+	public boolean is_stream_capable () {
+		return true;
+	}
+
+
+
+
 	// Begin accumulating catalogs.
 	// Parameters:
 	//  capacity = The number of catalogs that will be accumulated.
@@ -1296,6 +1309,22 @@ public class OEAccumCumTimeMag implements OEEnsembleAccumulator, OEAccumReadoutT
 
 	@Override
 	public void end_accumulation () {
+		end_accumulation (null);
+		return;
+	}
+
+
+
+
+	// End accumulating catalogs, with an executor available to finish in parallel.
+	// Parameters:
+	//  executor = Executor whose threads can be used, or null if none.
+	// The columns are sorted in parallel, one time/magnitude bin per iteration.
+	// Threading: No other thread should be accessing this object,
+	// and none of its consumers can be open.
+
+	@Override
+	public void end_accumulation (AutoExecutorService executor) {
 
 		// Get the size
 
@@ -1303,7 +1332,14 @@ public class OEAccumCumTimeMag implements OEEnsembleAccumulator, OEAccumReadoutT
 	
 		// Sort each column, so fractiles are available
 
-		OEArraysCalc.sort_each_array_column (acc_counts, 0, acc_size);
+		if (acc_size > 1) {
+			SimpleParallelHelper.parallel_for (0, time_bins * mag_bins, new SimpleParallelHelper.LoopBody() {
+				@Override
+				public void run_iteration (int index) {
+					Arrays.sort (acc_counts[index / mag_bins][index % mag_bins], 0, acc_size);
+				}
+			}, executor);
+		}
 
 		return;
 	}
@@ -0,0 +1,1034 @@
+package org.opensha.oaf.oetas;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+
+import org.opensha.oaf.util.MarshalReader;
+import org.opensha.oaf.util.MarshalWriter;
+import org.opensha.oaf.util.MarshalException;
+import org.opensha.oaf.util.AutoExecutorService;
+import org.opensha.oaf.util.SimpleParallelHelper;
+
+import org.opensha.oaf.oetas.util.OEArraysCalc;
+
+import static org.opensha.oaf.oetas.OEConstants.INFILL_METH_MIN;
+import static org.opensha.oaf.oetas.OEConstants.INFILL_METH_MAX;
+
+
+// Operational ETAS catalog accumulator for a cumulative time/magnitude grid, using fixed memory.
+//
+// This object contains a 2D array of bins, each representing a range of
+// time and magnitude.  Bins are cumulative, and include all ruptures at
+// earlier times and greater magnitudes.
+//
+// This is an alternative to OEAccumVarTimeMag, which stores one count per catalog
+// in each bin, and so needs memory proportional to the number of catalogs.
+// Instead, the contents of each bin is a histogram of rupture counts, with a
+// fixed number of buckets.  So memory use does not depend on the number of
+// catalogs, and there is no sort at the end of accumulation.
+//
+// Each histogram has one bucket for each count less than exact_limit, and
+// logarithmically-spaced buckets for larger counts.  A count v >= exact_limit
+// is placed in bucket k with gamma^(k-1) < v <= gamma^k, where
+//  gamma = (1 + rel_accuracy)/(1 - rel_accuracy)
+// and each bucket is represented by the value 2*gamma^k/(gamma + 1).
+//
+// Error bounds:
+// * The number of catalogs in each bin, and the live counts, are exact.
+// * A fractile is found by the same rank rule as OEAccumVarTimeMag.  If the count
+//   at that rank is less than exact_limit, the result is exact.  Otherwise, the
+//   result r differs from the count v at that rank by at most rel_accuracy*v + 1.
+// * A probability of occurrence for xcount < exact_limit is exact.  For larger
+//   xcount, it can only misclassify catalogs whose count v is within rel_accuracy*v + 1
+//   of xcount.
+// The results are the same as OEAccumVarTimeMag whenever all counts are less than exact_limit.
+//
+// Each consumer has its own partial histograms, so consumers never contend.
+// The partial histograms are added together at the end of accumulation.  So total
+// memory is proportional to the number of consumers (typically the number of threads).
+//
+// This version accommodates catalogs with variable length, and that yield
+// a variable number of catalogs per bin.
+//
+// The bin definitions and catalog consumers are in OEAccumTimeMagBase, and are
+// shared with OEAccumVarTimeMag.  So both accumulators see identical counts.
+
+public class OEAccumHistTimeMag extends OEAccumTimeMagBase {
+
+
+
+
+	//----- Histogram buckets -----
+
+	// Default limit below which each count has its own bucket.
+
+	public static final int DEF_EXACT_LIMIT = 1024;
+
+	// Default relative accuracy for counts in the logarithmic buckets.
+
+	public static final double DEF_REL_ACCURACY = 0.005;
+
+	// The limit below which each count has its own bucket.
+
+	private int exact_limit;
+
+	// The relative accuracy for counts in the logarithmic buckets.
+
+	private double rel_accuracy;
+
+	// The natural log of the bucket ratio gamma = (1 + rel_accuracy)/(1 - rel_accuracy).
+
+	private double log_gamma;
+
+	// The logarithmic bucket index k of the first logarithmic bucket, equal to ceil(log(exact_limit)/log(gamma)).
+
+	private int log_bucket_base;
+
+	// The number of buckets in each histogram.
+
+	private int num_buckets;
+
+	// The value that represents each bucket, in increasing order.
+	// Dimension: bucket_value[num_buckets]
+
+	private int[] bucket_value;
+
+
+	// Set up the bucket definitions.
+	// Parameters:
+	//  the_exact_limit = The limit below which each count has its own bucket, must be >= 1.
+	//  the_rel_accuracy = The relative accuracy for larger counts, must be > 0.0 and < 1.0.
+
+	private void setup_buckets (int the_exact_limit, double the_rel_accuracy) {
+		exact_limit = the_exact_limit;
+		rel_accuracy = the_rel_accuracy;
+
+		double gamma = (1.0 + rel_accuracy) / (1.0 - rel_accuracy);
+		log_gamma = Math.log (gamma);
+		log_bucket_base = (int)Math.ceil (Math.log ((double)exact_limit) / log_gamma);
+		int log_bucket_top = (int)Math.ceil (Math.log ((double)Integer.MAX_VALUE) / log_gamma);
+		num_buckets = exact_limit + (log_bucket_top - log_bucket_base) + 1;
+
+		bucket_value = new int[num_buckets];
+		for (int n = 0; n < exact_limit; ++n) {
+			bucket_value[n] = n;
+		}
+		for (int n = exact_limit; n < num_buckets; ++n) {
+			double v = 2.0 * Math.exp (((double)(log_bucket_base + n - exact_limit)) * log_gamma) / (gamma + 1.0);
+			bucket_value[n] = (int)Math.max ((double)exact_limit, Math.min (Math.rint (v), (double)Integer.MAX_VALUE));
+		}
+		return;
+	}
+
+
+	// Get the bucket that holds the given count.
+	// Parameters:
+	//  count = Rupture count, must be >= 0.
+
+	private int get_bucket (int count) {
+		if (count < exact_limit) {
+			return count;
+		}
+		int k = (int)Math.ceil (Math.log ((double)count) / log_gamma) - log_bucket_base;
+		return Math.min (exact_limit + Math.max (k, 0), num_buckets - 1);
+	}
+
+
+
+
+	//----- Accumulators -----
+
+	// The accumulated histograms.
+	// Dimension: acc_hist[time_bins][mag_bins][num_buckets]
+	// Available after end_accumulation.
+
+	private int[][][] acc_hist;
+
+	// The number of catalogs that counted each possible number of time bins.
+	// Dimension: acc_counted_hist[time_bins + 1]
+
+	private int[] acc_counted_hist;
+
+
+
+
+	//----- Count storage -----
+
+	// Partial histograms, one for each consumer.
+	// Each consumer adds only to its own partial histograms, so no synchronization is
+	// needed during accumulation.  The list itself is synchronized on partial_list.
+
+	private class PartialAcc implements CountSink {
+
+		// Partial histograms.
+		// Dimension: hist[time_bins][mag_bins][num_buckets]
+
+		public int[][][] hist;
+
+		// Partial number of catalogs that counted each possible number of time bins.
+		// Dimension: counted_hist[time_bins + 1]
+
+		public int[] counted_hist;
+
+		// Constructor allocates zeroed arrays.
+
+		public PartialAcc () {
+			hist = new int[time_bins][mag_bins][num_buckets];
+			counted_hist = new int[time_bins + 1];
+		}
+
+		// Zero the arrays.
+
+		public void zero () {
+			OEArraysCalc.zero_array (hist);
+			OEArraysCalc.zero_array (counted_hist);
+			return;
+		}
+
+		// Add the counts for one catalog into the histograms, for the reporting time bins.
+
+		@Override
+		public void store_counts (int[][] counts, int report_time_bins, int cat_time_bins) {
+
+			// Get the index for this catalog, which checks capacity
+
+			get_acc_catix();
+
+			// Add the counts into the histograms
+
+			for (int time_ix = 0; time_ix < report_time_bins; ++time_ix) {
+				final int[] counts_row = counts[time_ix];
+				final int[][] hist_row = hist[time_ix];
+				for (int mag_ix = 0; mag_ix < mag_bins; ++mag_ix) {
+					hist_row[mag_ix][get_bucket (counts_row[mag_ix])]++;
+				}
+			}
+
+			counted_hist[cat_time_bins]++;
+			return;
+		}
+	}
+
+	// The list of partial histograms.
+
+	private final ArrayList<PartialAcc> partial_list = new ArrayList<PartialAcc>();
+
+	// Make a new partial histogram, and add it to the list.
+	// This is the count sink for a new consumer.
+
+	@Override
+	protected CountSink make_count_sink () {
+		PartialAcc partial_acc = new PartialAcc();
+		synchronized (partial_list) {
+			partial_list.add (partial_acc);
+		}
+		return partial_acc;
+	}
+
+
+
+
+	//----- Construction -----
+
+
+
+
+	// Erase the contents.
+
+	public final void clear () {
+		clear_time_mag();
+
+		exact_limit = 0;
+		rel_accuracy = 0.0;
+		log_gamma = 0.0;
+		log_bucket_base = 0;
+		num_buckets = 0;
+		bucket_value = new int[0];
+
+		acc_hist = new int[0][0][0];
+		acc_counted_hist = new int[0];
+
+		synchronized (partial_list) {
+			partial_list.clear();
+		}
+
+		return;
+	}
+
+
+
+
+	// Default constructor.
+
+	public OEAccumHistTimeMag () {
+		clear();
+	}
+
+
+
+
+	// Set up to begin accumulating, with the default bucket definitions.
+	// Parameters:
+	//  the_infill_meth = The infill method to use.
+	//  the_time_values = The time values to define the bins, in days, must be in increasing order.
+	//  the_mag_values = The magnitude values to define the bins, must be in increasing order.
+	// Note: The function stores copies of the given arrays.
+
+	@Override
+	public void setup (int the_infill_meth, double[] the_time_values, double[] the_mag_values) {
+		setup (the_infill_meth, the_time_values, the_mag_values, DEF_EXACT_LIMIT, DEF_REL_ACCURACY);
+		return;
+	}
+
+
+
+
+	// Set up to begin accumulating.
+	// Parameters:
+	//  the_infill_meth = The infill method to use.
+	//  the_time_values = The time values to define the bins, in days, must be in increasing order.
+	//  the_mag_values = The magnitude values to define the bins, must be in increasing order.
+	//  the_exact_limit = The limit below which each count has its own bucket, must be >= 1.
+	//  the_rel_accuracy = The relative accuracy for larger counts, must be > 0.0 and < 1.0.
+	// Note: The function stores copies of the given arrays.
+
+	public void setup (int the_infill_meth, double[] the_time_values, double[] the_mag_values, int the_exact_limit, double the_rel_accuracy) {
+
+		// Parameter validation
+
+		if (!( the_infill_meth >= INFILL_METH_MIN && the_infill_meth <= INFILL_METH_MAX )) {
+			throw new IllegalArgumentException ("OEAccumHistTimeMag.setup: Invalid infill method: " + the_infill_meth);
+		}
+
+		if (!( the_exact_limit >= 1 )) {
+			throw new IllegalArgumentException ("OEAccumHistTimeMag.setup: Invalid exact limit: " + the_exact_limit);
+		}
+
+		if (!( the_rel_accuracy > 0.0 && the_rel_accuracy < 1.0 )) {
+			throw new IllegalArgumentException ("OEAccumHistTimeMag.setup: Invalid relative accuracy: " + the_rel_accuracy);
+		}
+
+		// Set up the bins, with validation
+
+		setup_time_mag (the_infill_meth, the_time_values, the_mag_values);
+
+		// Bucket definitions
+
+		setup_buckets (the_exact_limit, the_rel_accuracy);
+
+		// Empty accumulators
+
+		acc_hist = null;
+		acc_counted_hist = null;
+
+		synchronized (partial_list) {
+			partial_list.clear();
+		}
+
+		return;
+	}
+
+
+
+
+	//----- Implementation of OEEnsembleAccumulator -----
+
+
+
+
+	// Begin accumulating catalogs.
+	// Parameters:
+	//  capacity = The number of catalogs that will be accumulated.
+	// This function should be called before any other control methods.
+	// The accumulator should allocate resources so it can hold results
+	// from at least the specified number of catalogs.
+	// Threading: No other thread should be accessing this object,
+	// and none of its consumers can be open.
+	// Design note: The number of catalogs is specified in advance, because
+	// automatically increasing the capacity on-demand is likely to require
+	// expensive synchronization, and typically the expected number of catalogs
+	// is known.
+
+	@Override
+	public void begin_accumulation (int capacity) {
+	
+		// Set the capacity, no allocation is needed since memory does not depend on capacity
+
+		if (capacity > acc_capacity) {
+			acc_capacity = capacity;
+		}
+
+		// Initialize the counters
+
+		acc_size = 0;
+		acc_catix.set(0);
+		acc_hist = null;			// created during end_accumulation
+		acc_counted_hist = null;	// created during end_accumulation
+		acc_bin_size = null;		// created during end_accumulation
+		acc_live_counts = null;		// created during end_accumulation
+
+		// Zero the partial histograms
+
+		synchronized (partial_list) {
+			for (PartialAcc partial_acc : partial_list) {
+				partial_acc.zero();
+			}
+		}
+
+		return;
+	}
+
+
+
+
+	// Increase the capacity of the accumulator.
+	// Parameters:
+	//  capacity = The number of catalogs that will be accumulated.
+	// This function can be called to increase the capacity of the accumulator
+	// above its original or prior setting.
+	// For this accumulator, it is inexpensive because memory does not depend on capacity.
+	// Threading: No other thread should be accessing this object,
+	// and none of its consumers can be open.
+
+	@Override
+	public void increase_capacity (int capacity) {
+	
+		// If increasing capacity, just record it
+
+		if (capacity > acc_capacity) {
+			acc_capacity = capacity;
+		}
+
+		return;
+	}
+
+
+
+
+	// End accumulating catalogs, with an executor available to finish in parallel.
+	// Parameters:
+	//  executor = Executor whose threads can be used, or null if none.
+	// The partial histograms are added together in parallel, one time/magnitude bin per iteration.
+	// The partial histograms are not modified.
+	// Threading: No other thread should be accessing this object,
+	// and none of its consumers can be open.
+
+	@Override
+	public void end_accumulation (AutoExecutorService executor) {
+
+		// Get the size
+
+		acc_size = acc_catix.get();
+
+		// Get the partial histograms
+
+		final ArrayList<PartialAcc> partials;
+		synchronized (partial_list) {
+			partials = new ArrayList<PartialAcc>(partial_list);
+		}
+
+		// Add the partial histograms, and get the bin sizes
+
+		acc_hist = new int[time_bins][mag_bins][num_buckets];
+		acc_bin_size = new int[time_bins][mag_bins];
+
+		SimpleParallelHelper.parallel_for (0, time_bins * mag_bins, new SimpleParallelHelper.LoopBody() {
+			@Override
+			public void run_iteration (int index) {
+				final int time_ix = index / mag_bins;
+				final int mag_ix = index % mag_bins;
+				final int[] hist = acc_hist[time_ix][mag_ix];
+				for (PartialAcc partial_acc : partials) {
+					final int[] src = partial_acc.hist[time_ix][mag_ix];
+					for (int n = 0; n < num_buckets; ++n) {
+						hist[n] += src[n];
+					}
+				}
+				int size = 0;
+				for (int n = 0; n < num_buckets; ++n) {
+					size += hist[n];
+				}
+				acc_bin_size[time_ix][mag_ix] = size;
+			}
+		}, executor);
+
+		// Add the counted bins
+
+		acc_counted_hist = new int[time_bins + 1];
+		OEArraysCalc.zero_array (acc_counted_hist);
+
+		for (PartialAcc partial_acc : partials) {
+			for (int n = 0; n <= time_bins; ++n) {
+				acc_counted_hist[n] += partial_acc.counted_hist[n];
+			}
+		}
+
+		// Cumulate the number of live catalogs
+
+		acc_live_counts = new int[time_bins];
+		OEArraysCalc.zero_array (acc_live_counts);
+
+		for (int n = 1; n <= time_bins; ++n) {
+			acc_live_counts[n - 1] += acc_counted_hist[n];
+		}
+
+		OEArraysCalc.cumulate_array (acc_live_counts, false) ;
+
+		return;
+	}
+
+
+
+
+	//----- Readout functions -----
+
+
+
+
+	// Get the limit below which each count has its own bucket.
+
+	public final int get_exact_limit () {
+		return exact_limit;
+	}
+
+
+	// Get the relative accuracy for counts in the logarithmic buckets.
+
+	public final double get_rel_accuracy () {
+		return rel_accuracy;
+	}
+
+
+	// Get the number of buckets in each histogram.
+
+	public final int get_num_buckets () {
+		return num_buckets;
+	}
+
+
+	// Get the number of bytes used by the histograms, for all bins and all consumers.
+
+	public final long get_hist_bytes () {
+		int n_hist;
+		synchronized (partial_list) {
+			n_hist = partial_list.size() + 1;
+		}
+		return 4L * ((long)n_hist) * ((long)time_bins) * ((long)mag_bins) * ((long)num_buckets);
+	}
+
+
+
+
+	// Get a fractile from one histogram.
+	// Parameters:
+	//  hist = Histogram.
+	//  size = Total count in the histogram.
+	//  fractile = Fractile to find, should be between 0.0 and 1.0.
+	// Uses the same rank as OEArraysCalc.fractile_array, and returns the value of
+	// the bucket that holds that rank.  If size <= 0 then the return value is zero.
+
+	private int hist_fractile (int[] hist, int size, double fractile) {
+		if (size <= 0) {
+			return 0;
+		}
+		int rank = (int)Math.round (((double)size) * fractile - 0.5);
+		if (rank < 0) {
+			rank = 0;
+		}
+		else if (rank >= size) {
+			rank = size - 1;
+		}
+		int total = 0;
+		for (int n = 0; n < num_buckets; ++n) {
+			total += hist[n];
+			if (total > rank) {
+				return bucket_value[n];
+			}
+		}
+		return bucket_value[num_buckets - 1];
+	}
+
+
+
+
+	// Get a probability of exceedence from one histogram.
+	// Parameters:
+	//  hist = Histogram.
+	//  size = Total count in the histogram.
+	//  xcount = Number of ruptures to check, should be >= 0.
+	// Returns the fraction of counts in buckets whose value exceeds xcount.
+	// If size <= 0 then the return value is zero.
+
+	private double hist_probex (int[] hist, int size, int xcount) {
+		if (size <= 0) {
+			return 0.0;
+		}
+		int total = 0;
+		for (int n = 0; n < num_buckets && bucket_value[n] <= xcount; ++n) {
+			total += hist[n];
+		}
+		return ((double)(size - total)) / ((double)size);
+	}
+
+
+
+
+	// Get a fractile.
+	// Parameters:
+	//  fractile = Fractile to find, should be between 0.0 and 1.0.
+	// Returns a 2D array with dimensions r[time_bins][mag_bins].
+	// Each element corresponds to one bin (which is cumulative by definition).
+	// Each value is an integer N, such that the probability of N or fewer
+	// ruptures is approximately equal to fractile.
+	// Note: The returned array should be newly-allocated and not retained by this object.
+
+	@Override
+	public final int[][] get_fractile_array (double fractile) {
+		int[][] result = new int[time_bins][mag_bins];
+		for (int time_ix = 0; time_ix < time_bins; ++time_ix) {
+			for (int mag_ix = 0; mag_ix < mag_bins; ++mag_ix) {
+				result[time_ix][mag_ix] = hist_fractile (acc_hist[time_ix][mag_ix], acc_bin_size[time_ix][mag_ix], fractile);
+			}
+		}
+		return result;
+	}
+
+
+
+
+	// Get the probability of occurrence array.
+	// Parameters:
+	//  xcount = Number of ruptures to check, should be >= 0.
+	// Returns a 2D array with dimensions r[time_bins][mag_bins].
+	// Each element corresponds to one bin (which is cumulative by definition).
+	// Each value is a real number v, such that v is the probability that
+	// the number of ruptures that occur is greater than xcount.
+	// Note: The result is exact if xcount < exact_limit.
+	// Note: The returned array should be newly-allocated and not retained by this object.
+
+	@Override
+	public final double[][] get_prob_occur_array (int xcount) {
+		double[][] result = new double[time_bins][mag_bins];
+		for (int time_ix = 0; time_ix < time_bins; ++time_ix) {
+			for (int mag_ix = 0; mag_ix < mag_bins; ++mag_ix) {
+				result[time_ix][mag_ix] = hist_probex (acc_hist[time_ix][mag_ix], acc_bin_size[time_ix][mag_ix], xcount);
+			}
+		}
+		return result;
+	}
+
+
+
+
+	//----- Marshaling -----
+
+	// Marshal version number.
+
+	private static final int MARSHAL_VER_1 = 132001;
+
+	private static final String M_VERSION_NAME = "OEAccumHistTimeMag";
+
+	// Marshal object, internal.
+	// Note: The partial histograms are not marshaled, so the object should be
+	// marshaled only after end_accumulation.
+
+	private void do_marshal (MarshalWriter writer) {
+
+		// Version
+
+		int ver = MARSHAL_VER_1;
+
+		writer.marshalInt (M_VERSION_NAME, ver);
+
+		// Contents
+
+		switch (ver) {
+
+		case MARSHAL_VER_1: {
+
+			marshal_time_mag (writer);
+
+			writer.marshalInt         ("exact_limit"      , exact_limit      );
+			writer.marshalDouble      ("rel_accuracy"     , rel_accuracy     );
+
+			writer.marshalInt         ("acc_capacity"     , acc_capacity     );
+			writer.marshalInt         ("acc_size"         , acc_size         );
+			writer.marshalInt3DArray  ("acc_hist"         , acc_hist         );
+			writer.marshalIntArray    ("acc_counted_hist" , acc_counted_hist );
+			writer.marshalInt2DArray  ("acc_bin_size"     , acc_bin_size     );
+			writer.marshalIntArray    ("acc_live_counts"  , acc_live_counts  );
+
+		}
+		break;
+
+		}
+
+		return;
+	}
+
+	// Unmarshal object, internal.
+
+	private void do_umarshal (MarshalReader reader) {
+	
+		// Version
+
+		int ver = reader.unmarshalInt (M_VERSION_NAME, MARSHAL_VER_1, MARSHAL_VER_1);
+
+		// Contents
+
+		switch (ver) {
+
+		case MARSHAL_VER_1: {
+
+			unmarshal_time_mag (reader);
+
+			int the_exact_limit    = reader.unmarshalInt     ("exact_limit"      );
+			double the_rel_accuracy = reader.unmarshalDouble ("rel_accuracy"     );
+
+			acc_capacity      = reader.unmarshalInt          ("acc_capacity"     );
+			acc_size          = reader.unmarshalInt          ("acc_size"         );
+			acc_hist          = reader.unmarshalInt3DArray   ("acc_hist"         );
+			acc_counted_hist  = reader.unmarshalIntArray     ("acc_counted_hist" );
+			acc_bin_size      = reader.unmarshalInt2DArray   ("acc_bin_size"     );
+			acc_live_counts   = reader.unmarshalIntArray     ("acc_live_counts"  );
+
+			if (!( the_exact_limit >= 1 && the_rel_accuracy > 0.0 && the_rel_accuracy < 1.0 )) {
+				throw new MarshalException ("OEAccumHistTimeMag.do_umarshal: Invalid bucket definition: exact_limit = " + the_exact_limit + ", rel_accuracy = " + the_rel_accuracy);
+			}
+
+			setup_buckets (the_exact_limit, the_rel_accuracy);
+
+			synchronized (partial_list) {
+				partial_list.clear();
+			}
+		}
+		break;
+
+		}
+
+		return;
+	}
+
+	// Marshal object.
+
+	public void marshal (MarshalWriter writer, String name) {
+		writer.marshalMapBegin (name);
+		do_marshal (writer);
+		writer.marshalMapEnd ();
+		return;
+	}
+
+	// Unmarshal object.
+
+	public OEAccumHistTimeMag unmarshal (MarshalReader reader, String name) {
+		reader.unmarshalMapBegin (name);
+		do_umarshal (reader);
+		reader.unmarshalMapEnd ();
+		return this;
+	}
+
+	// Marshal object.
+
+	public static void static_marshal (MarshalWriter writer, String name, OEAccumHistTimeMag accumulator) {
+		writer.marshalMapBegin (name);
+		accumulator.do_marshal (writer);
+		writer.marshalMapEnd ();
+		return;
+	}
+
+	// Unmarshal object.
+
+	public static OEAccumHistTimeMag static_unmarshal (MarshalReader reader, String name) {
+		OEAccumHistTimeMag accumulator = new OEAccumHistTimeMag();
+		reader.unmarshalMapBegin (name);
+		accumulator.do_umarshal (reader);
+		reader.unmarshalMapEnd ();
+		return accumulator;
+	}
+
+
+
+
+	//----- Testing -----
+
+
+
+
+	// Append the bucket configuration to the typical test outputs.
+
+	@Override
+	protected void append_test_config (StringBuilder result) {
+		result.append ("Exact limit = " + exact_limit + "\n");
+		result.append ("Relative accuracy = " + rel_accuracy + "\n");
+		result.append ("Buckets = " + num_buckets + "\n");
+		result.append ("Histogram bytes = " + get_hist_bytes() + "\n");
+		result.append ("\n");
+		return;
+	}
+
+
+
+
+	// Perform a typical test run, multi-threaded version.
+	// Parameters:
+	//  test_cat_params = Catalog parameters.
+	//  mag_main = Mainshock magnitude.
+	//  the_infill_meth = Infill method to use.
+	//  num_cats = Number of catalogs to run.
+	//  num_threads = Number of threads to use, can be -1 for default number of threads.
+	//  max_runtime = Maximum running time allowed.
+	// All catalogs use the same parameters, and are seeded with
+	// a single earthquake.
+
+	public static void typical_test_run_mt (OECatalogParams test_cat_params, double mag_main, int the_infill_meth, int num_cats, int num_threads, long max_runtime) {
+		typical_test_run_mt (new OEAccumHistTimeMag(), test_cat_params, mag_main, the_infill_meth, num_cats, num_threads, max_runtime);
+		return;
+	}
+
+
+
+
+	// Perform a comparison test run, multi-threaded version.
+	// Parameters:
+	//  test_cat_params = Catalog parameters.
+	//  mag_main = Mainshock magnitude.
+	//  the_infill_meth = Infill method to use.
+	//  num_cats = Number of catalogs to run.
+	//  num_threads = Number of threads to use, can be -1 for default number of threads.
+	//  max_runtime = Maximum running time allowed.
+	//  the_exact_limit = The limit below which each count has its own bucket, must be >= 1.
+	//  the_rel_accuracy = The relative accuracy for larger counts, must be > 0.0 and < 1.0.
+	// The same catalogs are fed to an OEAccumVarTimeMag and an OEAccumHistTimeMag.
+	// Fractiles and probabilities are compared, and any that differ by more than the
+	// documented error bounds are reported.  Returns the number of failures.
+
+	public static int compare_test_run_mt (OECatalogParams test_cat_params, double mag_main, int the_infill_meth, int num_cats,
+		int num_threads, long max_runtime, int the_exact_limit, double the_rel_accuracy) {
+
+		// Make the accumulators and set up the bins
+
+		OEAccumVarTimeMag var_accum = new OEAccumVarTimeMag();
+		var_accum.typical_test_setup (the_infill_meth, test_cat_params.tbegin);
+
+		OEAccumHistTimeMag hist_accum = new OEAccumHistTimeMag();
+		hist_accum.setup (the_infill_meth, var_accum.time_values, var_accum.mag_values, the_exact_limit, the_rel_accuracy);
+
+		// Generate the catalogs
+
+		ArrayList<OEEnsembleAccumulator> accumulators = new ArrayList<OEEnsembleAccumulator>();
+		accumulators.add (var_accum);
+		accumulators.add (hist_accum);
+
+		typical_test_generate_mt (accumulators, test_cat_params, mag_main, num_cats, num_threads, max_runtime);
+
+		// Display histogram results
+
+		System.out.println (hist_accum.typical_test_outputs_to_string());
+
+		// Check sizes and live counts, which must be exact
+
+		int failures = 0;
+
+		if (var_accum.acc_size != hist_accum.acc_size) {
+			System.out.println ("Size mismatch: var = " + var_accum.acc_size + ", hist = " + hist_accum.acc_size);
+			++failures;
+		}
+
+		for (int time_ix = 0; time_ix < hist_accum.time_bins; ++time_ix) {
+			if (var_accum.acc_live_counts[time_ix] != hist_accum.acc_live_counts[time_ix]) {
+				System.out.println ("Live count mismatch: time_ix = " + time_ix + ", var = " + var_accum.acc_live_counts[time_ix] + ", hist = " + hist_accum.acc_live_counts[time_ix]);
+				++failures;
+			}
+			for (int mag_ix = 0; mag_ix < hist_accum.mag_bins; ++mag_ix) {
+				if (var_accum.acc_bin_size[time_ix][mag_ix] != hist_accum.acc_bin_size[time_ix][mag_ix]) {
+					System.out.println ("Bin size mismatch: time_ix = " + time_ix + ", mag_ix = " + mag_ix + ", var = " + var_accum.acc_bin_size[time_ix][mag_ix] + ", hist = " + hist_accum.acc_bin_size[time_ix][mag_ix]);
+					++failures;
+				}
+			}
+		}
+
+		// Check fractiles, within rel_accuracy*v + 1 of the exact value
+
+		double[] fractiles = {0.0, 0.025, 0.5, 0.975, 1.0};
+		int max_frac_diff = 0;
+
+		for (double fractile : fractiles) {
+			int[][] var_frac = var_accum.get_fractile_array (fractile);
+			int[][] hist_frac = hist_accum.get_fractile_array (fractile);
+			for (int time_ix = 0; time_ix < hist_accum.time_bins; ++time_ix) {
+				for (int mag_ix = 0; mag_ix < hist_accum.mag_bins; ++mag_ix) {
+					int v = var_frac[time_ix][mag_ix];
+					int diff = Math.abs (hist_frac[time_ix][mag_ix] - v);
+					max_frac_diff = Math.max (max_frac_diff, diff);
+					boolean f_ok = ((v < the_exact_limit) ? (diff == 0) : (((double)diff) <= the_rel_accuracy * ((double)v) + 1.0));
+					if (!( f_ok )) {
+						System.out.println ("Fractile mismatch: fractile = " + fractile + ", time_ix = " + time_ix + ", mag_ix = " + mag_ix + ", var = " + v + ", hist = " + hist_frac[time_ix][mag_ix]);
+						++failures;
+					}
+				}
+			}
+		}
+
+		// Check probability of occurrence, which must be exact
+
+		double[][] var_prob = var_accum.get_prob_occur_array ();
+		double[][] hist_prob = hist_accum.get_prob_occur_array ();
+		double max_prob_diff = 0.0;
+
+		for (int time_ix = 0; time_ix < hist_accum.time_bins; ++time_ix) {
+			for (int mag_ix = 0; mag_ix < hist_accum.mag_bins; ++mag_ix) {
+				double diff = Math.abs (hist_prob[time_ix][mag_ix] - var_prob[time_ix][mag_ix]);
+				max_prob_diff = Math.max (max_prob_diff, diff);
+				if (diff > 1.0e-12) {
+					System.out.println ("Probability mismatch: time_ix = " + time_ix + ", mag_ix = " + mag_ix + ", var = " + var_prob[time_ix][mag_ix] + ", hist = " + hist_prob[time_ix][mag_ix]);
+					++failures;
+				}
+			}
+		}
+
+		// Summary
+
+		System.out.println ();
+		System.out.println ("Maximum fractile difference = " + max_frac_diff);
+		System.out.println ("Maximum probability difference = " + max_prob_diff);
+		System.out.println ("Failures = " + failures);
+
+		return failures;
+	}
+
+
+
+
+	public static void main(String[] args) {
+
+		// There needs to be at least one argument, which is the subcommand
+
+		if (args.length < 1) {
+			System.err.println ("OEAccumHistTimeMag : Missing subcommand");
+			return;
+		}
+
+
+
+
+		// Subcommand : Test #1
+		// Command format:
+		//  test1  n  p  c  b  alpha  gen_size_target  gen_count_max  mag_main  tbegin  infill_meth  num_cats
+		//         mag_min_sim  mag_max_sim  mag_min_lo  mag_min_hi  num_threads  max_runtime  exact_limit  rel_accuracy
+		// Build catalogs with the given parameters, using multiple threads.
+		// The "n" is the branch ratio; "a" is computed from it.
+		// Feed the same catalogs to OEAccumVarTimeMag and OEAccumHistTimeMag, and
+		// compare the fractiles and probabilities of occurrence.
+		// Note that max_runtime must be -1 if no runtime limit is desired.
+		// Using a small exact_limit (e.g., 10) exercises the logarithmic buckets.
+
+		if (args[0].equalsIgnoreCase ("test1")) {
+
+			// 19 additional arguments
+
+			if (args.length != 20) {
+				System.err.println ("OEAccumHistTimeMag : Invalid 'test1' subcommand");
+				return;
+			}
+
+			try {
+
+				double n = Double.parseDouble (args[1]);
+				double p = Double.parseDouble (args[2]);
+				double c = Double.parseDouble (args[3]);
+				double b = Double.parseDouble (args[4]);
+				double alpha = Double.parseDouble (args[5]);
+				int gen_size_target = Integer.parseInt (args[6]);
+				int gen_count_max = Integer.parseInt (args[7]);
+				double mag_main = Double.parseDouble (args[8]);
+				double the_tbegin = Double.parseDouble (args[9]);
+				int the_infill_meth = Integer.parseInt (args[10]);
+				int num_cats = Integer.parseInt (args[11]);
+				double the_mag_min_sim = Double.parseDouble (args[12]);
+				double the_mag_max_sim = Double.parseDouble (args[13]);
+				double the_mag_min_lo = Double.parseDouble (args[14]);
+				double the_mag_min_hi = Double.parseDouble (args[15]);
+				int num_threads = Integer.parseInt (args[16]);
+				long max_runtime = Long.parseLong (args[17]);
+				int the_exact_limit = Integer.parseInt (args[18]);
+				double the_rel_accuracy = Double.parseDouble (args[19]);
+
+				// Say hello
+
+				System.out.println ("Comparing accumulators with given parameters");
+				System.out.println ("n = " + n);
+				System.out.println ("p = " + p);
+				System.out.println ("c = " + c);
+				System.out.println ("b = " + b);
+				System.out.println ("alpha = " + alpha);
+				System.out.println ("gen_size_target = " + gen_size_target);
+				System.out.println ("gen_count_max = " + gen_count_max);
+				System.out.println ("mag_main = " + mag_main);
+				System.out.println ("the_tbegin = " + the_tbegin);
+				System.out.println ("the_infill_meth = " + the_infill_meth);
+				System.out.println ("num_cats = " + num_cats);
+				System.out.println ("the_mag_min_sim = " + the_mag_min_sim);
+				System.out.println ("the_mag_max_sim = " + the_mag_max_sim);
+				System.out.println ("the_mag_min_lo = " + the_mag_min_lo);
+				System.out.println ("the_mag_min_hi = " + the_mag_min_hi);
+				System.out.println ("num_threads = " + num_threads);
+				System.out.println ("max_runtime = " + max_runtime);
+				System.out.println ("the_exact_limit = " + the_exact_limit);
+				System.out.println ("the_rel_accuracy = " + the_rel_accuracy);
+
+				// Set up catalog parameters
+
+				double a = 0.0;			// for the moment
+				OECatalogParams test_cat_params = (new OECatalogParams()).set_to_typical (
+					a,
+					p,
+					c,
+					b,
+					alpha,
+					gen_size_target,
+					gen_count_max
+				);
+
+				// Compute productivity "a" for the given branch ratio
+
+				System.out.println ();
+				System.out.println ("Branch ratio calculation");
+
+				a = OEStatsCalc.calc_inv_branch_ratio (n, test_cat_params);
+				test_cat_params.a = a;
+				System.out.println ("a = " + a);
+
+				// Adjust forecast time
+
+				test_cat_params.tbegin = the_tbegin;
+				test_cat_params.tend = the_tbegin + 365.0;
+
+				// Set magnitude tanges
+
+				test_cat_params.mag_min_sim = the_mag_min_sim;
+				test_cat_params.mag_max_sim = the_mag_max_sim;
+				test_cat_params.mag_min_lo = the_mag_min_lo;
+				test_cat_params.mag_min_hi = the_mag_min_hi;
+
+				// Do the comparison run
+
+				compare_test_run_mt (test_cat_params, mag_main, the_infill_meth, num_cats, num_threads, max_runtime, the_exact_limit, the_rel_accuracy);
+
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+
+			return;
+		}
+
+
+
+
+		// Unrecognized subcommand.
+
+		System.err.println ("OEAccumHistTimeMag : Unrecognized subcommand : " + args[0]);
+		return;
+
+	}
+
+}
@@ -11,6 +11,7 @@ import org.opensha.oaf.util.MarshalReader;
 import org.opensha.oaf.util.MarshalWriter;
 import org.opensha.oaf.util.MarshalException;
 import org.opensha.oaf.util.AutoExecutorService;
+import org.opensha.oaf.util.SimpleParallelHelper;
 
 import org.opensha.oaf.oetas.util.OEArraysCalc;
 
@@ -565,11 +566,20 @@ public class OEAccumRateTimeMag implements OEEnsembleAccumulator, OEAccumReadout
 
 	private ConcurrentLinkedQueue<EnsembleAccum> partial_acc_list;
 
+	// Lock that is held while taking an accumulator from, or returning one to, the list.
+	// get_convergence holds it only while taking the accumulators off the list and putting
+	// them back, so no accumulator can be modified while it is being read.
+
+	private final Object partial_acc_lock = new Object();
+
 
 	// Get or make a partial accumulator.
 
 	private EnsembleAccum get_partial_acc () {
-		EnsembleAccum acc = partial_acc_list.poll();
+		EnsembleAccum acc;
+		synchronized (partial_acc_lock) {
+			acc = partial_acc_list.poll();
+		}
 		if (acc == null) {
 			return new EnsembleAccum();
 		}
@@ -581,35 +591,53 @@ public class OEAccumRateTimeMag implements OEEnsembleAccumulator, OEAccumReadout
 	// Release a partial accumulator, and put it back on the queue.
 
 	private void release_partial_acc (EnsembleAccum acc) {
-		partial_acc_list.add (acc);
+		synchronized (partial_acc_lock) {
+			partial_acc_list.add (acc);
+		}
 		return;
 	}
 
 
-	// Totalize all partial accumulators.
+	// Combiner for partial accumulators.
 
-	private void totalize_partial_acc () {
+	private static class PartialAccCombiner implements SimpleParallelHelper.Combiner<EnsembleAccum> {
+		@Override
+		public void combine (EnsembleAccum dest, EnsembleAccum src) {
+			dest.combine_with (src);
+			return;
+		}
+	}
 
-		// Get the first accumulator off the list
 
-		total_acc = partial_acc_list.poll();
+	// Totalize all partial accumulators.
+	// Parameters:
+	//  executor = Executor to use for combining in parallel, or null to combine in this thread.
+	// The partial accumulators are combined pairwise, in a tree, so with an executor the
+	// merge takes about log2(number of partial accumulators) rounds of parallel combines.
 
-		// If the list is empty, set up a zero total
+	private void totalize_partial_acc (AutoExecutorService executor) {
 
-		if (total_acc == null) {
-			total_acc = new EnsembleAccum();
-			return;
-		}
-
-		// Sum the remaining partial accumulators
+		// Take all the accumulators off the list
 
+		ArrayList<EnsembleAccum> acc_list = new ArrayList<EnsembleAccum>();
 		for (EnsembleAccum acc = partial_acc_list.poll(); acc != null; acc = partial_acc_list.poll()) {
-			total_acc.combine_with (acc);
+			acc_list.add (acc);
 		}
 
 		// And then delete the list itself
 
 		partial_acc_list = null;
+
+		// If the list is empty, set up a zero total
+
+		if (acc_list.isEmpty()) {
+			total_acc = new EnsembleAccum();
+			return;
+		}
+
+		// Sum the partial accumulators
+
+		total_acc = SimpleParallelHelper.tree_reduce (acc_list, new PartialAccCombiner(), executor);
 		return;
 	}
 
@@ -641,6 +669,7 @@ public class OEAccumRateTimeMag implements OEEnsembleAccumulator, OEAccumReadout
 
 		total_acc = null;
 		partial_acc_list = null;
+		snapshot_acc = null;
 
 		return;
 	}
@@ -715,6 +744,7 @@ public class OEAccumRateTimeMag implements OEEnsembleAccumulator, OEAccumReadout
 
 		total_acc = null;
 		partial_acc_list = null;
+		snapshot_acc = null;
 
 		return;
 	}
@@ -2549,6 +2579,18 @@ public class OEAccumRateTimeMag implements OEEnsembleAccumulator, OEAccumReadout
 
 
 
+	// Return true if consumers can consume a streamed catalog.
+	// Consumers do not use the catalog totals, and store results only at the end of
+	// a catalog, and re-initialize at the start of a catalog.
+
+	@Override
+	public boolean is_stream_capable () {
+		return true;
+	}
+
+
+
+
 	// Begin accumulating catalogs.
 	// Parameters:
 	//  capacity = The number of catalogs that will be accumulated.
@@ -2603,10 +2645,27 @@ public class OEAccumRateTimeMag implements OEEnsembleAccumulator, OEAccumReadout
 
 	@Override
 	public void end_accumulation () {
+		end_accumulation (null);
+		return;
+	}
+
+
+
+
+	// End accumulating catalogs, with an executor available to finish in parallel.
+	// Parameters:
+	//  executor = Executor whose threads can be used, or null if none.
+	// The partial accumulators are combined in parallel.
+	// Threading: No other thread should be accessing this object,
+	// and none of its consumers can be open.
+
+	@Override
+	public void end_accumulation (AutoExecutorService executor) {
 
 		// Total all the partial accumulators
 
-		totalize_partial_acc();
+		totalize_partial_acc (executor);
+		snapshot_acc = null;
 
 		// Cumulate the distributions
 
@@ -2618,6 +2677,178 @@ public class OEAccumRateTimeMag implements OEEnsembleAccumulator, OEAccumReadout
 
 
 
+	//----- Convergence -----
+
+	// These functions measure the sampling error of the results accumulated so far,
+	// so that catalog generation can stop once the forecast is accurate enough.
+	//
+	// While catalogs are being generated, the partial accumulators that are not in use
+	// are merged into one, which is copied into a snapshot accumulator and read out as
+	// if accumulation were complete.  Catalogs being stored at the moment of the
+	// snapshot (at most one per thread) are not included.
+	//
+	// Each catalog contributes a distribution whose probability of occurrence lies
+	// between 0 and 1, so the standard error of an ensemble probability of occurrence p
+	// from N catalogs is at most sqrt(p*(1-p)/N).  Likewise the ensemble cumulative
+	// distribution function has standard error at most sqrt(F*(1-F)/N), so the
+	// fractile q lies between the fractiles q - z*s and q + z*s, where s = sqrt(q*(1-q)/N),
+	// with a confidence level given by the normal deviate z.
+
+	// Normal deviate used for fractile confidence intervals (about 95% two-sided).
+
+	public static final double CONV_FRACTILE_Z = 1.96;
+
+	// The snapshot accumulator, or null if not allocated yet.
+	// Only accessed by the thread that checks convergence.
+
+	private EnsembleAccum snapshot_acc = null;
+
+
+	// Class to hold the sampling error of the accumulated results.
+
+	public static class ConvergenceInfo {
+
+		// Number of catalogs included.
+
+		public int conv_size;
+
+		// Largest standard error of the probability of occurrence, over all bins.
+
+		public double conv_prob_error;
+
+		// Largest half-width of the fractile confidence interval, relative to the
+		// fractile (or to 1 if the fractile is zero), over all bins and fractiles.
+
+		public double conv_fractile_error;
+
+		// Constructor.
+
+		public ConvergenceInfo (int conv_size, double conv_prob_error, double conv_fractile_error) {
+			this.conv_size = conv_size;
+			this.conv_prob_error = conv_prob_error;
+			this.conv_fractile_error = conv_fractile_error;
+		}
+
+		// Return true if the errors are within the given tolerances.
+
+		public final boolean is_converged (double prob_tolerance, double fractile_tolerance) {
+			return conv_size > 0 && conv_prob_error <= prob_tolerance && conv_fractile_error <= fractile_tolerance;
+		}
+
+		// Display our contents.
+
+		@Override
+		public String toString() {
+			return String.format ("size = %d, prob_error = %.5f, fractile_error = %.5f", conv_size, conv_prob_error, conv_fractile_error);
+		}
+	}
+
+
+	// Get the sampling error of the results accumulated so far.
+	// Parameters:
+	//  fractiles = Fractiles to check, each between 0.0 and 1.0, can be null to check only probabilities.
+	// Threading: Can be called while consumers are open, between the calls to begin_accumulation
+	// and end_accumulation, but only from one thread at a time (typically a loop monitor).
+	// It can also be called after end_accumulation, to get the sampling error of the final results.
+
+	public final ConvergenceInfo get_convergence (double[] fractiles) {
+
+		// If accumulation is complete, use the totals
+
+		if (partial_acc_list == null) {
+			if (total_acc == null) {
+				throw new IllegalStateException ("OEAccumRateTimeMag.get_convergence: No accumulated results");
+			}
+			return calc_convergence (total_acc, fractiles);
+		}
+
+		// Clear the snapshot
+
+		if (snapshot_acc == null) {
+			snapshot_acc = new EnsembleAccum();
+		} else {
+			snapshot_acc.clear_acc();
+		}
+
+		// Take all the partial accumulators off the list, so no worker thread can take one
+		// while it is being read.  Accumulators currently held by worker threads are omitted,
+		// so the snapshot covers only complete catalogs.  While the accumulators are off the
+		// list, a worker that needs one gets a new one, so workers never wait for the merge.
+
+		ArrayList<EnsembleAccum> taken = new ArrayList<EnsembleAccum>();
+		synchronized (partial_acc_lock) {
+			for (EnsembleAccum acc = partial_acc_list.poll(); acc != null; acc = partial_acc_list.poll()) {
+				taken.add (acc);
+			}
+		}
+
+		// Combine them into the snapshot, without holding the lock, and put them back on the list.
+		// The partial accumulators themselves are not modified.
+
+		try {
+			for (EnsembleAccum acc : taken) {
+				snapshot_acc.combine_with (acc);
+			}
+		} finally {
+			synchronized (partial_acc_lock) {
+				partial_acc_list.addAll (taken);
+			}
+		}
+
+		snapshot_acc.cumulate();
+		return calc_convergence (snapshot_acc, fractiles);
+	}
+
+
+	// Calculate the sampling error of an accumulator.
+	// Parameters:
+	//  acc = Accumulator, the cumulate() function must have been called.
+	//  fractiles = Fractiles to check, each between 0.0 and 1.0, can be null to check only probabilities.
+
+	private ConvergenceInfo calc_convergence (EnsembleAccum acc, double[] fractiles) {
+
+		// If no catalogs, nothing is known
+
+		final int n = acc.acc_size;
+		if (n == 0) {
+			return new ConvergenceInfo (0, 1.0, 1.0);
+		}
+
+		// Standard error of the probabilities
+
+		double prob_error = 0.0;
+		double[][] prob_occur = acc.get_prob_occur();
+		for (int time_ix = 0; time_ix < time_bins; ++time_ix) {
+			for (int mag_ix = 0; mag_ix < mag_bins; ++mag_ix) {
+				final double p = prob_occur[time_ix][mag_ix];
+				prob_error = Math.max (prob_error, Math.sqrt (Math.max (0.0, p * (1.0 - p)) / ((double)n)));
+			}
+		}
+
+		// Relative half-width of the fractile confidence intervals
+
+		double fractile_error = 0.0;
+		if (fractiles != null) {
+			for (double q : fractiles) {
+				final double dq = CONV_FRACTILE_Z * Math.sqrt (Math.max (0.0, q * (1.0 - q)) / ((double)n));
+				final int[][] x_q = acc.get_fractile (q);
+				final int[][] x_lo = acc.get_fractile (Math.max (0.0, q - dq));
+				final int[][] x_hi = acc.get_fractile (Math.min (1.0, q + dq));
+				for (int time_ix = 0; time_ix < time_bins; ++time_ix) {
+					for (int mag_ix = 0; mag_ix < mag_bins; ++mag_ix) {
+						final double half_width = 0.5 * ((double)(x_hi[time_ix][mag_ix] - x_lo[time_ix][mag_ix]));
+						fractile_error = Math.max (fractile_error, half_width / Math.max (1.0, (double)(x_q[time_ix][mag_ix])));
+					}
+				}
+			}
+		}
+
+		return new ConvergenceInfo (n, prob_error, fractile_error);
+	}
+
+
+
+
 	//----- Readout functions -----
 
 
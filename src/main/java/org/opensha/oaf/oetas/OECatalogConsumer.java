@@ -22,6 +22,13 @@ package org.opensha.oaf.oetas;
 // followed by a series of calls to next_rup() and next_sterile_rup(), and
 // concluded by a call to end_generation().
 //
+// Streamed catalogs: If the accumulator's is_stream_capable() returns true, the
+// data methods may be called while the catalog is still being generated (see
+// OECatalogScanner).  In that case, the per-catalog totals in the communication
+// area are -1, and a catalog may be abandoned after some data methods are called,
+// without calling end_catalog().  The abandoned catalog is discarded by calling
+// open() again, without an intervening call to close().
+//
 // Threading: Multiple objects may exist that all refer to the same accumulator.
 // These objects may be used simultaneously by different threads.
 //
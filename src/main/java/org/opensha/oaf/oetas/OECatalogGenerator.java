@@ -1,5 +1,7 @@
 package org.opensha.oaf.oetas;
 
+import java.util.Arrays;
+
 import static org.opensha.oaf.oetas.OEConstants.TINY_OMORI_RATE;
 import static org.opensha.oaf.oetas.OEConstants.SMALL_EXPECTED_COUNT;
 
@@ -112,6 +114,14 @@ public class OECatalogGenerator {
 
 	private int[] work_child_count;
 
+	// The rupture time, for each rupture in the current generation.
+
+	private double[] work_t_day;
+
+	// The productivity, for each rupture in the current generation.
+
+	private double[] work_k_prod;
+
 
 
 
@@ -135,6 +145,8 @@ public class OECatalogGenerator {
 		workspace_capacity = DEF_WORKSPACE_CAPACITY;
 		work_omori_rate = new double[workspace_capacity];
 		work_child_count = new int[workspace_capacity];
+		work_t_day = new double[workspace_capacity];
+		work_k_prod = new double[workspace_capacity];
 		return;
 	}
 
@@ -320,6 +332,8 @@ public class OECatalogGenerator {
 
 			work_omori_rate = new double[workspace_capacity];
 			work_child_count = new int[workspace_capacity];
+			work_t_day = new double[workspace_capacity];
+			work_k_prod = new double[workspace_capacity];
 		}
 
 		// The effective end time is the stop time, but not after the configured end time
@@ -334,37 +348,28 @@ public class OECatalogGenerator {
 
 		//--- Determine the Omori rate for each rupture, and the size and minimum magnitude of the next generation
 
-		// Scan the current generation ...
-
-		double total_omori_rate = 0.0;
-
-		for (int cur_j_rup = 0; cur_j_rup < cur_gen_size; ++cur_j_rup) {
-
-			// Get the rupture in the current generation, time and productivity only
+		// Get the times and productivities of the current generation
 
-			cat_builder.get_rup_time_prod (cur_i_gen, cur_j_rup, cur_rup);
+		cat_builder.get_gen_time_prod (cur_i_gen, work_t_day, work_k_prod);
 
-			// Calculate its expected rate in the forecast interval
-			// Note omori_rate_shifted returns zero if t0 > t2 - teps
+		// Calculate the cumulative expected rate in the forecast interval
+		// Note ruptures with t0 > t2 - teps have zero rate
 
-			double omori_rate = cur_rup.k_prod * OERandomGenerator.omori_rate_shifted (
-				cat_params.p,			// p
-				cat_params.c,			// c
-				cur_rup.t_day,			// t0
-				cat_params.teps,		// teps
-				cat_params.tbegin,		// t1
-				eff_tend				// t2
-				);
-
-			// Accumulate the total
-
-			total_omori_rate += omori_rate;
-			work_omori_rate[cur_j_rup] = total_omori_rate;
+		double total_omori_rate = OERandomGenerator.omori_rate_shifted_cum (
+			cat_params.p,			// p
+			cat_params.c,			// c
+			cat_params.teps,		// teps
+			cat_params.tbegin,		// t1
+			eff_tend,				// t2
+			work_t_day,				// t0
+			work_k_prod,			// k
+			work_omori_rate,		// rate_cum
+			cur_gen_size			// n
+			);
 
-			// Initialize child count
+		// Initialize child counts
 
-			work_child_count[cur_j_rup] = 0;
-		}
+		Arrays.fill (work_child_count, 0, cur_gen_size, 0);
 
 		// To avoid divide-by-zero, stop if total rate is extremely small
 		// (Note that OERandomGenerator.gr_inv_rate will not overflow even if
@@ -609,20 +614,20 @@ public class OECatalogGenerator {
 			for (int n = 0; n < stop_check_count; ++n) {
 				int i_parent = rangen.cumulative_sample (work_omori_rate, cur_gen_size);
 
-				// Get the rupture, time only, in the current generation
+				// Get the rupture time, from the workspace
 
-				cat_builder.get_rup_time (cur_i_gen, i_parent, cur_rup);
+				double parent_t_day = work_t_day[i_parent];
 
 				// If the rupture is more than epsilon before the stop time ...
 
-				if (cur_rup.t_day < stop_time_minus_epsilon) {
+				if (parent_t_day < stop_time_minus_epsilon) {
 				
 					// Assign a time to this child
 
 					next_rup.t_day = rangen.omori_sample_shifted (
 						cat_params.p,			// p
 						cat_params.c,			// c
-						cur_rup.t_day,			// t0
+						parent_t_day,			// t0
 						cat_params.tbegin,		// t1
 						eff_tend				// t2
 						);
@@ -800,6 +805,8 @@ public class OECatalogGenerator {
 
 			work_omori_rate = new double[workspace_capacity];
 			work_child_count = new int[workspace_capacity];
+			work_t_day = new double[workspace_capacity];
+			work_k_prod = new double[workspace_capacity];
 		}
 
 		// Scan the current generation ...
@@ -53,21 +53,29 @@ public class OECatalogScanComm {
 	public boolean f_result_success;
 
 	// Number of ruptures in the catalog.
+	// For a streamed catalog, this is -1 (unknown).
 
 	public int cat_size;
 
 	// Number of ruptures in the catalog, excluding seed ruptures.
+	// For a streamed catalog, this is -1 (unknown).
 
 	public int cat_etas_size;
 
 	// Number of ruptures in the catalog before the stop time.
+	// For a streamed catalog, this is -1 (unknown).
 
 	public int cat_valid_size;
 
 	// Number of generations in the catalog.
+	// For a streamed catalog, this is -1 (unknown).
 
 	public int cat_gen_count;
 
+	// True if this is a streamed catalog, which is passed to consumers while it is being generated.
+
+	public boolean f_streamed;
+
 
 	//----- Per-generation data -----
 
@@ -196,6 +204,7 @@ public class OECatalogScanComm {
 		result.append ("cat_etas_size = " + cat_etas_size + "\n");
 		result.append ("cat_valid_size = " + cat_valid_size + "\n");
 		result.append ("cat_gen_count = " + cat_gen_count + "\n");
+		result.append ("f_streamed = " + f_streamed + "\n");
 
 		result.append ("Per-generation data:" + "\n");
 		result.append ("i_gen = " + i_gen + "\n");
@@ -251,6 +260,48 @@ public class OECatalogScanComm {
 		cat_valid_size = view.valid_size();
 		cat_gen_count = view.get_gen_count();
 
+		f_streamed = false;
+
+		return;
+	}
+
+
+
+
+	// Set up per-catalog data from a catalog view, for a streamed catalog.
+	// Parameters:
+	//  view = Catalog view, which contains at least the seed generation.
+	// The stop time and result code must be final when this is called.
+	// The catalog totals are not yet known, and are set to -1.
+
+	public void setup_cat_for_stream (OECatalogView view, OERandomGenerator the_rangen) {
+
+		// Get catalog parameters
+
+		view.get_cat_params (cat_params);
+
+		// Save the random number generator
+
+		rangen = the_rangen;
+
+		// Get catalog results
+
+		cat_stop_time = view.get_cat_stop_time();
+		f_early_stop = false;
+		if (cat_stop_time < cat_params.tend) {
+			f_early_stop = true;
+		}
+
+		cat_result_code = view.get_cat_result_code();
+		f_result_success = OEConstants.is_cat_result_success (cat_result_code);
+
+		cat_size = -1;
+		cat_etas_size = -1;
+		cat_valid_size = -1;
+		cat_gen_count = -1;
+
+		f_streamed = true;
+
 		return;
 	}
 
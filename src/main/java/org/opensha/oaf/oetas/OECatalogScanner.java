@@ -28,6 +28,10 @@ public class OECatalogScanner implements OECatalogExaminer {
 
 	private boolean f_open;
 
+	// True if all the consumers can consume a streamed catalog.
+
+	private boolean f_stream_capable;
+
 
 
 
@@ -96,6 +100,7 @@ public class OECatalogScanner implements OECatalogExaminer {
 	public void clear () {
 		consumer_count = 0;
 		consumers = null;
+		f_stream_capable = false;
 		return;
 	}
 
@@ -114,6 +119,7 @@ public class OECatalogScanner implements OECatalogExaminer {
 
 		consumer_count = 0;
 		consumers = null;
+		f_stream_capable = false;
 
 		// Allocate workspace for generating sterile ruptures
 
@@ -141,8 +147,13 @@ public class OECatalogScanner implements OECatalogExaminer {
 		consumer_count = accumulators.length;
 		consumers = new OECatalogConsumer[consumer_count];
 
+		f_stream_capable = true;
+
 		for (int i = 0; i < consumer_count; ++i) {
 			consumers[i] = accumulators[i].make_consumer();
+			if (!( accumulators[i].is_stream_capable() )) {
+				f_stream_capable = false;
+			}
 		}
 
 		// Not open
@@ -245,6 +256,41 @@ public class OECatalogScanner implements OECatalogExaminer {
 			consumer.begin_catalog (comm);
 		}
 
+		// Scan the seed generation
+
+		scan_seed_gen (view);
+
+		// Loop over ETAS generations...
+
+		for (int i_gen = 1; i_gen < view.get_gen_count(); ++i_gen) {
+
+			// Scan the generation
+
+			scan_etas_gen (view, i_gen);
+		}
+
+		// Tell the consumers we are ending a catalog
+
+		for (OECatalogConsumer consumer : consumers) {
+			consumer.end_catalog (comm);
+		}
+
+		// Forget retained objects
+
+		comm.forget();
+
+		return;
+	}
+
+
+
+
+	// Scan the seed generation.
+	// Parameters:
+	//  view = Catalog view.
+
+	private void scan_seed_gen (OECatalogView view) {
+
 		// Set up the per-generation information for the seeds
 
 		comm.setup_gen_from_view (view, 0);
@@ -281,55 +327,150 @@ public class OECatalogScanner implements OECatalogExaminer {
 			consumer.end_seed_generation (comm);
 		}
 
-		// Loop over ETAS generations...
+		return;
+	}
 
-		for (int i_gen = 1; i_gen < view.get_gen_count(); ++i_gen) {
 
-			// Set up the per-generation information
 
-			comm.setup_gen_from_view (view, i_gen);
 
-			// Tell the consumers we are beginning the generation
+	// Scan an ETAS generation.
+	// Parameters:
+	//  view = Catalog view.
+	//  i_gen = Generation number, must be >= 1.
+	// Note: The view must contain generations i_gen - 1 (for sterile ruptures),
+	// i_gen, and i_gen + 1 (if it exists, for the next generation information).
 
-			for (OECatalogConsumer consumer : consumers) {
-				consumer.begin_generation (comm);
-			}
+	private void scan_etas_gen (OECatalogView view, int i_gen) {
+
+		// Set up the per-generation information
+
+		comm.setup_gen_from_view (view, i_gen);
 
-			// Loop over ruptures in the generation
+		// Tell the consumers we are beginning the generation
 
-			for (int j_rup = 0; j_rup < comm.gen_size; ++j_rup) {
+		for (OECatalogConsumer consumer : consumers) {
+			consumer.begin_generation (comm);
+		}
+
+		// Loop over ruptures in the generation
+
+		for (int j_rup = 0; j_rup < comm.gen_size; ++j_rup) {
 		
-				// Set up the per-rupture information
+			// Set up the per-rupture information
 
-				comm.setup_rup_from_view (view, j_rup);
+			comm.setup_rup_from_view (view, j_rup);
 
-				// If it is a valid rupture (before the stop time) ...
+			// If it is a valid rupture (before the stop time) ...
 
-				if (comm.f_valid_rup) {
+			if (comm.f_valid_rup) {
 
-					// Pass rupture to the consumers
+				// Pass rupture to the consumers
 
-					for (OECatalogConsumer consumer : consumers) {
-						consumer.next_rup (comm);
-					}
+				for (OECatalogConsumer consumer : consumers) {
+					consumer.next_rup (comm);
 				}
 			}
+		}
 
-			// If sterile ruptures are needed ...
+		// If sterile ruptures are needed ...
 
-			if (comm.is_sterile_mag()) {
+		if (comm.is_sterile_mag()) {
 
-				// Calculate the sterile ruptures
+			// Calculate the sterile ruptures
 
-				calc_sterile_rups (view);
-			}
+			calc_sterile_rups (view);
+		}
 
-			// Tell the consumers we are ending the generation
+		// Tell the consumers we are ending the generation
 
-			for (OECatalogConsumer consumer : consumers) {
-				consumer.end_generation (comm);
-			}
+		for (OECatalogConsumer consumer : consumers) {
+			consumer.end_generation (comm);
+		}
+
+		return;
+	}
+
+
+
+
+	//----- Streaming -----
+	//
+	// A streamed catalog is passed to the consumers one generation at a time,
+	// while the catalog is being generated, so that the whole catalog never needs
+	// to be in memory.  See OECatalogStreamStorage, which makes these calls.
+	//
+	// The calling sequence is stream_begin_catalog(), then stream_generation()
+	// for each generation in order beginning with the seed generation, then
+	// stream_end_catalog().  The scanner must be open.  A streamed catalog can
+	// be abandoned at any point by calling stream_abandon().
+	//
+	// When generation i_gen is streamed, the catalog stop time and result code must
+	// be final, and the view must contain generations i_gen - 1, i_gen, and
+	// i_gen + 1 (unless i_gen is the final generation).  Given that, the consumers
+	// receive exactly the same calls as for scan(), except that the per-catalog totals
+	// are unknown.
+
+
+
+
+	// Return true if all the consumers can consume a streamed catalog.
+
+	public boolean is_stream_capable () {
+		return f_stream_capable;
+	}
+
+
+
+
+	// Begin a streamed catalog.
+	// Parameters:
+	//  view = Catalog view, containing at least the seed generation.
+	//  rangen = Random number generator to use.
+
+	public void stream_begin_catalog (OECatalogView view, OERandomGenerator rangen) {
+
+		// Error if not open or not capable
+
+		if (!( f_open && f_stream_capable )) {
+			throw new IllegalStateException ("OECatalogScanner.stream_begin_catalog -- Scanner is not open for streaming");
+		}
+
+		// Set up the per-catalog information
+
+		comm.setup_cat_for_stream (view, rangen);
+
+		// Tell the consumers we are beginning a catalog
+
+		for (OECatalogConsumer consumer : consumers) {
+			consumer.begin_catalog (comm);
+		}
+
+		return;
+	}
+
+
+
+
+	// Pass one generation of a streamed catalog to the consumers.
+	// Parameters:
+	//  view = Catalog view.
+	//  i_gen = Generation number.
+
+	public void stream_generation (OECatalogView view, int i_gen) {
+		if (i_gen == 0) {
+			scan_seed_gen (view);
+		} else {
+			scan_etas_gen (view, i_gen);
 		}
+		return;
+	}
+
+
+
+
+	// End a streamed catalog.
+
+	public void stream_end_catalog () {
 
 		// Tell the consumers we are ending a catalog
 
@@ -347,6 +488,39 @@ public class OECatalogScanner implements OECatalogExaminer {
 
 
 
+	// Abandon a streamed catalog.
+	// The consumers are re-opened, which discards whatever they have received
+	// since they were opened.  The scanner remains open.
+
+	public void stream_abandon () {
+
+		// Error if not open
+
+		if (!( f_open )) {
+			throw new IllegalStateException ("OECatalogScanner.stream_abandon -- Scanner is not open");
+		}
+
+		// Re-open all the consumers
+
+		for (OECatalogConsumer consumer : consumers) {
+			consumer.open();
+		}
+
+		// Forget retained objects
+
+		comm.forget();
+
+		return;
+	}
+
+
+
+
+	//----- Sterile ruptures -----
+
+
+
+
 	// Calculate the sterile ruptures, and send them to the consumers.
 	// Parameters:
 	//  view = Catalog view.
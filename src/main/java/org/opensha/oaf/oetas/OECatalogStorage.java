@@ -1,11 +1,14 @@
 package org.opensha.oaf.oetas;
 
 import java.util.Arrays;
+import java.util.ArrayList;
 
 import org.opensha.oaf.util.MarshalReader;
 import org.opensha.oaf.util.MarshalWriter;
 import org.opensha.oaf.util.MarshalException;
 
+import static org.opensha.oaf.oetas.OERupture.RUPPAR_SEED;
+
 
 // Class to store an Operational ETAS catalog.
 // Author: Michael Barall 11/29/2019.
@@ -24,8 +27,15 @@ import org.opensha.oaf.util.MarshalException;
 // held in memory, which may range into many millions of ruptures.  This storage
 // scheme reduces the number of Java objects to about one per 1000 ruptures.
 //
-// Note: Originally some values were stored as float rather than double to
-// conserve memory.  The original version is available as OECatalogStorageFloat.
+// The rupture magnitude, productivity, and location can be stored as either
+// double or float (see set_col_option).  The default is double.  Float columns
+// reduce memory for the largest catalogs, where storage for each thread can reach
+// hundreds of megabytes.  With COL_OPT_AUTO, a catalog starts with double columns
+// and switches to float only once it actually grows large, and only if the catalog
+// parameters pass a precision check (see is_float_cols_ok).  The rupture time is
+// always double, because times can be relative to the epoch.
+// Note: Originally these values were always stored as float, and then they were
+// always stored as double.
 
 public class OECatalogStorage implements OECatalogBuilder {
 
@@ -204,6 +214,19 @@ public class OECatalogStorage implements OECatalogBuilder {
 
 	private double[][] y_km;
 
+	// True if the magnitude, productivity, and coordinates are stored as float.
+	// If true, the float arrays are used and the double arrays are null.
+	// If false, the double arrays are used and the float arrays are null.
+
+	private boolean f_float_cols;
+
+	// Rupture magnitude, productivity, and coordinates, when stored as float.
+
+	private float[][] rup_mag_f;
+	private float[][] k_prod_f;
+	private float[][] x_km_f;
+	private float[][] y_km_f;
+
 
 	// Initialize the per-rupture storage.
 
@@ -213,11 +236,26 @@ public class OECatalogStorage implements OECatalogBuilder {
 		rup_block_count = 0;
 		rup_block_capacity = INIT_RUP_BLOCK_COUNT;
 		t_day = new double[INIT_RUP_BLOCK_COUNT][];
-		rup_mag = new double[INIT_RUP_BLOCK_COUNT][];
-		k_prod = new double[INIT_RUP_BLOCK_COUNT][];
 		rup_parent = new int[INIT_RUP_BLOCK_COUNT][];
-		x_km = new double[INIT_RUP_BLOCK_COUNT][];
-		y_km = new double[INIT_RUP_BLOCK_COUNT][];
+		if (f_float_cols) {
+			rup_mag = null;
+			k_prod = null;
+			x_km = null;
+			y_km = null;
+			rup_mag_f = new float[INIT_RUP_BLOCK_COUNT][];
+			k_prod_f = new float[INIT_RUP_BLOCK_COUNT][];
+			x_km_f = new float[INIT_RUP_BLOCK_COUNT][];
+			y_km_f = new float[INIT_RUP_BLOCK_COUNT][];
+		} else {
+			rup_mag = new double[INIT_RUP_BLOCK_COUNT][];
+			k_prod = new double[INIT_RUP_BLOCK_COUNT][];
+			x_km = new double[INIT_RUP_BLOCK_COUNT][];
+			y_km = new double[INIT_RUP_BLOCK_COUNT][];
+			rup_mag_f = null;
+			k_prod_f = null;
+			x_km_f = null;
+			y_km_f = null;
+		}
 		return;
 	}
 
@@ -246,6 +284,13 @@ public class OECatalogStorage implements OECatalogBuilder {
 
 		if (blocks_needed > rup_block_count) {
 
+			// If the catalog has grown large enough, switch to float columns
+
+			if (f_auto_float && rup_count > FLOAT_COLS_MIN_CAT_SIZE) {
+				f_auto_float = false;
+				convert_to_float_cols();
+			}
+
 			// If insufficient capacity for the number of blocks needed ...
 
 			if (blocks_needed > rup_block_capacity) {
@@ -259,22 +304,36 @@ public class OECatalogStorage implements OECatalogBuilder {
 				// Re-allocate the top-level arrays at the required size
 
 				t_day = Arrays.copyOf (t_day, rup_block_capacity);
-				rup_mag = Arrays.copyOf (rup_mag, rup_block_capacity);
-				k_prod = Arrays.copyOf (k_prod, rup_block_capacity);
 				rup_parent = Arrays.copyOf (rup_parent, rup_block_capacity);
-				x_km = Arrays.copyOf (x_km, rup_block_capacity);
-				y_km = Arrays.copyOf (y_km, rup_block_capacity);
+				if (f_float_cols) {
+					rup_mag_f = Arrays.copyOf (rup_mag_f, rup_block_capacity);
+					k_prod_f = Arrays.copyOf (k_prod_f, rup_block_capacity);
+					x_km_f = Arrays.copyOf (x_km_f, rup_block_capacity);
+					y_km_f = Arrays.copyOf (y_km_f, rup_block_capacity);
+				} else {
+					rup_mag = Arrays.copyOf (rup_mag, rup_block_capacity);
+					k_prod = Arrays.copyOf (k_prod, rup_block_capacity);
+					x_km = Arrays.copyOf (x_km, rup_block_capacity);
+					y_km = Arrays.copyOf (y_km, rup_block_capacity);
+				}
 			}
 
 			// Allocate the additional blocks needed
 
 			do {
 				t_day[rup_block_count] = new double[RUP_BLOCK_SIZE];
-				rup_mag[rup_block_count] = new double[RUP_BLOCK_SIZE];
-				k_prod[rup_block_count] = new double[RUP_BLOCK_SIZE];
 				rup_parent[rup_block_count] = new int[RUP_BLOCK_SIZE];
-				x_km[rup_block_count] = new double[RUP_BLOCK_SIZE];
-				y_km[rup_block_count] = new double[RUP_BLOCK_SIZE];
+				if (f_float_cols) {
+					rup_mag_f[rup_block_count] = new float[RUP_BLOCK_SIZE];
+					k_prod_f[rup_block_count] = new float[RUP_BLOCK_SIZE];
+					x_km_f[rup_block_count] = new float[RUP_BLOCK_SIZE];
+					y_km_f[rup_block_count] = new float[RUP_BLOCK_SIZE];
+				} else {
+					rup_mag[rup_block_count] = new double[RUP_BLOCK_SIZE];
+					k_prod[rup_block_count] = new double[RUP_BLOCK_SIZE];
+					x_km[rup_block_count] = new double[RUP_BLOCK_SIZE];
+					y_km[rup_block_count] = new double[RUP_BLOCK_SIZE];
+				}
 
 				++rup_block_count;
 			} while (blocks_needed > rup_block_count);
@@ -286,6 +345,156 @@ public class OECatalogStorage implements OECatalogBuilder {
 
 
 
+	//----- Column types -----
+
+	// Options for selecting column types.
+
+	public static final int COL_OPT_DOUBLE = 1;		// Always store as double
+	public static final int COL_OPT_FLOAT = 2;		// Always store as float
+	public static final int COL_OPT_AUTO = 3;		// Switch to float when the catalog grows large
+
+	// The option for selecting column types, defaults to COL_OPT_DOUBLE.
+
+	private int col_option;
+
+	// True if the current catalog should switch to float columns once it grows large.
+	// Set at the start of each catalog, when col_option is COL_OPT_AUTO.
+
+	private boolean f_auto_float;
+
+	// Number of ruptures in a catalog at which float columns are used automatically.
+
+	public static final int FLOAT_COLS_MIN_CAT_SIZE = 1000000;
+
+	// Minimum magnitude tolerance for which float columns are used automatically.
+	// For magnitudes less than 16, a float is within 1.0e-6 of the double, so this
+	// keeps the rounding error well below the tolerance the generator already allows.
+
+	public static final double FLOAT_COLS_MIN_MAG_EPS = 1.0e-5;
+
+
+	// Return true if the catalog parameters allow float columns.
+	// Parameters:
+	//  cat_params = Catalog parameters.
+	// Float columns are allowed where the magnitude tolerance is large compared
+	// to float rounding error.
+
+	public static boolean is_float_cols_ok (OECatalogParams cat_params) {
+		if (!( cat_params.mag_eps >= FLOAT_COLS_MIN_MAG_EPS )) {
+			return false;
+		}
+		return true;
+	}
+
+
+	// Set the option for selecting column types.
+	// Parameters:
+	//  the_col_option = Column option, COL_OPT_XXXX.
+	// The option takes effect at the next call to begin_catalog.
+
+	public final void set_col_option (int the_col_option) {
+		if (!( the_col_option >= COL_OPT_DOUBLE && the_col_option <= COL_OPT_AUTO )) {
+			throw new IllegalArgumentException ("OECatalogStorage.set_col_option: Invalid column option: " + the_col_option);
+		}
+		col_option = the_col_option;
+		return;
+	}
+
+
+	// Get the option for selecting column types.
+
+	public final int get_col_option () {
+		return col_option;
+	}
+
+
+	// Select the column types.
+	// Parameters:
+	//  the_f_float_cols = True to store values as float, false for double.
+	// If the column types change, all per-rupture storage is discarded, so
+	// this must be called only when the catalog contains no ruptures.
+
+	private void set_float_cols (boolean the_f_float_cols) {
+		if (f_float_cols != the_f_float_cols) {
+			f_float_cols = the_f_float_cols;
+			init_rup();
+		}
+		return;
+	}
+
+
+	// Convert the magnitude, productivity, and coordinates to float columns.
+	// Ruptures already stored are rounded to float, and the double storage is discarded.
+	// This is used to switch columns types partway through a catalog.
+
+	private void convert_to_float_cols () {
+		if (!( f_float_cols )) {
+			rup_mag_f = new float[rup_block_capacity][];
+			k_prod_f = new float[rup_block_capacity][];
+			x_km_f = new float[rup_block_capacity][];
+			y_km_f = new float[rup_block_capacity][];
+			for (int block = 0; block < rup_block_count; ++block) {
+				rup_mag_f[block] = to_float_block (rup_mag[block]);
+				k_prod_f[block] = to_float_block (k_prod[block]);
+				x_km_f[block] = to_float_block (x_km[block]);
+				y_km_f[block] = to_float_block (y_km[block]);
+				rup_mag[block] = null;
+				k_prod[block] = null;
+				x_km[block] = null;
+				y_km[block] = null;
+			}
+			rup_mag = null;
+			k_prod = null;
+			x_km = null;
+			y_km = null;
+			f_float_cols = true;
+		}
+		return;
+	}
+
+
+	// Convert one block of doubles to floats.
+
+	private static float[] to_float_block (double[] x) {
+		float[] x_f = new float[RUP_BLOCK_SIZE];
+		for (int n = 0; n < RUP_BLOCK_SIZE; ++n) {
+			x_f[n] = (float)(x[n]);
+		}
+		return x_f;
+	}
+
+
+	// Return true if the magnitude, productivity, and coordinates are currently stored as float.
+
+	public final boolean is_float_cols () {
+		return f_float_cols;
+	}
+
+
+	// The number of bytes per rupture that do not depend on column types (t_day and rup_parent).
+
+	private static final int BYTES_PER_RUP_FIXED = Double.BYTES + Integer.BYTES;
+
+	// The number of columns that can be either double or float (rup_mag, k_prod, x_km, and y_km).
+
+	private static final int NUM_REAL_COLS = 4;
+
+	// Get the number of bytes used to store each rupture, with the current column types.
+
+	public final int get_bytes_per_rup () {
+		return BYTES_PER_RUP_FIXED + NUM_REAL_COLS * (f_float_cols ? Float.BYTES : Double.BYTES);
+	}
+
+
+	// Get the number of bytes currently allocated for per-rupture storage.
+
+	public final long get_rup_alloc_bytes () {
+		return ((long)rup_block_count) * ((long)RUP_BLOCK_SIZE) * ((long)get_bytes_per_rup());
+	}
+
+
+
+
 	//----- Construction -----
 
 
@@ -296,6 +505,9 @@ public class OECatalogStorage implements OECatalogBuilder {
 
 	public final void clear () {
 		cat_params.clear();
+		col_option = COL_OPT_DOUBLE;
+		f_auto_float = false;
+		f_float_cols = false;
 		init_cat();
 		init_gen();
 		init_rup();
@@ -445,14 +657,25 @@ public class OECatalogStorage implements OECatalogBuilder {
 		int block = index >> RUP_BLOCK_SHIFT;
 		int offset = index & RUP_BLOCK_MASK;
 
-		rup.set (
-			t_day[block][offset],
-			rup_mag[block][offset],
-			k_prod[block][offset],
-			rup_parent[block][offset],
-			x_km[block][offset],
-			y_km[block][offset]
-		);
+		if (f_float_cols) {
+			rup.set (
+				t_day[block][offset],
+				(double)(rup_mag_f[block][offset]),
+				(double)(k_prod_f[block][offset]),
+				rup_parent[block][offset],
+				(double)(x_km_f[block][offset]),
+				(double)(y_km_f[block][offset])
+			);
+		} else {
+			rup.set (
+				t_day[block][offset],
+				rup_mag[block][offset],
+				k_prod[block][offset],
+				rup_parent[block][offset],
+				x_km[block][offset],
+				y_km[block][offset]
+			);
+		}
 
 		return;
 	}
@@ -496,7 +719,47 @@ public class OECatalogStorage implements OECatalogBuilder {
 		int offset = index & RUP_BLOCK_MASK;
 
 		rup.t_day = t_day[block][offset];
-		rup.k_prod = k_prod[block][offset];
+		rup.k_prod = (f_float_cols ? ((double)(k_prod_f[block][offset])) : k_prod[block][offset]);
+
+		return;
+	}
+
+
+
+
+	// Get the times and productivities of all ruptures in the i-th generation in the catalog.
+	// Parameters:
+	//  i_gen = Generation number.
+	//  t_day = Array to receive the rupture times, length must be at least the generation size.
+	//  k_prod = Array to receive the productivities, length must be at least the generation size.
+	// Element j of each array receives the value for the j-th rupture in the generation.
+	// This copies directly from the rupture blocks, one block-sized run at a time.
+
+	@Override
+	public void get_gen_time_prod (int i_gen, final double[] t_day, final double[] k_prod) {
+		int index = gen_start[i_gen];
+		int remaining = gen_size[i_gen];
+		int dest = 0;
+
+		while (remaining > 0) {
+			int block = index >> RUP_BLOCK_SHIFT;
+			int offset = index & RUP_BLOCK_MASK;
+			int len = Math.min (remaining, RUP_BLOCK_SIZE - offset);
+
+			System.arraycopy (this.t_day[block], offset, t_day, dest, len);
+			if (f_float_cols) {
+				final float[] src = this.k_prod_f[block];
+				for (int j = 0; j < len; ++j) {
+					k_prod[dest + j] = (double)(src[offset + j]);
+				}
+			} else {
+				System.arraycopy (this.k_prod[block], offset, k_prod, dest, len);
+			}
+
+			index += len;
+			dest += len;
+			remaining -= len;
+		}
 
 		return;
 	}
@@ -520,8 +783,13 @@ public class OECatalogStorage implements OECatalogBuilder {
 		int offset = index & RUP_BLOCK_MASK;
 
 		rup.t_day = t_day[block][offset];
-		rup.x_km = x_km[block][offset];
-		rup.y_km = y_km[block][offset];
+		if (f_float_cols) {
+			rup.x_km = (double)(x_km_f[block][offset]);
+			rup.y_km = (double)(y_km_f[block][offset]);
+		} else {
+			rup.x_km = x_km[block][offset];
+			rup.y_km = y_km[block][offset];
+		}
 
 		return;
 	}
@@ -565,6 +833,7 @@ public class OECatalogStorage implements OECatalogBuilder {
 	// an empty catalog with zero generations.
 	// Note: This allows re-using a catalog object to generate a new catalog.
 	// Note: This function does not retain cat_params; it copies the contents.
+	// Note: This function selects the column types, according to the column option.
 
 	@Override
 	public void begin_catalog (OECatalogParams cat_params) {
@@ -576,6 +845,23 @@ public class OECatalogStorage implements OECatalogBuilder {
 		// Save the parameters
 
 		this.cat_params.copy_from (cat_params);
+
+		// Select column types, which re-allocates memory if they change
+
+		switch (col_option) {
+		case COL_OPT_DOUBLE:
+			f_auto_float = false;
+			set_float_cols (false);
+			break;
+		case COL_OPT_FLOAT:
+			f_auto_float = false;
+			set_float_cols (true);
+			break;
+		default:
+			f_auto_float = is_float_cols_ok (cat_params);
+			set_float_cols (false);
+			break;
+		}
 		return;
 	}
 
@@ -740,11 +1026,18 @@ public class OECatalogStorage implements OECatalogBuilder {
 		// Save rupture information
 
 		t_day[block][offset] = rup.t_day;
-		rup_mag[block][offset] = rup.rup_mag;
-		k_prod[block][offset] = rup.k_prod;
 		rup_parent[block][offset] = rup.rup_parent;
-		x_km[block][offset] = rup.x_km;
-		y_km[block][offset] = rup.y_km;
+		if (f_float_cols) {
+			rup_mag_f[block][offset] = (float)(rup.rup_mag);
+			k_prod_f[block][offset] = (float)(rup.k_prod);
+			x_km_f[block][offset] = (float)(rup.x_km);
+			y_km_f[block][offset] = (float)(rup.y_km);
+		} else {
+			rup_mag[block][offset] = rup.rup_mag;
+			k_prod[block][offset] = rup.k_prod;
+			x_km[block][offset] = rup.x_km;
+			y_km[block][offset] = rup.y_km;
+		}
 
 		return;
 	}
@@ -851,6 +1144,21 @@ public class OECatalogStorage implements OECatalogBuilder {
 		return;
 	}
 
+	// Float columns are marshaled as double, so the marshaled form does not depend on column types.
+
+	private void marshal_rup_array (MarshalWriter writer, String name, double[][] x, float[][] x_f) {
+		if (x_f != null) {
+			writer.marshalArrayBegin (name, rup_count);
+			for (int i = 0; i < rup_count; ++i) {
+				writer.marshalDouble (null, (double)(x_f[i >> RUP_BLOCK_SHIFT][i & RUP_BLOCK_MASK]));
+			}
+			writer.marshalArrayEnd ();
+		} else {
+			marshal_rup_array (writer, name, x);
+		}
+		return;
+	}
+
 	// Unmarshal a per-rupture array (assumes storage is pre-allocated)
 
 	private void unmarshal_rup_array (MarshalReader reader, String name, int[][] x) {
@@ -910,11 +1218,11 @@ public class OECatalogStorage implements OECatalogBuilder {
 			writer.marshalInt ("rup_valid_count", rup_valid_count);
 
 			marshal_rup_array (writer, "t_day"      , t_day      );
-			marshal_rup_array (writer, "rup_mag"    , rup_mag    );
-			marshal_rup_array (writer, "k_prod"     , k_prod     );
+			marshal_rup_array (writer, "rup_mag"    , rup_mag    , rup_mag_f  );
+			marshal_rup_array (writer, "k_prod"     , k_prod     , k_prod_f   );
 			marshal_rup_array (writer, "rup_parent" , rup_parent );
-			marshal_rup_array (writer, "x_km"       , x_km       );
-			marshal_rup_array (writer, "y_km"       , y_km       );
+			marshal_rup_array (writer, "x_km"       , x_km       , x_km_f     );
+			marshal_rup_array (writer, "y_km"       , y_km       , y_km_f     );
 
 		}
 		break;
@@ -942,6 +1250,11 @@ public class OECatalogStorage implements OECatalogBuilder {
 
 			cat_params.unmarshal (reader, "cat_params");
 
+			// Unmarshal into double columns, so values are not rounded
+
+			f_auto_float = false;
+			set_float_cols (false);
+
 			cat_stop_time = reader.unmarshalDouble ("cat_stop_time");
 			cat_result_code = reader.unmarshalInt ("cat_result_code");
 
@@ -1024,11 +1337,18 @@ public class OECatalogStorage implements OECatalogBuilder {
 	public void test_trunc_rup_as_if_stored (OERupture src, OERupture dest) {
 
 		dest.t_day = src.t_day;
-		dest.rup_mag = src.rup_mag;
-		dest.k_prod = src.k_prod;
 		dest.rup_parent = src.rup_parent;
-		dest.x_km = src.x_km;
-		dest.y_km = src.y_km;
+		if (f_float_cols) {
+			dest.rup_mag = (double)((float)(src.rup_mag));
+			dest.k_prod = (double)((float)(src.k_prod));
+			dest.x_km = (double)((float)(src.x_km));
+			dest.y_km = (double)((float)(src.y_km));
+		} else {
+			dest.rup_mag = src.rup_mag;
+			dest.k_prod = src.k_prod;
+			dest.x_km = src.x_km;
+			dest.y_km = src.y_km;
+		}
 
 		return;
 	}
@@ -1036,6 +1356,85 @@ public class OECatalogStorage implements OECatalogBuilder {
 
 
 
+	// Generate an ensemble with the given column option, and return the accumulator.
+	// Parameters:
+	//  test_cat_params = Catalog parameters.
+	//  mag_main = Mainshock magnitude.
+	//  the_infill_meth = Infill method to use.
+	//  num_cats = Number of catalogs to run.
+	//  num_threads = Number of threads to use, can be -1 for default number of threads.
+	//  ranseed = Random seed for the ensemble, must be non-zero so runs are repeatable.
+	//  the_col_option = Column option, COL_OPT_XXXX.
+	// This is a test function.
+
+	public static OEAccumVarTimeMag test_col_option_run (OECatalogParams test_cat_params, double mag_main, int the_infill_meth,
+		int num_cats, int num_threads, long ranseed, int the_col_option) {
+
+		// Make the accumulator and set up the bins
+
+		OEAccumVarTimeMag time_mag_accum = new OEAccumVarTimeMag();
+		time_mag_accum.typical_test_setup (the_infill_meth, test_cat_params.tbegin);
+
+		ArrayList<OEEnsembleAccumulator> accumulators = new ArrayList<OEEnsembleAccumulator>();
+		accumulators.add (time_mag_accum);
+
+		// Create the mainshock and initializer
+
+		OEGenerationInfo test_gen_info = (new OEGenerationInfo()).set (
+			test_cat_params.mref,	// gen_mag_min
+			test_cat_params.msup	// gen_mag_max
+		);
+
+		OERupture mainshock_rup = new OERupture();
+
+		double k_prod = OEStatsCalc.calc_k_corr (
+			mag_main,			// m0
+			test_cat_params,	// cat_params
+			test_gen_info		// gen_info
+		);
+
+		mainshock_rup.set (
+			0.0,			// t_day
+			mag_main,		// rup_mag
+			k_prod,			// k_prod
+			RUPPAR_SEED,	// rup_parent
+			0.0,			// x_km
+			0.0				// y_km
+		);
+
+		ArrayList<OERupture> seed_ruptures = new ArrayList<OERupture>();
+		seed_ruptures.add (mainshock_rup);
+
+		OEInitFixedState initializer = new OEInitFixedState();
+		initializer.setup (test_cat_params, test_gen_info, seed_ruptures);
+
+		// Set up the ensemble parameters, with a fixed seed and the column option
+
+		OEEnsembleParams ensemble_params = new OEEnsembleParams();
+
+		ensemble_params.set (
+			initializer,		// initializer
+			accumulators,		// accumulators
+			num_cats			// num_catalogs
+		);
+
+		ensemble_params.set_stream (ranseed, 0);
+		ensemble_params.set_col_option (the_col_option);
+
+		// Generate the catalogs
+
+		OEEnsembleGenerator ensemble_generator = new OEEnsembleGenerator();
+
+		long max_runtime = -1L;
+		long progress_time = 10000L;
+		ensemble_generator.generate_all_catalogs (ensemble_params, num_threads, max_runtime, progress_time);
+
+		return time_mag_accum;
+	}
+
+
+
+
 	public static void main(String[] args) {
 
 		// There needs to be at least one argument, which is the subcommand
@@ -1494,6 +1893,142 @@ public class OECatalogStorage implements OECatalogBuilder {
 
 
 
+		// Subcommand : Test #3
+		// Command format:
+		//  test3  n  p  c  b  alpha  gen_size_target  gen_count_max  mag_main  tbegin  infill_meth  num_cats  num_threads  ranseed  rel_tol
+		// Generate the same ensemble twice, with the same random seed, once with double columns
+		// and once with float columns, and accumulate each with OEAccumVarTimeMag.
+		// The "n" is the branch ratio; "a" is computed from it.
+		// Then compare fractiles and probabilities of occurrence.  A fractile passes if it
+		// differs by at most 1 or by at most rel_tol relative; a probability passes if it
+		// differs by at most rel_tol.  Note that ranseed must be non-zero.
+
+		if (args[0].equalsIgnoreCase ("test3")) {
+
+			// 14 additional arguments
+
+			if (args.length != 15) {
+				System.err.println ("OECatalogStorage : Invalid 'test3' subcommand");
+				return;
+			}
+
+			try {
+
+				double n = Double.parseDouble (args[1]);
+				double p = Double.parseDouble (args[2]);
+				double c = Double.parseDouble (args[3]);
+				double b = Double.parseDouble (args[4]);
+				double alpha = Double.parseDouble (args[5]);
+				int gen_size_target = Integer.parseInt (args[6]);
+				int gen_count_max = Integer.parseInt (args[7]);
+				double mag_main = Double.parseDouble (args[8]);
+				double the_tbegin = Double.parseDouble (args[9]);
+				int the_infill_meth = Integer.parseInt (args[10]);
+				int num_cats = Integer.parseInt (args[11]);
+				int num_threads = Integer.parseInt (args[12]);
+				long ranseed = Long.parseLong (args[13]);
+				double rel_tol = Double.parseDouble (args[14]);
+
+				// Say hello
+
+				System.out.println ("Comparing double and float columns");
+				System.out.println ("n = " + n);
+				System.out.println ("p = " + p);
+				System.out.println ("c = " + c);
+				System.out.println ("b = " + b);
+				System.out.println ("alpha = " + alpha);
+				System.out.println ("gen_size_target = " + gen_size_target);
+				System.out.println ("gen_count_max = " + gen_count_max);
+				System.out.println ("mag_main = " + mag_main);
+				System.out.println ("the_tbegin = " + the_tbegin);
+				System.out.println ("the_infill_meth = " + the_infill_meth);
+				System.out.println ("num_cats = " + num_cats);
+				System.out.println ("num_threads = " + num_threads);
+				System.out.println ("ranseed = " + ranseed);
+				System.out.println ("rel_tol = " + rel_tol);
+
+				// Set up catalog parameters
+
+				double a = 0.0;			// for the moment
+				OECatalogParams test_cat_params = (new OECatalogParams()).set_to_typical (
+					a,
+					p,
+					c,
+					b,
+					alpha,
+					gen_size_target,
+					gen_count_max
+				);
+
+				a = OEStatsCalc.calc_inv_branch_ratio (n, test_cat_params);
+				test_cat_params.a = a;
+				System.out.println ("a = " + a);
+
+				test_cat_params.tbegin = the_tbegin;
+				test_cat_params.tend = the_tbegin + 365.0;
+
+				// Run with double columns, then float columns
+
+				OEAccumVarTimeMag accum_d = test_col_option_run (test_cat_params, mag_main, the_infill_meth, num_cats, num_threads, ranseed, COL_OPT_DOUBLE);
+				OEAccumVarTimeMag accum_f = test_col_option_run (test_cat_params, mag_main, the_infill_meth, num_cats, num_threads, ranseed, COL_OPT_FLOAT);
+
+				System.out.println (accum_f.typical_test_outputs_to_string());
+
+				// Compare fractiles
+
+				int err_count = 0;
+				int max_frac_diff = 0;
+				double[] fractiles = {0.0, 0.025, 0.5, 0.975, 1.0};
+
+				for (double fractile : fractiles) {
+					int[][] frac_d = accum_d.get_fractile_array (fractile);
+					int[][] frac_f = accum_f.get_fractile_array (fractile);
+					for (int time_ix = 0; time_ix < accum_d.get_time_bins(); ++time_ix) {
+						for (int mag_ix = 0; mag_ix < accum_d.get_mag_bins(); ++mag_ix) {
+							int diff = Math.abs (frac_f[time_ix][mag_ix] - frac_d[time_ix][mag_ix]);
+							max_frac_diff = Math.max (max_frac_diff, diff);
+							if (!( diff <= 1 || ((double)diff) <= rel_tol * ((double)(frac_d[time_ix][mag_ix])) )) {
+								System.out.println ("MISMATCH for fractile " + fractile + ", time_ix = " + time_ix + ", mag_ix = " + mag_ix + ": double = " + frac_d[time_ix][mag_ix] + ", float = " + frac_f[time_ix][mag_ix]);
+								++err_count;
+							}
+						}
+					}
+				}
+
+				// Compare probabilities of occurrence
+
+				double max_prob_diff = 0.0;
+				double[][] prob_d = accum_d.get_prob_occur_array();
+				double[][] prob_f = accum_f.get_prob_occur_array();
+
+				for (int time_ix = 0; time_ix < accum_d.get_time_bins(); ++time_ix) {
+					for (int mag_ix = 0; mag_ix < accum_d.get_mag_bins(); ++mag_ix) {
+						double diff = Math.abs (prob_f[time_ix][mag_ix] - prob_d[time_ix][mag_ix]);
+						max_prob_diff = Math.max (max_prob_diff, diff);
+						if (!( diff <= rel_tol )) {
+							System.out.println ("MISMATCH for probability, time_ix = " + time_ix + ", mag_ix = " + mag_ix + ": double = " + prob_d[time_ix][mag_ix] + ", float = " + prob_f[time_ix][mag_ix]);
+							++err_count;
+						}
+					}
+				}
+
+				// Final result
+
+				System.out.println ();
+				System.out.println ("Maximum fractile difference = " + max_frac_diff);
+				System.out.println ("Maximum probability difference = " + max_prob_diff);
+				System.out.println ("Error count = " + err_count);
+
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+
+			return;
+		}
+
+
+
+
 		// Unrecognized subcommand.
 
 		System.err.println ("OECatalogStorage : Unrecognized subcommand : " + args[0]);
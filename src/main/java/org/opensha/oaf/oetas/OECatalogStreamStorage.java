@@ -0,0 +1,748 @@
+package org.opensha.oaf.oetas;
+
+import java.util.Arrays;
+
+
+// Class to store a window of generations of an Operational ETAS catalog, while streaming it to a scanner.
+//
+// This builder holds only the most recent generations of the catalog being built.
+// As each generation is completed, the preceding generation is passed to an
+// OECatalogScanner, and then the generation before that can be discarded.  So
+// peak memory scales with the generation size rather than the catalog size.
+//
+// Per-generation information (sizes and magnitude ranges) is retained for all
+// generations, because it is small.  Per-rupture information is retained only for
+// the last WINDOW_GEN generations, each generation in its own set of arrays of
+// primitive type, which are re-used (and expanded as needed) for later generations.
+//
+// A generation is streamed once the next generation has been completed and found to
+// be non-empty, or when the catalog ends.  At that time, the scanner needs the prior
+// generation (for sterile ruptures), the generation itself, and the next generation
+// (for its generation information), hence WINDOW_GEN = 3.  The catalog generator only
+// needs the last generation.
+//
+// Streaming requires that the catalog stop time and result code are final when the
+// first generation is streamed.  If either one changes later (which happens when the
+// catalog stops early or reaches a size limit), then the stream is marked as broken,
+// and no further calls are made to the scanner.  The caller should then abandon the
+// streamed catalog and re-generate it in an OECatalogStorage.  Streaming is not
+// attempted at all if the catalog parameters enable early stopping, because then
+// the stop time is likely to change.
+//
+// Accessing the ruptures of a generation that has left the window is an error, and
+// the results are undefined.  In particular, the OECatalogView functions that dump the
+// entire catalog cannot be used.
+
+public class OECatalogStreamStorage implements OECatalogBuilder {
+
+	//----- Streaming -----
+
+	// The scanner that receives the catalog, or null if not streaming.
+
+	private OECatalogScanner scanner;
+
+	// The random number generator used for scanning.
+
+	private OERandomGenerator scan_rangen;
+
+	// True if the current catalog is to be streamed.
+
+	private boolean f_stream_enabled;
+
+	// True if the first generation of the current catalog has been streamed.
+
+	private boolean f_streaming;
+
+	// True if the stream is broken, because the stop time or result code changed after streaming began.
+
+	private boolean f_broken;
+
+	// The number of generations streamed so far.
+
+	private int streamed_gen_count;
+
+	// The largest number of ruptures held in the window at one time, since the last call to setup_stream.
+
+	private int peak_window_size;
+
+
+
+
+	//----- Per-Catalog storage -----
+
+	// Parameters for this catalog.
+
+	private OECatalogParams cat_params;
+
+	// Time at which the catalog stops, defaults to HUGE_TIME_DAYS.
+
+	private double cat_stop_time;
+
+	// Catalog result code, defaults to CAT_RESULT_OK.
+
+	private int cat_result_code;
+
+
+
+
+	//----- Per-Generation storage -----
+
+	// The current number of generations.
+
+	private int gen_count;
+
+	// The capacity of the per-generation arrays.
+
+	private int gen_capacity;
+
+	// The initial capacity.
+
+	private static final int INIT_GEN_CAPACITY = 128;
+
+	// Per-generation array containing the number of ruptures in the generation.
+
+	private int[] gen_size;
+
+	// Per-generation array containing the number of ruptures in the generation before the stop time.
+
+	private int[] gen_valid_size;
+
+	// Per-generation array containing the minimum magnitude for the generation.
+
+	private double[] gen_mag_min;
+
+	// Per-generation array containing the maximum magnitude for the generation.
+
+	private double[] gen_mag_max;
+
+
+	// Ensure there is sufficient capacity for per-generation storage.
+
+	private void ensure_capacity_gen () {
+		if (gen_count > gen_capacity) {
+			do {
+				gen_capacity = gen_capacity * 2;
+			} while (gen_count > gen_capacity);
+
+			gen_size = Arrays.copyOf (gen_size, gen_capacity);
+			gen_valid_size = Arrays.copyOf (gen_valid_size, gen_capacity);
+			gen_mag_min = Arrays.copyOf (gen_mag_min, gen_capacity);
+			gen_mag_max = Arrays.copyOf (gen_mag_max, gen_capacity);
+		}
+		return;
+	}
+
+
+
+
+	//----- Per-Rupture storage -----
+
+	// The number of generations held in the window.
+
+	private static final int WINDOW_GEN = 3;
+
+	// The initial capacity of each window slot.
+
+	private static final int INIT_SLOT_CAPACITY = 1024;
+
+	// The current total number of ruptures.
+
+	private int rup_count;
+
+	// The current total number of ruptures before the stop time, in generations that have been streamed.
+
+	private int rup_valid_count;
+
+	// The capacity of each window slot.
+	// Generation i_gen is held in slot i_gen % WINDOW_GEN.
+
+	private int[] slot_capacity;
+
+	// Rupture time, in days.
+
+	private double[][] t_day;
+
+	// Rupture magnitude.
+
+	private double[][] rup_mag;
+
+	// Productivity "k" value.
+
+	private double[][] k_prod;
+
+	// The parent rupture number, relative to the start of the prior generation.
+
+	private int[][] rup_parent;
+
+	// The x coordinate, in km.
+
+	private double[][] x_km;
+
+	// The y coordinate, in km.
+
+	private double[][] y_km;
+
+
+	// Ensure that a window slot can hold the given number of ruptures.
+	// Existing contents of the slot are preserved.
+
+	private void ensure_capacity_slot (int slot, int size) {
+		if (size > slot_capacity[slot]) {
+			int cap = slot_capacity[slot];
+			do {
+				cap = cap * 2;
+			} while (size > cap);
+
+			t_day[slot] = Arrays.copyOf (t_day[slot], cap);
+			rup_mag[slot] = Arrays.copyOf (rup_mag[slot], cap);
+			k_prod[slot] = Arrays.copyOf (k_prod[slot], cap);
+			rup_parent[slot] = Arrays.copyOf (rup_parent[slot], cap);
+			x_km[slot] = Arrays.copyOf (x_km[slot], cap);
+			y_km[slot] = Arrays.copyOf (y_km[slot], cap);
+
+			slot_capacity[slot] = cap;
+		}
+		return;
+	}
+
+
+
+
+	//----- Construction -----
+
+
+
+
+	// Clear to default values, and perform initial memory allocation.
+	// Any previously-allocated memory is discarded.
+
+	public final void clear () {
+		scanner = null;
+		scan_rangen = null;
+		f_stream_enabled = false;
+		f_streaming = false;
+		f_broken = false;
+		streamed_gen_count = 0;
+		peak_window_size = 0;
+
+		cat_params.clear();
+		cat_stop_time = OEConstants.HUGE_TIME_DAYS;
+		cat_result_code = OEConstants.CAT_RESULT_OK;
+
+		gen_count = 0;
+		gen_capacity = INIT_GEN_CAPACITY;
+		gen_size = new int[INIT_GEN_CAPACITY];
+		gen_valid_size = new int[INIT_GEN_CAPACITY];
+		gen_mag_min = new double[INIT_GEN_CAPACITY];
+		gen_mag_max = new double[INIT_GEN_CAPACITY];
+
+		rup_count = 0;
+		rup_valid_count = 0;
+		slot_capacity = new int[WINDOW_GEN];
+		t_day = new double[WINDOW_GEN][];
+		rup_mag = new double[WINDOW_GEN][];
+		k_prod = new double[WINDOW_GEN][];
+		rup_parent = new int[WINDOW_GEN][];
+		x_km = new double[WINDOW_GEN][];
+		y_km = new double[WINDOW_GEN][];
+		for (int slot = 0; slot < WINDOW_GEN; ++slot) {
+			slot_capacity[slot] = INIT_SLOT_CAPACITY;
+			t_day[slot] = new double[INIT_SLOT_CAPACITY];
+			rup_mag[slot] = new double[INIT_SLOT_CAPACITY];
+			k_prod[slot] = new double[INIT_SLOT_CAPACITY];
+			rup_parent[slot] = new int[INIT_SLOT_CAPACITY];
+			x_km[slot] = new double[INIT_SLOT_CAPACITY];
+			y_km[slot] = new double[INIT_SLOT_CAPACITY];
+		}
+		return;
+	}
+
+
+
+
+	// Default constructor.
+
+	public OECatalogStreamStorage () {
+		cat_params = new OECatalogParams();
+		clear();
+	}
+
+
+
+
+	// Set up to stream catalogs to a scanner.
+	// Parameters:
+	//  the_scanner = Scanner to receive the catalogs, or null to disable streaming.
+	//  the_scan_rangen = Random number generator to use for scanning.
+	// The scanner must be stream-capable.  It must be open whenever a catalog is being built.
+	// The setup applies to all catalogs subsequently built, until this function is called again.
+
+	public void setup_stream (OECatalogScanner the_scanner, OERandomGenerator the_scan_rangen) {
+		if (the_scanner != null && !( the_scanner.is_stream_capable() )) {
+			throw new IllegalArgumentException ("OECatalogStreamStorage.setup_stream: Scanner does not support streaming");
+		}
+		scanner = the_scanner;
+		scan_rangen = the_scan_rangen;
+		peak_window_size = 0;
+		return;
+	}
+
+
+
+
+	// Forget the scanner and random number generator.
+
+	public void forget () {
+		scanner = null;
+		scan_rangen = null;
+		return;
+	}
+
+
+
+
+	// Return true if the current catalog is being streamed.
+	// This is determined when the catalog begins, and can be checked after the seed
+	// generation is built.  If false, the catalog should be built in an OECatalogStorage instead.
+
+	public final boolean is_stream_enabled () {
+		return f_stream_enabled;
+	}
+
+
+
+
+	// Return true if the current catalog was completely streamed.
+	// This can be called after the catalog has ended.
+	// If false, then the stream was broken or never enabled, and any consumer calls
+	// already made for this catalog must be abandoned.
+
+	public final boolean is_stream_complete () {
+		return f_stream_enabled && f_streaming && (!f_broken) && streamed_gen_count == gen_count;
+	}
+
+
+
+
+	// Get the largest number of ruptures held at one time, since the last call to setup_stream.
+
+	public final int get_peak_window_size () {
+		return peak_window_size;
+	}
+
+
+
+
+	//----- Streaming -----
+
+
+
+
+	// Stream generations to the scanner, up to and including the given generation.
+
+	private void stream_through (int last_i_gen) {
+
+		// Nothing to do if not streaming, or if the stream is broken
+
+		if (!( f_stream_enabled ) || f_broken) {
+			return;
+		}
+
+		while (streamed_gen_count <= last_i_gen) {
+			int i_gen = streamed_gen_count;
+
+			// Begin the catalog before the first generation, at which point the stop time and result code are frozen
+
+			if (!( f_streaming )) {
+				f_streaming = true;
+				scanner.stream_begin_catalog (this, scan_rangen);
+			}
+
+			// Count the valid ruptures in the generation, now that the stop time is final
+
+			int slot = i_gen % WINDOW_GEN;
+			int size = gen_size[i_gen];
+			int count = size;
+			if (cat_stop_time < cat_params.tend) {
+				count = 0;
+				final double[] t = t_day[slot];
+				for (int j = 0; j < size; ++j) {
+					if (t[j] < cat_stop_time) {
+						++count;
+					}
+				}
+			}
+			gen_valid_size[i_gen] = count;
+			rup_valid_count += count;
+
+			// Pass the generation to the scanner
+
+			scanner.stream_generation (this, i_gen);
+			++streamed_gen_count;
+		}
+
+		return;
+	}
+
+
+
+
+	//----- Implementation of OECatalogView -----
+
+
+
+
+	// Get parameters for the catalog.
+
+	@Override
+	public void get_cat_params (OECatalogParams cat_params) {
+		cat_params.copy_from (this.cat_params);
+		return;
+	}
+
+
+	// Get the total number of ruptures in the catalog.
+
+	@Override
+	public int size () {
+		return rup_count;
+	}
+
+
+	// Get the total number of ruptures in the catalog, excluding seed ruptures.
+
+	@Override
+	public int etas_size () {
+		if (gen_count < 1) {
+			return rup_count;
+		}
+		return rup_count - gen_size[0];
+	}
+
+
+	// Get the total number of ruptures in the catalog before the stop time.
+	// This cannot be called until after the catalog is fully built and streamed.
+
+	@Override
+	public int valid_size () {
+		return rup_valid_count;
+	}
+
+
+	// Get the number of generations in the catalog.
+
+	@Override
+	public int get_gen_count () {
+		return gen_count;
+	}
+
+
+	// Get the number of ruptures in the i-th generation.
+
+	@Override
+	public int get_gen_size (int i_gen) {
+		return gen_size[i_gen];
+	}
+
+
+	// Get the number of ruptures in the i-th generation before the stop time.
+	// This is available once the generation has been streamed.
+
+	@Override
+	public int get_gen_valid_size (int i_gen) {
+		return gen_valid_size[i_gen];
+	}
+
+
+	// Get information about the i-th generation in the catalog.
+
+	@Override
+	public void get_gen_info (int i_gen, OEGenerationInfo gen_info) {
+		gen_info.set (
+			gen_mag_min[i_gen],
+			gen_mag_max[i_gen]
+		);
+		return;
+	}
+
+
+	// Get the j-th rupture in the i-th generation in the catalog.
+	// The generation must be within the window.
+
+	@Override
+	public void get_rup_full (int i_gen, int j_rup, OERupture rup) {
+		int slot = i_gen % WINDOW_GEN;
+
+		rup.set (
+			t_day[slot][j_rup],
+			rup_mag[slot][j_rup],
+			k_prod[slot][j_rup],
+			rup_parent[slot][j_rup],
+			x_km[slot][j_rup],
+			y_km[slot][j_rup]
+		);
+
+		return;
+	}
+
+
+	// Get the time of the j-th rupture in the i-th generation in the catalog.
+	// The generation must be within the window.
+
+	@Override
+	public void get_rup_time (int i_gen, int j_rup, final OERupture rup) {
+		rup.t_day = t_day[i_gen % WINDOW_GEN][j_rup];
+		return;
+	}
+
+
+	// Get the time and productivity of the j-th rupture in the i-th generation in the catalog.
+	// The generation must be within the window.
+
+	@Override
+	public void get_rup_time_prod (int i_gen, int j_rup, final OERupture rup) {
+		int slot = i_gen % WINDOW_GEN;
+
+		rup.t_day = t_day[slot][j_rup];
+		rup.k_prod = k_prod[slot][j_rup];
+
+		return;
+	}
+
+
+	// Get the times and productivities of all ruptures in the i-th generation in the catalog.
+	// The generation must be within the window.
+
+	@Override
+	public void get_gen_time_prod (int i_gen, final double[] t_day, final double[] k_prod) {
+		int slot = i_gen % WINDOW_GEN;
+		int size = gen_size[i_gen];
+
+		System.arraycopy (this.t_day[slot], 0, t_day, 0, size);
+		System.arraycopy (this.k_prod[slot], 0, k_prod, 0, size);
+
+		return;
+	}
+
+
+	// Get the time and location of the j-th rupture in the i-th generation in the catalog.
+	// The generation must be within the window.
+
+	@Override
+	public void get_rup_time_x_y (int i_gen, int j_rup, final OERupture rup) {
+		int slot = i_gen % WINDOW_GEN;
+
+		rup.t_day = t_day[slot][j_rup];
+		rup.x_km = x_km[slot][j_rup];
+		rup.y_km = y_km[slot][j_rup];
+
+		return;
+	}
+
+
+	// Get the time at which the catalog stops.
+
+	@Override
+	public double get_cat_stop_time () {
+		return cat_stop_time;
+	}
+
+
+	// Get the catalog result code, see OEConstants.CAT_RESULT_XXXX.
+
+	@Override
+	public int get_cat_result_code () {
+		return cat_result_code;
+	}
+
+
+
+
+	//----- Implementation of OECatalogBuilder -----
+
+
+
+
+	// Begin construction of a catalog.
+	// Parameters:
+	//  cat_params = Parameters to use for this catalog.
+	// Streaming is enabled if there is a scanner, and the parameters do not enable early stopping.
+
+	@Override
+	public void begin_catalog (OECatalogParams cat_params) {
+
+		// Re-initialize, re-using existing memory
+
+		cat_stop_time = OEConstants.HUGE_TIME_DAYS;
+		cat_result_code = OEConstants.CAT_RESULT_OK;
+		gen_count = 0;
+		rup_count = 0;
+		rup_valid_count = 0;
+
+		f_streaming = false;
+		f_broken = false;
+		streamed_gen_count = 0;
+
+		// Save the parameters
+
+		this.cat_params.copy_from (cat_params);
+
+		// Decide if we stream this catalog
+
+		f_stream_enabled = (scanner != null && !( cat_params.mag_excess > cat_params.mag_eps ));
+		return;
+	}
+
+
+
+
+	// End construction of a catalog.
+	// This streams the remaining generations and ends the streamed catalog.
+
+	@Override
+	public void end_catalog () {
+
+		// Remove any trailing zero-size generations, but not the seed generation
+
+		while (gen_count > 1 && gen_size[gen_count - 1] == 0) {
+			--gen_count;
+		}
+
+		// Stream the remaining generations, and end the catalog
+
+		stream_through (gen_count - 1);
+
+		if (f_stream_enabled && f_streaming && !( f_broken )) {
+			scanner.stream_end_catalog();
+		}
+
+		return;
+	}
+
+
+
+
+	// Begin a new generation of a catalog.
+	// The new generation replaces the oldest generation in the window.
+
+	@Override
+	public void begin_generation (OEGenerationInfo gen_info) {
+
+		// Get the index of the new generation
+
+		int i_gen = gen_count;
+
+		// Count the new generation, and allocate storage if needed
+
+		++gen_count;
+		ensure_capacity_gen();
+
+		// Zero size
+
+		gen_size[i_gen] = 0;
+		gen_valid_size[i_gen] = 0;
+
+		// Save generation information
+
+		gen_mag_min[i_gen] = gen_info.gen_mag_min;
+		gen_mag_max[i_gen] = gen_info.gen_mag_max;
+
+		return;
+	}
+
+
+
+
+	// End a generation of a catalog.
+	// If the generation is non-empty, the preceding generation is streamed.
+
+	@Override
+	public void end_generation () {
+
+		// Get the index of the new generation
+
+		int i_gen = gen_count - 1;
+
+		// Track the window size
+
+		int window_size = 0;
+		for (int k = Math.max (0, gen_count - WINDOW_GEN); k < gen_count; ++k) {
+			window_size += gen_size[k];
+		}
+		peak_window_size = Math.max (peak_window_size, window_size);
+
+		// Assume valid size equals size, until the generation is streamed
+
+		gen_valid_size[i_gen] = gen_size[i_gen];
+
+		// If non-empty, then the preceding generation is not the final generation, and can be streamed
+
+		if (i_gen >= 1 && gen_size[i_gen] > 0) {
+			stream_through (i_gen - 1);
+		}
+		return;
+	}
+
+
+
+
+	// Add a rupture to the current generation of a catalog.
+
+	@Override
+	public void add_rup (OERupture rup) {
+
+		// Get the slot and index of the new rupture
+
+		int i_gen = gen_count - 1;
+		int slot = i_gen % WINDOW_GEN;
+		int index = gen_size[i_gen];
+
+		// Count the new rupture, and allocate storage if needed
+
+		ensure_capacity_slot (slot, index + 1);
+		gen_size[i_gen]++;
+		++rup_count;
+
+		// Save rupture information
+
+		t_day[slot][index] = rup.t_day;
+		rup_mag[slot][index] = rup.rup_mag;
+		k_prod[slot][index] = rup.k_prod;
+		rup_parent[slot][index] = rup.rup_parent;
+		x_km[slot][index] = rup.x_km;
+		y_km[slot][index] = rup.y_km;
+
+		return;
+	}
+
+
+
+
+	// Set the time at which the catalog stops.
+	// If streaming has begun and the stop time changes, the stream is broken.
+
+	@Override
+	public void set_cat_stop_time (double stop_time) {
+		if (f_streaming && stop_time != cat_stop_time) {
+			f_broken = true;
+		}
+		cat_stop_time = stop_time;
+		return;
+	}
+
+
+
+
+	// Set the catalog result code, CAT_RESULT_OK indicates success.
+	// If streaming has begun and the result code changes, the stream is broken.
+
+	@Override
+	public void set_cat_result_code (int result_code) {
+		if (f_streaming && result_code != cat_result_code) {
+			f_broken = true;
+		}
+		cat_result_code = result_code;
+		return;
+	}
+
+}
@@ -104,6 +104,26 @@ public interface OECatalogView {
 
 	public void get_rup_time_x_y (int i_gen, int j_rup, OERupture rup);
 
+	// Get the times and productivities of all ruptures in the i-th generation in the catalog.
+	// Parameters:
+	//  i_gen = Generation number.
+	//  t_day = Array to receive the rupture times, length must be at least the generation size.
+	//  k_prod = Array to receive the productivities, length must be at least the generation size.
+	// Element j of each array receives the value for the j-th rupture in the generation.
+	// The default implementation calls get_rup_time_prod for each rupture.  Classes that
+	// store ruptures in arrays should override this with a bulk copy.
+
+	public default void get_gen_time_prod (int i_gen, double[] t_day, double[] k_prod) {
+		final OERupture rup = new OERupture();
+		final int gen_size = get_gen_size (i_gen);
+		for (int j_rup = 0; j_rup < gen_size; ++j_rup) {
+			get_rup_time_prod (i_gen, j_rup, rup);
+			t_day[j_rup] = rup.t_day;
+			k_prod[j_rup] = rup.k_prod;
+		}
+		return;
+	}
+
 	// Get the time at which the catalog stops.
 	// The return value need not satisfy stop_time <= cat_params.tend; however,
 	// the catalog does not extend past cat_params.tend regardless of stop_time.
@@ -349,7 +349,8 @@ public class OEConstants {
 	public static final int SEL_ACCUM_RATE_TIME_MAG		= 4;	// OEAccumRateTimeMag
 	public static final int SEL_ACCUM_SIM_RANGING		= 5;	// OEAccumSimRanging
 	public static final int SEL_ACCUM_SEED_EST_RANGING	= 6;	// OEAccumSeedEstRanging
-	public static final int SEL_ACCUM_MAX				= 6;
+	public static final int SEL_ACCUM_HIST_TIME_MAG		= 7;	// OEAccumHistTimeMag
+	public static final int SEL_ACCUM_MAX				= 7;
 
 
 
@@ -617,6 +618,9 @@ public class OEConstants {
 	public static final String MKEY_SIM_DURATION = "simDuration";
 	public static final String MKEY_SIM_MAG_MIN = "simMagMin";
 	public static final String MKEY_SIM_MAG_MAX = "simMagMax";
+	public static final String MKEY_SIM_PROB_ERROR = "simProbError";
+	public static final String MKEY_SIM_FRACTILE_ERROR = "simFractileError";
+	public static final String MKEY_SIM_CONVERGED = "simConverged";
 
 
 
@@ -1014,6 +1018,32 @@ public class OEConstants {
 		return 0.25;
 	}
 
+	// Default streaming option, for simulations.
+	// Streaming is off by default; it reduces memory use but does not change results.
+
+	public static final boolean DEF_SIM_STREAMING = false;
+
+	// Default float column option, for simulations.
+	// Float columns are off by default; they reduce memory use but can change results slightly.
+
+	public static final boolean DEF_SIM_FLOAT_COLS = false;
+
+	// Default convergence tolerances, for simulations.
+	// Zero disables the early stop, so by default the full number of catalogs is generated.
+
+	public static final double DEF_SIM_CONV_PROB_TOL = 0.0;
+	public static final double DEF_SIM_CONV_FRACTILE_TOL = 0.0;
+
+	// Default time interval for convergence checks, for simulations, in milliseconds.
+
+	public static final long DEF_SIM_CONV_CHECK_TIME = 5000L;
+
+	// Default maximum number of evaluations for the direct MLE search, during fitting.
+	// The search result is displayed only; the MLE is always the best grid point.
+	// Zero means no direct search.
+
+	public static final int DEF_DIRECT_MLE_EVALS = 0;
+
 
 
 
@@ -1,5 +1,7 @@
 package org.opensha.oaf.oetas;
 
+import org.opensha.oaf.util.AutoExecutorService;
+
 
 // Interface for accumulating results from a set of catalogs of Operational ETAS ruptures.
 // Author: Michael Barall 12/30/2019.
@@ -66,4 +68,39 @@ public interface OEEnsembleAccumulator {
 
 	public void end_accumulation ();
 
+	// End accumulating catalogs, with an executor available to finish in parallel.
+	// Parameters:
+	//  executor = Executor whose threads can be used, or null if none.
+	// This function is called in place of end_accumulation() when catalogs are generated
+	// on an executor, so the accumulator can spread its final binning across the pool.
+	// The result must be the same as end_accumulation().  The default calls end_accumulation().
+	// Threading: No other thread should be accessing this object,
+	// and none of its consumers can be open.
+
+	public default void end_accumulation (AutoExecutorService executor) {
+		end_accumulation();
+		return;
+	}
+
+
+	//----- Streaming -----
+
+	// Return true if this accumulator's consumers can consume a streamed catalog.
+	// In a streamed catalog, each generation is passed to the consumers while the
+	// catalog is still being generated (see OECatalogScanner.stream_begin_catalog).
+	// A consumer that accepts streamed catalogs must satisfy these conditions:
+	//  * It does not use the per-catalog totals cat_size, cat_etas_size,
+	//    cat_valid_size, and cat_gen_count in the communication area,
+	//    which are -1 (unknown) for a streamed catalog.
+	//  * It does not store any results into the accumulator before end_catalog()
+	//    or close() is called.
+	//  * If open() is called while the consumer is already open, then it discards
+	//    everything it received since the prior call to open(), and prepares to
+	//    consume a new catalog.  (This is used to abandon a streamed catalog.)
+	// The default is false.  Threading: Can be called in multiple threads.
+
+	public default boolean is_stream_capable () {
+		return false;
+	}
+
 }
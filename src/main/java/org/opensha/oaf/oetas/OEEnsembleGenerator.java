@@ -10,6 +10,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.opensha.oaf.util.AutoExecutorService;
 import org.opensha.oaf.util.SimpleThreadLoopHelper;
@@ -47,6 +48,19 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 		return ensemble_params;
 	}
 
+	// The random seed in use for the ensemble.
+	// This is ensemble_params.ranseed if it is non-zero, otherwise a seed selected automatically.
+
+	private long ensemble_ranseed;
+
+
+	// Get the random seed used for the ensemble.
+	// Regenerating with this seed (and the same parameters) reproduces the catalogs.
+
+	public final long get_ensemble_ranseed () {
+		return ensemble_ranseed;
+	}
+
 
 
 
@@ -64,6 +78,10 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 
 	private static final String PMFMT_TIMEOUT = "Reached time limit after generating %C ETAS catalogs in %E seconds";
 
+	// Progress message format for early stop requested by the loop monitor.
+
+	private static final String PMFMT_MONITOR_STOP = "Stopped early after generating %C ETAS catalogs in %E seconds";
+
 	// Progress message format for abort.
 
 	private static final String PMFMT_ABORT = "Aborted because of error after generating %C ETAS catalogs in %E seconds";
@@ -90,6 +108,12 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 
 	private SimpleThreadLoopResult loop_result = new SimpleThreadLoopResult();
 
+	// The number of ruptures placed in catalog storage, and the bytes used to store them.
+	// Catalogs that are completely streamed are not counted, because they are not stored.
+
+	private AtomicLong stored_rup_count = new AtomicLong();
+	private AtomicLong stored_rup_bytes = new AtomicLong();
+
 
 
 
@@ -129,6 +153,7 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 
 	public OEEnsembleGenerator () {
 		ensemble_params = null;
+		ensemble_ranseed = 0L;
 		status_msg = PMFMT_NONE;
 
 		mear_opt = OECatalogGenerator.MEAR_NORMAL;
@@ -155,11 +180,12 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 	public void thread_entry (SimpleThreadManager thread_manager, int thread_number) throws Exception {
 
 		// Get the random number generator
+		// Normally this is a generator that supports streams, so each catalog can use its own stream
 
 		//OERandomGenerator rangen = OERandomGenerator.get_thread_rangen();
 		OERandomGenerator rangen;
 		if (mear_opt == OECatalogGenerator.MEAR_NORMAL) {
-			rangen = OERandomGenerator.get_thread_rangen();
+			rangen = OERandomGenerator.get_thread_stream_rangen();
 		} else {
 			rangen = mear_map.get (thread_number);
 			if (rangen == null) {
@@ -168,6 +194,15 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 			}
 		}
 
+		// Get the random number generator used for scanning
+		// When streams are supported, scanning uses its own stream, so that scanning
+		// does not disturb generation, and a catalog can be re-generated after it is scanned
+
+		OERandomGenerator scan_rangen = rangen;
+		if (rangen.is_stream_capable()) {
+			scan_rangen = OERandomGenerator.make_stream_rangen();
+		}
+
 		// Create a seeder for our initializer, which we re-use for each catalog
 
 		OECatalogSeeder seeder = ensemble_params.initializer.make_seeder();
@@ -185,56 +220,175 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 		// Allocate the storage (which is also the builder), which we re-use for each catalog
 
 		OECatalogStorage cat_storage = new OECatalogStorage();
+		cat_storage.set_col_option (ensemble_params.col_option);
+
+		// If streaming, allocate the stream storage, which we re-use for each catalog
+
+		OECatalogStreamStorage stream_storage = null;
+		if (ensemble_params.f_streaming && cat_scanner.is_stream_capable() && rangen.is_stream_capable()) {
+			stream_storage = new OECatalogStreamStorage();
+			stream_storage.setup_stream (cat_scanner, scan_rangen);
+		}
 
 		// Allocate a generator, which we re-use for each catalog
 
 		OECatalogGenerator cat_generator = new OECatalogGenerator();
 
+		// Storage statistics for this thread
+
+		long my_rup_count = 0L;
+		long my_rup_bytes = 0L;
+
 		// Loop until loop completed or prompt termination is requested
+		// (catalog numbers are claimed in chunks sized from the measured time per catalog)
 
-		for (int index = loop_helper.get_loop_index(); index >= 0; index = loop_helper.get_next_index()) {
+		SimpleThreadLoopHelper.ChunkCursor cursor = loop_helper.make_chunk_cursor();
 
-			// Set up the seeder communication area
+		for (int index = cursor.get_loop_index(); index >= 0; index = cursor.get_next_index()) {
 
-			seed_comm.setup_seed_comm (cat_storage, rangen);
+			// Select the random streams for this catalog number, so the catalog is
+			// the same no matter which thread generates it
 
-			// Open the seeder
+			set_catalog_streams (rangen, scan_rangen, index);
 
-			seeder.open();
+			// Open the consumers
 
-			// Seed the catalog
+			cat_scanner.open();
 
-			seeder.seed_catalog (seed_comm);
+			// If streaming, seed the catalog into the stream storage
 
-			// Close the seeder
+			if (stream_storage != null) {
+				seed_catalog (seeder, seed_comm, stream_storage, rangen);
 
-			seeder.close();
+				// If the stream storage accepted the catalog, generate it while streaming to the consumers
 
-			// Set up the catalog generator
-				
-			cat_generator.setup (rangen, cat_storage, false);
+				if (stream_storage.is_stream_enabled()) {
+					generate_catalog (cat_generator, stream_storage, rangen);
 
-			// Calculate all generations and end the catalog
+					// If the catalog was completely streamed, close the consumers and we're done
 
-			cat_generator.calc_all_gen();
+					if (stream_storage.is_stream_complete()) {
+						cat_scanner.close();
+						continue;
+					}
 
-			// Tell the generator to forget the catalog
+					// Abandon the streamed catalog, and re-open the consumers
 
-			cat_generator.forget();
-		
-			// Open the consumers
+					cat_scanner.stream_abandon();
+				}
 
-			cat_scanner.open();
+				// Re-select the random streams, so the stored catalog is the same as the streamed catalog would be
+
+				set_catalog_streams (rangen, scan_rangen, index);
+			}
+
+			// Seed the catalog
+
+			seed_catalog (seeder, seed_comm, cat_storage, rangen);
+
+			// Calculate all generations and end the catalog
+
+			generate_catalog (cat_generator, cat_storage, rangen);
+
+			my_rup_count += (long)(cat_storage.size());
+			my_rup_bytes += ((long)(cat_storage.size())) * ((long)(cat_storage.get_bytes_per_rup()));
 
 			// Scan the catalog
 
-			cat_scanner.scan (cat_storage, rangen);
+			cat_scanner.scan (cat_storage, scan_rangen);
 
 			// Close the consumers
 
 			cat_scanner.close();
 		}
 
+		// Release the scanner
+
+		if (stream_storage != null) {
+			stream_storage.forget();
+		}
+
+		// Report storage statistics
+
+		stored_rup_count.addAndGet (my_rup_count);
+		stored_rup_bytes.addAndGet (my_rup_bytes);
+
+		return;
+	}
+
+
+
+
+	// Select the random streams for a catalog.
+	// Parameters:
+	//  rangen = Random number generator used for seeding and generating the catalog.
+	//  scan_rangen = Random number generator used for scanning the catalog.
+	//  index = Catalog number.
+	// Catalog number index uses stream 2*index for generation and stream 2*index+1 for scanning.
+	// Nothing is done if the random number generators do not support streams.
+
+	private void set_catalog_streams (OERandomGenerator rangen, OERandomGenerator scan_rangen, int index) {
+		if (rangen.is_stream_capable()) {
+			rangen.set_stream (ensemble_ranseed, 2L * ((long)index));
+			if (scan_rangen != rangen) {
+				scan_rangen.set_stream (ensemble_ranseed, 2L * ((long)index) + 1L);
+			}
+		}
+		return;
+	}
+
+
+
+
+	// Seed a catalog.
+	// Parameters:
+	//  seeder = The seeder.
+	//  seed_comm = Seeder communication area.
+	//  cat_builder = Builder that receives the catalog.
+	//  rangen = Random number generator.
+
+	private static void seed_catalog (OECatalogSeeder seeder, OECatalogSeedComm seed_comm, OECatalogBuilder cat_builder, OERandomGenerator rangen) {
+
+		// Set up the seeder communication area
+
+		seed_comm.setup_seed_comm (cat_builder, rangen);
+
+		// Open the seeder
+
+		seeder.open();
+
+		// Seed the catalog
+
+		seeder.seed_catalog (seed_comm);
+
+		// Close the seeder
+
+		seeder.close();
+		return;
+	}
+
+
+
+
+	// Generate a seeded catalog, and end the catalog.
+	// Parameters:
+	//  cat_generator = The catalog generator.
+	//  cat_builder = Builder that receives the catalog, which must already be seeded.
+	//  rangen = Random number generator.
+
+	private static void generate_catalog (OECatalogGenerator cat_generator, OECatalogBuilder cat_builder, OERandomGenerator rangen) {
+
+		// Set up the catalog generator
+				
+		cat_generator.setup (rangen, cat_builder, false);
+
+		// Calculate all generations and end the catalog
+
+		cat_generator.calc_all_gen();
+
+		// Tell the generator to forget the catalog
+
+		cat_generator.forget();
 		return;
 	}
 
@@ -259,10 +413,21 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 			throw new IllegalArgumentException ("OEEnsembleGenerator.pre_launch: Invalid number of catalogs: " + the_ensemble_params.num_catalogs);
 		}
 
+		if (!( the_ensemble_params.first_catalog >= 0 && the_ensemble_params.first_catalog <= Integer.MAX_VALUE - the_ensemble_params.num_catalogs )) {
+			throw new IllegalArgumentException ("OEEnsembleGenerator.pre_launch: Invalid first catalog number: " + the_ensemble_params.first_catalog);
+		}
+
 		// Save the parameters
 
 		ensemble_params = the_ensemble_params;
 
+		// Establish the random seed
+
+		ensemble_ranseed = ensemble_params.ranseed;
+		if (ensemble_ranseed == 0L) {
+			ensemble_ranseed = OERandomGenerator.make_ensemble_seed();
+		}
+
 		// Begin initialization
 
 		ensemble_params.initializer.begin_initialization();
@@ -299,6 +464,16 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 
 
 
+	// Return true if the loop monitor stopped the last operation early.
+	// Threading: This function may only be called from the main thread after termination.
+
+	public final boolean has_monitor_stop () {
+		return loop_helper.is_monitor_stop();
+	}
+
+
+
+
 	// Get the final status message for the last operation.
 	// Threading: This function may only be called from the main thread after termination.
 
@@ -332,9 +507,12 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 
 
 	// Perform post-termination operations.
+	// Parameters:
+	//  executor = The executor that was used for launching the threads.
 	// This must be called after all threads are terminated to finish accumulation.
+	// The executor's threads are idle, so the accumulators can use them to finish.
 
-	private void post_termination () {
+	private void post_termination (AutoExecutorService executor) {
 
 		// End initialization
 
@@ -343,7 +521,7 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 		// End accumulation
 
 		for (OEEnsembleAccumulator accumulator : ensemble_params.accumulators) {
-			accumulator.end_accumulation ();
+			accumulator.end_accumulation (executor);
 		}
 
 		return;
@@ -380,11 +558,19 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 
 		// Run the loop
 
-		loop_helper.run_loop (this, executor, 0, ensemble_params.num_catalogs, max_runtime, progress_time);
+		System.out.println ("Ensemble random seed = " + ensemble_ranseed + ", first catalog = " + ensemble_params.first_catalog);
+
+		stored_rup_count.set (0L);
+		stored_rup_bytes.set (0L);
+
+		loop_helper.set_loop_monitor (ensemble_params.loop_monitor, ensemble_params.monitor_time);
+		loop_helper.run_loop (this, executor, ensemble_params.first_catalog, ensemble_params.first_catalog + ensemble_params.num_catalogs, max_runtime, progress_time);
+		loop_helper.set_loop_monitor (null, 0L);
 
 		// Capture the result
 
 		loop_result.accum_loop (loop_helper);
+		loop_result.add_storage (stored_rup_count.get(), stored_rup_bytes.get());
 
 		// Check for thread abort
 
@@ -395,6 +581,14 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 			ncat_gen = -1;
 		}
 
+		// Otherwise, check for early stop requested by the monitor
+
+		else if (loop_helper.is_monitor_stop()) {
+			status_msg = loop_helper.make_progress_message (PMFMT_MONITOR_STOP);
+			System.out.println (status_msg);
+			ncat_gen = loop_helper.get_completions();
+		}
+
 		// Otherwise, check for timeout
 
 		else if (loop_helper.is_incomplete()) {
@@ -413,7 +607,7 @@ public class OEEnsembleGenerator implements SimpleThreadTarget {
 
 		// Post-termination operations
 
-		post_termination();
+		post_termination (executor);
 
 		return ncat_gen;
 	}
@@ -4,6 +4,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
 
+import org.opensha.oaf.util.SimpleThreadLoopHelper;
+
 
 // Class to store parameters for an ensemble of operational ETAS catalogs.
 // Author: Michael Barall 02/01/2020.
@@ -26,6 +28,41 @@ public class OEEnsembleParams {
 
 	public int num_catalogs;
 
+	// The random seed for the ensemble, or 0L to select a seed automatically.
+	// Catalog number i is generated using stream 2*i of this seed, and scanned using
+	// stream 2*i+1, so that the catalogs do not depend on the number of threads or
+	// the thread scheduling, nor on whether the catalogs are streamed.
+
+	public long ranseed;
+
+	// The catalog number of the first catalog to generate.
+	// The catalogs are numbered first_catalog through first_catalog + num_catalogs - 1.
+	// Together with ranseed, this can be used to regenerate selected catalogs of an ensemble.
+
+	public int first_catalog;
+
+	// True to stream each catalog to the accumulators while it is being generated.
+	// This holds only a few generations in memory at a time, instead of the entire catalog.
+	// It is used only if all the accumulators support streaming.  Results are the same
+	// whether or not streaming is used.
+
+	public boolean f_streaming;
+
+	// The option for selecting the column types of catalog storage (see OECatalogStorage.COL_OPT_XXXX).
+	// The default is double columns.  COL_OPT_AUTO switches a catalog to float columns
+	// once it grows large, which reduces memory but can change results slightly.
+
+	public int col_option;
+
+	// A monitor that is called periodically while catalogs are being generated, or null if none.
+	// The monitor can stop generation early, for example when the results have converged.
+
+	public SimpleThreadLoopHelper.LoopMonitor loop_monitor;
+
+	// Time interval between calls to the monitor, in milliseconds.
+
+	public long monitor_time;
+
 
 
 
@@ -40,6 +77,12 @@ public class OEEnsembleParams {
 		initializer  = null;
 		accumulators = null;
 		num_catalogs = 0;
+		ranseed = 0L;
+		first_catalog = 0;
+		f_streaming = false;
+		col_option = OECatalogStorage.COL_OPT_DOUBLE;
+		loop_monitor = null;
+		monitor_time = 0L;
 		return;
 	}
 
@@ -65,6 +108,71 @@ public class OEEnsembleParams {
 		this.initializer  = initializer;
 		this.accumulators = accumulators.toArray (new OEEnsembleAccumulator[0]);
 		this.num_catalogs = num_catalogs;
+		this.ranseed = 0L;
+		this.first_catalog = 0;
+		this.f_streaming = false;
+		this.col_option = OECatalogStorage.COL_OPT_DOUBLE;
+		this.loop_monitor = null;
+		this.monitor_time = 0L;
+		return this;
+	}
+
+
+
+
+	// Set the random seed and the first catalog number.
+	// Must be called after set(), which resets these values to their defaults.
+
+	public OEEnsembleParams set_stream (
+		long ranseed,
+		int first_catalog
+	) {
+		this.ranseed = ranseed;
+		this.first_catalog = first_catalog;
+		return this;
+	}
+
+
+
+
+	// Set the streaming option.
+	// Must be called after set(), which resets this value to its default.
+
+	public OEEnsembleParams set_streaming (
+		boolean f_streaming
+	) {
+		this.f_streaming = f_streaming;
+		return this;
+	}
+
+
+
+
+	// Set the option for selecting the column types of catalog storage.
+	// Must be called after set(), which resets this value to its default.
+
+	public OEEnsembleParams set_col_option (
+		int col_option
+	) {
+		this.col_option = col_option;
+		return this;
+	}
+
+
+
+
+	// Set the loop monitor.
+	// Parameters:
+	//  loop_monitor = The monitor, or null if none.
+	//  monitor_time = Time interval between calls to the monitor, in milliseconds, must be > 0 if the monitor is non-null.
+	// Must be called after set(), which resets these values to their defaults.
+
+	public OEEnsembleParams set_loop_monitor (
+		SimpleThreadLoopHelper.LoopMonitor loop_monitor,
+		long monitor_time
+	) {
+		this.loop_monitor = loop_monitor;
+		this.monitor_time = monitor_time;
 		return this;
 	}
 
@@ -77,6 +185,12 @@ public class OEEnsembleParams {
 		this.initializer  = other.initializer;
 		this.accumulators = other.accumulators;
 		this.num_catalogs = other.num_catalogs;
+		this.ranseed = other.ranseed;
+		this.first_catalog = other.first_catalog;
+		this.f_streaming = other.f_streaming;
+		this.col_option = other.col_option;
+		this.loop_monitor = other.loop_monitor;
+		this.monitor_time = other.monitor_time;
 		return this;
 	}
 
@@ -35,7 +35,12 @@ public class OERandomGenerator {
 
 	// The underlying PRNG, from which all distributions are obtained.
 
-	DoubleMersenneTwister prng_engine;
+	DoubleRandomEngine prng_engine;
+
+	// The underlying PRNG if it is a splittable engine, or null if not.
+	// If non-null, this is the same object as prng_engine.
+
+	OESplitRandomEngine split_engine;
 
 	// Generates uniformly distributed random numbers.
 
@@ -105,11 +110,25 @@ public class OERandomGenerator {
 	// N.B.: Currently only the lower 32 bits of the seed are used.
 
 	public OERandomGenerator (long seed) {
+		this (new DoubleMersenneTwister ((int)seed));
+	}
+
+
+
+
+	// Constructor sets up the generators using the supplied engine.
+	// If the engine is an OESplitRandomEngine, then this generator supports streams.
+
+	public OERandomGenerator (DoubleRandomEngine engine) {
 	
-		// Mersenne twister with the given seed
+		// The underlying engine
 
-		int mt_seed = (int)seed;
-		prng_engine = new DoubleMersenneTwister (mt_seed);
+		prng_engine = engine;
+		if (engine instanceof OESplitRandomEngine) {
+			split_engine = (OESplitRandomEngine)engine;
+		} else {
+			split_engine = null;
+		}
 
 		// Uniform random number generator
 		// (We set limits to 0.0 and 1.0, but these are changed as needed)
@@ -125,6 +144,61 @@ public class OERandomGenerator {
 
 
 
+	//----- Streams -----
+
+
+
+
+	// Make a random generator that supports streams.
+	// The generator is initially positioned at stream 0 of a newly-obtained random seed.
+
+	public static OERandomGenerator make_stream_rangen () {
+		return new OERandomGenerator (new OESplitRandomEngine (get_next_seed()));
+	}
+
+
+
+
+	// Obtain a random seed for an ensemble of catalogs.
+	// The returned value is always positive.
+	// If test mode supplies a random seed, then the sequence of values returned is reproducible.
+
+	public static long make_ensemble_seed () {
+		return get_next_seed();
+	}
+
+
+
+
+	// Return true if this generator supports streams.
+
+	public final boolean is_stream_capable () {
+		return split_engine != null;
+	}
+
+
+
+
+	// Select a stream.
+	// Parameters:
+	//  seed = Seed, typically the seed for an ensemble of catalogs.
+	//  stream_index = Index of the stream, typically the catalog number.
+	// After this call, the sequence of random numbers produced by this generator depends
+	// only on (seed, stream_index), and not on the thread or on any earlier use of the generator.
+	// Selecting a stream takes constant time, independent of stream_index.
+	// Throws IllegalStateException if the generator does not support streams.
+
+	public final void set_stream (long seed, long stream_index) {
+		if (split_engine == null) {
+			throw new IllegalStateException ("OERandomGenerator.set_stream: Random generator does not support streams");
+		}
+		split_engine.set_stream (seed, stream_index);
+		return;
+	}
+
+
+
+
 	//----- Threading -----
 
 
@@ -171,6 +245,48 @@ public class OERandomGenerator {
 
 
 
+	// Holds the per-thread random generator that supports streams.
+
+	private static final ThreadLocal<OERandomGenerator> per_thread_stream_rangen =
+		new ThreadLocal<OERandomGenerator>() {
+			@Override protected OERandomGenerator initialValue () {
+				return null;
+			}
+		};
+
+
+
+
+	// Get the per-thread random generator that supports streams, create it if necessary.
+	// The caller should select a stream before using the generator.
+
+	public static OERandomGenerator get_thread_stream_rangen () {
+
+		// Get thread-local value
+
+		OERandomGenerator rangen = per_thread_stream_rangen.get();
+
+		// If not created yet ...
+
+		if (rangen == null) {
+
+			// Create the random generator
+
+			rangen = make_stream_rangen ();
+
+			// Save the random generator
+		
+			per_thread_stream_rangen.set (rangen);
+		}
+	
+		// Return it
+
+		return rangen;
+	}
+
+
+
+
 	//----- Sampling -----
 
 
@@ -784,6 +900,57 @@ public class OERandomGenerator {
 	}
 
 
+	// Calculate cumulative Omori expected rates for an array of earthquakes, with shifted time.
+	// Parameters:
+	//  p = Omori p parameter.
+	//  c = Omori c parameter, must satisfy c > 0.
+	//  teps = Time epsilon, in days.
+	//  t1 = Lower time value in days.
+	//  t2 = Upper time value in days.
+	//  t0 = Array of earthquake times, in days.
+	//  k = Array of productivities.
+	//  rate_cum = Array to receive cumulative rates.
+	//  n = Number of earthquakes.
+	// Returns the total rate.
+	// On return, rate_cum[j] = Sum(i = 0 to j, k[i] * omori_rate_shifted (p, c, t0[i], teps, t1, t2)).
+	// The result is identical to calling omori_rate_shifted for each earthquake,
+	// but the loop has no calls other than the math functions, q = 1 - p is computed
+	// once, and the cases in omori_rate_shifted are reduced to conditional selects:
+	// the integral starts at ts = max(t0, t1), and the time range is zero if
+	// t2 <= ts + teps (which makes the integral zero).
+
+	public static double omori_rate_shifted_cum (double p, double c, double teps, double t1, double t2,
+			final double[] t0, final double[] k, final double[] rate_cum, int n) {
+
+		final double q = 1.0 - p;
+		double total = 0.0;
+
+		for (int j = 0; j < n; ++j) {
+			final double tj = t0[j];
+			final double ts = Math.max (tj, t1);
+			final double tr = (t2 <= ts + teps) ? 0.0 : (t2 - ts);
+
+			// Omori integral from ts to t2, see omori_rate_raw
+
+			final double w = ts - tj + c;
+			final double a = Math.log1p(tr/w);
+			final double aq = a*q;
+			double rate = (Math.abs(aq) < 1.0e-15) ? (Math.pow(w, q) * a) : (Math.pow(w, q) * Math.expm1(aq) / q);
+
+			// Background source has constant unit rate
+
+			rate = (tj <= BKGD_TIME_DAYS_CHECK) ? tr : rate;
+
+			total += k[j] * rate;
+			rate_cum[j] = total;
+		}
+
+		return total;
+	}
+
+
+
+
 	// Original version, used omori_rate and did not support background.
 
 	public static double omori_rate_shifted_original (double p, double c, double t0, double teps, double t1, double t2) {
@@ -2236,6 +2403,116 @@ public class OERandomGenerator {
 
 
 
+		// Subcommand : Test #13
+		// Command format:
+		//  test13  p  c  teps  t1  t2  n
+		// Generate n random earthquakes and compare omori_rate_shifted_cum with
+		// calling omori_rate_shifted for each earthquake.
+		// Times are drawn around the interval t1 to t2, including background sources
+		// and times within teps of t2, so that every case is exercised.
+		// The results should be identical, so any difference is reported as a mismatch.
+
+		if (args[0].equalsIgnoreCase ("test13")) {
+
+			// 6 additional arguments
+
+			if (args.length != 7) {
+				System.err.println ("OERandomGenerator : Invalid 'test13' subcommand");
+				return;
+			}
+
+			try {
+
+				double p = Double.parseDouble (args[1]);
+				double c = Double.parseDouble (args[2]);
+				double teps = Double.parseDouble (args[3]);
+				double t1 = Double.parseDouble (args[4]);
+				double t2 = Double.parseDouble (args[5]);
+				int n = Integer.parseInt(args[6]);
+
+				// Say hello
+
+				System.out.println ("Comparing bulk and per-earthquake shifted Omori rates");
+				System.out.println ("p = " + p);
+				System.out.println ("c = " + c);
+				System.out.println ("teps = " + teps);
+				System.out.println ("t1 = " + t1);
+				System.out.println ("t2 = " + t2);
+				System.out.println ("n = " + n);
+
+				// Get the random number generator
+
+				OERandomGenerator rangen = OERandomGenerator.get_thread_rangen();
+
+				// Generate earthquake times and productivities
+
+				double span = Math.max (t2 - t1, 1.0);
+				double[] t0 = new double[n];
+				double[] k = new double[n];
+				int n_bkgd = 0;
+				int n_eps = 0;
+
+				for (int j = 0; j < n; ++j) {
+					double u = rangen.uniform_sample (0.0, 1.0);
+					if (u < 0.1) {
+						t0[j] = BKGD_TIME_DAYS;
+						++n_bkgd;
+					} else if (u < 0.2) {
+						t0[j] = rangen.uniform_sample (t2 - 2.0*teps, t2);
+						++n_eps;
+					} else {
+						t0[j] = rangen.uniform_sample (t1 - span, t2 + span);
+					}
+					k[j] = rangen.uniform_sample (0.5, 2.0);
+				}
+
+				// Bulk computation
+
+				double[] rate_cum = new double[n];
+				double bulk_total = omori_rate_shifted_cum (p, c, teps, t1, t2, t0, k, rate_cum, n);
+
+				// Per-earthquake computation, and comparison
+
+				double total = 0.0;
+				double max_diff = 0.0;
+				int mismatch = 0;
+
+				for (int j = 0; j < n; ++j) {
+					total += k[j] * omori_rate_shifted (p, c, t0[j], teps, t1, t2);
+					if (rate_cum[j] != total) {
+						if (mismatch < 10) {
+							System.out.println ("Mismatch: j = " + j + ", t0 = " + t0[j] + ", bulk = " + rate_cum[j] + ", single = " + total);
+						}
+						++mismatch;
+						max_diff = Math.max (max_diff, Math.abs (rate_cum[j] - total));
+					}
+				}
+
+				if (bulk_total != total) {
+					++mismatch;
+					max_diff = Math.max (max_diff, Math.abs (bulk_total - total));
+				}
+
+				// Display results
+
+				System.out.println ();
+				System.out.println ("n_bkgd = " + n_bkgd);
+				System.out.println ("n_eps = " + n_eps);
+				System.out.println ("bulk_total = " + bulk_total);
+				System.out.println ("single_total = " + total);
+				System.out.println ("max_diff = " + max_diff);
+				System.out.println ("mismatch = " + mismatch);
+
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+
+			return;
+		}
+
+
+
+
 		// Unrecognized subcommand.
 
 		System.err.println ("OERandomGenerator : Unrecognized subcommand : " + args[0]);
@@ -52,6 +52,38 @@ public class OESimulationParams {
 
 	public double sim_accum_param_1;
 
+	// Convergence tolerance for probabilities, for simulations; or 0.0 to disable early stopping.
+	// Catalog generation stops early once the standard error of every probability of occurrence
+	// in the forecast grid is at most this value (and the fractile tolerance is also met).
+
+	public double sim_conv_prob_tol;
+
+	// Convergence tolerance for fractiles, for simulations; or 0.0 to disable early stopping.
+	// This is the largest allowed half-width of the confidence interval of each fractile
+	// in the forecast grid, relative to the fractile value.
+
+	public double sim_conv_fractile_tol;
+
+	// The time interval for convergence checks, for simulations, in milliseconds.
+	// Checks are made only after sim_min_num_catalogs catalogs have been generated.
+
+	public long sim_conv_check_time;
+
+	public final boolean is_sim_conv_enabled () {
+		return sim_conv_prob_tol > 0.0 && sim_conv_fractile_tol > 0.0 && sim_conv_check_time > 0L;
+	}
+
+	// True to stream catalogs to the accumulators while they are generated, for simulations.
+	// Streaming is used only if the accumulator and random number generator support it,
+	// and produces the same results as building each catalog in full.
+
+	public boolean sim_streaming;
+
+	// True to allow float columns in catalog storage for large catalogs, for simulations.
+	// This reduces memory use for large catalogs, but can change results slightly.
+
+	public boolean sim_float_cols;
+
 	//--- Ranging
 
 	// The number of catalogs to generate, for ranging.  If 0, use 10% of sim_num_catalogs.
@@ -254,6 +286,11 @@ public class OESimulationParams {
 		sim_accum_selection    = 0;
 		sim_accum_option       = 0;
 		sim_accum_param_1      = 0.0;
+		sim_conv_prob_tol      = 0.0;
+		sim_conv_fractile_tol  = 0.0;
+		sim_conv_check_time    = 0L;
+		sim_streaming          = false;
+		sim_float_cols         = false;
 		range_num_catalogs     = 0;
 		range_min_num_catalogs = 0;
 		range_max_runtime      = 0L;
@@ -314,6 +351,11 @@ public class OESimulationParams {
 		int    sim_accum_selection   ,
 		int    sim_accum_option      ,
 		double sim_accum_param_1     ,
+		double sim_conv_prob_tol     ,
+		double sim_conv_fractile_tol ,
+		long   sim_conv_check_time   ,
+		boolean sim_streaming        ,
+		boolean sim_float_cols       ,
 		int    range_num_catalogs    ,
 		int    range_min_num_catalogs,
 		long   range_max_runtime     ,
@@ -355,6 +397,11 @@ public class OESimulationParams {
 		this.sim_accum_selection    = sim_accum_selection   ;
 		this.sim_accum_option       = sim_accum_option      ;
 		this.sim_accum_param_1      = sim_accum_param_1     ;
+		this.sim_conv_prob_tol      = sim_conv_prob_tol     ;
+		this.sim_conv_fractile_tol  = sim_conv_fractile_tol ;
+		this.sim_conv_check_time    = sim_conv_check_time   ;
+		this.sim_streaming          = sim_streaming         ;
+		this.sim_float_cols         = sim_float_cols        ;
 		this.range_num_catalogs     = range_num_catalogs    ;
 		this.range_min_num_catalogs = range_min_num_catalogs;
 		this.range_max_runtime      = range_max_runtime     ;
@@ -406,6 +453,11 @@ public class OESimulationParams {
 		this.sim_accum_selection    = other.sim_accum_selection   ;
 		this.sim_accum_option       = other.sim_accum_option      ;
 		this.sim_accum_param_1      = other.sim_accum_param_1     ;
+		this.sim_conv_prob_tol      = other.sim_conv_prob_tol     ;
+		this.sim_conv_fractile_tol  = other.sim_conv_fractile_tol ;
+		this.sim_conv_check_time    = other.sim_conv_check_time   ;
+		this.sim_streaming          = other.sim_streaming         ;
+		this.sim_float_cols         = other.sim_float_cols        ;
 		this.range_num_catalogs     = other.range_num_catalogs    ;
 		this.range_min_num_catalogs = other.range_min_num_catalogs;
 		this.range_max_runtime      = other.range_max_runtime     ;
@@ -462,6 +514,11 @@ public class OESimulationParams {
 		result.append ("sim_accum_selection = "    + sim_accum_selection    + "\n");
 		result.append ("sim_accum_option = "       + sim_accum_option       + "\n");
 		result.append ("sim_accum_param_1 = "      + sim_accum_param_1      + "\n");
+		result.append ("sim_conv_prob_tol = "      + sim_conv_prob_tol      + "\n");
+		result.append ("sim_conv_fractile_tol = "  + sim_conv_fractile_tol  + "\n");
+		result.append ("sim_conv_check_time = "    + sim_conv_check_time    + "\n");
+		result.append ("sim_streaming = "          + sim_streaming          + "\n");
+		result.append ("sim_float_cols = "         + sim_float_cols         + "\n");
 		result.append ("range_num_catalogs = "     + range_num_catalogs     + "\n");
 		result.append ("range_min_num_catalogs = " + range_min_num_catalogs + "\n");
 		result.append ("range_max_runtime = "      + range_max_runtime      + "\n");
@@ -520,6 +577,11 @@ public class OESimulationParams {
 								         OEConstants.OUTFILL_METH_PDF_DIRECT,
 								         OEConstants.MAGFILL_METH_PDF_HYBRID);	// 433
 			sim_accum_param_1      = 0.5;
+			sim_conv_prob_tol      = 0.0;
+			sim_conv_fractile_tol  = 0.0;
+			sim_conv_check_time    = 5000L;
+			sim_streaming          = false;
+			sim_float_cols         = false;
 			range_num_catalogs     = 5000;
 			range_min_num_catalogs = 2500;
 			range_max_runtime      = 15000L;
@@ -566,6 +628,11 @@ public class OESimulationParams {
 								         OEConstants.OUTFILL_METH_PDF_DIRECT,
 								         OEConstants.MAGFILL_METH_PDF_HYBRID);	// 433
 			sim_accum_param_1      = 0.5;
+			sim_conv_prob_tol      = 0.0;
+			sim_conv_fractile_tol  = 0.0;
+			sim_conv_check_time    = 5000L;
+			sim_streaming          = false;
+			sim_float_cols         = false;
 			range_num_catalogs     = 2000;
 			range_min_num_catalogs = 1000;
 			range_max_runtime      = 30000L;
@@ -613,6 +680,9 @@ public class OESimulationParams {
 	// Marshal version number.
 
 	private static final int MARSHAL_VER_1 = 102001;
+	private static final int MARSHAL_VER_2 = 102002;
+	private static final int MARSHAL_VER_3 = 102003;
+	private static final int MARSHAL_VER_4 = 102004;
 
 	private static final String M_VERSION_NAME = "OESimulationParams";
 
@@ -622,7 +692,7 @@ public class OESimulationParams {
 
 		// Version
 
-		int ver = MARSHAL_VER_1;
+		int ver = MARSHAL_VER_4;
 
 		writer.marshalInt (M_VERSION_NAME, ver);
 
@@ -630,7 +700,10 @@ public class OESimulationParams {
 
 		switch (ver) {
 
-		case MARSHAL_VER_1: {
+		case MARSHAL_VER_1:
+		case MARSHAL_VER_2:
+		case MARSHAL_VER_3:
+		case MARSHAL_VER_4: {
 
 			writer.marshalInt    ("sim_num_catalogs"       , sim_num_catalogs      );
 			writer.marshalInt    ("sim_min_num_catalogs"   , sim_min_num_catalogs  );
@@ -675,6 +748,20 @@ public class OESimulationParams {
 
 			writer.marshalInt    ("ranv3_direct_size_hi"   , ranv3_direct_size_hi  );
 
+			if (ver >= MARSHAL_VER_2) {
+				writer.marshalDouble ("sim_conv_prob_tol"      , sim_conv_prob_tol     );
+				writer.marshalDouble ("sim_conv_fractile_tol"  , sim_conv_fractile_tol );
+				writer.marshalLong   ("sim_conv_check_time"    , sim_conv_check_time   );
+			}
+
+			if (ver >= MARSHAL_VER_3) {
+				writer.marshalBoolean ("sim_streaming"         , sim_streaming         );
+			}
+
+			if (ver >= MARSHAL_VER_4) {
+				writer.marshalBoolean ("sim_float_cols"        , sim_float_cols        );
+			}
+
 		}
 		break;
 
@@ -689,13 +776,16 @@ public class OESimulationParams {
 	
 		// Version
 
-		int ver = reader.unmarshalInt (M_VERSION_NAME, MARSHAL_VER_1, MARSHAL_VER_1);
+		int ver = reader.unmarshalInt (M_VERSION_NAME, MARSHAL_VER_1, MARSHAL_VER_4);
 
 		// Contents
 
 		switch (ver) {
 
-		case MARSHAL_VER_1: {
+		case MARSHAL_VER_1:
+		case MARSHAL_VER_2:
+		case MARSHAL_VER_3:
+		case MARSHAL_VER_4: {
 
 			sim_num_catalogs       = reader.unmarshalInt    ("sim_num_catalogs"      );
 			sim_min_num_catalogs   = reader.unmarshalInt    ("sim_min_num_catalogs"  );
@@ -740,6 +830,28 @@ public class OESimulationParams {
 
 			ranv3_direct_size_hi   = reader.unmarshalInt    ("ranv3_direct_size_hi"  );
 
+			if (ver >= MARSHAL_VER_2) {
+				sim_conv_prob_tol      = reader.unmarshalDouble ("sim_conv_prob_tol"     );
+				sim_conv_fractile_tol  = reader.unmarshalDouble ("sim_conv_fractile_tol" );
+				sim_conv_check_time    = reader.unmarshalLong   ("sim_conv_check_time"   );
+			} else {
+				sim_conv_prob_tol      = 0.0;
+				sim_conv_fractile_tol  = 0.0;
+				sim_conv_check_time    = 0L;
+			}
+
+			if (ver >= MARSHAL_VER_3) {
+				sim_streaming          = reader.unmarshalBoolean ("sim_streaming"        );
+			} else {
+				sim_streaming          = false;
+			}
+
+			if (ver >= MARSHAL_VER_4) {
+				sim_float_cols         = reader.unmarshalBoolean ("sim_float_cols"       );
+			} else {
+				sim_float_cols         = false;
+			}
+
 		}
 		break;
 
@@ -805,6 +917,11 @@ public class OESimulationParams {
 			&& this.sim_accum_selection    == other.sim_accum_selection
 			&& this.sim_accum_option       == other.sim_accum_option
 			&& this.sim_accum_param_1      == other.sim_accum_param_1
+			&& this.sim_conv_prob_tol      == other.sim_conv_prob_tol
+			&& this.sim_conv_fractile_tol  == other.sim_conv_fractile_tol
+			&& this.sim_conv_check_time    == other.sim_conv_check_time
+			&& this.sim_streaming          == other.sim_streaming
+			&& this.sim_float_cols         == other.sim_float_cols
 			&& this.range_num_catalogs     == other.range_num_catalogs
 			&& this.range_min_num_catalogs == other.range_min_num_catalogs
 			&& this.range_max_runtime      == other.range_max_runtime
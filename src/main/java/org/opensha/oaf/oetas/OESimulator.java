@@ -11,6 +11,7 @@ import org.opensha.oaf.util.AutoExecutorService;
 import org.opensha.oaf.util.SimpleExecTimer;
 import org.opensha.oaf.util.SimpleUtils;
 import org.opensha.oaf.util.SimpleThreadLoopResult;
+import org.opensha.oaf.util.SimpleThreadLoopHelper;
 
 import org.opensha.oaf.oetas.util.OEArraysCalc;
 import org.opensha.oaf.oetas.util.OEDiscreteRange;
@@ -75,6 +76,14 @@ public class OESimulator {
 
 	public int sim_count;
 
+	// The sampling error of the simulation results, or null if convergence checking is not enabled.
+
+	public OEAccumRateTimeMag.ConvergenceInfo sim_convergence;
+
+	// True if the simulation stopped early because the results converged.
+
+	public boolean sim_converged;
+
 	//----- Intermediate -----
 
 	// The accumulator used for ranging the simulations.
@@ -105,6 +114,8 @@ public class OESimulator {
 		sim_forecast_grid = null;
 		sim_catalog_range = null;
 		sim_count = 0;
+		sim_convergence = null;
+		sim_converged = false;
 
 		range_accumulator = null;
 		return;
@@ -207,6 +218,59 @@ public class OESimulator {
 
 
 
+	// Loop monitor that stops the simulation once the results have converged.
+	// Convergence is not checked until the minimum number of catalogs has been generated.
+	// Convergence messages follow the progress message setting: a message is written at most
+	// once per progress interval, plus once when the results converge.
+
+	private class ConvergenceMonitor implements SimpleThreadLoopHelper.LoopMonitor {
+
+		// The accumulator being checked.
+
+		private OEAccumRateTimeMag conv_accum;
+
+		// The fractiles to check.
+
+		private double[] conv_fractiles;
+
+		// Time interval for convergence messages, in milliseconds, or -1L for no periodic messages.
+
+		private long progress_time;
+
+		// Time of the last convergence message, in milliseconds since the epoch.
+
+		private long last_message_time;
+
+		// Constructor.
+
+		public ConvergenceMonitor (OEAccumRateTimeMag conv_accum, double[] conv_fractiles, long progress_time) {
+			this.conv_accum = conv_accum;
+			this.conv_fractiles = conv_fractiles;
+			this.progress_time = progress_time;
+			this.last_message_time = System.currentTimeMillis();
+		}
+
+		// Check if the loop should stop early.
+
+		@Override
+		public boolean check_stop (SimpleThreadLoopHelper loop_helper) {
+			if (loop_helper.get_completions() < sim_parameters.sim_min_num_catalogs) {
+				return false;
+			}
+			OEAccumRateTimeMag.ConvergenceInfo info = conv_accum.get_convergence (conv_fractiles);
+			boolean f_converged = info.is_converged (sim_parameters.sim_conv_prob_tol, sim_parameters.sim_conv_fractile_tol);
+			long time_now = System.currentTimeMillis();
+			if (f_converged || (progress_time > 0L && time_now - last_message_time >= progress_time)) {
+				System.out.println ("Convergence check: " + info.toString() + (f_converged ? ", converged" : ""));
+				last_message_time = time_now;
+			}
+			return f_converged;
+		}
+	}
+
+
+
+
 	// Run the simulation.
 	// Throws exception in case of failure.
 
@@ -280,6 +344,15 @@ public class OESimulator {
 		}
 		break;
 
+		case OEConstants.SEL_ACCUM_HIST_TIME_MAG: {
+			System.out.println ("Using accumulator: OEAccumHistTimeMag");
+			System.out.println ("Accumulator option: " + sim_parameters.sim_accum_option + " (" + OEConstants.get_infill_method_as_string(sim_parameters.sim_accum_option) + ")");
+			OEAccumHistTimeMag accum = new OEAccumHistTimeMag();
+			accum.setup (sim_parameters.sim_accum_option, time_values, mag_values);
+			sim_accumulator = accum;
+		}
+		break;
+
 		case OEConstants.SEL_ACCUM_RATE_TIME_MAG: {
 			System.out.println ("Using accumulator: OEAccumRateTimeMag");
 			System.out.println ("Accumulator option: " + sim_parameters.sim_accum_option + " (" + OEConstants.get_rate_acc_meth_as_string(sim_parameters.sim_accum_option) + ")");
@@ -308,6 +381,37 @@ public class OESimulator {
 			sim_parameters.sim_num_catalogs		// num_catalogs
 		);
 
+		// Stream catalogs to the accumulators if requested
+
+		if (sim_parameters.sim_streaming) {
+			System.out.println ("Streaming catalogs to accumulators, if supported");
+			ensemble_params.set_streaming (true);
+		}
+
+		// Allow float columns for large catalogs if requested
+
+		if (sim_parameters.sim_float_cols) {
+			System.out.println ("Using float columns for large catalogs, if precision allows");
+			ensemble_params.set_col_option (OECatalogStorage.COL_OPT_AUTO);
+		}
+
+		// If enabled, check convergence periodically, to stop once the forecast is accurate enough
+
+		OEAccumRateTimeMag conv_accum = null;
+		double[] conv_fractiles = null;
+		sim_convergence = null;
+		sim_converged = false;
+
+		if (sim_parameters.is_sim_conv_enabled() && sim_accumulator instanceof OEAccumRateTimeMag) {
+			conv_accum = (OEAccumRateTimeMag)sim_accumulator;
+			conv_fractiles = sim_forecast_grid.getFractileProbabilities();
+			System.out.println ("Convergence tolerance: probability = " + sim_parameters.sim_conv_prob_tol + ", fractile = " + sim_parameters.sim_conv_fractile_tol);
+			ensemble_params.set_loop_monitor (
+				new ConvergenceMonitor (conv_accum, conv_fractiles, progress_time),
+				sim_parameters.sim_conv_check_time
+			);
+		}
+
 		// Create the ensemble generator
 
 		OEEnsembleGenerator ensemble_generator = new OEEnsembleGenerator();
@@ -320,6 +424,7 @@ public class OESimulator {
 
 		int catalog_count = ensemble_generator.generate_all_catalogs (ensemble_params, sim_executor, max_runtime, progress_time);
 		sim_count = catalog_count;
+		sim_converged = ensemble_generator.has_monitor_stop();
 
 		// Accumulate loop results
 
@@ -339,6 +444,13 @@ public class OESimulator {
 			throw new OESimTimeoutException ("OESimulator.do_run_simulation: " + msg + ": " + ensemble_generator.get_status_msg());
 		}
 
+		// Get the sampling error of the final results
+
+		if (conv_accum != null) {
+			sim_convergence = conv_accum.get_convergence (conv_fractiles);
+			System.out.println ("Sampling error: " + sim_convergence.toString() + (sim_converged ? ", converged" : ", not converged"));
+		}
+
 		// Transfer results to forecast grid
 
 		sim_forecast_grid.supply_results ((OEAccumReadoutTimeMag)sim_accumulator);
@@ -359,6 +471,13 @@ public class OESimulator {
 			display_params.put (OEConstants.MKEY_SIM_MAG_MAX,
 				SimpleUtils.round_double_via_string ("%.2f", sim_catalog_range.mag_max_sim));
 		}
+		if (sim_convergence != null) {
+			display_params.put (OEConstants.MKEY_SIM_PROB_ERROR,
+				SimpleUtils.round_double_via_string ("%.5f", sim_convergence.conv_prob_error));
+			display_params.put (OEConstants.MKEY_SIM_FRACTILE_ERROR,
+				SimpleUtils.round_double_via_string ("%.4f", sim_convergence.conv_fractile_error));
+			display_params.put (OEConstants.MKEY_SIM_CONVERGED, sim_converged);
+		}
 
 		sim_forecast_grid.add_model_param (display_params);
 
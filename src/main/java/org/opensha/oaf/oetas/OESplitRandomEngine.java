@@ -0,0 +1,192 @@
+package org.opensha.oaf.oetas;
+
+// For Colt 0.9.4
+import cern.jet.random.tdouble.engine.DoubleRandomEngine;
+
+
+// Splittable, counter-based random number engine for Operational ETAS.
+//
+// This is a SplitMix64 generator, packaged as a Colt random engine so that it can
+// drive the Colt distributions used by OERandomGenerator.
+//
+// The state of the generator is a 64-bit counter and a 64-bit odd increment (gamma).
+// Each output is a fixed mixing function applied to the counter, and the counter is
+// advanced by gamma after each output.  So:
+// * Jumping ahead by any number of outputs is a single multiply-add.
+// * A stream is identified by a (seed, stream index) pair.  The starting counter and
+//   gamma of the stream are hashes of the pair, so any stream can be selected directly,
+//   without generating the streams before it.
+// * There is no shared state, so streams can be used from any number of threads without locking.
+//
+// Distinct streams use distinct gammas (with very high probability), which keeps
+// streams from being shifted copies of each other.
+//
+// The mixing functions and the gamma selection are the same as in java.util.SplittableRandom.
+
+public class OESplitRandomEngine extends DoubleRandomEngine {
+
+	//----- Constants -----
+
+	// The golden gamma, 2^64 divided by the golden ratio, and made odd.
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	// Multiplier to convert 53 bits to a double, 2^(-53).
+
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+
+
+
+	//----- State -----
+
+	// The counter.
+
+	private long counter;
+
+	// The increment, must be odd.
+
+	private long gamma;
+
+
+
+
+	//----- Mixing functions -----
+
+
+
+
+	// Mix a 64-bit value (Stafford variant 13).
+
+	private static long mix64 (long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+
+
+
+	// Mix a 64-bit value to a 32-bit value.
+
+	private static int mix32 (long z) {
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+
+
+
+
+	// Mix a 64-bit value to an odd gamma, rejecting gammas with too few bit transitions.
+
+	private static long mix_gamma (long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount (z ^ (z >>> 1));
+		return (n < 24) ? (z ^ 0xaaaaaaaaaaaaaaaaL) : z;
+	}
+
+
+
+
+	//----- Construction -----
+
+
+
+
+	// Constructor selects stream 0 of the given seed.
+
+	public OESplitRandomEngine (long seed) {
+		set_stream (seed, 0L);
+	}
+
+
+
+
+	// Select a stream.
+	// Parameters:
+	//  seed = Seed, any value is permitted.
+	//  stream_index = Index of the stream, any value is permitted.
+	// After this call, the engine produces the sequence for the given (seed, stream_index)
+	// pair, starting from its first value.  The sequence does not depend on any prior
+	// state of the engine.
+
+	public final void set_stream (long seed, long stream_index) {
+		long key = mix64 (seed) + (stream_index * GOLDEN_GAMMA);
+		counter = mix64 (key);
+		gamma = mix_gamma (key + GOLDEN_GAMMA);
+		return;
+	}
+
+
+
+
+	// Jump ahead in the current stream.
+	// Parameters:
+	//  n = Number of 32-bit or 64-bit outputs to skip.
+	// Note: Each call to nextInt, nextLong, nextDouble, or raw consumes one output.
+
+	public final void jump (long n) {
+		counter += n * gamma;
+		return;
+	}
+
+
+
+
+	//----- Generation -----
+
+
+
+
+	// Advance the counter and return the next 64 random bits.
+
+	private long next_bits () {
+		counter += gamma;
+		return mix64 (counter);
+	}
+
+
+
+
+	// Return a 32-bit uniformly distributed random number.
+
+	@Override
+	public int nextInt () {
+		counter += gamma;
+		return mix32 (counter);
+	}
+
+
+
+
+	// Return a 64-bit uniformly distributed random number.
+
+	@Override
+	public long nextLong () {
+		return next_bits();
+	}
+
+
+
+
+	// Return a uniformly distributed random number in the open interval (0.0, 1.0).
+	// This uses 53 random bits, rather than the 32 bits used by Colt's default raw().
+
+	@Override
+	public double nextDouble () {
+		return (((double)(next_bits() >>> 11)) + 0.5) * DOUBLE_UNIT;
+	}
+
+
+
+
+	// Return a uniformly distributed random number in the open interval (0.0, 1.0).
+
+	@Override
+	public double raw () {
+		return nextDouble();
+	}
+
+}
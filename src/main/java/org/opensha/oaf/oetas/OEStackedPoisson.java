@@ -2,6 +2,24 @@ package org.opensha.oaf.oetas;
 
 import java.util.Arrays;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
 // For Colt 0.9.4
 import cern.jet.stat.tdouble.Probability;
 import cern.jet.stat.tdouble.Gamma;
@@ -44,6 +62,9 @@ import static org.opensha.oaf.oetas.OEConstants.C_LOG_10;	// natural logarithm o
 // It is expensive to create objects of this type, so the recommended use is to create
 // one and then use it repeatedly.  There is provision for a default object, which is
 // accessed through a static variable.
+//
+// The cached distributions can also be persisted in a binary file, so that they are
+// computed once per host instead of once per process.  See the persisted cache section.
 
 public class OEStackedPoisson {
 
@@ -256,6 +277,10 @@ public class OEStackedPoisson {
 
 	private int[] ten_to_int;
 
+	// True if the cached distributions were read from a cache file.
+
+	private boolean cache_from_file;
+
 
 
 
@@ -669,6 +694,320 @@ public class OEStackedPoisson {
 
 
 
+	//----- Persisted cache -----
+
+	// The cached distributions can be saved in a binary file in a cache directory.
+	// The file name contains the value precision, value decades, and mean precision,
+	// plus a hash of all the configuration parameters, so objects with different
+	// parameters use different files.  The file is memory-mapped read-only and its
+	// contents are copied into the cache arrays, which is much faster than computing
+	// the distributions.  Since the mapping is read-only, processes on the same host
+	// share the file's pages in the operating system's cache.
+	//
+	// If the file does not exist, or cannot be read, or has the wrong version or
+	// parameters, or fails its checksum, then the distributions are computed in-process
+	// and a new file is written.  The file is written to a temporary name and then
+	// renamed, so readers never see a partial file.  Any I/O error while writing is
+	// ignored, since the cache is only an optimization.
+	//
+	// File layout (big-endian):
+	//  long magic, int version,
+	//  double value_precision, int value_decades, double mean_precision, int mean_decades,
+	//  double lower_cdf, double upper_cdf, double max_upper_cdf,
+	//  int mean_range.length, int value_range.length, long cached_words,
+	//  int cached_offset[], int cached_upper_offset[], int cached_pdf[m].length (for each m),
+	//  double cached_total[], double cached_pdf (all rows concatenated),
+	//  long CRC-32 of all preceding bytes.
+
+	// Magic number that identifies a cache file.
+
+	private static final long CACHE_MAGIC = 0x4F45537450436163L;
+
+	// Cache file format version.
+
+	private static final int CACHE_VERSION = 1;
+
+	// Environment variable that gives the default cache directory.
+
+	public static final String CACHE_DIR_ENV = "AAFS_POISSON_CACHE_DIR";
+
+
+	// Get the default cache directory.
+	// Returns the directory named by the environment variable AAFS_POISSON_CACHE_DIR,
+	// or null if the variable is not defined or empty or does not name a directory.
+
+	public static Path get_default_cache_dir () {
+		try {
+			String var = System.getenv (CACHE_DIR_ENV);
+			if (var != null) {
+				var = var.trim();
+				if (var.length() > 0) {
+					Path dir = Paths.get (var);
+					if (Files.isDirectory (dir)) {
+						return dir;
+					}
+				}
+			}
+		}
+		catch (InvalidPathException e) {
+			// fall thru
+		}
+		catch (SecurityException e) {
+			// fall thru
+		}
+		return null;
+	}
+
+
+	// Get the name of the cache file for our parameters.
+
+	public final String get_cache_file_name () {
+		long h = 17L;
+		h = 31L * h + Double.doubleToLongBits (value_precision);
+		h = 31L * h + value_decades;
+		h = 31L * h + Double.doubleToLongBits (mean_precision);
+		h = 31L * h + mean_decades;
+		h = 31L * h + Double.doubleToLongBits (lower_cdf);
+		h = 31L * h + Double.doubleToLongBits (upper_cdf);
+		h = 31L * h + Double.doubleToLongBits (max_upper_cdf);
+		return String.format ("stacked_poisson_v%d_vp%.2f_vd%d_mp%.2f_%016x.bin",
+			CACHE_VERSION, value_precision, value_decades, mean_precision, h);
+	}
+
+
+	// Get the size of a cache file, in bytes.
+
+	private static long calc_cache_file_size (int n_mean, long words) {
+		return 8L + 4L + 8L + 4L + 8L + 4L + 8L + 8L + 8L + 4L + 4L + 8L
+			+ (12L * n_mean) + (8L * n_mean) + (8L * words) + 8L;
+	}
+
+
+	// Read the cached distributions from a file.
+	// Parameters:
+	//  path = Path to the file.
+	// Returns true if success, false if the file is missing or not usable.
+	// The ranges must already be set up.  On failure, the cache arrays are unspecified.
+
+	private boolean read_cache_file (Path path) {
+		if (!( Files.isRegularFile (path) )) {
+			return false;
+		}
+
+		try (
+			FileChannel channel = FileChannel.open (path, StandardOpenOption.READ);
+		) {
+			final long file_size = channel.size();
+			if (file_size < calc_cache_file_size (0, 0L) || file_size > Integer.MAX_VALUE) {
+				return false;
+			}
+
+			MappedByteBuffer buf = channel.map (FileChannel.MapMode.READ_ONLY, 0L, file_size);
+
+			// Checksum
+
+			ByteBuffer content = buf.duplicate();
+			content.limit ((int)(file_size - 8L));
+			CRC32 crc = new CRC32();
+			crc.update (content);
+			if (buf.getLong ((int)(file_size - 8L)) != crc.getValue()) {
+				return false;
+			}
+
+			// Header, which must match our parameters and ranges
+
+			if (buf.getLong() != CACHE_MAGIC
+				|| buf.getInt() != CACHE_VERSION
+				|| buf.getDouble() != value_precision
+				|| buf.getInt() != value_decades
+				|| buf.getDouble() != mean_precision
+				|| buf.getInt() != mean_decades
+				|| buf.getDouble() != lower_cdf
+				|| buf.getDouble() != upper_cdf
+				|| buf.getDouble() != max_upper_cdf
+				|| buf.getInt() != mean_range.length
+				|| buf.getInt() != value_range.length
+			) {
+				return false;
+			}
+
+			final int n_mean = mean_range.length;
+			final long words = buf.getLong();
+			if (words < 0L || file_size != calc_cache_file_size (n_mean, words)) {
+				return false;
+			}
+
+			// Per-mean arrays
+
+			int[] lengths = new int[n_mean];
+			cached_offset = new int[n_mean];
+			cached_upper_offset = new int[n_mean];
+			cached_total = new double[n_mean];
+
+			IntBuffer ibuf = buf.asIntBuffer();
+			ibuf.get (cached_offset);
+			ibuf.get (cached_upper_offset);
+			ibuf.get (lengths);
+			buf.position (buf.position() + (12 * n_mean));
+
+			DoubleBuffer dbuf = buf.asDoubleBuffer();
+			dbuf.get (cached_total);
+
+			// Check the rows fit in the value range and add up to the word count
+
+			long total_words = 0L;
+			for (int mean_ix = 0; mean_ix < n_mean; ++mean_ix) {
+				if (lengths[mean_ix] < 0 || cached_offset[mean_ix] < 0 || cached_offset[mean_ix] + lengths[mean_ix] > value_range.length) {
+					return false;
+				}
+				total_words += lengths[mean_ix];
+			}
+			if (total_words != words) {
+				return false;
+			}
+
+			// The distributions
+
+			cached_pdf = new double[n_mean][];
+			for (int mean_ix = 0; mean_ix < n_mean; ++mean_ix) {
+				cached_pdf[mean_ix] = new double[lengths[mean_ix]];
+				dbuf.get (cached_pdf[mean_ix]);
+			}
+			cached_words = words;
+		}
+		catch (IOException e) {
+			return false;
+		}
+		catch (RuntimeException e) {
+			return false;
+		}
+
+		return true;
+	}
+
+
+	// Write the cached distributions to a file.
+	// Parameters:
+	//  path = Path to the file.
+	// Returns true if success, false if an I/O error occurred.
+	// The file is written under a temporary name in the same directory, then renamed.
+
+	private boolean write_cache_file (Path path) {
+		Path temp_path = null;
+		try {
+			temp_path = Files.createTempFile (path.toAbsolutePath().getParent(), "stacked_poisson_", ".tmp");
+
+			final int n_mean = mean_range.length;
+			CRC32 crc = new CRC32();
+
+			try (
+				OutputStream file_out = Files.newOutputStream (temp_path);
+				CheckedOutputStream check_out = new CheckedOutputStream (new BufferedOutputStream (file_out, 1 << 16), crc);
+				DataOutputStream out = new DataOutputStream (check_out);
+			) {
+				out.writeLong (CACHE_MAGIC);
+				out.writeInt (CACHE_VERSION);
+				out.writeDouble (value_precision);
+				out.writeInt (value_decades);
+				out.writeDouble (mean_precision);
+				out.writeInt (mean_decades);
+				out.writeDouble (lower_cdf);
+				out.writeDouble (upper_cdf);
+				out.writeDouble (max_upper_cdf);
+				out.writeInt (n_mean);
+				out.writeInt (value_range.length);
+				out.writeLong (cached_words);
+
+				for (int mean_ix = 0; mean_ix < n_mean; ++mean_ix) {
+					out.writeInt (cached_offset[mean_ix]);
+				}
+				for (int mean_ix = 0; mean_ix < n_mean; ++mean_ix) {
+					out.writeInt (cached_upper_offset[mean_ix]);
+				}
+				for (int mean_ix = 0; mean_ix < n_mean; ++mean_ix) {
+					out.writeInt (cached_pdf[mean_ix].length);
+				}
+				for (int mean_ix = 0; mean_ix < n_mean; ++mean_ix) {
+					out.writeDouble (cached_total[mean_ix]);
+				}
+				for (int mean_ix = 0; mean_ix < n_mean; ++mean_ix) {
+					for (double x : cached_pdf[mean_ix]) {
+						out.writeDouble (x);
+					}
+				}
+
+				// The checksum is not included in itself
+
+				out.flush();
+				long crc_value = crc.getValue();
+				out.writeLong (crc_value);
+			}
+
+			Files.move (temp_path, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			temp_path = null;
+		}
+		catch (IOException e) {
+			return false;
+		}
+		catch (RuntimeException e) {
+			return false;
+		}
+		finally {
+			if (temp_path != null) {
+				try {
+					Files.deleteIfExists (temp_path);
+				}
+				catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+
+		return true;
+	}
+
+
+	// Make the cached distributions, using a cache file if possible.
+	// Parameters:
+	//  cache_dir = Cache directory, or null if none.
+
+	private void load_or_make_cached (Path cache_dir) {
+		cache_from_file = false;
+
+		// If no cache directory, just compute
+
+		if (cache_dir == null) {
+			make_cached();
+			return;
+		}
+
+		// Try to read the file
+
+		Path path = cache_dir.resolve (get_cache_file_name());
+		if (read_cache_file (path)) {
+			cache_from_file = true;
+			return;
+		}
+
+		// Compute, and save for next time
+
+		make_cached();
+		write_cache_file (path);
+		return;
+	}
+
+
+
+
+	// Return true if the cached distributions were read from a cache file.
+
+	public final boolean is_cache_from_file () {
+		return cache_from_file;
+	}
+
+
+
+
 	// Constructor, specifying all parameters.
 
 	public OEStackedPoisson (
@@ -680,6 +1019,35 @@ public class OEStackedPoisson {
 		double the_upper_cdf,
 		double the_max_upper_cdf
 	) {
+		this (
+			the_value_precision,
+			the_value_decades,
+			the_mean_precision,
+			the_mean_decades,
+			the_lower_cdf,
+			the_upper_cdf,
+			the_max_upper_cdf,
+			null
+		);
+	}
+
+
+
+
+	// Constructor, specifying all parameters and a cache directory.
+	// Parameters:
+	//  cache_dir = Directory for the persisted cache file, or null to always compute in-process.
+
+	public OEStackedPoisson (
+		double the_value_precision,
+		int the_value_decades,
+		double the_mean_precision,
+		int the_mean_decades,
+		double the_lower_cdf,
+		double the_upper_cdf,
+		double the_max_upper_cdf,
+		Path cache_dir
+	) {
 
 		// Validate parameters
 
@@ -725,9 +1093,9 @@ public class OEStackedPoisson {
 		make_value_range();
 		make_mean_range();
 
-		// Make the cached distributions
+		// Make the cached distributions, or read them from the cache file
 
-		make_cached();
+		load_or_make_cached (cache_dir);
 	}
 
 
@@ -779,10 +1147,20 @@ public class OEStackedPoisson {
 
 	// Get the singleton.
 	// If it doesn't exist, create one with default parameters.
+	// The default cache directory is used, if there is one.
 
 	public static synchronized OEStackedPoisson get_singleton () {
 		if (singleton == null) {
-			singleton = new OEStackedPoisson();
+			singleton = new OEStackedPoisson (
+				DEF_VALUE_PREC,
+				DEF_VALUE_DECADES,
+				DEF_MEAN_PREC,
+				DEF_MEAN_DECADES,
+				DEF_LOWER_CDF,
+				DEF_UPPER_CDF,
+				DEF_MAX_UPPER_CDF,
+				get_default_cache_dir()
+			);
 		}
 		return singleton;
 	}
@@ -827,6 +1205,7 @@ public class OEStackedPoisson {
 		result.append ("cached_upper_offset.length = " + cached_upper_offset.length + "\n");
 		result.append ("cached_total.length = " + cached_total.length + "\n");
 		result.append ("cached_words = " + cached_words + "\n");
+		result.append ("cache_from_file = " + cache_from_file + "\n");
 		result.append ("r_digit.length = " + r_digit.length + "\n");
 		result.append ("ten_to_int.length = " + ten_to_int.length + "\n");
 
@@ -865,6 +1244,7 @@ public class OEStackedPoisson {
 		result.append ("cached_upper_offset.length = " + cached_upper_offset.length + "\n");
 		result.append ("cached_total.length = " + cached_total.length + "\n");
 		result.append ("cached_words = " + cached_words + "\n");
+		result.append ("cache_from_file = " + cache_from_file + "\n");
 		result.append ("r_digit.length = " + r_digit.length + "\n");
 		result.append ("ten_to_int.length = " + ten_to_int.length + "\n");
 
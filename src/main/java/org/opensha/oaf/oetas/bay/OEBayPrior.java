@@ -119,6 +119,127 @@ public abstract class OEBayPrior implements Marshalable {
 
 
 
+	// Calculate the log-density of the Bayesian prior function, for a batch of parameter values.
+	// Parameters:
+	//  bay_params = Parameters passed in to the Bayesian prior.
+	//  count = Number of points in the batch.
+	//  a_b = Array of Gutenberg-Richter values.
+	//  a_alpha = Array of ETAS intensity values, can be null to force alpha == b.
+	//  a_c = Array of Omori c-values.
+	//  a_p = Array of Omori p-values.
+	//  a_n = Array of branch ratio values.
+	//  a_zams = Array of mainshock productivity values, assuming reference magnitude equal to ZAMS_MREF == 0.0.
+	//  a_zmu = Array of background rate values, assuming reference magnitude equal to ZMU_MREF, can be null to force zmu == 0.
+	//  a_log_density = Array to receive log of the probability density, for each point.
+	// Threading: This function may be called simultaneously by multiple threads.
+	// Note: All arrays must have length at least count.
+	// Note: Point j has parameters (a_b[j], a_alpha[j], a_c[j], a_p[j], a_n[j], a_zams[j], a_zmu[j]).
+	// Subclasses can evaluate the batch without allocating memory, and can compute each separable
+	// factor once per run of equal values, so callers should order the points so that parameters
+	// change as rarely as possible (for example, with zams varying fastest).
+	// Note: The default implementation calls the single-point function above, with value elements
+	// that each contain a single value.
+
+	public void get_bay_log_density_batch (
+		OEBayPriorParams bay_params,
+		int count,
+		double[] a_b,
+		double[] a_alpha,
+		double[] a_c,
+		double[] a_p,
+		double[] a_n,
+		double[] a_zams,
+		double[] a_zmu,
+		double[] a_log_density
+	) {
+		OEBayPriorValue bay_value = new OEBayPriorValue();
+
+		for (int j = 0; j < count; ++j) {
+			get_bay_value (
+				bay_params,
+				bay_value,
+				new OEValueElement (a_b[j]),
+				((a_alpha == null) ? null : (new OEValueElement (a_alpha[j]))),
+				new OEValueElement (a_c[j]),
+				new OEValueElement (a_p[j]),
+				new OEValueElement (a_n[j]),
+				new OEValueElement (a_zams[j]),
+				((a_zmu == null) ? null : (new OEValueElement (a_zmu[j])))
+			);
+			a_log_density[j] = bay_value.log_density;
+		}
+
+		return;
+	}
+
+
+
+
+	// Return true if this prior implements get_bay_log_density_batch directly.
+	// If false, the batch function calls the single-point function with newly-allocated value
+	// elements, so a caller that already has value elements should use get_bay_value instead.
+
+	public boolean has_bay_log_density_batch () {
+		return false;
+	}
+
+
+
+
+	// Calculate the voxel volumes for a range of (zams, zmu) values, without the log-density.
+	// Parameters:
+	//  a_vox_volume = Array to receive volume of the voxel in parameter space, for each (zams, zmu) pair.
+	//  b_velt = Gutenberg-Richter value and element.
+	//  alpha_velt = ETAS intensity value and element, can be null to force alpha == b.
+	//  c_velt = Omori c-value and element.
+	//  p_velt = Omori p-value and element.
+	//  n_velt = Branch ratio value and element.
+	//  a_zams_velt = Array of mainshock productivity value and element.
+	//  a_zmu_velt = Array of background rate value and element, can be null to force zmu == 0.
+	// Threading: This function may be called simultaneously by multiple threads.
+	// Note: All arrays must have the same length.
+	// Note: The default implementation uses the standard volume (common_stat_vox_volume and
+	// common_vox_volume).  A subclass that uses a different measure must override this.
+	// Together with get_bay_log_density_batch, this gives the same results as the
+	// get_bay_value function that fills arrays.
+
+	public void get_bay_vox_volume (
+		double[] a_vox_volume,
+		OEValueElement b_velt,
+		OEValueElement alpha_velt,
+		OEValueElement c_velt,
+		OEValueElement p_velt,
+		OEValueElement n_velt,
+		OEValueElement[] a_zams_velt,
+		OEValueElement[] a_zmu_velt
+	) {
+		int k = a_zams_velt.length;
+		if (!( a_vox_volume.length == k && (a_zmu_velt == null || a_zmu_velt.length == k) )) {
+			throw new IllegalArgumentException ("OEBayPrior.get_bay_vox_volume: Array length mismatch");
+		}
+
+		final double stat_vox_volume = common_stat_vox_volume (
+			b_velt,
+			alpha_velt,
+			c_velt,
+			p_velt,
+			n_velt
+		);
+
+		for (int i = 0; i < k; ++i) {
+			a_vox_volume[i] = common_vox_volume (
+				stat_vox_volume,
+				a_zams_velt[i],
+				((a_zmu_velt == null) ? null : a_zmu_velt[i])
+			);
+		}
+
+		return;
+	}
+
+
+
+
 	//----- Construction -----
 
 
@@ -208,6 +208,104 @@ public class OEBayPriorMixedRNPC extends OEBayPrior {
 
 
 
+	// Calculate the log-density of the Bayesian prior function, for a batch of parameter values.
+	// See OEBayPrior for parameter descriptions.
+	// The density factors into a part depending on n, a part depending on (c, p), and a part
+	// depending on relative zams.  Each part, and the offset that converts zams to relative,
+	// is recomputed only when its arguments differ from the previous point, so a batch ordered
+	// with zams varying fastest evaluates the n and (c, p) parts once per run.
+	// This function does not allocate memory.
+
+	@Override
+	public void get_bay_log_density_batch (
+		OEBayPriorParams bay_params,
+		int count,
+		double[] a_b,
+		double[] a_alpha,
+		double[] a_c,
+		double[] a_p,
+		double[] a_n,
+		double[] a_zams,
+		double[] a_zmu,
+		double[] a_log_density
+	) {
+		double last_b = Double.NaN;
+		double last_alpha = Double.NaN;
+		double last_c = Double.NaN;
+		double last_p = Double.NaN;
+		double last_n = Double.NaN;
+
+		double log_like_n = 0.0;
+		double log_like_c_p = 0.0;
+		double abs_to_rel_zams_offset = 0.0;
+
+		double last_rel_zams = Double.NaN;
+		double log_like_zams = 0.0;
+
+		for (int j = 0; j < count; ++j) {
+			final double b = a_b[j];
+			final double alpha = ((a_alpha == null) ? b : a_alpha[j]);
+			final double c = a_c[j];
+			final double p = a_p[j];
+			final double n = a_n[j];
+
+			// Factors that depend on n, and on (c, p)
+
+			final boolean f_n = (n != last_n);
+			final boolean f_c_p = (c != last_c || p != last_p);
+
+			if (f_n) {
+				log_like_n = ppdist_params.calc_log_sel_fit_n (n);
+			}
+			if (f_c_p) {
+				log_like_c_p = ppdist_params.calc_log_sel_fit_c_p (c, p);
+			}
+
+			// Offset to convert zams to relative, which depends on all the parameters
+
+			if (f_n || f_c_p || b != last_b || alpha != last_alpha) {
+				abs_to_rel_zams_offset = bay_params.calc_abs_to_rel_zams_offset (
+					n,
+					p,
+					c,
+					b,
+					alpha
+				);
+			}
+
+			last_b = b;
+			last_alpha = alpha;
+			last_c = c;
+			last_p = p;
+			last_n = n;
+
+			// Factor that depends on relative zams
+
+			final double rel_zams = a_zams[j] + abs_to_rel_zams_offset;
+			if (rel_zams != last_rel_zams) {
+				log_like_zams = ppdist_params.log_prior_likelihood_zams (rel_zams);
+				last_rel_zams = rel_zams;
+			}
+
+			a_log_density[j] = log_like_n + log_like_c_p + log_like_zams;
+		}
+
+		return;
+	}
+
+
+
+
+	// This prior implements get_bay_log_density_batch directly.
+
+	@Override
+	public boolean has_bay_log_density_batch () {
+		return true;
+	}
+
+
+
+
 	//----- Construction -----
 
 
@@ -145,6 +145,42 @@ public class OEBayPriorUniform extends OEBayPrior {
 
 
 
+	// Calculate the log-density of the Bayesian prior function, for a batch of parameter values.
+	// See OEBayPrior for parameter descriptions.
+	// The log-density is zero everywhere.
+
+	@Override
+	public void get_bay_log_density_batch (
+		OEBayPriorParams bay_params,
+		int count,
+		double[] a_b,
+		double[] a_alpha,
+		double[] a_c,
+		double[] a_p,
+		double[] a_n,
+		double[] a_zams,
+		double[] a_zmu,
+		double[] a_log_density
+	) {
+		for (int j = 0; j < count; ++j) {
+			a_log_density[j] = 0.0;
+		}
+		return;
+	}
+
+
+
+
+	// This prior implements get_bay_log_density_batch directly.
+
+	@Override
+	public boolean has_bay_log_density_batch () {
+		return true;
+	}
+
+
+
+
 	//----- Construction -----
 
 
@@ -2806,6 +2806,210 @@ public class OEBayTest {
 
 
 
+	// Make a linear value element centered on the given value, with the given half-width.
+
+	private static OEValueElement test_velt (double value, double half_width) {
+		return new OEValueElement (value - half_width, value, value + half_width, 2.0 * half_width);
+	}
+
+
+	// Make a logarithmic value element centered on the given value, with the given ratio to each limit.
+
+	private static OEValueElement test_log_velt (double value, double ratio) {
+		return new OEValueElement (value / ratio, value, value * ratio, Math.log (ratio * ratio));
+	}
+
+
+
+
+	// Compare the batch and scalar evaluation of one prior over a grid of parameters.
+	// Parameters:
+	//  bay_prior = Bayesian prior function.
+	//  bay_params = Parameters to pass when calling the Bayesian prior.
+	//  f_alpha = True to use a separate alpha value.
+	//  f_zmu = True to use zmu values.
+	// Returns the number of values that differ by more than the tolerance.
+	// Three evaluations are compared, for each voxel:
+	//  (1) get_bay_value filling arrays (the path used before batch evaluation);
+	//  (2) get_bay_vox_volume and get_bay_log_density_batch, if the prior has a batch implementation;
+	//  (3) get_bay_value for each sub-voxel separately.
+
+	private static int test_compare_batch (OEBayPrior bay_prior, OEBayPriorParams bay_params, boolean f_alpha, boolean f_zmu) {
+		final double[] b_values = {0.9, 1.0, 1.1};
+		final double[] alpha_values = {0.8, 1.0};
+		final double[] c_values = {1.0e-4, 1.0e-3, 1.0e-2, 0.1};
+		final double[] p_values = {0.8, 1.0, 1.2};
+		final double[] n_values = {0.01, 0.1, 0.5, 0.9};
+		final double[] zams_values = {-4.0, -3.0, -2.5, -2.5, -2.0, -1.0};	// includes a repeated value
+		final double[] zmu_values = {0.001, 0.01, 0.1, 0.1, 1.0, 10.0};
+		final double tol = 1.0e-12;
+
+		final int k = zams_values.length;
+		final OEValueElement[] a_zams_velt = new OEValueElement[k];
+		final OEValueElement[] a_zmu_velt = (f_zmu ? (new OEValueElement[k]) : null);
+		final double[] a_zams = new double[k];
+		final double[] a_zmu = (f_zmu ? (new double[k]) : null);
+		for (int i = 0; i < k; ++i) {
+			a_zams_velt[i] = test_velt (zams_values[i], 0.05);
+			a_zams[i] = zams_values[i];
+			if (f_zmu) {
+				a_zmu_velt[i] = test_log_velt (zmu_values[i], 1.1);
+				a_zmu[i] = zmu_values[i];
+			}
+		}
+
+		final double[] log_density_1 = new double[k];
+		final double[] vox_volume_1 = new double[k];
+		final double[] log_density_2 = new double[k];
+		final double[] vox_volume_2 = new double[k];
+		final double[] a_b = new double[k];
+		final double[] a_alpha = (f_alpha ? (new double[k]) : null);
+		final double[] a_c = new double[k];
+		final double[] a_p = new double[k];
+		final double[] a_n = new double[k];
+		final OEBayPriorValue bay_value = new OEBayPriorValue();
+
+		int voxel_count = 0;
+		int mismatch_count = 0;
+		double max_diff = 0.0;
+
+		for (double b : b_values) {
+			for (double alpha : (f_alpha ? alpha_values : new double[] {b})) {
+				for (double c : c_values) {
+					for (double p : p_values) {
+						for (double n : n_values) {
+							final OEValueElement b_velt = test_velt (b, 0.05);
+							final OEValueElement alpha_velt = (f_alpha ? test_velt (alpha, 0.05) : null);
+							final OEValueElement c_velt = test_log_velt (c, 1.2);
+							final OEValueElement p_velt = test_velt (p, 0.05);
+							final OEValueElement n_velt = test_log_velt (n, 1.05);
+
+							// (1) Arrays
+
+							bay_prior.get_bay_value (bay_params, log_density_1, vox_volume_1,
+								b_velt, alpha_velt, c_velt, p_velt, n_velt, a_zams_velt, a_zmu_velt);
+
+							// (2) Batch, if the prior has a batch implementation
+
+							if (bay_prior.has_bay_log_density_batch()) {
+								Arrays.fill (a_b, b);
+								if (f_alpha) {
+									Arrays.fill (a_alpha, alpha);
+								}
+								Arrays.fill (a_c, c);
+								Arrays.fill (a_p, p);
+								Arrays.fill (a_n, n);
+								bay_prior.get_bay_vox_volume (vox_volume_2,
+									b_velt, alpha_velt, c_velt, p_velt, n_velt, a_zams_velt, a_zmu_velt);
+								bay_prior.get_bay_log_density_batch (bay_params, k,
+									a_b, a_alpha, a_c, a_p, a_n, a_zams, a_zmu, log_density_2);
+							} else {
+								bay_prior.get_bay_value (bay_params, log_density_2, vox_volume_2,
+									b_velt, alpha_velt, c_velt, p_velt, n_velt, a_zams_velt, a_zmu_velt);
+							}
+
+							// (3) Scalar, and compare
+
+							for (int i = 0; i < k; ++i) {
+								bay_prior.get_bay_value (bay_params, bay_value,
+									b_velt, alpha_velt, c_velt, p_velt, n_velt, a_zams_velt[i], (f_zmu ? a_zmu_velt[i] : null));
+
+								final double d1 = Math.abs (log_density_2[i] - log_density_1[i]);
+								final double d2 = Math.abs (log_density_2[i] - bay_value.log_density);
+								final double d3 = Math.abs (vox_volume_2[i] - vox_volume_1[i]) / Math.max (1.0e-300, Math.abs (vox_volume_1[i]));
+								final double d4 = Math.abs (vox_volume_2[i] - bay_value.vox_volume) / Math.max (1.0e-300, Math.abs (bay_value.vox_volume));
+								final double d = Math.max (Math.max (d1, d2), Math.max (d3, d4));
+								if (!( d <= tol )) {
+									if (mismatch_count < 10) {
+										System.out.println ("Mismatch: b = " + b + ", alpha = " + alpha + ", c = " + c + ", p = " + p + ", n = " + n
+											+ ", zams = " + a_zams[i] + ", array = " + log_density_1[i] + ", batch = " + log_density_2[i]
+											+ ", scalar = " + bay_value.log_density + ", volume = " + vox_volume_1[i] + ", batch volume = " + vox_volume_2[i]);
+									}
+									++mismatch_count;
+								}
+								max_diff = Math.max (max_diff, (Double.isNaN (d) ? Double.POSITIVE_INFINITY : d));
+							}
+							++voxel_count;
+						}
+					}
+				}
+			}
+		}
+
+		System.out.println (bay_prior.toString() + ": f_alpha = " + f_alpha + ", f_zmu = " + f_zmu
+			+ ", batch = " + bay_prior.has_bay_log_density_batch() + ", voxels = " + voxel_count
+			+ ", values = " + (voxel_count * k) + ", mismatches = " + mismatch_count + ", max_diff = " + max_diff);
+
+		return mismatch_count;
+	}
+
+
+
+
+	// test12/batch_density_test
+	// Command line arguments:
+	//  mag_main  tint_br  relative_zams
+	// Check that the batch evaluation of each Bayesian prior gives the same log-densities and voxel volumes as the scalar evaluation.
+	// Priors are the uniform, normal, Gauss a/p/c, and mixed relative-ams/n/p/c priors, with default parameters.
+
+	public static void test12 (TestArgs testargs) throws Exception {
+
+		// Read arguments
+
+		System.out.println ("Compare batch and scalar evaluation of Bayesian priors");
+		double mag_main = testargs.get_double ("mag_main");
+		double tint_br = testargs.get_double ("tint_br");
+		boolean relative_zams = testargs.get_boolean ("relative_zams");
+
+		testargs.end_test();
+
+		// Parameters
+
+		OEBayPriorParams bay_params = new OEBayPriorParams (
+			mag_main,
+			tint_br,
+			new OEGridOptions (relative_zams),
+			OEConstants.DEF_MREF,
+			OEConstants.DEF_MSUP
+		);
+
+		System.out.println ();
+		System.out.println (bay_params.toString());
+
+		// The priors
+
+		OEBayPrior[] priors = {
+			OEBayPrior.makeUniform(),
+			OEBayPrior.makeNormal(),
+			OEBayPrior.makeGaussAPC ((new OEGaussAPCConfig()).get_default_params().params),
+			OEBayPrior.makeMixedRNPC (null)
+		};
+
+		// Compare each prior, with and without separate alpha and zmu
+
+		System.out.println ();
+
+		int mismatch_count = 0;
+		for (OEBayPrior bay_prior : priors) {
+			for (int opt = 0; opt < 4; ++opt) {
+				mismatch_count += test_compare_batch (bay_prior, bay_params, (opt & 1) != 0, (opt & 2) != 0);
+			}
+		}
+
+		System.out.println ();
+		System.out.println ((mismatch_count == 0) ? "All values match" : ("Total mismatches = " + mismatch_count));
+
+		// Done
+
+		System.out.println ();
+		System.out.println ("Done");
+
+		return;
+	}
+
+
+
+
 	//----- Testing -----
 
 
@@ -2884,6 +3088,12 @@ public class OEBayTest {
 		}
 
 
+		if (testargs.is_test ("test12", "batch_density_test")) {
+			test12 (testargs);
+			return;
+		}
+
+
 
 		
 		// Unrecognized subcommand, or exception
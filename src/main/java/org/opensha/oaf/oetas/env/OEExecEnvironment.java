@@ -5,11 +5,18 @@ import java.util.ArrayList;
 import java.util.Collection;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 import org.opensha.oaf.util.MarshalReader;
 import org.opensha.oaf.util.MarshalWriter;
 import org.opensha.oaf.util.MarshalException;
 import org.opensha.oaf.util.MarshalUtils;
+import org.opensha.oaf.util.MarshalImpDataReader;
+import org.opensha.oaf.util.MarshalImpDataWriter;
+import org.opensha.oaf.util.MarshalImpJsonWriter;
 
 import org.opensha.oaf.util.AutoExecutorService;
 import org.opensha.oaf.util.SimpleExecTimer;
@@ -38,6 +45,7 @@ import org.opensha.oaf.oetas.bay.OEBayPrior;
 import org.opensha.oaf.oetas.bay.OEBayPriorParams;
 
 import org.opensha.oaf.oetas.fit.OEDisc2ExtFit;
+import org.opensha.oaf.oetas.fit.OEDisc2FitCache;
 import org.opensha.oaf.oetas.fit.OEDisc2Grouping;
 import org.opensha.oaf.oetas.fit.OEDisc2History;
 import org.opensha.oaf.oetas.fit.OEDisc2InitFitInfo;
@@ -308,6 +316,23 @@ public class OEExecEnvironment {
 	public String filename_marginals = null;
 
 
+	//--- Fit snapshots
+
+	// Directory for reading and writing fit snapshots, or null if snapshots are not used.
+	// A snapshot holds the fitted voxel set for one event and forecast time.  It is written
+	// only if the simulation fails, and deleted once the forecast completes.  If a snapshot
+	// exists, it is used instead of parameter fitting, so a retry costs only the simulation.
+	// The directory can be on storage shared between servers, so that either server can
+	// use a snapshot written by the other.  In the server, this is the etas_fit_dir
+	// setting in the server configuration.
+
+	public String fit_snapshot_dir = null;
+
+	// Flag, set true if the fitted voxel set was read from a snapshot.
+
+	public boolean f_fit_from_snapshot = false;
+
+
 
 
 	// Report an exception, set the abort message and result code.
@@ -1279,6 +1304,223 @@ public class OEExecEnvironment {
 
 
 
+	// Marshal version number for fit snapshots.
+
+	private static final int SNAPSHOT_VER_1 = 135001;
+
+	private static final String SNAPSHOT_VERSION_NAME = "OEExecEnvironment.FitSnapshot";
+
+
+
+
+	// Make a JSON string containing the history, for use in a fingerprint.
+
+	private static String history_to_json_string (OEDisc2History history) {
+		MarshalImpJsonWriter writer = new MarshalImpJsonWriter();
+		history.marshal (writer, null);
+		writer.check_write_complete ();
+		return writer.get_json_string();
+	}
+
+
+
+
+	// Make the fingerprint of the fit snapshot.
+	// The fingerprint is a hash of the serialized parameters and catalog information,
+	// the history, and the time, magnitude, and location of each rupture.
+	// A snapshot is reused only if its fingerprint matches, so a change in any
+	// of these (for example, a revised magnitude or location) forces a new fit.
+
+	private String make_fit_snapshot_fingerprint () {
+		StringBuilder rup_sb = new StringBuilder();
+		for (OERupture rup : rup_list) {
+			rup_sb.append (rup.t_day);
+			rup_sb.append (",");
+			rup_sb.append (rup.rup_mag);
+			rup_sb.append (",");
+			rup_sb.append (rup.x_km);
+			rup_sb.append (",");
+			rup_sb.append (rup.y_km);
+			rup_sb.append ("\n");
+		}
+		return OEDisc2FitCache.make_fingerprint (
+			MarshalUtils.to_json_string (etas_params),
+			MarshalUtils.to_json_string (catalog_info),
+			history_to_json_string (history),
+			rup_sb.toString()
+		);
+	}
+
+
+
+
+	// Get the filename for the fit snapshot.
+	// Returns null if snapshots are not in use, or if there is no mainshock event ID.
+	// The filename is formed from the mainshock event ID and the forecast time in milliseconds
+	// since the origin, so each forecast of each event has its own snapshot.
+
+	private String get_fit_snapshot_filename () {
+		if (fit_snapshot_dir == null || obs_mainshock == null) {
+			return null;
+		}
+		String event_id = obs_mainshock.getEventId();
+		if (event_id == null || event_id.isEmpty()) {
+			return null;
+		}
+		long forecast_millis = Math.round (catalog_info.t_forecast * OEConstants.C_MILLIS_PER_DAY);
+		return Paths.get (fit_snapshot_dir, event_id + "_" + forecast_millis + ".oefit").toString();
+	}
+
+
+
+
+	// Read the fit snapshot.
+	// Returns the voxel set, or null if there is no usable snapshot.
+	// A snapshot is usable only if its fingerprint matches the current parameters, catalog
+	// information, and ruptures.
+	// The returned voxel set has completed setup_post_fitting, which may be called again.
+	// Errors are reported but not thrown, because the caller can always fall back to fitting.
+
+	private OEDisc2InitVoxSet read_fit_snapshot () {
+		String filename = get_fit_snapshot_filename();
+		if (filename == null || !( Files.isRegularFile (Paths.get (filename)) )) {
+			return null;
+		}
+
+		OEDisc2InitVoxSet voxel_set = null;
+
+		try (
+			MarshalImpDataReader reader = new MarshalImpDataReader (filename, false);
+		) {
+			reader.unmarshalMapBegin (null);
+
+			int ver = reader.unmarshalInt (SNAPSHOT_VERSION_NAME, SNAPSHOT_VER_1, SNAPSHOT_VER_1);
+
+			switch (ver) {
+
+			case SNAPSHOT_VER_1: {
+
+				String snap_fingerprint = reader.unmarshalString ("fingerprint");
+
+				if (!( snap_fingerprint.equals (make_fit_snapshot_fingerprint()) )) {
+					System.out.println();
+					System.out.println ("Ignoring stale fit snapshot: " + filename);
+					return null;
+				}
+
+				voxel_set = OEDisc2InitVoxSet.static_unmarshal (reader, "voxel_set");
+			}
+			break;
+
+			}
+
+			reader.unmarshalMapEnd ();
+			reader.check_read_complete();
+		}
+		catch (Exception e) {
+			System.out.println();
+			System.out.println ("Error reading fit snapshot: " + filename);
+			e.printStackTrace();
+			return null;
+		}
+
+		System.out.println();
+		System.out.println ("Read fit snapshot from file: " + filename);
+
+		return voxel_set;
+	}
+
+
+
+
+	// Write the fit snapshot.
+	// Parameters:
+	//  voxel_set = Voxel set, which must have completed setup_post_fitting.
+	// The file is written under a temporary name in the same directory, then renamed,
+	// so a reader never sees a partial snapshot.
+	// Errors are reported but not thrown, because failure to write a snapshot should
+	// not cause the forecast to fail.
+
+	private void write_fit_snapshot (OEDisc2InitVoxSet voxel_set) {
+		String filename = get_fit_snapshot_filename();
+		if (filename == null) {
+			return;
+		}
+
+		Path path = Paths.get (filename);
+		Path temp_path = null;
+		try {
+			temp_path = Files.createTempFile (path.toAbsolutePath().getParent(), "fit_snapshot_", ".tmp");
+
+			try (
+				MarshalImpDataWriter writer = new MarshalImpDataWriter (temp_path.toString(), false);
+			) {
+				writer.marshalMapBegin (null);
+
+				writer.marshalInt (SNAPSHOT_VERSION_NAME, SNAPSHOT_VER_1);
+				writer.marshalString ("fingerprint", make_fit_snapshot_fingerprint());
+				OEDisc2InitVoxSet.static_marshal (writer, "voxel_set", voxel_set);
+
+				writer.marshalMapEnd ();
+				writer.check_write_complete();
+			}
+
+			Files.move (temp_path, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			temp_path = null;
+		}
+		catch (Exception e) {
+			System.out.println();
+			System.out.println ("Error writing fit snapshot: " + filename);
+			e.printStackTrace();
+			return;
+		}
+		finally {
+			if (temp_path != null) {
+				try {
+					Files.deleteIfExists (temp_path);
+				}
+				catch (IOException e) {
+				}
+			}
+		}
+
+		System.out.println();
+		System.out.println ("Wrote fit snapshot to file: " + filename);
+
+		return;
+	}
+
+
+
+
+	// Delete the fit snapshot, if there is one.
+	// This is called once the forecast has completed, when the snapshot is no longer needed.
+	// Errors are reported but not thrown, because the forecast has already succeeded.
+
+	private void delete_fit_snapshot () {
+		String filename = get_fit_snapshot_filename();
+		if (filename == null) {
+			return;
+		}
+
+		try {
+			if (Files.deleteIfExists (Paths.get (filename))) {
+				System.out.println();
+				System.out.println ("Deleted fit snapshot file: " + filename);
+			}
+		}
+		catch (Exception e) {
+			System.out.println();
+			System.out.println ("Error deleting fit snapshot: " + filename);
+			e.printStackTrace();
+		}
+
+		return;
+	}
+
+
+
+
 	// Do parameter fitting.
 
 	private OEDisc2InitVoxSet do_fitting () throws OEException, IOException {
@@ -1382,49 +1624,87 @@ public class OEExecEnvironment {
 
 		OEBayPrior bay_prior = etas_params.get_bay_prior (bay_factory_params);
 
-		// Make the voxel set
+		// Use the fit snapshot if there is one
 
-		OEDisc2InitVoxSet voxel_set = new OEDisc2InitVoxSet();
+		OEDisc2InitVoxSet voxel_set = read_fit_snapshot();
+		f_fit_from_snapshot = (voxel_set != null);
 
-		// Set desired minimum magnitude bins
+		if (f_fit_from_snapshot) {
 
-		voxel_set.set_custom_min_mag_bins (forecast_info.get_min_mag_bins());
+			// Set desired minimum magnitude bins (not saved in the snapshot)
 
-		// Make the voxel builder
+			voxel_set.set_custom_min_mag_bins (forecast_info.get_min_mag_bins());
 
-		OEDisc2InitVoxBuilder voxel_builder = new OEDisc2InitVoxBuilder();
+		} else {
 
-		// Set up shared objects in the builder
+			// Make the voxel set
 
-		voxel_builder.setup_vbld (
-			voxel_set,
-			fitter,
-			bay_prior
-		);
+			voxel_set = new OEDisc2InitVoxSet();
 
-		// Set up grid ranges in the builder
+			// Set desired minimum magnitude bins
 
-		voxel_builder.setup_grid (
-			grid_params
-		);
+			voxel_set.set_custom_min_mag_bins (forecast_info.get_min_mag_bins());
 
-		// Display builder info
+			// Make the voxel builder
 
-		System.out.println();
-		System.out.println (voxel_builder.toString());
+			OEDisc2InitVoxBuilder voxel_builder = new OEDisc2InitVoxBuilder();
 
-		// Build the voxels (throw exception if error or timeout)
+			// Set up shared objects in the builder
 
-		voxel_builder.set_upstream_loop_result (fit_perf_data);
+			voxel_builder.setup_vbld (
+				voxel_set,
+				fitter,
+				bay_prior
+			);
 
-		voxel_builder.build_voxels (exec_timer);
+			// Set up grid ranges in the builder
 
-		// Get and display the performance data
+			voxel_builder.setup_grid (
+				grid_params
+			);
 
-		//fit_perf_data = voxel_builder.get_loop_result();
+			// Re-use tables retained from the prior fit of the same sequence, if any.
+			// The key identifies the event and the parameters (including the grid).
+			// An unchanged history is covered by the fit snapshot, not by this cache.
 
-		System.out.println();
-		System.out.println (fit_perf_data.toString());
+			if (obs_mainshock != null) {
+				voxel_builder.set_fit_cache_key (obs_mainshock.getEventId() + "|" + OEDisc2FitCache.make_fingerprint (
+					MarshalUtils.to_json_string (etas_params),
+					grid_params.toString()
+				));
+			}
+
+			// Search directly for the MLE, if requested, and display it as an early advisory
+			// result before the grid is evaluated.  It is not used downstream, because seeding
+			// and intensity use the grid MLE.  The search is bounded by the time limit.
+
+			int direct_mle_evals = etas_params.get_fit_direct_mle_evals();
+			if (direct_mle_evals > 0 && voxel_builder.can_search_mle_direct()) {
+				double direct_bay_weight = etas_params.get_bay_weight (catalog_info.t_data_end - catalog_info.t_data_begin);
+				OEDisc2InitVoxBuilder.DirectMle direct_mle = voxel_builder.search_mle_direct (direct_bay_weight, direct_mle_evals, exec_timer);
+				System.out.println();
+				System.out.println (direct_mle.toString());
+			}
+
+			// Display builder info
+
+			System.out.println();
+			System.out.println (voxel_builder.toString());
+
+			// Build the voxels (throw exception if error or timeout)
+
+			voxel_builder.set_upstream_loop_result (fit_perf_data);
+
+			voxel_builder.build_voxels (exec_timer);
+
+			// Get and display the performance data
+
+			//fit_perf_data = voxel_builder.get_loop_result();
+
+			System.out.println();
+			System.out.println (fit_perf_data.toString());
+
+		}
 
 		// Get the fitting information
 
@@ -1583,7 +1863,6 @@ public class OEExecEnvironment {
 
 		// Discard the fitter
 
-		voxel_builder = null;
 		fitter = null;
 
 		// Return the voxel set to use for initializing simulations
@@ -1688,8 +1967,17 @@ public class OEExecEnvironment {
 		OEDisc2InitVoxSet voxel_set = do_fitting();
 
 		// Run simulation
+		// If it fails, save the fit snapshot, so that a retry can skip parameter fitting
 
-		do_simulation (voxel_set);
+		try {
+			do_simulation (voxel_set);
+		}
+		catch (Exception e) {
+			if (!( f_fit_from_snapshot )) {
+				write_fit_snapshot (voxel_set);
+			}
+			throw e;
+		}
 
 		// Discard the voxel set
 
@@ -1699,6 +1987,10 @@ public class OEExecEnvironment {
 
 		finish_etas_results();
 
+		// The forecast is complete, so a snapshot is no longer needed
+
+		delete_fit_snapshot();
+
 		// Success
 
 		etas_rescode = ETAS_RESCODE_OK;
@@ -625,6 +625,27 @@ public class OEtasParameters implements Marshalable {
 
 	public double fit_c_self_intervals = 1.0;
 
+	// Minimum number of ruptures for which the Omori function between ruptures is evaluated
+	// using a sum-of-exponentials approximation, or <= 0 to never use it. [v7]
+
+	public int fit_omori_soe_min_rups = OEGridOptions.DEF_OMORI_SOE_MIN_RUPS;
+
+	// Relative tolerance for the sum-of-exponentials approximation of the Omori function. [v7]
+
+	public double fit_omori_soe_rel_tol = OEGridOptions.DEF_OMORI_SOE_REL_TOL;
+
+	// Refinement factor for the adaptive (c, p) grid, or <= 1 to always evaluate the full grid. [v8]
+
+	public int fit_adaptive_factor = OEGridOptions.DEF_ADAPTIVE_FACTOR;
+
+	// Threshold for refining a coarse cell of the adaptive grid, as a fraction of the total probability. [v8]
+
+	public double fit_adaptive_threshold = OEGridOptions.DEF_ADAPTIVE_THRESHOLD;
+
+	// Maximum number of evaluations for the advisory direct MLE search, or 0 for no direct search. [v9]
+
+	public int fit_direct_mle_evals = OEConstants.DEF_DIRECT_MLE_EVALS;
+
 	// Clear fitting parameters.
 
 	public final void clear_fit_params () {
@@ -634,6 +655,11 @@ public class OEtasParameters implements Marshalable {
 		fit_lmr_opt = OEConstants.LMR_OPT_MCT_INFINITY;
 		fit_c_cross_intervals = 1.0;
 		fit_c_self_intervals = 1.0;
+		fit_omori_soe_min_rups = OEGridOptions.DEF_OMORI_SOE_MIN_RUPS;
+		fit_omori_soe_rel_tol = OEGridOptions.DEF_OMORI_SOE_REL_TOL;
+		fit_adaptive_factor = OEGridOptions.DEF_ADAPTIVE_FACTOR;
+		fit_adaptive_threshold = OEGridOptions.DEF_ADAPTIVE_THRESHOLD;
+		fit_direct_mle_evals = OEConstants.DEF_DIRECT_MLE_EVALS;
 		return;
 	}
 
@@ -646,6 +672,11 @@ public class OEtasParameters implements Marshalable {
 		fit_lmr_opt = OEConstants.DEF_LMR_OPT;
 		fit_c_cross_intervals = OEConstants.DEF_C_CROSS_INTERVALS;
 		fit_c_self_intervals = OEConstants.DEF_C_SELF_INTERVALS;
+		fit_omori_soe_min_rups = OEGridOptions.DEF_OMORI_SOE_MIN_RUPS;
+		fit_omori_soe_rel_tol = OEGridOptions.DEF_OMORI_SOE_REL_TOL;
+		fit_adaptive_factor = OEGridOptions.DEF_ADAPTIVE_FACTOR;
+		fit_adaptive_threshold = OEGridOptions.DEF_ADAPTIVE_THRESHOLD;
+		fit_direct_mle_evals = OEConstants.DEF_DIRECT_MLE_EVALS;
 		return;
 	}
 
@@ -658,6 +689,11 @@ public class OEtasParameters implements Marshalable {
 		fit_lmr_opt = other.fit_lmr_opt;
 		fit_c_cross_intervals = other.fit_c_cross_intervals;
 		fit_c_self_intervals = other.fit_c_self_intervals;
+		fit_omori_soe_min_rups = other.fit_omori_soe_min_rups;
+		fit_omori_soe_rel_tol = other.fit_omori_soe_rel_tol;
+		fit_adaptive_factor = other.fit_adaptive_factor;
+		fit_adaptive_threshold = other.fit_adaptive_threshold;
+		fit_direct_mle_evals = other.fit_direct_mle_evals;
 		return;
 	}
 
@@ -668,13 +704,23 @@ public class OEtasParameters implements Marshalable {
 		boolean fit_f_intervals,
 		int fit_lmr_opt,
 		double fit_c_cross_intervals,
-		double fit_c_self_intervals
+		double fit_c_self_intervals,
+		int fit_omori_soe_min_rups,
+		double fit_omori_soe_rel_tol,
+		int fit_adaptive_factor,
+		double fit_adaptive_threshold,
+		int fit_direct_mle_evals
 	) {
 		this.fit_params_avail = fit_params_avail;
 		this.fit_f_intervals = fit_f_intervals;
 		this.fit_lmr_opt = fit_lmr_opt;
 		this.fit_c_cross_intervals = fit_c_cross_intervals;
 		this.fit_c_self_intervals = fit_c_self_intervals;
+		this.fit_omori_soe_min_rups = fit_omori_soe_min_rups;
+		this.fit_omori_soe_rel_tol = fit_omori_soe_rel_tol;
+		this.fit_adaptive_factor = fit_adaptive_factor;
+		this.fit_adaptive_threshold = fit_adaptive_threshold;
+		this.fit_direct_mle_evals = fit_direct_mle_evals;
 		return;
 	}
 
@@ -697,6 +743,15 @@ public class OEtasParameters implements Marshalable {
 			if (!( fit_lmr_opt >= OEConstants.LMR_OPT_MIN && fit_lmr_opt <= OEConstants.LMR_OPT_MAX )) {
 				return "Invalid fitting parameter: fit_lmr_opt = " + fit_lmr_opt;
 			}
+			if (!( fit_omori_soe_rel_tol > 0.0 && fit_omori_soe_rel_tol < 1.0 )) {
+				return "Invalid fitting parameter: fit_omori_soe_rel_tol = " + fit_omori_soe_rel_tol;
+			}
+			if (!( fit_adaptive_threshold >= 0.0 && fit_adaptive_threshold < 1.0 )) {
+				return "Invalid fitting parameter: fit_adaptive_threshold = " + fit_adaptive_threshold;
+			}
+			if (!( fit_direct_mle_evals >= 0 )) {
+				return "Invalid fitting parameter: fit_direct_mle_evals = " + fit_direct_mle_evals;
+			}
 		}
 		return null;
 	}
@@ -710,6 +765,11 @@ public class OEtasParameters implements Marshalable {
 			sb.append ("fit_lmr_opt = " + fit_lmr_opt + "\n");
 			sb.append ("fit_c_cross_intervals = " + fit_c_cross_intervals + "\n");
 			sb.append ("fit_c_self_intervals = " + fit_c_self_intervals + "\n");
+			sb.append ("fit_omori_soe_min_rups = " + fit_omori_soe_min_rups + "\n");
+			sb.append ("fit_omori_soe_rel_tol = " + fit_omori_soe_rel_tol + "\n");
+			sb.append ("fit_adaptive_factor = " + fit_adaptive_factor + "\n");
+			sb.append ("fit_adaptive_threshold = " + fit_adaptive_threshold + "\n");
+			sb.append ("fit_direct_mle_evals = " + fit_direct_mle_evals + "\n");
 		}
 		return sb;
 	}
@@ -736,6 +796,32 @@ public class OEtasParameters implements Marshalable {
 		return;
 	}
 
+	private void marshal_fit_params_v7 (MarshalWriter writer) {
+		marshal_fit_params_v4 (writer);
+		if (fit_params_avail) {
+			writer.marshalInt ("fit_omori_soe_min_rups", fit_omori_soe_min_rups);
+			writer.marshalDouble ("fit_omori_soe_rel_tol", fit_omori_soe_rel_tol);
+		}
+		return;
+	}
+
+	private void marshal_fit_params_v8 (MarshalWriter writer) {
+		marshal_fit_params_v7 (writer);
+		if (fit_params_avail) {
+			writer.marshalInt ("fit_adaptive_factor", fit_adaptive_factor);
+			writer.marshalDouble ("fit_adaptive_threshold", fit_adaptive_threshold);
+		}
+		return;
+	}
+
+	private void marshal_fit_params_v9 (MarshalWriter writer) {
+		marshal_fit_params_v8 (writer);
+		if (fit_params_avail) {
+			writer.marshalInt ("fit_direct_mle_evals", fit_direct_mle_evals);
+		}
+		return;
+	}
+
 	// Unmarshal fitting parameters.
 
 	private void unmarshal_fit_params_v1 (MarshalReader reader) {
@@ -746,6 +832,11 @@ public class OEtasParameters implements Marshalable {
 
 			fit_c_cross_intervals = 1.0;
 			fit_c_self_intervals = 1.0;
+			fit_omori_soe_min_rups = OEGridOptions.DEF_OMORI_SOE_MIN_RUPS;
+			fit_omori_soe_rel_tol = OEGridOptions.DEF_OMORI_SOE_REL_TOL;
+			fit_adaptive_factor = OEGridOptions.DEF_ADAPTIVE_FACTOR;
+			fit_adaptive_threshold = OEGridOptions.DEF_ADAPTIVE_THRESHOLD;
+			fit_direct_mle_evals = OEConstants.DEF_DIRECT_MLE_EVALS;
 		} else {
 			clear_fit_params();
 		}
@@ -766,6 +857,11 @@ public class OEtasParameters implements Marshalable {
 			fit_lmr_opt = reader.unmarshalInt ("fit_lmr_opt");
 			fit_c_cross_intervals = reader.unmarshalDouble ("fit_c_cross_intervals");
 			fit_c_self_intervals = reader.unmarshalDouble ("fit_c_self_intervals");
+			fit_omori_soe_min_rups = OEGridOptions.DEF_OMORI_SOE_MIN_RUPS;
+			fit_omori_soe_rel_tol = OEGridOptions.DEF_OMORI_SOE_REL_TOL;
+			fit_adaptive_factor = OEGridOptions.DEF_ADAPTIVE_FACTOR;
+			fit_adaptive_threshold = OEGridOptions.DEF_ADAPTIVE_THRESHOLD;
+			fit_direct_mle_evals = OEConstants.DEF_DIRECT_MLE_EVALS;
 		} else {
 			clear_fit_params();
 		}
@@ -779,6 +875,81 @@ public class OEtasParameters implements Marshalable {
 		return;
 	}
 
+	private void unmarshal_fit_params_v7 (MarshalReader reader) {
+		fit_params_avail = reader.unmarshalBoolean ("fit_params_avail");
+		if (fit_params_avail) {
+			fit_f_intervals = reader.unmarshalBoolean ("fit_f_intervals");
+			fit_lmr_opt = reader.unmarshalInt ("fit_lmr_opt");
+			fit_c_cross_intervals = reader.unmarshalDouble ("fit_c_cross_intervals");
+			fit_c_self_intervals = reader.unmarshalDouble ("fit_c_self_intervals");
+			fit_omori_soe_min_rups = reader.unmarshalInt ("fit_omori_soe_min_rups");
+			fit_omori_soe_rel_tol = reader.unmarshalDouble ("fit_omori_soe_rel_tol");
+			fit_adaptive_factor = OEGridOptions.DEF_ADAPTIVE_FACTOR;
+			fit_adaptive_threshold = OEGridOptions.DEF_ADAPTIVE_THRESHOLD;
+			fit_direct_mle_evals = OEConstants.DEF_DIRECT_MLE_EVALS;
+		} else {
+			clear_fit_params();
+		}
+
+		// Check the invariant
+
+		String inv = check_fit_params_invariant();
+		if (inv != null) {
+			throw new MarshalException ("OEtasParameters.unmarshal_fit_params_v7: " + inv);
+		}
+		return;
+	}
+
+	private void unmarshal_fit_params_v8 (MarshalReader reader) {
+		fit_params_avail = reader.unmarshalBoolean ("fit_params_avail");
+		if (fit_params_avail) {
+			fit_f_intervals = reader.unmarshalBoolean ("fit_f_intervals");
+			fit_lmr_opt = reader.unmarshalInt ("fit_lmr_opt");
+			fit_c_cross_intervals = reader.unmarshalDouble ("fit_c_cross_intervals");
+			fit_c_self_intervals = reader.unmarshalDouble ("fit_c_self_intervals");
+			fit_omori_soe_min_rups = reader.unmarshalInt ("fit_omori_soe_min_rups");
+			fit_omori_soe_rel_tol = reader.unmarshalDouble ("fit_omori_soe_rel_tol");
+			fit_adaptive_factor = reader.unmarshalInt ("fit_adaptive_factor");
+			fit_adaptive_threshold = reader.unmarshalDouble ("fit_adaptive_threshold");
+			fit_direct_mle_evals = OEConstants.DEF_DIRECT_MLE_EVALS;
+		} else {
+			clear_fit_params();
+		}
+
+		// Check the invariant
+
+		String inv = check_fit_params_invariant();
+		if (inv != null) {
+			throw new MarshalException ("OEtasParameters.unmarshal_fit_params_v8: " + inv);
+		}
+		return;
+	}
+
+	private void unmarshal_fit_params_v9 (MarshalReader reader) {
+		fit_params_avail = reader.unmarshalBoolean ("fit_params_avail");
+		if (fit_params_avail) {
+			fit_f_intervals = reader.unmarshalBoolean ("fit_f_intervals");
+			fit_lmr_opt = reader.unmarshalInt ("fit_lmr_opt");
+			fit_c_cross_intervals = reader.unmarshalDouble ("fit_c_cross_intervals");
+			fit_c_self_intervals = reader.unmarshalDouble ("fit_c_self_intervals");
+			fit_omori_soe_min_rups = reader.unmarshalInt ("fit_omori_soe_min_rups");
+			fit_omori_soe_rel_tol = reader.unmarshalDouble ("fit_omori_soe_rel_tol");
+			fit_adaptive_factor = reader.unmarshalInt ("fit_adaptive_factor");
+			fit_adaptive_threshold = reader.unmarshalDouble ("fit_adaptive_threshold");
+			fit_direct_mle_evals = reader.unmarshalInt ("fit_direct_mle_evals");
+		} else {
+			clear_fit_params();
+		}
+
+		// Check the invariant
+
+		String inv = check_fit_params_invariant();
+		if (inv != null) {
+			throw new MarshalException ("OEtasParameters.unmarshal_fit_params_v9: " + inv);
+		}
+		return;
+	}
+
 	// Get the fitting parameter f_interval.
 	// Note: Caller must check the fitting parameters are available.
 
@@ -819,6 +990,16 @@ public class OEtasParameters implements Marshalable {
 		return fit_c_self_intervals;
 	}
 
+	// Get the fitting parameter direct_mle_evals.
+	// Returns 0 (no direct MLE search) if the fitting parameters are not available.
+
+	public final int get_fit_direct_mle_evals () {
+		if (!( fit_params_avail )) {
+			return 0;
+		}
+		return fit_direct_mle_evals;
+	}
+
 
 
 
@@ -1550,13 +1731,29 @@ public class OEtasParameters implements Marshalable {
 
 	// Make a newly-allocated OEGridOptions object containing the grid options.
 	// Note: Caller must check the ranges are available.
+	// Note: The Omori sum-of-exponentials and adaptive grid options come from the fitting
+	// parameters, or are set to default values if the fitting parameters are not available.
 
 	public final OEGridOptions make_grid_options () {
 		if (!( range_avail )) {
 			throw new InvariantViolationException ("OEtasParameters.make_grid_options: ETAS parameter ranges not available");
 		}
+		int the_omori_soe_min_rups = OEGridOptions.DEF_OMORI_SOE_MIN_RUPS;
+		double the_omori_soe_rel_tol = OEGridOptions.DEF_OMORI_SOE_REL_TOL;
+		int the_adaptive_factor = OEGridOptions.DEF_ADAPTIVE_FACTOR;
+		double the_adaptive_threshold = OEGridOptions.DEF_ADAPTIVE_THRESHOLD;
+		if (fit_params_avail) {
+			the_omori_soe_min_rups = fit_omori_soe_min_rups;
+			the_omori_soe_rel_tol = fit_omori_soe_rel_tol;
+			the_adaptive_factor = fit_adaptive_factor;
+			the_adaptive_threshold = fit_adaptive_threshold;
+		}
 		OEGridOptions grid_options = new OEGridOptions (
-			relative_zams
+			relative_zams,
+			the_omori_soe_min_rups,
+			the_omori_soe_rel_tol,
+			the_adaptive_factor,
+			the_adaptive_threshold
 		);
 		return grid_options;
 	}
@@ -2334,6 +2531,7 @@ public class OEtasParameters implements Marshalable {
 
 	// Accumulator options, for simulations.
 	// for sim_accum_selection == SEL_ACCUM_RATE_TIME_MAG, it is the extrapolation options.
+	// For SEL_ACCUM_CUM_TIME_MAG, SEL_ACCUM_VAR_TIME_MAG, and SEL_ACCUM_HIST_TIME_MAG, it is the infill method.
 
 	public int sim_accum_option = 0;
 
@@ -2342,6 +2540,30 @@ public class OEtasParameters implements Marshalable {
 
 	public double sim_accum_param_1 = 0.0;
 
+	// True to stream catalogs to the accumulators while they are generated, for simulations. [v5]
+	// This reduces memory use for large catalogs, and does not change results.
+
+	public boolean sim_streaming = false;
+
+	// True to allow float columns in catalog storage for large catalogs, for simulations. [v6]
+	// This reduces memory use for large catalogs, but can change results slightly.
+
+	public boolean sim_float_cols = false;
+
+	// Convergence tolerance for probabilities, for simulations; or 0.0 to disable early stopping. [v10]
+	// (See OESimulationParams.sim_conv_prob_tol.)
+
+	public double sim_conv_prob_tol = 0.0;
+
+	// Convergence tolerance for fractiles, for simulations; or 0.0 to disable early stopping. [v10]
+	// (See OESimulationParams.sim_conv_fractile_tol.)
+
+	public double sim_conv_fractile_tol = 0.0;
+
+	// The time interval for convergence checks, for simulations, in milliseconds. [v10]
+
+	public long sim_conv_check_time = 0L;
+
 
 	//--- Operations
 
@@ -2360,6 +2582,11 @@ public class OEtasParameters implements Marshalable {
 		sim_accum_selection = 0;
 		sim_accum_option    = 0;
 		sim_accum_param_1   = 0.0;
+		sim_streaming       = false;
+		sim_float_cols      = false;
+		sim_conv_prob_tol     = 0.0;
+		sim_conv_fractile_tol = 0.0;
+		sim_conv_check_time   = 0L;
 		return;
 	}
 
@@ -2378,6 +2605,11 @@ public class OEtasParameters implements Marshalable {
 		sim_accum_selection = OEConstants.def_sim_accum_selection();
 		sim_accum_option    = OEConstants.def_sim_accum_option();
 		sim_accum_param_1   = OEConstants.def_sim_accum_param_1();
+		sim_streaming       = OEConstants.DEF_SIM_STREAMING;
+		sim_float_cols      = OEConstants.DEF_SIM_FLOAT_COLS;
+		sim_conv_prob_tol     = OEConstants.DEF_SIM_CONV_PROB_TOL;
+		sim_conv_fractile_tol = OEConstants.DEF_SIM_CONV_FRACTILE_TOL;
+		sim_conv_check_time   = OEConstants.DEF_SIM_CONV_CHECK_TIME;
 		return;
 	}
 
@@ -2396,6 +2628,11 @@ public class OEtasParameters implements Marshalable {
 		sim_accum_selection = other.sim_accum_selection;
 		sim_accum_option    = other.sim_accum_option;
 		sim_accum_param_1   = other.sim_accum_param_1;
+		sim_streaming       = other.sim_streaming;
+		sim_float_cols      = other.sim_float_cols;
+		sim_conv_prob_tol     = other.sim_conv_prob_tol;
+		sim_conv_fractile_tol = other.sim_conv_fractile_tol;
+		sim_conv_check_time   = other.sim_conv_check_time;
 		return;
 	}
 
@@ -2411,7 +2648,12 @@ public class OEtasParameters implements Marshalable {
 		double ran_exceed_fraction,
 		int sim_accum_selection,
 		int sim_accum_option,
-		double sim_accum_param_1
+		double sim_accum_param_1,
+		boolean sim_streaming,
+		boolean sim_float_cols,
+		double sim_conv_prob_tol,
+		double sim_conv_fractile_tol,
+		long sim_conv_check_time
 	) {
 		this.sim_params_avail = sim_params_avail;
 
@@ -2425,6 +2667,11 @@ public class OEtasParameters implements Marshalable {
 		this.sim_accum_selection = sim_accum_selection;
 		this.sim_accum_option    = sim_accum_option;
 		this.sim_accum_param_1   = sim_accum_param_1;
+		this.sim_streaming       = sim_streaming;
+		this.sim_float_cols      = sim_float_cols;
+		this.sim_conv_prob_tol     = sim_conv_prob_tol;
+		this.sim_conv_fractile_tol = sim_conv_fractile_tol;
+		this.sim_conv_check_time   = sim_conv_check_time;
 		return;
 	}
 
@@ -2462,6 +2709,13 @@ public class OEtasParameters implements Marshalable {
 			if (!( sim_accum_selection >= OEConstants.SEL_ACCUM_MIN && sim_accum_selection <= OEConstants.SEL_ACCUM_MAX )) {
 				return "Invalid simulation parameters: sim_accum_selection = " + sim_accum_selection;
 			}
+			if (sim_accum_selection == OEConstants.SEL_ACCUM_CUM_TIME_MAG
+				|| sim_accum_selection == OEConstants.SEL_ACCUM_VAR_TIME_MAG
+				|| sim_accum_selection == OEConstants.SEL_ACCUM_HIST_TIME_MAG) {
+				if (!( sim_accum_option >= OEConstants.INFILL_METH_MIN && sim_accum_option <= OEConstants.INFILL_METH_MAX )) {
+					return "Invalid simulation parameters: sim_accum_option = " + sim_accum_option;
+				}
+			}
 			if (sim_accum_selection == OEConstants.SEL_ACCUM_RATE_TIME_MAG) {
 				if (!( OEConstants.validate_rate_acc_meth (sim_accum_option) )) {
 					return "Invalid simulation parameters: sim_accum_option = " + sim_accum_option;
@@ -2470,6 +2724,9 @@ public class OEtasParameters implements Marshalable {
 					return "Invalid simulation parameters: sim_accum_param_1 = " + sim_accum_param_1;
 				}
 			}
+			if (!( sim_conv_prob_tol >= 0.0 && sim_conv_fractile_tol >= 0.0 && sim_conv_check_time >= 0L )) {
+				return "Invalid simulation parameters: sim_conv_prob_tol = " + sim_conv_prob_tol + ", sim_conv_fractile_tol = " + sim_conv_fractile_tol + ", sim_conv_check_time = " + sim_conv_check_time;
+			}
 		}
 		return null;
 	}
@@ -2488,6 +2745,11 @@ public class OEtasParameters implements Marshalable {
 			sb.append ("sim_accum_selection = " + sim_accum_selection + "\n");
 			sb.append ("sim_accum_option = " + sim_accum_option + "\n");
 			sb.append ("sim_accum_param_1 = " + sim_accum_param_1 + "\n");
+			sb.append ("sim_streaming = " + sim_streaming + "\n");
+			sb.append ("sim_float_cols = " + sim_float_cols + "\n");
+			sb.append ("sim_conv_prob_tol = " + sim_conv_prob_tol + "\n");
+			sb.append ("sim_conv_fractile_tol = " + sim_conv_fractile_tol + "\n");
+			sb.append ("sim_conv_check_time = " + sim_conv_check_time + "\n");
 		}
 		return sb;
 	}
@@ -2510,6 +2772,32 @@ public class OEtasParameters implements Marshalable {
 		return;
 	}
 
+	private void marshal_sim_params_v2 (MarshalWriter writer) {
+		marshal_sim_params_v1 (writer);
+		if (sim_params_avail) {
+			writer.marshalBoolean ("sim_streaming", sim_streaming);
+		}
+		return;
+	}
+
+	private void marshal_sim_params_v3 (MarshalWriter writer) {
+		marshal_sim_params_v2 (writer);
+		if (sim_params_avail) {
+			writer.marshalBoolean ("sim_float_cols", sim_float_cols);
+		}
+		return;
+	}
+
+	private void marshal_sim_params_v4 (MarshalWriter writer) {
+		marshal_sim_params_v3 (writer);
+		if (sim_params_avail) {
+			writer.marshalDouble ("sim_conv_prob_tol", sim_conv_prob_tol);
+			writer.marshalDouble ("sim_conv_fractile_tol", sim_conv_fractile_tol);
+			writer.marshalLong ("sim_conv_check_time", sim_conv_check_time);
+		}
+		return;
+	}
+
 	// Unmarshal simulation parameters.
 
 	private void unmarshal_sim_params_v1 (MarshalReader reader) {
@@ -2537,6 +2825,89 @@ public class OEtasParameters implements Marshalable {
 		return;
 	}
 
+	private void unmarshal_sim_params_v2 (MarshalReader reader) {
+		sim_params_avail = reader.unmarshalBoolean ("sim_params_avail");
+		if (sim_params_avail) {
+			ran_direct_size_lo = reader.unmarshalInt ("ran_direct_size_lo");
+			ran_direct_size_hi = reader.unmarshalInt ("ran_direct_size_hi");
+			ran_mag_excess = reader.unmarshalDouble ("ran_mag_excess");
+			ran_gen_br = reader.unmarshalInt ("ran_gen_br");
+			ran_derate_br = reader.unmarshalDouble ("ran_derate_br");
+			ran_exceed_fraction = reader.unmarshalDouble ("ran_exceed_fraction");
+			sim_accum_selection = reader.unmarshalInt ("sim_accum_selection");
+			sim_accum_option = reader.unmarshalInt ("sim_accum_option");
+			sim_accum_param_1 = reader.unmarshalDouble ("sim_accum_param_1");
+			sim_streaming = reader.unmarshalBoolean ("sim_streaming");
+		} else {
+			clear_sim_params();
+		}
+
+		// Check the invariant
+
+		String inv = check_sim_params_invariant();
+		if (inv != null) {
+			throw new MarshalException ("OEtasParameters.unmarshal_sim_params_v2: " + inv);
+		}
+		return;
+	}
+
+	private void unmarshal_sim_params_v3 (MarshalReader reader) {
+		sim_params_avail = reader.unmarshalBoolean ("sim_params_avail");
+		if (sim_params_avail) {
+			ran_direct_size_lo = reader.unmarshalInt ("ran_direct_size_lo");
+			ran_direct_size_hi = reader.unmarshalInt ("ran_direct_size_hi");
+			ran_mag_excess = reader.unmarshalDouble ("ran_mag_excess");
+			ran_gen_br = reader.unmarshalInt ("ran_gen_br");
+			ran_derate_br = reader.unmarshalDouble ("ran_derate_br");
+			ran_exceed_fraction = reader.unmarshalDouble ("ran_exceed_fraction");
+			sim_accum_selection = reader.unmarshalInt ("sim_accum_selection");
+			sim_accum_option = reader.unmarshalInt ("sim_accum_option");
+			sim_accum_param_1 = reader.unmarshalDouble ("sim_accum_param_1");
+			sim_streaming = reader.unmarshalBoolean ("sim_streaming");
+			sim_float_cols = reader.unmarshalBoolean ("sim_float_cols");
+		} else {
+			clear_sim_params();
+		}
+
+		// Check the invariant
+
+		String inv = check_sim_params_invariant();
+		if (inv != null) {
+			throw new MarshalException ("OEtasParameters.unmarshal_sim_params_v3: " + inv);
+		}
+		return;
+	}
+
+	private void unmarshal_sim_params_v4 (MarshalReader reader) {
+		sim_params_avail = reader.unmarshalBoolean ("sim_params_avail");
+		if (sim_params_avail) {
+			ran_direct_size_lo = reader.unmarshalInt ("ran_direct_size_lo");
+			ran_direct_size_hi = reader.unmarshalInt ("ran_direct_size_hi");
+			ran_mag_excess = reader.unmarshalDouble ("ran_mag_excess");
+			ran_gen_br = reader.unmarshalInt ("ran_gen_br");
+			ran_derate_br = reader.unmarshalDouble ("ran_derate_br");
+			ran_exceed_fraction = reader.unmarshalDouble ("ran_exceed_fraction");
+			sim_accum_selection = reader.unmarshalInt ("sim_accum_selection");
+			sim_accum_option = reader.unmarshalInt ("sim_accum_option");
+			sim_accum_param_1 = reader.unmarshalDouble ("sim_accum_param_1");
+			sim_streaming = reader.unmarshalBoolean ("sim_streaming");
+			sim_float_cols = reader.unmarshalBoolean ("sim_float_cols");
+			sim_conv_prob_tol = reader.unmarshalDouble ("sim_conv_prob_tol");
+			sim_conv_fractile_tol = reader.unmarshalDouble ("sim_conv_fractile_tol");
+			sim_conv_check_time = reader.unmarshalLong ("sim_conv_check_time");
+		} else {
+			clear_sim_params();
+		}
+
+		// Check the invariant
+
+		String inv = check_sim_params_invariant();
+		if (inv != null) {
+			throw new MarshalException ("OEtasParameters.unmarshal_sim_params_v4: " + inv);
+		}
+		return;
+	}
+
 	// Get the simulation parameters.
 	// Note: Caller must check the simulation parameters and number of catalogs are available.
 
@@ -2573,6 +2944,11 @@ public class OEtasParameters implements Marshalable {
 
 		sim_parameters.sim_accum_option = sim_accum_option;
 		sim_parameters.sim_accum_param_1 = sim_accum_param_1;
+		sim_parameters.sim_streaming = sim_streaming;
+		sim_parameters.sim_float_cols = sim_float_cols;
+		sim_parameters.sim_conv_prob_tol = sim_conv_prob_tol;
+		sim_parameters.sim_conv_fractile_tol = sim_conv_fractile_tol;
+		sim_parameters.sim_conv_check_time = sim_conv_check_time;
 
 		return sim_parameters;
 	}
@@ -3094,6 +3470,12 @@ public class OEtasParameters implements Marshalable {
 	private static final int MARSHAL_VER_2 = 121002;
 	private static final int MARSHAL_VER_3 = 121003;
 	private static final int MARSHAL_VER_4 = 121004;
+	private static final int MARSHAL_VER_5 = 121005;
+	private static final int MARSHAL_VER_6 = 121006;
+	private static final int MARSHAL_VER_7 = 121007;
+	private static final int MARSHAL_VER_8 = 121008;
+	private static final int MARSHAL_VER_9 = 121009;
+	private static final int MARSHAL_VER_10 = 121010;
 
 	private static final String M_VERSION_NAME = "OEtasParameters";
 
@@ -3103,7 +3485,7 @@ public class OEtasParameters implements Marshalable {
 
 		// Version
 
-		int ver = MARSHAL_VER_4;
+		int ver = MARSHAL_VER_10;
 
 		writer.marshalInt (M_VERSION_NAME, ver);
 
@@ -3183,6 +3565,114 @@ public class OEtasParameters implements Marshalable {
 		}
 		break;
 
+		case MARSHAL_VER_5: {
+
+			marshal_hist_params_v1 (writer);
+			marshal_group_params_v1 (writer);
+			marshal_fit_params_v4 (writer);
+			marshal_fmag_range_v1 (writer);
+			marshal_tint_br_v1 (writer);
+			marshal_range_v2 (writer);
+			marshal_bay_prior_v2 (writer);
+			marshal_bay_weight_v1 (writer);
+			marshal_grid_post_v1 (writer);
+			marshal_num_catalogs_v1 (writer);
+			marshal_sim_params_v2 (writer);
+			marshal_eligible_params_v3 (writer);
+
+		}
+		break;
+
+		case MARSHAL_VER_6: {
+
+			marshal_hist_params_v1 (writer);
+			marshal_group_params_v1 (writer);
+			marshal_fit_params_v4 (writer);
+			marshal_fmag_range_v1 (writer);
+			marshal_tint_br_v1 (writer);
+			marshal_range_v2 (writer);
+			marshal_bay_prior_v2 (writer);
+			marshal_bay_weight_v1 (writer);
+			marshal_grid_post_v1 (writer);
+			marshal_num_catalogs_v1 (writer);
+			marshal_sim_params_v3 (writer);
+			marshal_eligible_params_v3 (writer);
+
+		}
+		break;
+
+		case MARSHAL_VER_7: {
+
+			marshal_hist_params_v1 (writer);
+			marshal_group_params_v1 (writer);
+			marshal_fit_params_v7 (writer);
+			marshal_fmag_range_v1 (writer);
+			marshal_tint_br_v1 (writer);
+			marshal_range_v2 (writer);
+			marshal_bay_prior_v2 (writer);
+			marshal_bay_weight_v1 (writer);
+			marshal_grid_post_v1 (writer);
+			marshal_num_catalogs_v1 (writer);
+			marshal_sim_params_v3 (writer);
+			marshal_eligible_params_v3 (writer);
+
+		}
+		break;
+
+		case MARSHAL_VER_8: {
+
+			marshal_hist_params_v1 (writer);
+			marshal_group_params_v1 (writer);
+			marshal_fit_params_v8 (writer);
+			marshal_fmag_range_v1 (writer);
+			marshal_tint_br_v1 (writer);
+			marshal_range_v2 (writer);
+			marshal_bay_prior_v2 (writer);
+			marshal_bay_weight_v1 (writer);
+			marshal_grid_post_v1 (writer);
+			marshal_num_catalogs_v1 (writer);
+			marshal_sim_params_v3 (writer);
+			marshal_eligible_params_v3 (writer);
+
+		}
+		break;
+
+		case MARSHAL_VER_9: {
+
+			marshal_hist_params_v1 (writer);
+			marshal_group_params_v1 (writer);
+			marshal_fit_params_v9 (writer);
+			marshal_fmag_range_v1 (writer);
+			marshal_tint_br_v1 (writer);
+			marshal_range_v2 (writer);
+			marshal_bay_prior_v2 (writer);
+			marshal_bay_weight_v1 (writer);
+			marshal_grid_post_v1 (writer);
+			marshal_num_catalogs_v1 (writer);
+			marshal_sim_params_v3 (writer);
+			marshal_eligible_params_v3 (writer);
+
+		}
+		break;
+
+		case MARSHAL_VER_10: {
+
+			marshal_hist_params_v1 (writer);
+			marshal_group_params_v1 (writer);
+			marshal_fit_params_v9 (writer);
+			marshal_fmag_range_v1 (writer);
+			marshal_tint_br_v1 (writer);
+			marshal_range_v2 (writer);
+			marshal_bay_prior_v2 (writer);
+			marshal_bay_weight_v1 (writer);
+			marshal_grid_post_v1 (writer);
+			marshal_num_catalogs_v1 (writer);
+			marshal_sim_params_v4 (writer);
+			marshal_eligible_params_v3 (writer);
+
+		}
+		break;
+
 		}
 
 		return;
@@ -3194,7 +3684,7 @@ public class OEtasParameters implements Marshalable {
 	
 		// Version
 
-		int ver = reader.unmarshalInt (M_VERSION_NAME, MARSHAL_VER_1, MARSHAL_VER_4);
+		int ver = reader.unmarshalInt (M_VERSION_NAME, MARSHAL_VER_1, MARSHAL_VER_10);
 
 		// Contents
 
@@ -3280,6 +3770,126 @@ public class OEtasParameters implements Marshalable {
 		}
 		break;
 
+		case MARSHAL_VER_5: {
+
+			clear();	// for fields that are not marshaled
+
+			unmarshal_hist_params_v1 (reader);
+			unmarshal_group_params_v1 (reader);
+			unmarshal_fit_params_v4 (reader);
+			unmarshal_fmag_range_v1 (reader);
+			unmarshal_tint_br_v1 (reader);
+			unmarshal_range_v2 (reader);
+			unmarshal_bay_prior_v2 (reader);
+			unmarshal_bay_weight_v1 (reader);
+			unmarshal_grid_post_v1 (reader);
+			unmarshal_num_catalogs_v1 (reader);
+			unmarshal_sim_params_v2 (reader);
+			unmarshal_eligible_params_v3 (reader);
+
+		}
+		break;
+
+		case MARSHAL_VER_6: {
+
+			clear();	// for fields that are not marshaled
+
+			unmarshal_hist_params_v1 (reader);
+			unmarshal_group_params_v1 (reader);
+			unmarshal_fit_params_v4 (reader);
+			unmarshal_fmag_range_v1 (reader);
+			unmarshal_tint_br_v1 (reader);
+			unmarshal_range_v2 (reader);
+			unmarshal_bay_prior_v2 (reader);
+			unmarshal_bay_weight_v1 (reader);
+			unmarshal_grid_post_v1 (reader);
+			unmarshal_num_catalogs_v1 (reader);
+			unmarshal_sim_params_v3 (reader);
+			unmarshal_eligible_params_v3 (reader);
+
+		}
+		break;
+
+		case MARSHAL_VER_7: {
+
+			clear();	// for fields that are not marshaled
+
+			unmarshal_hist_params_v1 (reader);
+			unmarshal_group_params_v1 (reader);
+			unmarshal_fit_params_v7 (reader);
+			unmarshal_fmag_range_v1 (reader);
+			unmarshal_tint_br_v1 (reader);
+			unmarshal_range_v2 (reader);
+			unmarshal_bay_prior_v2 (reader);
+			unmarshal_bay_weight_v1 (reader);
+			unmarshal_grid_post_v1 (reader);
+			unmarshal_num_catalogs_v1 (reader);
+			unmarshal_sim_params_v3 (reader);
+			unmarshal_eligible_params_v3 (reader);
+
+		}
+		break;
+
+		case MARSHAL_VER_8: {
+
+			clear();	// for fields that are not marshaled
+
+			unmarshal_hist_params_v1 (reader);
+			unmarshal_group_params_v1 (reader);
+			unmarshal_fit_params_v8 (reader);
+			unmarshal_fmag_range_v1 (reader);
+			unmarshal_tint_br_v1 (reader);
+			unmarshal_range_v2 (reader);
+			unmarshal_bay_prior_v2 (reader);
+			unmarshal_bay_weight_v1 (reader);
+			unmarshal_grid_post_v1 (reader);
+			unmarshal_num_catalogs_v1 (reader);
+			unmarshal_sim_params_v3 (reader);
+			unmarshal_eligible_params_v3 (reader);
+
+		}
+		break;
+
+		case MARSHAL_VER_9: {
+
+			clear();	// for fields that are not marshaled
+
+			unmarshal_hist_params_v1 (reader);
+			unmarshal_group_params_v1 (reader);
+			unmarshal_fit_params_v9 (reader);
+			unmarshal_fmag_range_v1 (reader);
+			unmarshal_tint_br_v1 (reader);
+			unmarshal_range_v2 (reader);
+			unmarshal_bay_prior_v2 (reader);
+			unmarshal_bay_weight_v1 (reader);
+			unmarshal_grid_post_v1 (reader);
+			unmarshal_num_catalogs_v1 (reader);
+			unmarshal_sim_params_v3 (reader);
+			unmarshal_eligible_params_v3 (reader);
+
+		}
+		break;
+
+		case MARSHAL_VER_10: {
+
+			clear();	// for fields that are not marshaled
+
+			unmarshal_hist_params_v1 (reader);
+			unmarshal_group_params_v1 (reader);
+			unmarshal_fit_params_v9 (reader);
+			unmarshal_fmag_range_v1 (reader);
+			unmarshal_tint_br_v1 (reader);
+			unmarshal_range_v2 (reader);
+			unmarshal_bay_prior_v2 (reader);
+			unmarshal_bay_weight_v1 (reader);
+			unmarshal_grid_post_v1 (reader);
+			unmarshal_num_catalogs_v1 (reader);
+			unmarshal_sim_params_v4 (reader);
+			unmarshal_eligible_params_v3 (reader);
+
+		}
+		break;
+
 		}
 
 		return;
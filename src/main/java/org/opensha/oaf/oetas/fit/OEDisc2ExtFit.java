@@ -8,6 +8,9 @@ import java.util.Collection;
 import java.util.Arrays;
 import java.util.concurrent.ConcurrentLinkedDeque;
 
+// For Colt 0.9.4
+import cern.jet.stat.tdouble.Gamma;
+
 import org.opensha.oaf.oetas.OERupture;
 import org.opensha.oaf.oetas.OEOmoriCalc;
 import org.opensha.oaf.oetas.OEStatsCalc;
@@ -1026,6 +1029,20 @@ public class OEDisc2ExtFit {
 
 
 
+	// Get the approximate memory needed for one MagExponent, in bytes.
+	// This counts 8 bytes per array element, and ignores object overhead.
+
+	public final long get_mag_exponent_bytes () {
+		long entries = 3L * ((long)(history.rupture_count)) + 2L * ((long)(history.interval_count)) + 1L;
+		if (grouping != null) {
+			entries += 2L * ((long)(grouping.group_count));
+		}
+		return entries * 8L;
+	}
+
+
+
+
 
 
 
@@ -1287,7 +1304,8 @@ public class OEDisc2ExtFit {
 		//
 		// (Except  omat_rup_targ_rup_src[i_t_rup].length = 0  if i_t_rup is not a target rupture.)
 		// This array is used to calculate the log-likelihood per-rupture terms due to rupture sources.
-		// This array is allocated if likelihoods are being calculated.
+		// This array is allocated if likelihoods are being calculated, unless the sum-of-exponentials
+		// approximation is being used (see below), in which case it is null.
 
 		private double[][] omat_rup_targ_rup_src;
 
@@ -1349,6 +1367,31 @@ public class OEDisc2ExtFit {
 		}
 
 
+		// Function to build the matrix of Omori values for a rupture target and rupture source,
+		// using a table of logarithms of time differences.
+		// Parameters:
+		//  log_tau = Table with log_tau[i_t_rup][i_s_rup] = log(t - s + c), same shape as the matrix.
+		// Each entry needs one exp, instead of the log and exp within Math.pow.
+
+		private void build_omat_rup_targ_rup_src (final double[][] log_tau) {
+
+			final int rupture_count = history.rupture_count;
+			final double neg_p = -p;
+
+			for (int i_t_rup = 0; i_t_rup < rupture_count; ++i_t_rup) {
+				final double[] omat_row = omat_rup_targ_rup_src[i_t_rup];
+				final double[] log_row = log_tau[i_t_rup];
+				final int row_len = omat_row.length;
+
+				for (int i_s_rup = 0; i_s_rup < row_len; ++i_s_rup) {
+					omat_row[i_s_rup] = Math.exp(neg_p * log_row[i_s_rup]);
+				}
+			}
+
+			return;
+		}
+
+
 		// Function to apply the matrix.
 		// Parameters:
 		//  y1 = Target vector #1, length = rupture_count.
@@ -1372,6 +1415,13 @@ public class OEDisc2ExtFit {
 				final double[] x2,
 				final double[] d ) {
 
+			// Sum-of-exponentials case
+
+			if (f_soe_rup_targ_rup_src) {
+				apply_soe_rup_targ_rup_src (y1, y2, x1, x2, d);
+				return;
+			}
+
 			// Zero-matrix case
 
 			if (omat_rup_targ_rup_src == null) {
@@ -1403,6 +1453,275 @@ public class OEDisc2ExtFit {
 
 
 
+		// Sum-of-exponentials approximation for a rupture target and rupture source.
+		// For long histories, the triangular matrix omat_rup_targ_rup_src needs memory and time
+		// proportional to rupture_count^2.  As an alternative, the Omori function can be written
+		//
+		//   tau^(-p) = (1/Gamma(p)) * Integral(u = -infinity, u = infinity; exp(p*u - exp(u)*tau) * du)
+		//
+		// and the integral approximated by the trapezoidal rule on nodes u_k = u_lo + k*h, giving
+		//
+		//   tau^(-p) ~ SUM(w_k * exp(-lambda_k * tau))
+		//
+		//   lambda_k = exp(u_k)
+		//   w_k = h * exp(p*u_k) / Gamma(p)
+		//
+		// Since the integrand is analytic, the error decreases exponentially as h is reduced, and the
+		// number of nodes needed grows only as the logarithm of the range of tau.  Because all
+		// terms are positive, a relative error bound on the kernel is also a relative error bound
+		// on the matrix product.
+		//
+		// With the kernel a sum of exponentials, the product with the triangular matrix can be
+		// computed by a recurrence over ruptures in time order, with one running sum per node,
+		// so the time and memory are proportional to rupture_count times the number of nodes.
+		// This requires the rupture times to be non-decreasing.
+		//
+		// The approximation is used if selected by the grid options; otherwise the matrix is used.
+
+		// True if the sum-of-exponentials approximation is in use.
+
+		private boolean f_soe_rup_targ_rup_src;
+
+		// Number of nodes.
+
+		private int soe_count;
+
+		// Weight of each node, with the Omori offset included, w_k * exp(-lambda_k * c), length >= soe_count.
+
+		private double[] soe_weight;
+
+		// Rate of each node, lambda_k, length >= soe_count.
+
+		private double[] soe_rate;
+
+		// Decay factor between successive ruptures, soe_decay[i*soe_count + k] = exp(-lambda_k * (t[i+1] - t[i])),
+		// for 0 <= i < rupture_count - 1, length >= (rupture_count - 1)*soe_count.
+
+		private double[] soe_decay;
+
+		// Maximum relative error observed when the nodes were checked.
+
+		private double soe_max_rel_err;
+
+		// Number of sample points used to check the approximation.
+
+		private static final int SOE_CHECK_POINTS = 256;
+
+		// Maximum number of attempts to obtain the requested accuracy.
+
+		private static final int SOE_MAX_ATTEMPTS = 4;
+
+
+		// Return true if the sum-of-exponentials approximation can be used for this history.
+		// It requires at least two ruptures, with non-decreasing times.
+
+		private boolean is_soe_usable () {
+
+			final int rupture_count = history.rupture_count;
+			final OERupture[] a_rupture_obj = history.a_rupture_obj;
+
+			if (rupture_count < 2) {
+				return false;
+			}
+			for (int i = 1; i < rupture_count; ++i) {
+				if (a_rupture_obj[i].t_day < a_rupture_obj[i - 1].t_day) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+
+		// Set up the nodes of the sum-of-exponentials approximation.
+		// Parameters:
+		//  tau_lo = Smallest value of tau that must be approximated, must be > 0.
+		//  tau_hi = Largest value of tau that must be approximated, must be >= tau_lo.
+		//  rel_tol = Relative tolerance.
+		//  h_scale = Factor to multiply the step size (1.0 for the first attempt).
+		// Returns the maximum relative error at a set of sample points in [tau_lo, tau_hi].
+		// On return, soe_count, soe_rate, and soe_weight are filled in, with the weights not yet
+		// including the Omori offset.
+
+		private double make_soe_nodes (double tau_lo, double tau_hi, double rel_tol, double h_scale) {
+
+			final double log_gamma_p = Gamma.logGamma (p);
+			final double log_inv_tol = Math.log (1.0 / rel_tol);
+
+			// Step size, chosen so the discretization error, which is approximately
+			// 2 * sqrt(2*pi) * (2*pi/h)^(p - 1/2) * exp(-pi^2/h) / Gamma(p), is below rel_tol/2
+
+			final double pi_sq = Math.PI * Math.PI;
+			final double log_disc_scale = log_inv_tol + Math.log (4.0 * Math.sqrt (2.0 * Math.PI)) - log_gamma_p;
+			double h = pi_sq / (log_inv_tol + Math.log (4.0));
+			for (int iter = 0; iter < 8; ++iter) {
+				h = pi_sq / Math.max (1.0, log_disc_scale + (p - 0.5) * Math.log (2.0 * Math.PI / h));
+			}
+			h *= h_scale;
+
+			// Lower limit, chosen so the integral for u < u_lo is below rel_tol/4 at tau_hi
+
+			final double u_lo = (Math.log (0.25 * rel_tol * p) + log_gamma_p) / p - Math.log (tau_hi);
+
+			// Upper limit, chosen so the integral for u > u_hi is below rel_tol/4 at tau_lo;
+			// with x = exp(u_hi)*tau_lo the tail is approximately x^(p-1) * exp(-x) / Gamma(p)
+
+			final double log_tail_scale = log_inv_tol + Math.log (8.0) - log_gamma_p;
+			double x_hi = log_tail_scale;
+			for (int iter = 0; iter < 8; ++iter) {
+				x_hi = Math.max (1.0, log_tail_scale + Math.max (0.0, p - 1.0) * Math.log (x_hi));
+			}
+			final double u_hi = Math.log (x_hi / tau_lo);
+
+			// Make the nodes
+
+			soe_count = ((int)Math.ceil ((u_hi - u_lo) / h)) + 1;
+			if (soe_rate == null || soe_rate.length < soe_count) {
+				soe_rate = new double[soe_count];
+				soe_weight = new double[soe_count];
+			}
+
+			for (int k = 0; k < soe_count; ++k) {
+				final double u = u_lo + (((double)k) * h);
+				soe_rate[k] = Math.exp (u);
+				soe_weight[k] = h * Math.exp (p * u - log_gamma_p);
+			}
+
+			// Check the approximation at sample points spaced logarithmically
+
+			double max_rel_err = 0.0;
+			final double log_tau_ratio = Math.log (tau_hi / tau_lo);
+			for (int n = 0; n <= SOE_CHECK_POINTS; ++n) {
+				final double tau = tau_lo * Math.exp (log_tau_ratio * ((double)n) / ((double)SOE_CHECK_POINTS));
+				double sum = 0.0;
+				for (int k = 0; k < soe_count; ++k) {
+					sum += (soe_weight[k] * Math.exp (-soe_rate[k] * tau));
+				}
+				max_rel_err = Math.max (max_rel_err, Math.abs (sum * Math.pow (tau, p) - 1.0));
+			}
+
+			return max_rel_err;
+		}
+
+
+		// Function to build the sum-of-exponentials approximation for a rupture target and rupture source.
+		// Returns true if success, false if the requested accuracy could not be obtained.
+
+		private boolean build_soe_rup_targ_rup_src () {
+
+			final int rupture_count = history.rupture_count;
+			final OERupture[] a_rupture_obj = history.a_rupture_obj;
+
+			// Range of tau = t - s + c that can occur
+
+			final double tau_lo = c;
+			final double tau_hi = a_rupture_obj[rupture_count - 1].t_day - a_rupture_obj[0].t_day + c;
+
+			// Make the nodes, reducing the step size if the accuracy is not obtained
+
+			final double rel_tol = Math.min (0.1, Math.max (1.0e-14, grid_options.get_omori_soe_rel_tol()));
+
+			double h_scale = 1.0;
+			soe_max_rel_err = make_soe_nodes (tau_lo, tau_hi, rel_tol, h_scale);
+			for (int attempt = 1; soe_max_rel_err > rel_tol; ++attempt) {
+				if (attempt >= SOE_MAX_ATTEMPTS) {
+					return false;
+				}
+				h_scale *= 0.75;
+				soe_max_rel_err = make_soe_nodes (tau_lo, tau_hi, rel_tol, h_scale);
+			}
+
+			// Include the Omori offset in the weights
+
+			final int k_top = soe_count;
+			for (int k = 0; k < k_top; ++k) {
+				soe_weight[k] *= Math.exp (-soe_rate[k] * c);
+			}
+
+			// Decay factors between successive ruptures
+
+			final int decay_len = (rupture_count - 1) * k_top;
+			if (soe_decay == null || soe_decay.length < decay_len) {
+				soe_decay = new double[decay_len];
+			}
+
+			for (int i = 0; i < rupture_count - 1; ++i) {
+				final double dt = a_rupture_obj[i + 1].t_day - a_rupture_obj[i].t_day;
+				final int base = i * k_top;
+				for (int k = 0; k < k_top; ++k) {
+					soe_decay[base + k] = Math.exp (-soe_rate[k] * dt);
+				}
+			}
+
+			return true;
+		}
+
+
+		// Function to apply the sum-of-exponentials approximation.
+		// Parameters are the same as for apply_omat_rup_targ_rup_src.
+		// For each node k, the running sum
+		//   acc_k(i) = SUM(exp(-lambda_k * (t[i] - t[j])) * x[j])
+		// where the sum is over 0 <= j < i, satisfies the recurrence
+		//   acc_k(i+1) = (acc_k(i) + x[i]) * exp(-lambda_k * (t[i+1] - t[i]))
+		// and then the matrix product for target i is approximately SUM(weight_k * acc_k(i)).
+
+		private void apply_soe_rup_targ_rup_src (
+				final double[] y1,
+				final double[] y2,
+				final double[] x1,
+				final double[] x2,
+				final double[] d ) {
+
+			final int i_top = history.rupture_count;
+			final int k_top = soe_count;
+			final double[] acc1 = new double[k_top];
+			final double[] acc2 = new double[k_top];
+
+			for (int i = 0; i < i_top; ++i) {
+
+				// Product for this row, if it is a target
+
+				if (i >= targ_rup_begin && i < targ_rup_end) {
+					double sum1 = 0.0;
+					double sum2 = 0.0;
+					for (int k = 0; k < k_top; ++k) {
+						sum1 += (soe_weight[k] * acc1[k]);
+						sum2 += (soe_weight[k] * acc2[k]);
+					}
+					y1[i] = sum1 * d[i];
+					y2[i] = sum2 * d[i];
+				} else {
+					y1[i] = 0.0;
+					y2[i] = 0.0;
+				}
+
+				// Advance the running sums, if there are any more targets
+
+				if (i + 1 < targ_rup_end) {
+					final double xx1 = x1[i];
+					final double xx2 = x2[i];
+					final int base = i * k_top;
+					for (int k = 0; k < k_top; ++k) {
+						final double decay = soe_decay[base + k];
+						acc1[k] = (acc1[k] + xx1) * decay;
+						acc2[k] = (acc2[k] + xx2) * decay;
+					}
+				}
+			}
+			return;
+		}
+
+
+		// Produce a summary string describing the sum-of-exponentials approximation.
+
+		private String soe_summary_string () {
+			if (!( f_soe_rup_targ_rup_src )) {
+				return "not used";
+			}
+			return ("nodes = " + soe_count + ", max_rel_err = " + soe_max_rel_err);
+		}
+
+
+
 
 		// Matrix of Omori values for a rupture target and interval source.
 		// omat_rup_targ_int_src[i_t_rup][i_s_int] is the Omori function for the source interval
@@ -1487,6 +1806,34 @@ public class OEDisc2ExtFit {
 		}
 
 
+		// Function to build the matrix of Omori values for a rupture target and interval source,
+		// using tables of logarithms of time differences.
+		// Parameters:
+		//  log_w = Table with log_w[i_t_rup][i_s_int] = log(w), same shape as the matrix.
+		//  log1p_tr_w = Table with log1p_tr_w[i_t_rup][i_s_int] = log(1 + tr/w), same shape as the matrix.
+		// Here w = t - s2 + c and tr = s2 - s1.
+		// This is the same calculation as OEOmoriCalc.omext_single_integral, with the logarithms pre-computed.
+
+		private void build_omat_rup_targ_int_src (final double[][] log_w, final double[][] log1p_tr_w) {
+
+			final int rupture_count = history.rupture_count;
+			final double q = 1.0 - p;
+
+			for (int i_t_rup = 0; i_t_rup < rupture_count; ++i_t_rup) {
+				final double[] omat_row = omat_rup_targ_int_src[i_t_rup];
+				final double[] log_w_row = log_w[i_t_rup];
+				final double[] log1p_row = log1p_tr_w[i_t_rup];
+				final int row_len = omat_row.length;
+
+				for (int i_s_int = 0; i_s_int < row_len; ++i_s_int) {
+					omat_row[i_s_int] = Math.exp(q * log_w_row[i_s_int]) * calc_w(q, log1p_row[i_s_int]);
+				}
+			}
+
+			return;
+		}
+
+
 		// Function to apply the matrix.
 		// Parameters:
 		//  y1 = Target vector #1, length = rupture_count.
@@ -2338,6 +2685,13 @@ public class OEDisc2ExtFit {
 			omat_int_targ_int_src = null;
 			omat_self_int_src = null;
 
+			f_soe_rup_targ_rup_src = false;
+			soe_count = 0;
+			soe_weight = null;
+			soe_rate = null;
+			soe_decay = null;
+			soe_max_rel_err = 0.0;
+
 			return;
 		}
 
@@ -2351,7 +2705,11 @@ public class OEDisc2ExtFit {
 			// Allocate all the matrices that we need
 
 			if (f_omat_rup_targ_rup_src) {
-				alloc_omat_rup_targ_rup_src();
+				if (is_omori_soe_selected() && is_soe_usable()) {
+					f_soe_rup_targ_rup_src = true;
+				} else {
+					alloc_omat_rup_targ_rup_src();
+				}
 			}
 
 			if (f_omat_rup_targ_int_src) {
@@ -2377,20 +2735,60 @@ public class OEDisc2ExtFit {
 		// by calling omat_build for each new pair of Omori parameters.
 
 		public void omat_build (double p, double c) {
+			omat_build (p, c, null);
+			return;
+		}
+
+
+
+
+		// Fill in all matrices, using the given Omori parameters and table of logarithms.
+		// Parameters:
+		//  p = Omori exponent.
+		//  c = Omori offset.
+		//  log_table = Table of logarithms of time differences for this value of c, or null if none.
+		// The table is used only if it was built for the same value of c; otherwise, or if
+		// log_table is null, the matrices are computed directly.
+
+		public void omat_build (double p, double c, OmoriLogTable log_table) {
 
 			// Save the Omori parameters
 
 			this.p = p;
 			this.c = c;
 
+			// The table, if it is usable
+
+			final OmoriLogTable lt = ((log_table != null && log_table.get_c() == c) ? log_table : null);
+
 			// Build all the matrices that we need
 
 			if (f_omat_rup_targ_rup_src) {
-				build_omat_rup_targ_rup_src();
+				if (f_soe_rup_targ_rup_src) {
+
+					// If the approximation cannot reach the requested accuracy, switch to the matrix
+
+					if (!( build_soe_rup_targ_rup_src() )) {
+						f_soe_rup_targ_rup_src = false;
+						soe_weight = null;
+						soe_rate = null;
+						soe_decay = null;
+						alloc_omat_rup_targ_rup_src();
+						build_omat_rup_targ_rup_src();
+					}
+				} else if (lt != null && lt.log_rup_targ_rup_src != null) {
+					build_omat_rup_targ_rup_src (lt.log_rup_targ_rup_src);
+				} else {
+					build_omat_rup_targ_rup_src();
+				}
 			}
 
 			if (f_omat_rup_targ_int_src) {
-				build_omat_rup_targ_int_src();
+				if (lt != null && lt.log_w_rup_targ_int_src != null) {
+					build_omat_rup_targ_int_src (lt.log_w_rup_targ_int_src, lt.log1p_rup_targ_int_src);
+				} else {
+					build_omat_rup_targ_int_src();
+				}
 			}
 
 			if (f_omat_int_targ_rup_src) {
@@ -2429,6 +2827,7 @@ public class OEDisc2ExtFit {
 			result.append ("c = " + c + "\n");
 
 			result.append ("omat_rup_targ_rup_src: " + tri_mat_summary_string(omat_rup_targ_rup_src) + "\n");
+			result.append ("soe_rup_targ_rup_src: "  + soe_summary_string()                         + "\n");
 			result.append ("omat_rup_targ_int_src: " + tri_mat_summary_string(omat_rup_targ_int_src) + "\n");
 			result.append ("omat_int_targ_rup_src: " + tri_mat_summary_string(omat_int_targ_rup_src) + "\n");
 			result.append ("omat_int_targ_int_src: " + tri_mat_summary_string(omat_int_targ_int_src) + "\n");
@@ -2496,6 +2895,14 @@ public class OEDisc2ExtFit {
 		}
 
 
+		// Fill in all matrices, using the given Omori parameters and table of logarithms.
+
+		public final void omat_build (double p, double c, OmoriLogTable log_table) {
+			omat.omat_build (p, c, log_table);
+			return;
+		}
+
+
 		// Display our contents.
 
 		@Override
@@ -2514,6 +2921,369 @@ public class OEDisc2ExtFit {
 
 
 
+	// Get the approximate memory needed for one OmoriMatrix, in bytes.
+	// This counts 8 bytes per matrix element, and ignores per-row overhead.
+	// If the sum-of-exponentials approximation is selected, the rupture-rupture matrix is not
+	// counted, since the approximation needs only a few values per rupture.
+
+	public final long get_omori_matrix_bytes () {
+		long entries = 0L;
+
+		final int rupture_count = history.rupture_count;
+		final int interval_count = history.interval_count;
+		final int[] a_rupture_int_time_index = history.a_rupture_int_time_index;
+
+		for (int i_t_rup = targ_rup_begin; i_t_rup < targ_rup_end && i_t_rup < rupture_count; ++i_t_rup) {
+			if (f_omat_rup_targ_rup_src && !( is_omori_soe_selected() )) {
+				entries += ((long)i_t_rup);
+			}
+			if (f_omat_rup_targ_int_src) {
+				entries += ((long)(a_rupture_int_time_index[i_t_rup]));
+			}
+		}
+
+		if (f_omat_int_targ_rup_src) {
+			int n = 0;
+			for (int i_t_int = 0; i_t_int < interval_count; ++i_t_int) {
+				while (n < rupture_count && a_rupture_int_time_index[n] <= i_t_int) {
+					++n;
+				}
+				entries += ((long)n);
+			}
+		}
+
+		if (f_omat_int_targ_int_src) {
+			entries += (((long)interval_count) * ((long)(interval_count + 1))) / 2L;
+		}
+
+		return entries * 8L;
+	}
+
+
+
+
+	// Return true if the grid options select the sum-of-exponentials approximation for the rupture-rupture Omori matrix.
+
+	private boolean is_omori_soe_selected () {
+		return grid_options != null && grid_options.use_omori_soe (history.rupture_count);
+	}
+
+
+
+
+	// Class to hold logarithms of time differences for a particular value of c.
+	// Every OmoriMatrix built with the same c, but different p, can use these tables,
+	// so that each matrix entry is computed with a single exp instead of a Math.pow
+	// (and for interval sources, without the log1p).
+	// Each table has the same shape as the corresponding matrix in OmoriMatrix, so the
+	// memory requirement is about the same as the two rupture-target matrices.
+	// Tables are only built for matrices that depend on c only through t - s + c; the
+	// matrices with interval targets use density integrals with a midpoint branch, and
+	// are always computed directly.
+	//
+	// A table can be built from a prior table, made for an earlier history of the same
+	// sequence.  Each row depends only on the times of the target and its sources, so any
+	// row whose times are unchanged is shared with the prior table rather than recomputed.
+	// When a new history extends an old one, only the rows for the new targets are computed.
+	// To support this, the table keeps a copy of the times it was built from.  It does not
+	// keep a reference to the fitter, so it can be retained after the fitter is discarded.
+	//
+	// Note: After it is built, this object is read-only and can be shared among threads.
+	// Row arrays may be shared among multiple tables, and must never be modified.
+
+	public static class OmoriLogTable {
+
+		// Omori offset parameter.
+
+		private double c;
+
+		public final double get_c () {
+			return c;
+		}
+
+		// Table of log(t - s + c) for rupture target and rupture source, or null if not built.
+		// Same shape as OmoriMatrix.omat_rup_targ_rup_src.
+
+		private double[][] log_rup_targ_rup_src;
+
+		// Tables of log(w) and log(1 + tr/w) for rupture target and interval source, or null if not built.
+		// Here w = t - s2 + c and tr = s2 - s1.  Same shape as OmoriMatrix.omat_rup_targ_int_src.
+
+		private double[][] log_w_rup_targ_int_src;
+		private double[][] log1p_rup_targ_int_src;
+
+		// Copy of the rupture times, a_rupture_obj[i].t_day, length = rupture_count.
+
+		private double[] a_t_day;
+
+		// Copy of the history interval times, length = interval_count + 1, or null if not using interval sources.
+
+		private double[] a_interval_time;
+
+		// Copy of the history rupture interval time indexes and values, length = rupture_count, or null if not using interval sources.
+
+		private int[] a_rupture_int_time_index;
+		private double[] a_rupture_int_time_value;
+
+		// Number of rows that were shared with a prior table.
+
+		private int reused_row_count;
+
+		public final int get_reused_row_count () {
+			return reused_row_count;
+		}
+
+		// Number of rows that were computed.
+
+		private int built_row_count;
+
+		public final int get_built_row_count () {
+			return built_row_count;
+		}
+
+
+		// Return the length of the common prefix of two arrays.
+
+		private static int common_prefix (double[] a, double[] b) {
+			if (a == null || b == null) {
+				return 0;
+			}
+			final int n = Math.min (a.length, b.length);
+			int i = 0;
+			while (i < n && a[i] == b[i]) {
+				++i;
+			}
+			return i;
+		}
+
+
+		// Build the table for rupture target and rupture source.
+		// Parameters:
+		//  fitter = The fitter.
+		//  prior = Prior table to share rows with, or null if none.
+
+		private void build_log_rup_targ_rup_src (OEDisc2ExtFit fitter, OmoriLogTable prior) {
+
+			final int rupture_count = fitter.history.rupture_count;
+			final OERupture[] a_rupture_obj = fitter.history.a_rupture_obj;
+
+			// A prior row can be used if the prior contains the row, and the target and all sources have the same times
+
+			final double[][] prior_log = ((prior == null) ? null : prior.log_rup_targ_rup_src);
+			final int reuse_limit = ((prior_log == null) ? 0 : common_prefix (a_t_day, prior.a_t_day));
+
+			log_rup_targ_rup_src = new double[rupture_count][];
+			for (int i_t_rup = 0; i_t_rup < rupture_count; ++i_t_rup) {
+				if (i_t_rup >= fitter.targ_rup_begin && i_t_rup < fitter.targ_rup_end) {
+					if (i_t_rup < reuse_limit && prior_log[i_t_rup].length == i_t_rup) {
+						log_rup_targ_rup_src[i_t_rup] = prior_log[i_t_rup];
+						++reused_row_count;
+					} else {
+						final double t_plus_c = a_rupture_obj[i_t_rup].t_day + c;
+						final double[] log_row = new double[i_t_rup];
+						for (int i_s_rup = 0; i_s_rup < i_t_rup; ++i_s_rup) {
+							log_row[i_s_rup] = Math.log(t_plus_c - a_rupture_obj[i_s_rup].t_day);
+						}
+						log_rup_targ_rup_src[i_t_rup] = log_row;
+						++built_row_count;
+					}
+				} else {
+					log_rup_targ_rup_src[i_t_rup] = new double[0];
+				}
+			}
+
+			return;
+		}
+
+
+		// Build the tables for rupture target and interval source.
+		// Parameters:
+		//  fitter = The fitter.
+		//  prior = Prior table to share rows with, or null if none.
+
+		private void build_log_rup_targ_int_src (OEDisc2ExtFit fitter, OmoriLogTable prior) {
+
+			final int rupture_count = fitter.history.rupture_count;
+
+			// A prior row can be used if the prior contains the row, the target has the same time
+			// and interval index, and all the source intervals have the same times
+
+			final double[][] prior_log_w = ((prior == null) ? null : prior.log_w_rup_targ_int_src);
+			final int rup_reuse_limit = ((prior_log_w == null) ? 0 : common_prefix (a_t_day, prior.a_t_day));
+			final int int_reuse_limit = ((prior_log_w == null) ? 0 : common_prefix (a_interval_time, prior.a_interval_time));
+
+			log_w_rup_targ_int_src = new double[rupture_count][];
+			log1p_rup_targ_int_src = new double[rupture_count][];
+			for (int i_t_rup = 0; i_t_rup < rupture_count; ++i_t_rup) {
+				if (i_t_rup >= fitter.targ_rup_begin && i_t_rup < fitter.targ_rup_end) {
+					final int row_len = a_rupture_int_time_index[i_t_rup];
+					if (i_t_rup < rup_reuse_limit
+						&& row_len < int_reuse_limit
+						&& prior.a_rupture_int_time_index[i_t_rup] == row_len
+						&& prior.a_rupture_int_time_value[i_t_rup] == a_rupture_int_time_value[i_t_rup]
+						&& prior_log_w[i_t_rup].length == row_len
+					) {
+						log_w_rup_targ_int_src[i_t_rup] = prior_log_w[i_t_rup];
+						log1p_rup_targ_int_src[i_t_rup] = prior.log1p_rup_targ_int_src[i_t_rup];
+						++reused_row_count;
+					} else {
+						final double t_plus_c = a_rupture_int_time_value[i_t_rup] + c;
+						final double[] log_w_row = new double[row_len];
+						final double[] log1p_row = new double[row_len];
+						for (int i_s_int = 0; i_s_int < row_len; ++i_s_int) {
+							final double s1 = a_interval_time[i_s_int];
+							final double s2 = a_interval_time[i_s_int + 1];
+							final double w = t_plus_c - s2;
+							log_w_row[i_s_int] = Math.log(w);
+							log1p_row[i_s_int] = Math.log1p((s2 - s1)/w);
+						}
+						log_w_rup_targ_int_src[i_t_rup] = log_w_row;
+						log1p_rup_targ_int_src[i_t_rup] = log1p_row;
+						++built_row_count;
+					}
+				} else {
+					log_w_rup_targ_int_src[i_t_rup] = new double[0];
+					log1p_rup_targ_int_src[i_t_rup] = new double[0];
+				}
+			}
+
+			return;
+		}
+
+
+		// Constructor builds the tables for the given value of c.
+		// Parameters:
+		//  fitter = The fitter, which supplies the history.
+		//  c = Omori offset parameter.
+		//  prior = Prior table to share rows with, or null if none.
+		// If prior is non-null, it must have the same value of c, or else it is ignored.
+
+		public OmoriLogTable (OEDisc2ExtFit fitter, double c, OmoriLogTable prior) {
+			this.c = c;
+			log_rup_targ_rup_src = null;
+			log_w_rup_targ_int_src = null;
+			log1p_rup_targ_int_src = null;
+			a_interval_time = null;
+			a_rupture_int_time_index = null;
+			a_rupture_int_time_value = null;
+			reused_row_count = 0;
+			built_row_count = 0;
+
+			final OmoriLogTable my_prior = ((prior != null && prior.c == c) ? prior : null);
+
+			// Copy the times
+
+			final int rupture_count = fitter.history.rupture_count;
+			a_t_day = new double[rupture_count];
+			for (int i = 0; i < rupture_count; ++i) {
+				a_t_day[i] = fitter.history.a_rupture_obj[i].t_day;
+			}
+
+			if (fitter.f_omat_rup_targ_int_src) {
+				a_interval_time = Arrays.copyOf (fitter.history.a_interval_time, fitter.history.interval_count + 1);
+				a_rupture_int_time_index = Arrays.copyOf (fitter.history.a_rupture_int_time_index, rupture_count);
+				a_rupture_int_time_value = Arrays.copyOf (fitter.history.a_rupture_int_time_value, rupture_count);
+			}
+
+			// Build the tables
+
+			if (fitter.f_omat_rup_targ_rup_src && !( fitter.is_omori_soe_selected() )) {
+				build_log_rup_targ_rup_src (fitter, my_prior);
+			}
+
+			if (fitter.f_omat_rup_targ_int_src) {
+				build_log_rup_targ_int_src (fitter, my_prior);
+			}
+		}
+
+
+		// Get the approximate memory used by this table, in bytes.
+		// This counts 8 bytes per table entry, and ignores per-row overhead.
+		// Rows shared with other tables are included.
+
+		public final long get_table_bytes () {
+			long entries = 0L;
+			if (log_rup_targ_rup_src != null) {
+				for (double[] row : log_rup_targ_rup_src) {
+					entries += ((long)(row.length));
+				}
+			}
+			if (log_w_rup_targ_int_src != null) {
+				for (double[] row : log_w_rup_targ_int_src) {
+					entries += (2L * ((long)(row.length)));
+				}
+			}
+			return entries * 8L;
+		}
+
+
+		// Display our contents.
+
+		@Override
+		public String toString() {
+			StringBuilder result = new StringBuilder();
+
+			result.append ("OEDisc2ExtFit.OmoriLogTable:" + "\n");
+
+			result.append ("c = " + c + "\n");
+
+			result.append ("log_rup_targ_rup_src: "   + tri_mat_summary_string(log_rup_targ_rup_src)   + "\n");
+			result.append ("log_w_rup_targ_int_src: " + tri_mat_summary_string(log_w_rup_targ_int_src) + "\n");
+			result.append ("log1p_rup_targ_int_src: " + tri_mat_summary_string(log1p_rup_targ_int_src) + "\n");
+			result.append ("reused_row_count = " + reused_row_count + "\n");
+			result.append ("built_row_count = " + built_row_count + "\n");
+
+			return result.toString();
+		}
+
+	}
+
+
+
+
+	// Get the approximate memory needed for one OmoriLogTable, in bytes.
+	// This counts 8 bytes per table entry, and ignores per-row overhead.
+
+	public final long get_omori_log_table_bytes () {
+		long entries = 0L;
+
+		final int rupture_count = history.rupture_count;
+		for (int i_t_rup = targ_rup_begin; i_t_rup < targ_rup_end && i_t_rup < rupture_count; ++i_t_rup) {
+			if (f_omat_rup_targ_rup_src && !( is_omori_soe_selected() )) {
+				entries += ((long)i_t_rup);
+			}
+			if (f_omat_rup_targ_int_src) {
+				entries += (2L * ((long)(history.a_rupture_int_time_index[i_t_rup])));
+			}
+		}
+
+		return entries * 8L;
+	}
+
+
+
+
+	// Make a table of logarithms for the given value of c.
+
+	public OmoriLogTable make_OmoriLogTable (double c) {
+		return new OmoriLogTable (this, c, null);
+	}
+
+
+
+
+	// Make a table of logarithms for the given value of c, sharing rows with a prior table.
+	// Parameters:
+	//  c = Omori offset parameter.
+	//  prior = Table made for an earlier history of the same sequence, or null if none.
+
+	public OmoriLogTable make_OmoriLogTable (double c, OmoriLogTable prior) {
+		return new OmoriLogTable (this, c, prior);
+	}
+
+
+
+
 	//-----  Per-Pair Processing -----
 
 
@@ -3160,6 +3930,17 @@ public class OEDisc2ExtFit {
 
 
 
+	// Get the approximate memory needed for one PairMagOmori, in bytes.
+	// This counts 8 bytes per array element, and ignores object overhead.
+
+	public final long get_pair_mag_omori_bytes () {
+		long entries = 2L * ((long)(history.rupture_count)) + 2L * ((long)(history.interval_count)) + 2L;
+		return entries * 8L;
+	}
+
+
+
+
 	//-----  Per-a-value Processing -----
 
 
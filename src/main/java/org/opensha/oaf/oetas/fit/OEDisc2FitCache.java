@@ -0,0 +1,370 @@
+package org.opensha.oaf.oetas.fit;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+// Process-wide cache of fitting data, for re-use across successive fits of the same sequence.
+//
+// The server fits each sequence repeatedly, as new data arrives.  Between successive
+// fits, typically only a few ruptures and intervals are added to the history.  This
+// cache retains the tables of logarithms of time differences (OEDisc2ExtFit.OmoriLogTable)
+// from the most recent fit of each sequence, keyed by a string that identifies the
+// sequence (typically the mainshock event ID), and by the value of c.  The next fit of
+// the same sequence passes the retained tables as priors, so that only the rows for new
+// or changed targets are computed.
+//
+// Each table records the times it was built from, and a row is only re-used if all of
+// its times are unchanged.  So a stale or mismatched entry never affects the results,
+// it just saves no time.
+//
+// Voxels are not retained.  A re-run with unchanged data is handled by the fit snapshot
+// in OEExecEnvironment, which holds the complete fitted voxel set.
+//
+// The key should identify the sequence and the parameter grid, so that fits with different
+// grids do not replace each other's entries.  The history is not part of the key, because
+// the tables are useful exactly when the history has changed.
+//
+// Entries are evicted least-recently-used first, to keep the total size within a memory budget.
+// Entries not used within a maximum age are also evicted, so memory held for a sequence that
+// is no longer being forecast is eventually released.
+//
+// Threading: All functions are synchronized, so the cache can be used from multiple threads.
+
+public class OEDisc2FitCache {
+
+	//----- Budget -----
+
+	// Memory budget, in bytes, or -1 to use the default.
+
+	private static long budget = -1L;
+
+	// Default budget, as a fraction of the maximum heap size.
+	// Retained tables are charged against the shared fitting budget in OEDisc2InitVoxBuilder
+	// (DEF_FIT_MEM_BUDGET_FRACTION), so this must be well below that fraction.
+
+	public static final double DEF_BUDGET_FRACTION = 0.125;
+
+
+	// Set the memory budget, in bytes.
+	// A negative value selects the default.  A value of zero disables the cache.
+
+	public static synchronized void set_budget (long the_budget) {
+		budget = the_budget;
+		evict (0L);
+		return;
+	}
+
+
+	// Get the memory budget, in bytes, or -1 if default.
+
+	public static synchronized long get_budget () {
+		return budget;
+	}
+
+
+	// Get the effective memory budget, in bytes.
+
+	private static long get_effective_budget () {
+		if (budget >= 0L) {
+			return budget;
+		}
+		return (long)(((double)(Runtime.getRuntime().maxMemory())) * DEF_BUDGET_FRACTION);
+	}
+
+
+
+
+	//----- Age -----
+
+	// Maximum age of an entry, in milliseconds since it was last used.
+
+	private static long max_age = -1L;
+
+	// Default maximum age, in milliseconds.
+	// This is a little more than one week, so that weekly forecasts late in a sequence still
+	// find the tables from the prior forecast.
+
+	public static final long DEF_MAX_AGE = 8L * 86400000L;		// 8 days
+
+
+	// Set the maximum age, in milliseconds.
+	// A negative value selects the default.
+
+	public static synchronized void set_max_age (long the_max_age) {
+		max_age = the_max_age;
+		evict_expired();
+		return;
+	}
+
+
+	// Get the maximum age, in milliseconds, or -1 if default.
+
+	public static synchronized long get_max_age () {
+		return max_age;
+	}
+
+
+	// Get the effective maximum age, in milliseconds.
+
+	private static long get_effective_max_age () {
+		if (max_age >= 0L) {
+			return max_age;
+		}
+		return DEF_MAX_AGE;
+	}
+
+
+
+
+	//----- Entries -----
+
+	// A cache entry, containing the tables from one fit.
+
+	private static class Entry {
+
+		// Tables, indexed by value of c.
+
+		public HashMap<Double, OEDisc2ExtFit.OmoriLogTable> tables = new HashMap<Double, OEDisc2ExtFit.OmoriLogTable>();
+
+		// Approximate memory used by the tables, in bytes.
+
+		public long bytes = 0L;
+
+		// Time the entry was last used, in milliseconds since the epoch.
+
+		public long access_time = 0L;
+	}
+
+
+	// The cache, in access order (least recently used first).
+
+	private static final LinkedHashMap<String, Entry> cache = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	// Total memory used by all entries, in bytes.
+
+	private static long total_bytes = 0L;
+
+
+	// Evict least-recently-used entries until the given number of additional bytes fits in the budget.
+	// Expired entries are evicted first.
+
+	private static void evict (long extra_bytes) {
+		evict_expired();
+		final long limit = get_effective_budget();
+		Iterator<Map.Entry<String, Entry>> it = cache.entrySet().iterator();
+		while (it.hasNext() && total_bytes + extra_bytes > limit) {
+			total_bytes -= it.next().getValue().bytes;
+			it.remove();
+		}
+		return;
+	}
+
+
+	// Evict entries that have not been used within the maximum age.
+	// Every lookup with cache.get sets the access time, so the map's access order is also
+	// the order of access times, and the scan can stop at the first entry that has not expired.
+
+	private static void evict_expired () {
+		final long cutoff = System.currentTimeMillis() - get_effective_max_age();
+		Iterator<Map.Entry<String, Entry>> it = cache.entrySet().iterator();
+		while (it.hasNext()) {
+			final Entry entry = it.next().getValue();
+			if (entry.access_time >= cutoff) {
+				break;
+			}
+			total_bytes -= entry.bytes;
+			it.remove();
+		}
+		return;
+	}
+
+
+
+
+	//----- Access -----
+
+
+
+
+	// Get a table retained from a prior fit.
+	// Parameters:
+	//  key = Key that identifies the sequence.
+	//  c = Omori offset parameter.
+	// Returns the table, or null if none.
+
+	public static synchronized OEDisc2ExtFit.OmoriLogTable get_prior_table (String key, double c) {
+		if (key == null) {
+			return null;
+		}
+		evict_expired();
+		Entry entry = cache.get (key);
+		if (entry == null) {
+			return null;
+		}
+		entry.access_time = System.currentTimeMillis();
+		return entry.tables.get (c);
+	}
+
+
+
+
+	// Retain the tables from a fit, replacing any tables previously retained for the sequence.
+	// Parameters:
+	//  key = Key that identifies the sequence.
+	//  tables = Tables to retain.  Null elements are ignored.
+	// If the tables do not fit within the budget, nothing is retained for the sequence.
+
+	public static synchronized void put_tables (String key, OEDisc2ExtFit.OmoriLogTable[] tables) {
+		if (key == null) {
+			return;
+		}
+
+		// Remove any existing entry
+
+		remove (key);
+
+		// Make the new entry
+
+		Entry entry = new Entry();
+		entry.access_time = System.currentTimeMillis();
+		for (OEDisc2ExtFit.OmoriLogTable table : tables) {
+			if (table != null) {
+				entry.tables.put (table.get_c(), table);
+				entry.bytes += table.get_table_bytes();
+			}
+		}
+
+		if (entry.tables.isEmpty() || entry.bytes > get_effective_budget()) {
+			return;
+		}
+
+		// Make room and insert
+
+		evict (entry.bytes);
+		cache.put (key, entry);
+		total_bytes += entry.bytes;
+		return;
+	}
+
+
+
+
+	// Remove the tables retained for a sequence.
+	// Parameters:
+	//  key = Key that identifies the sequence.
+
+	public static synchronized void remove (String key) {
+		Entry entry = cache.remove (key);
+		if (entry != null) {
+			total_bytes -= entry.bytes;
+		}
+		return;
+	}
+
+
+
+
+	// Remove all retained tables.
+
+	public static synchronized void clear_all () {
+		cache.clear();
+		total_bytes = 0L;
+		return;
+	}
+
+
+
+
+	// Get the number of sequences with retained tables.
+
+	public static synchronized int get_entry_count () {
+		evict_expired();
+		return cache.size();
+	}
+
+
+
+
+	// Get the total memory used by retained tables, in bytes.
+
+	public static synchronized long get_total_bytes () {
+		evict_expired();
+		return total_bytes;
+	}
+
+
+
+
+	// Get the memory used by the retained tables for a sequence, counting only tables that are
+	// also in the given array, in bytes.  This lets a fit avoid counting its own tables twice.
+	// Parameters:
+	//  key = Key that identifies the sequence, can be null.
+	//  tables = Tables to check, can be null.  Null elements are ignored.
+
+	public static synchronized long get_entry_bytes (String key, OEDisc2ExtFit.OmoriLogTable[] tables) {
+		if (key == null || tables == null) {
+			return 0L;
+		}
+		Entry entry = cache.get (key);
+		if (entry == null) {
+			return 0L;
+		}
+		entry.access_time = System.currentTimeMillis();
+		long bytes = 0L;
+		for (OEDisc2ExtFit.OmoriLogTable table : entry.tables.values()) {
+			for (OEDisc2ExtFit.OmoriLogTable t : tables) {
+				if (t == table) {
+					bytes += table.get_table_bytes();
+					break;
+				}
+			}
+		}
+		return bytes;
+	}
+
+
+
+
+	// Make a fingerprint from a list of strings.
+	// Parameters:
+	//  parts = Strings that describe the data.  Null elements are allowed.
+	// Returns a hexadecimal SHA-256 hash of the strings.
+	// Note: Each string is preceded by its length, so the boundaries between strings are significant.
+
+	public static String make_fingerprint (String... parts) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance ("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException ("OEDisc2FitCache.make_fingerprint: SHA-256 is not available", e);
+		}
+		for (String part : parts) {
+			final String s = ((part == null) ? "" : part);
+			digest.update ((((part == null) ? -1 : s.length()) + ":").getBytes (StandardCharsets.UTF_8));
+			digest.update (s.getBytes (StandardCharsets.UTF_8));
+		}
+		final byte[] hash = digest.digest();
+		final StringBuilder sb = new StringBuilder();
+		for (byte b : hash) {
+			sb.append (String.format ("%02x", b & 0xFF));
+		}
+		return sb.toString();
+	}
+
+
+
+
+	// Make a one-line summary string.
+
+	public static synchronized String summary_string () {
+		evict_expired();
+		return "OEDisc2FitCache: entries = " + cache.size() + ", total = " + (total_bytes / 1048576L) + " M, budget = " + (get_effective_budget() / 1048576L) + " M";
+	}
+
+}
@@ -135,6 +135,13 @@ public class OEDisc2InitDefVoxCP {
 	}
 
 
+	// Return true if separate ranges are being used.
+
+	public final boolean has_sep_ranges () {
+		return sep_c_velt != null && sep_p_velt != null;
+	}
+
+
 	// Convert separate indexes into a joint combination index.
 
 	public final int get_combo_index (int cix, int pix) {
@@ -284,6 +291,101 @@ public class OEDisc2InitDefVoxCP {
 
 
 
+	// Set the combination definition, from arrays of combinations.
+	// Parameters:
+	//  a_c_velt = Values and elements for c, for each combination, must be non-empty.
+	//  a_p_velt = Values and elements for p, for each combination, must have the same length as a_c_velt.
+	// Returns this object.
+	// Note: This object copies the arrays.  Separate ranges are not available.
+
+	public final OEDisc2InitDefVoxCP set_from_combo_values (
+		OEValueElement[] a_c_velt,
+		OEValueElement[] a_p_velt
+	) {
+		if (!( a_c_velt != null && a_c_velt.length > 0 && a_p_velt != null && a_p_velt.length == a_c_velt.length )) {
+			throw new IllegalArgumentException ("OEDisc2InitDefVoxCP.set_from_combo_values: Invalid combination arrays");
+		}
+
+		this.a_c_velt = a_c_velt.clone();
+		this.a_p_velt = a_p_velt.clone();
+
+		this.sep_c_velt = null;
+		this.sep_p_velt = null;
+		return this;
+	}
+
+
+
+
+	// Combine consecutive elements of an array into coarser elements.
+	// Parameters:
+	//  fine_velt = Array of elements, in increasing order.
+	//  factor = Number of consecutive elements to combine, must be >= 1.
+	//  f_log = True if the natural scale is logarithmic, false if linear.
+	// Returns an array of coarse elements.  Each coarse element spans the limits of the fine
+	// elements it combines, and its measure is the sum of their measures, so the coarse
+	// elements have the same total measure.  The value is the value of the middle fine
+	// element, or the midpoint (in the natural scale) of the two middle values if there
+	// is an even number of fine elements.  A group with only one element re-uses the fine element.
+
+	public static OEValueElement[] make_coarse_velt_array (OEValueElement[] fine_velt, int factor, boolean f_log) {
+		final int fine_count = fine_velt.length;
+		final int coarse_count = (fine_count + factor - 1) / factor;
+		final OEValueElement[] coarse_velt = new OEValueElement[coarse_count];
+
+		for (int k = 0; k < coarse_count; ++k) {
+			final int lo = k * factor;
+			final int hi = Math.min (lo + factor, fine_count);
+			final int n = hi - lo;
+
+			if (n == 1) {
+				coarse_velt[k] = fine_velt[lo];
+			} else {
+				double measure = 0.0;
+				for (int j = lo; j < hi; ++j) {
+					measure += fine_velt[j].get_ve_measure();
+				}
+
+				double value;
+				if (n % 2 == 1) {
+					value = fine_velt[lo + n/2].get_ve_value();
+				} else {
+					final double v1 = fine_velt[lo + n/2 - 1].get_ve_value();
+					final double v2 = fine_velt[lo + n/2].get_ve_value();
+					value = (f_log ? Math.sqrt (v1 * v2) : (0.5 * (v1 + v2)));
+				}
+
+				coarse_velt[k] = new OEValueElement (fine_velt[lo].get_ve_lower(), value, fine_velt[hi - 1].get_ve_upper(), measure);
+			}
+		}
+
+		return coarse_velt;
+	}
+
+
+
+
+	// Make a coarser combination definition, by combining consecutive values of c and of p.
+	// Parameters:
+	//  factor = Number of consecutive values of c, and of p, to combine, must be >= 1.
+	// Returns the coarse definition, which has separate ranges.
+	// Coarse separate index k contains the separate indexes k*factor through
+	// min((k+1)*factor, count) - 1 of this definition.
+	// This definition must have separate ranges.
+
+	public final OEDisc2InitDefVoxCP make_coarse (int factor) {
+		if (!( has_sep_ranges() )) {
+			throw new IllegalStateException ("OEDisc2InitDefVoxCP.make_coarse: Separate ranges are not available");
+		}
+		return (new OEDisc2InitDefVoxCP()).set_from_sep_values (
+			make_coarse_velt_array (sep_c_velt, factor, true),		// c has a logarithmic natural scale
+			make_coarse_velt_array (sep_p_velt, factor, false)		// p has a linear natural scale
+		);
+	}
+
+
+
+
 	//----- Testing -----
 
 
@@ -501,6 +501,26 @@ public class OEDisc2InitStatVox implements Comparable<OEDisc2InitStatVox> {
 
 
 
+	// Get the c value element for this voxel.
+	// Threading: Can be called simultaneously by multiple threads.
+
+	public final OEValueElement get_c_velt () {
+		return c_velt;
+	}
+
+
+
+
+	// Get the p value element for this voxel.
+	// Threading: Can be called simultaneously by multiple threads.
+
+	public final OEValueElement get_p_velt () {
+		return p_velt;
+	}
+
+
+
+
 	// Get the b-value for this voxel.
 	// Threading: Can be called simultaneously by multiple threads.
 
@@ -733,6 +753,36 @@ public class OEDisc2InitStatVox implements Comparable<OEDisc2InitStatVox> {
 
 
 
+	// Calculate the log of the total probability mass of the voxel.
+	// Parameters:
+	//  bay_weight = Bayesian prior weight, see OEConstants.BAY_WT_XXXX.
+	// The mass is the sum over sub-voxels of exp(log-density) times the Bayesian prior volume,
+	// which is the (unnormalized) probability of the voxel.
+	// Returns -infinity if every sub-voxel has log-density -infinity.
+	// Both Bayesian prior and log-likelihoods must have been computed.
+
+	public final double get_log_prob_mass (double bay_weight) {
+		final int subvox_count = get_subvox_count();
+		final double max_log_density = get_max_subvox_log_density (bay_weight);
+
+		// If no sub-voxel has positive density (for example, a prior piece that is zero
+		// throughout the voxel), the voxel is empty
+
+		if (!( max_log_density > Double.NEGATIVE_INFINITY )) {
+			return Double.NEGATIVE_INFINITY;
+		}
+
+		double sum = 0.0;
+		for (int j = 0; j < subvox_count; ++j) {
+			sum += (Math.exp (get_subvox_log_density (j, bay_weight) - max_log_density) * bay_vox_volume[j]);
+		}
+
+		return max_log_density + Math.log (sum);
+	}
+
+
+
+
 	// Calculate the maximum log-density over the sub-voxels.
 	// Parameters:
 	//  bay_weight = Bayesian prior weight, see OEConstants.BAY_WT_XXXX.
@@ -1,19 +1,26 @@
 package org.opensha.oaf.oetas.fit;
 
 import java.util.List;
+import java.util.Collection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.opensha.oaf.util.AutoCloseList;
 import org.opensha.oaf.util.AutoExecutorService;
 import org.opensha.oaf.util.InvariantViolationException;
 import org.opensha.oaf.util.SimpleExecTimer;
+import org.opensha.oaf.util.SimpleParallelHelper;
 import org.opensha.oaf.util.SimpleThreadLoopHelper;
 import org.opensha.oaf.util.SimpleThreadLoopResult;
 import org.opensha.oaf.util.SimpleThreadManager;
 import org.opensha.oaf.util.SimpleThreadTarget;
 import org.opensha.oaf.util.SimpleUtils;
 
+import org.opensha.oaf.oetas.OEConstants;
+
 import org.opensha.oaf.oetas.bay.OEBayFactory;
 import org.opensha.oaf.oetas.bay.OEBayFactoryParams;
 import org.opensha.oaf.oetas.bay.OEBayPrior;
@@ -344,6 +351,16 @@ public class OEDisc2InitVoxBuilder {
 		//  the_fitter = Parameter fitter.
 
 		public final void omat_build (OEDisc2ExtFit the_fitter) {
+			omat_build (the_fitter, (OEDisc2ExtFit.OmoriLogTable)null);
+			return;
+		}
+
+		// Build the omat object, assuming parameters are already set.
+		// Parameters:
+		//  the_fitter = Parameter fitter.
+		//  log_table = Table of logarithms for this value of c, or null if none.
+
+		public final void omat_build (OEDisc2ExtFit the_fitter, OEDisc2ExtFit.OmoriLogTable log_table) {
 
 			if (!( c_velt != null && p_velt != null )) {
 				throw new InvariantViolationException ("OEDisc2InitVoxBuilder.PartialVoxCP.omat_build: Parameters not yet.");
@@ -361,7 +378,7 @@ public class OEDisc2InitVoxBuilder {
 
 			// Build the handle
 
-			omat.omat_build (p, c);
+			omat.omat_build (p, c, log_table);
 			return;
 		}
 
@@ -372,13 +389,25 @@ public class OEDisc2InitVoxBuilder {
 		//  index = Index within def_vox.
 
 		public final void omat_build (OEDisc2ExtFit the_fitter, OEDisc2InitDefVoxCP def_vox, int index) {
+			omat_build (the_fitter, def_vox, index, null);
+			return;
+		}
+
+		// Build the omat object.
+		// Parameters:
+		//  the_fitter = Parameter fitter.
+		//  def_vox = (c, p) definitions.
+		//  index = Index within def_vox.
+		//  log_table = Table of logarithms for this value of c, or null if none.
+
+		public final void omat_build (OEDisc2ExtFit the_fitter, OEDisc2InitDefVoxCP def_vox, int index, OEDisc2ExtFit.OmoriLogTable log_table) {
 
 			// Get the parameters
 
 			c_velt = def_vox.get_c_velt (index);
 			p_velt = def_vox.get_p_velt (index);
 
-			omat_build (the_fitter);
+			omat_build (the_fitter, log_table);
 			return;
 		}
 
@@ -510,6 +539,385 @@ public class OEDisc2InitVoxBuilder {
 
 
 
+	//----- Shared memory budget -----
+
+
+
+
+	// Memory budget for all cached fitting data, in bytes.
+	// This one budget covers the tables retained in OEDisc2FitCache, the tables of
+	// logarithms built for this fit, and the cached partial voxels.  Memory already in
+	// use by the first two is subtracted before sizing the next, so together they stay
+	// within the budget (except that at least one (c, p) pair is always cached).
+	// A negative value selects the default, which is a fraction of the maximum heap size.
+
+	private long fit_mem_budget = -1L;
+
+	// Default budget, as a fraction of the maximum heap size.
+
+	public static final double DEF_FIT_MEM_BUDGET_FRACTION = 0.5;
+
+
+	// Set the memory budget for all cached fitting data, in bytes.
+	// Returns this object.
+
+	public final OEDisc2InitVoxBuilder set_fit_mem_budget (long fit_mem_budget) {
+		this.fit_mem_budget = fit_mem_budget;
+		return this;
+	}
+
+
+	// Get the memory budget for all cached fitting data, in bytes, or -1 if default.
+
+	public final long get_fit_mem_budget () {
+		return fit_mem_budget;
+	}
+
+
+	// Get the effective memory budget for all cached fitting data, in bytes.
+
+	private long get_effective_fit_mem_budget () {
+		if (fit_mem_budget >= 0L) {
+			return fit_mem_budget;
+		}
+		return (long)(((double)(Runtime.getRuntime().maxMemory())) * DEF_FIT_MEM_BUDGET_FRACTION);
+	}
+
+
+	// Memory used by the tables of logarithms built for this fit, in bytes.
+
+	private long omat_log_bytes = 0L;
+
+
+	// Get the memory currently charged against the shared budget, in bytes.
+	// This is the tables retained in OEDisc2FitCache plus the tables of logarithms built
+	// for this fit.  Once this fit's tables are retained in the cache, they are not counted twice.
+
+	private long get_fit_mem_in_use () {
+		long bytes = OEDisc2FitCache.get_total_bytes() + omat_log_bytes;
+		if (omat_log_bytes > 0L) {
+			bytes -= OEDisc2FitCache.get_entry_bytes (fit_cache_key, omat_log_tables);
+		}
+		return bytes;
+	}
+
+
+	// Get the memory remaining in the shared budget, in bytes.
+
+	private long get_fit_mem_avail () {
+		return Math.max (0L, get_effective_fit_mem_budget() - get_fit_mem_in_use());
+	}
+
+
+
+
+	//----- Omori log tables -----
+
+
+
+
+	// Memory budget for tables of logarithms of time differences, in bytes.
+	// All (c, p) pairs with the same value of c share one table, so each Omori matrix can be
+	// built with one exp per entry.  Tables are built for as many values of c as fit within
+	// the budget; (c, p) pairs for the remaining values of c are computed directly.
+	// The budget is further limited to what remains in the shared budget.
+	// A negative value selects the default, which is a fraction of the remaining shared budget.
+	// A value of zero disables the tables.
+
+	private long omat_log_budget = -1L;
+
+	// Default budget, as a fraction of the shared budget remaining when the tables are built.
+	// The rest of the shared budget is left for the partial voxels.
+
+	public static final double DEF_OMAT_LOG_BUDGET_FRACTION = 0.5;
+
+
+	// Set the memory budget for tables of logarithms, in bytes.
+	// Returns this object.
+
+	public final OEDisc2InitVoxBuilder set_omat_log_budget (long omat_log_budget) {
+		this.omat_log_budget = omat_log_budget;
+		return this;
+	}
+
+
+	// Get the memory budget for tables of logarithms, in bytes, or -1 if default.
+
+	public final long get_omat_log_budget () {
+		return omat_log_budget;
+	}
+
+
+	// Get the effective memory budget for tables of logarithms, in bytes.
+
+	private long get_effective_omat_log_budget () {
+		final long avail = get_fit_mem_avail();
+		if (omat_log_budget >= 0L) {
+			return Math.min (omat_log_budget, avail);
+		}
+		return (long)(((double)avail) * DEF_OMAT_LOG_BUDGET_FRACTION);
+	}
+
+
+	// Key identifying the sequence in OEDisc2FitCache, or null if the cache is not used.
+	// When set, tables retained from the prior fit of the same sequence are used to avoid
+	// recomputing rows whose times are unchanged, and the new tables are retained for the next fit.
+
+	private String fit_cache_key = null;
+
+
+	// Set the key identifying the sequence in OEDisc2FitCache, or null to not use the cache.
+	// Returns this object.
+
+	public final OEDisc2InitVoxBuilder set_fit_cache_key (String fit_cache_key) {
+		this.fit_cache_key = fit_cache_key;
+		return this;
+	}
+
+
+	// Get the key identifying the sequence in OEDisc2FitCache, or null if the cache is not used.
+
+	public final String get_fit_cache_key () {
+		return fit_cache_key;
+	}
+
+
+	// Tables of logarithms, indexed by (c, p) combination index, or null if no tables.
+	// Combinations with the same value of c share a table.
+	// An element is null if no table was built for that value of c.
+
+	private OEDisc2ExtFit.OmoriLogTable[] omat_log_tables = null;
+
+	// Order in which to visit the (c, p) combination indexes, so that combinations with the
+	// same value of c are adjacent, or null to visit them in index order.
+
+	private int[] c_major_order = null;
+
+
+	// Build the tables of logarithms, within the memory budget.
+	// Parameters:
+	//  exec_timer = Execution timer, provides executor.
+	// Tables are only built for values of c that appear with more than one value of p.
+
+	private void build_omat_log_tables (SimpleExecTimer exec_timer) {
+		omat_log_tables = null;
+		omat_log_bytes = 0L;
+		c_major_order = null;
+
+		// Sort the combinations by c, then by p
+
+		final int combo_count = c_p_def.get_combo_count();
+		final Integer[] order = new Integer[combo_count];
+		for (int j = 0; j < combo_count; ++j) {
+			order[j] = j;
+		}
+
+		Arrays.sort (order, new Comparator<Integer>() {
+			@Override
+			public int compare (Integer x, Integer y) {
+				int cmp = Double.compare (c_p_def.get_c_value (x), c_p_def.get_c_value (y));
+				if (cmp == 0) {
+					cmp = Double.compare (c_p_def.get_p_value (x), c_p_def.get_p_value (y));
+				}
+				return cmp;
+			}
+		});
+
+		c_major_order = new int[combo_count];
+		for (int j = 0; j < combo_count; ++j) {
+			c_major_order[j] = order[j];
+		}
+
+		// Find groups of combinations with the same value of c, that contain more than one combination
+
+		final ArrayList<Integer> group_begin = new ArrayList<Integer>();
+		final ArrayList<Integer> group_end = new ArrayList<Integer>();
+
+		for (int lo = 0; lo < combo_count; ) {
+			final double c = c_p_def.get_c_value (c_major_order[lo]);
+			int hi = lo + 1;
+			while (hi < combo_count && c_p_def.get_c_value (c_major_order[hi]) == c) {
+				++hi;
+			}
+			if (hi - lo > 1) {
+				group_begin.add (lo);
+				group_end.add (hi);
+			}
+			lo = hi;
+		}
+
+		final int group_count = group_begin.size();
+		if (group_count == 0) {
+			return;
+		}
+
+		// Number of tables that fit in the budget
+
+		final long table_bytes = Math.max (1L, fitter.get_omori_log_table_bytes());
+		final int table_count = (int)Math.min ((long)group_count, get_effective_omat_log_budget() / table_bytes);
+
+		System.out.println (
+			"Caching Omori logarithms for "
+			+ table_count
+			+ " of "
+			+ group_count
+			+ " values of c, using "
+			+ ((((long)table_count) * table_bytes) / 1048576L)
+			+ " M"
+		);
+
+		if (table_count <= 0) {
+			return;
+		}
+
+		// Build the tables in parallel, re-using rows from the prior fit if available
+
+		final OEDisc2ExtFit.OmoriLogTable[] tables = new OEDisc2ExtFit.OmoriLogTable[table_count];
+		final String key = fit_cache_key;
+
+		SimpleParallelHelper.parallel_for (0, table_count, new SimpleParallelHelper.LoopBody() {
+			@Override
+			public void run_iteration (int group) {
+				final double c = c_p_def.get_c_value (c_major_order[group_begin.get (group)]);
+				tables[group] = fitter.make_OmoriLogTable (c, OEDisc2FitCache.get_prior_table (key, c));
+			}
+		}, exec_timer.get_executor());
+
+		// Assign the tables to combinations
+
+		omat_log_tables = new OEDisc2ExtFit.OmoriLogTable[combo_count];
+		for (int group = 0; group < table_count; ++group) {
+			for (int k = group_begin.get (group); k < group_end.get (group); ++k) {
+				omat_log_tables[c_major_order[k]] = tables[group];
+			}
+			omat_log_bytes += tables[group].get_table_bytes();
+		}
+
+		// Retain the tables for the next fit
+
+		if (key != null) {
+			int reused_row_count = 0;
+			int built_row_count = 0;
+			for (int group = 0; group < table_count; ++group) {
+				reused_row_count += tables[group].get_reused_row_count();
+				built_row_count += tables[group].get_built_row_count();
+			}
+			System.out.println ("Re-used " + reused_row_count + " and computed " + built_row_count + " rows of Omori logarithms");
+
+			OEDisc2FitCache.put_tables (key, tables);
+			System.out.println (OEDisc2FitCache.summary_string());
+		}
+
+		return;
+	}
+
+
+	// Get the table of logarithms for a (c, p) pair, or null if none.
+	// Parameters:
+	//  combo_index = Index of the (c, p) pair within c_p_def.
+
+	private OEDisc2ExtFit.OmoriLogTable get_omat_log_table (int combo_index) {
+		if (omat_log_tables == null) {
+			return null;
+		}
+		return omat_log_tables[combo_index];
+	}
+
+
+	// Convert a loop index to a (c, p) combination index, so that successive loop
+	// indexes run over all values of p for each value of c.  This lets the threads
+	// share the table of logarithms for one value of c while it is in use.
+	// Parameters:
+	//  loop_index = Loop index, 0 <= loop_index < c_p_def.get_combo_count().
+
+	private int c_major_combo_index (int loop_index) {
+		if (c_major_order == null) {
+			return loop_index;
+		}
+		return c_major_order[loop_index];
+	}
+
+
+
+
+	//----- Memory budget for partial voxels -----
+
+
+
+
+	// Memory budget for cached partial voxels, in bytes.
+	// When likelihoods are calculated per (b, alpha, c, p) quadruple or per (b, alpha, c, p, n)
+	// quintuple, the Omori matrices (and, for quintuples, the magnitude-Omori pairs) are
+	// cached for a tile of (c, p) pairs at a time, with the tile sized to fit within the budget.
+	// Tiles follow the order of c_major_combo_index, so a tile covers runs of equal c.
+	// The budget is further limited to what remains in the shared budget.
+	// A negative value selects the default, which is all of the remaining shared budget.
+
+	private long pvox_budget = -1L;
+
+
+	// Set the memory budget for cached partial voxels, in bytes.
+	// Returns this object.
+
+	public final OEDisc2InitVoxBuilder set_pvox_budget (long pvox_budget) {
+		this.pvox_budget = pvox_budget;
+		return this;
+	}
+
+
+	// Get the memory budget for cached partial voxels, in bytes, or -1 if default.
+
+	public final long get_pvox_budget () {
+		return pvox_budget;
+	}
+
+
+	// Get the effective memory budget for cached partial voxels, in bytes.
+
+	private long get_effective_pvox_budget () {
+		final long avail = get_fit_mem_avail();
+		if (pvox_budget >= 0L) {
+			return Math.min (pvox_budget, avail);
+		}
+		return avail;
+	}
+
+
+	// Get the memory used by the cached (b, alpha) partial voxels, in bytes.
+
+	private long get_b_alpha_cache_bytes () {
+		return ((long)(b_alpha_def.get_combo_count())) * fitter.get_mag_exponent_bytes();
+	}
+
+
+	// Get the memory used by the cached partial voxels for one (c, p) pair, in bytes.
+	// Parameters:
+	//  f_pmom = True if the magnitude-Omori pairs are cached along with the Omori matrix.
+
+	private long get_c_p_cache_bytes (boolean f_pmom) {
+		long bytes = fitter.get_omori_matrix_bytes();
+		if (f_pmom) {
+			bytes += ((long)(b_alpha_def.get_combo_count())) * fitter.get_pair_mag_omori_bytes();
+		}
+		return bytes;
+	}
+
+
+	// Get the number of (c, p) pairs to cache at one time.
+	// Parameters:
+	//  f_pmom = True if the magnitude-Omori pairs are cached along with the Omori matrix.
+	// The result is at least 1 (even if one pair exceeds the budget), and at most the number of (c, p) pairs.
+
+	private int get_c_p_tile_size (boolean f_pmom) {
+		final int c_p_count = c_p_def.get_combo_count();
+		final long avail = get_effective_pvox_budget() - get_b_alpha_cache_bytes();
+		final long per_pair = Math.max (1L, get_c_p_cache_bytes (f_pmom));
+		return (int)Math.max (1L, Math.min ((long)c_p_count, avail / per_pair));
+	}
+
+
+
+
 	//----- Result info -----
 
 
@@ -677,6 +1085,10 @@ public class OEDisc2InitVoxBuilder {
 
 		private List<PartialVoxCP> l_pvox_c_p;
 
+		// Loop index of the first (c, p) pair in the list.
+
+		private int tile_begin;
+
 		// Entry point for a thread.
 		// Parameters:
 		//  thread_manager = The thread manager.
@@ -692,9 +1104,9 @@ public class OEDisc2InitVoxBuilder {
 
 			for (int index = loop_helper.get_loop_index(); index >= 0; index = loop_helper.get_next_index()) {
 
-				// Build the omat object
+				// Build the omat object, taking (c, p) pairs grouped by c
 
-				l_pvox_c_p.get(index).omat_build (fitter);
+				l_pvox_c_p.get(index).omat_build (fitter, get_omat_log_table (c_major_combo_index (tile_begin + index)));
 			}
 
 			return;
@@ -706,6 +1118,20 @@ public class OEDisc2InitVoxBuilder {
 		//  auto_l_pvox_c_p = An empty list, that we will fill with allocated and built partial voxels for (c, p) pairs.
 
 		public void build_omat_list (SimpleExecTimer exec_timer, AutoCloseList<PartialVoxCP> auto_l_pvox_c_p) throws OEException {
+			build_omat_list (exec_timer, auto_l_pvox_c_p, 0, c_p_def.get_combo_count());
+			return;
+		}
+
+		// Build the list of partial voxels for a tile of (c, p) pairs.
+		// Parameters:
+		//  exec_timer = Execution timer, provides executor, time limit, and progress message interval.
+		//  auto_l_pvox_c_p = An empty list, that we will fill with allocated and built partial voxels for (c, p) pairs.
+		//  the_tile_begin = Loop index of the first (c, p) pair in the tile, inclusive.
+		//  the_tile_end = Loop index of the last (c, p) pair in the tile, exclusive.
+		// Loop indexes are converted to (c, p) combination indexes with c_major_combo_index,
+		// and element j of the list is the (c, p) pair with loop index the_tile_begin + j.
+
+		public void build_omat_list (SimpleExecTimer exec_timer, AutoCloseList<PartialVoxCP> auto_l_pvox_c_p, int the_tile_begin, int the_tile_end) throws OEException {
 
 			// Say hello
 
@@ -713,10 +1139,11 @@ public class OEDisc2InitVoxBuilder {
 
 			// Create the partial voxels
 
-			int c_p_count = c_p_def.get_combo_count();
+			int c_p_count = the_tile_end - the_tile_begin;
+			tile_begin = the_tile_begin;
 
 			for (int j = 0; j < c_p_count; ++j) {
-				auto_l_pvox_c_p.add (new PartialVoxCP (c_p_def, j));
+				auto_l_pvox_c_p.add (new PartialVoxCP (c_p_def, c_major_combo_index (tile_begin + j)));
 			}
 
 			// Pass read-only list to the threads
@@ -972,11 +1399,12 @@ public class OEDisc2InitVoxBuilder {
 
 				// Loop until loop completed or prompt termination is requested
 
-				for (int index = loop_helper.get_loop_index(); index >= 0; index = loop_helper.get_next_index()) {
+				for (int loop_index = loop_helper.get_loop_index(); loop_index >= 0; loop_index = loop_helper.get_next_index()) {
 
-					// Build the Omori matrix data structures
+					// Build the Omori matrix data structures, taking (c, p) pairs grouped by c
 
-					pvox_c_p.omat_build (fitter, c_p_def, index) ;
+					final int index = c_major_combo_index (loop_index);
+					pvox_c_p.omat_build (fitter, c_p_def, index, get_omat_log_table (index));
 
 					// Loop over partial voxels for (b, alpha) pairs ...
 
@@ -1038,6 +1466,12 @@ public class OEDisc2InitVoxBuilder {
 
 				l_pvox_b_alpha = auto_l_pvox_b_alpha.get_read_only_view();
 
+				// Each thread holds partial voxels for one (c, p) pair at a time
+
+				final int num_threads = exec_timer.get_executor().get_num_threads();
+				loop_result.add_peak_cache_bytes (get_fit_mem_in_use() + get_b_alpha_cache_bytes()
+					+ ((long)(Math.max (1, num_threads))) * (get_c_p_cache_bytes (false) + fitter.get_pair_mag_omori_bytes()));
+
 				// Say hello
 
 				System.out.println ("Start calculating likelihoods for (c, p) pairs");
@@ -1198,7 +1632,6 @@ public class OEDisc2InitVoxBuilder {
 
 			try (
 				AutoCloseList<PartialVoxBAlpha> auto_l_pvox_b_alpha = new AutoCloseList<PartialVoxBAlpha>();
-				AutoCloseList<PartialVoxCP> auto_l_pvox_c_p = new AutoCloseList<PartialVoxCP>();
 			) {
 
 				// Cache the list of mexp objects, one for each (b, alpha) pair
@@ -1209,29 +1642,52 @@ public class OEDisc2InitVoxBuilder {
 
 				l_pvox_b_alpha = auto_l_pvox_b_alpha.get_read_only_view();
 
-				// Cache the list of omat objects, one for each (c, p) pair
+				// Size the tiles of (c, p) pairs to fit in the memory budget
 
-				(new TM_omat_list_builder()).build_omat_list (exec_timer, auto_l_pvox_c_p);
+				final int c_p_count = c_p_def.get_combo_count();
+				final int tile_size = get_c_p_tile_size (false);
+				loop_result.add_peak_cache_bytes (get_fit_mem_in_use() + get_b_alpha_cache_bytes() + ((long)tile_size) * get_c_p_cache_bytes (false));
 
-				// Pass read-only list to the threads
+				// Loop over tiles
 
-				l_pvox_c_p = auto_l_pvox_c_p.get_read_only_view();
+				for (int tile_begin = 0; tile_begin < c_p_count; tile_begin += tile_size) {
+					final int tile_end = Math.min (tile_begin + tile_size, c_p_count);
 
-				// Say hello
+					try (
+						AutoCloseList<PartialVoxCP> auto_l_pvox_c_p = new AutoCloseList<PartialVoxCP>();
+					) {
 
-				System.out.println ("Start calculating likelihoods for (b, alpha, c, p) quadruples");
+						// Cache the list of omat objects, one for each (c, p) pair in the tile
 
-				// The number of (b, alpha, c, p) quadruples
+						(new TM_omat_list_builder()).build_omat_list (exec_timer, auto_l_pvox_c_p, tile_begin, tile_end);
 
-				final int quad_count = b_alpha_def.get_combo_count() * c_p_def.get_combo_count();
+						// Pass read-only list to the threads
 
-				// Run the loop
+						l_pvox_c_p = auto_l_pvox_c_p.get_read_only_view();
 
-				loop_helper.run_loop (this, exec_timer, 0, quad_count);
+						// Say hello
 
-				// Capture the result
+						System.out.println ("Start calculating likelihoods for (b, alpha, c, p) quadruples, for (c, p) pairs " + tile_begin + " to " + (tile_end - 1) + " of " + c_p_count);
 
-				loop_result.accum_loop (loop_helper);
+						// The number of (b, alpha, c, p) quadruples in the tile
+
+						final int quad_count = b_alpha_def.get_combo_count() * (tile_end - tile_begin);
+
+						// Run the loop
+
+						loop_helper.run_loop (this, exec_timer, 0, quad_count);
+
+						// Capture the result
+
+						loop_result.accum_loop (loop_helper);
+					}
+
+					// Stop if the tile did not complete
+
+					if (loop_helper.is_abort() || loop_helper.is_incomplete()) {
+						break;
+					}
+				}
 
 			}
 
@@ -1360,8 +1816,6 @@ public class OEDisc2InitVoxBuilder {
 
 			try (
 				AutoCloseList<PartialVoxBAlpha> auto_l_pvox_b_alpha = new AutoCloseList<PartialVoxBAlpha>();
-				AutoCloseList<PartialVoxCP> auto_l_pvox_c_p = new AutoCloseList<PartialVoxCP>();
-				AutoCloseList<PartialVoxQuad> auto_l_pvox_quad = new AutoCloseList<PartialVoxQuad>();
 			) {
 
 				// Cache the list of mexp objects, one for each (b, alpha) pair
@@ -1372,37 +1826,61 @@ public class OEDisc2InitVoxBuilder {
 
 				final List<PartialVoxBAlpha> l_pvox_b_alpha = auto_l_pvox_b_alpha.get_read_only_view();
 
-				// Cache the list of omat objects, one for each (c, p) pair
+				// Size the tiles of (c, p) pairs to fit in the memory budget
 
-				(new TM_omat_list_builder()).build_omat_list (exec_timer, auto_l_pvox_c_p);
+				final int c_p_count = c_p_def.get_combo_count();
+				final int tile_size = get_c_p_tile_size (true);
+				loop_result.add_peak_cache_bytes (get_fit_mem_in_use() + get_b_alpha_cache_bytes() + ((long)tile_size) * get_c_p_cache_bytes (true));
 
-				// Read-only list
+				// Loop over tiles
 
-				final List<PartialVoxCP> l_pvox_c_p = auto_l_pvox_c_p.get_read_only_view();
+				for (int tile_begin = 0; tile_begin < c_p_count; tile_begin += tile_size) {
+					final int tile_end = Math.min (tile_begin + tile_size, c_p_count);
 
-				// Cache the list of pmom objects, one for each (b, alpha, c, p) quadruple
+					try (
+						AutoCloseList<PartialVoxCP> auto_l_pvox_c_p = new AutoCloseList<PartialVoxCP>();
+						AutoCloseList<PartialVoxQuad> auto_l_pvox_quad = new AutoCloseList<PartialVoxQuad>();
+					) {
 
-				(new TM_pmom_list_builder()).build_pmom_list (exec_timer, l_pvox_b_alpha, l_pvox_c_p, auto_l_pvox_quad);
+						// Cache the list of omat objects, one for each (c, p) pair in the tile
 
-				// Pass read-only list to the threads
+						(new TM_omat_list_builder()).build_omat_list (exec_timer, auto_l_pvox_c_p, tile_begin, tile_end);
 
-				l_pvox_quad = auto_l_pvox_quad.get_read_only_view();
+						// Read-only list
 
-				// Say hello
+						final List<PartialVoxCP> l_pvox_c_p = auto_l_pvox_c_p.get_read_only_view();
 
-				System.out.println ("Start calculating likelihoods for (b, alpha, c, p, n) quintuples");
+						// Cache the list of pmom objects, one for each (b, alpha, c, p) quadruple in the tile
 
-				// The number of (b, alpha, c, p, n) quintuples
+						(new TM_pmom_list_builder()).build_pmom_list (exec_timer, l_pvox_b_alpha, l_pvox_c_p, auto_l_pvox_quad);
 
-				final int quint_count = b_alpha_def.get_combo_count() * c_p_def.get_combo_count() * n_def.get_combo_count();
+						// Pass read-only list to the threads
 
-				// Run the loop
+						l_pvox_quad = auto_l_pvox_quad.get_read_only_view();
 
-				loop_helper.run_loop (this, exec_timer, 0, quint_count);
+						// Say hello
 
-				// Capture the result
+						System.out.println ("Start calculating likelihoods for (b, alpha, c, p, n) quintuples, for (c, p) pairs " + tile_begin + " to " + (tile_end - 1) + " of " + c_p_count);
 
-				loop_result.accum_loop (loop_helper);
+						// The number of (b, alpha, c, p, n) quintuples in the tile
+
+						final int quint_count = auto_l_pvox_quad.size() * n_def.get_combo_count();
+
+						// Run the loop
+
+						loop_helper.run_loop (this, exec_timer, 0, quint_count);
+
+						// Capture the result
+
+						loop_result.accum_loop (loop_helper);
+					}
+
+					// Stop if the tile did not complete
+
+					if (loop_helper.is_abort() || loop_helper.is_incomplete()) {
+						break;
+					}
+				}
 
 			}
 
@@ -1452,13 +1930,282 @@ public class OEDisc2InitVoxBuilder {
 
 
 
-	// Build the list of voxels.
+	// Run the likelihood calculation for the current grid, delivering voxels to the current consumer.
 	// Parameters:
 	//  exec_timer = Execution timer, provides executor, time limit, and progress message interval.
-	// Before calling, must set up the shared objects and the grid parameters.
 	// Implementation note: Selects one of the three threading strategies above,
 	// depending on the structure of the grid.
 
+	private void run_strategy (SimpleExecTimer exec_timer) throws OEException {
+
+		// Get the number of threads, or 0 if no fixed limit
+
+		final int num_threads = exec_timer.get_executor().get_num_threads();
+
+		// The number of (c, p) pairs
+
+		final int c_p_count = c_p_def.get_combo_count();
+
+		// The number of (b, alpha, c, p) quadruples
+
+		final int quad_count = b_alpha_def.get_combo_count() * c_p_def.get_combo_count();
+
+		// Build the tables of logarithms shared by (c, p) pairs with the same c
+
+		build_omat_log_tables (exec_timer);
+
+		try {
+
+			// If there are enough (c, p) pairs to occupy all threads, use thread loop iteration per (c, p) pair
+			// (This also handles the case of no fixed limit on number of threads)
+
+			if (num_threads <= c_p_count) {
+				(new TM_omat_like_calc()).omat_calc_like (exec_timer);
+			}
+
+			// Otherwise, if there are enough (b, alpha, c, p) quadruples to occupy all threads, use thread loop iteration per (b, alpha, c, p) quadruple
+
+			else if (num_threads <= quad_count) {
+				(new TM_pmom_like_calc()).pmom_calc_like (exec_timer);
+			}
+
+			// Otherwise, use thread loop iteration per (b, alpha, c, p, n) quintuple
+
+			else {
+				(new TM_avpr_like_calc()).avpr_calc_like (exec_timer);
+			}
+
+		} finally {
+			omat_log_tables = null;
+			omat_log_bytes = 0L;
+			c_major_order = null;
+		}
+
+		return;
+	}
+
+
+
+
+	// Consumer that collects voxels into a list, for the adaptive grid.
+
+	private static class VoxCollector implements OEDisc2InitVoxConsumer {
+
+		// The collected voxels.
+
+		public final ArrayList<OEDisc2InitStatVox> voxels = new ArrayList<OEDisc2InitStatVox>();
+
+		@Override
+		public void begin_voxel_consume (OEDisc2InitFitInfo fit_info, double b_scaling) {
+			return;
+		}
+
+		@Override
+		public void end_voxel_consume () {
+			return;
+		}
+
+		@Override
+		public synchronized void add_voxels (Collection<OEDisc2InitStatVox> the_voxels) {
+			voxels.addAll (the_voxels);
+			return;
+		}
+	}
+
+
+
+
+	// Build the list of voxels using the adaptive (c, p) grid.
+	// Parameters:
+	//  exec_timer = Execution timer, provides executor, time limit, and progress message interval.
+	//  factor = Refinement factor, must be > 1.
+	//  threshold = Refinement threshold, as a fraction of the total probability.
+	// The first pass evaluates a coarse grid, in which each (c, p) cell combines up to
+	// factor^2 cells of the full grid.  Each coarse cell whose probability, summed over
+	// (b, alpha, n) and the sub-voxels, is at least threshold times the total is then
+	// replaced by the full-grid cells it contains, which are evaluated in a second pass.
+	// Coarse cells below the threshold are kept as-is, so the voxels still cover the
+	// entire parameter space.  The decision uses the Bayesian prior weight.
+	// Each pass retains its tables of logarithms in OEDisc2FitCache under its own key,
+	// so the refined pass does not replace the tables from the coarse pass.
+
+	private void build_voxels_adaptive (SimpleExecTimer exec_timer, int factor, double threshold) throws OEException {
+		final OEDisc2InitDefVoxCP fine_def = c_p_def;
+		final OEDisc2InitVoxConsumer final_consumer = voxel_consumer;
+		final String base_cache_key = fit_cache_key;
+
+		try {
+
+			// First pass, on the coarse grid
+
+			final OEDisc2InitDefVoxCP coarse_def = fine_def.make_coarse (factor);
+			final int coarse_c_count = coarse_def.get_sep_c_count();
+			final int coarse_p_count = coarse_def.get_sep_p_count();
+
+			System.out.println (
+				"Adaptive grid: evaluating "
+				+ coarse_def.get_combo_count()
+				+ " coarse (c, p) cells, for "
+				+ fine_def.get_combo_count()
+				+ " (c, p) pairs in the full grid"
+			);
+
+			final VoxCollector coarse_collector = new VoxCollector();
+			c_p_def = coarse_def;
+			voxel_consumer = coarse_collector;
+			fit_cache_key = adaptive_cache_key (base_cache_key, "coarse", factor);
+			run_strategy (exec_timer);
+
+			// Map each coarse element to its separate index
+
+			final IdentityHashMap<OEValueElement, Integer> c_index_map = new IdentityHashMap<OEValueElement, Integer>();
+			for (int cix = 0; cix < coarse_c_count; ++cix) {
+				c_index_map.put (coarse_def.get_sep_c_velt (cix), cix);
+			}
+			final IdentityHashMap<OEValueElement, Integer> p_index_map = new IdentityHashMap<OEValueElement, Integer>();
+			for (int pix = 0; pix < coarse_p_count; ++pix) {
+				p_index_map.put (coarse_def.get_sep_p_velt (pix), pix);
+			}
+
+			// Get the log probability mass of each voxel, and the coarse cell it belongs to
+
+			final int coarse_vox_count = coarse_collector.voxels.size();
+			final double[] vox_log_mass = new double[coarse_vox_count];
+			final int[] vox_cell = new int[coarse_vox_count];
+			double max_log_mass = Double.NEGATIVE_INFINITY;
+
+			for (int j = 0; j < coarse_vox_count; ++j) {
+				final OEDisc2InitStatVox voxel = coarse_collector.voxels.get (j);
+				vox_log_mass[j] = voxel.get_log_prob_mass (OEConstants.BAY_WT_BAYESIAN);
+				vox_cell[j] = coarse_def.get_combo_index (c_index_map.get (voxel.get_c_velt()), p_index_map.get (voxel.get_p_velt()));
+				if (Double.isFinite (vox_log_mass[j])) {
+					max_log_mass = Math.max (max_log_mass, vox_log_mass[j]);
+				}
+			}
+
+			// Sum the probability in each coarse cell, relative to the maximum
+			// (Empty voxels, with log mass -infinity, and any non-finite masses are skipped;
+			// if every voxel is empty then total_mass is zero and every cell is refined)
+
+			final double[] cell_mass = new double[coarse_def.get_combo_count()];
+			double total_mass = 0.0;
+			for (int j = 0; j < coarse_vox_count; ++j) {
+				if (!( Double.isFinite (vox_log_mass[j]) )) {
+					continue;
+				}
+				final double mass = Math.exp (vox_log_mass[j] - max_log_mass);
+				cell_mass[vox_cell[j]] += mass;
+				total_mass += mass;
+			}
+
+			// Select the cells to refine, and make the list of fine (c, p) pairs they contain
+
+			final boolean[] f_refine = new boolean[cell_mass.length];
+			final ArrayList<OEValueElement> refine_c_velt = new ArrayList<OEValueElement>();
+			final ArrayList<OEValueElement> refine_p_velt = new ArrayList<OEValueElement>();
+			int refine_cell_count = 0;
+
+			for (int cix = 0; cix < coarse_c_count; ++cix) {
+				for (int pix = 0; pix < coarse_p_count; ++pix) {
+					final int cell = coarse_def.get_combo_index (cix, pix);
+					if (!( cell_mass[cell] >= threshold * total_mass )) {
+						continue;
+					}
+					f_refine[cell] = true;
+					++refine_cell_count;
+
+					final int fine_cix_end = Math.min ((cix + 1) * factor, fine_def.get_sep_c_count());
+					final int fine_pix_end = Math.min ((pix + 1) * factor, fine_def.get_sep_p_count());
+					for (int fine_cix = cix * factor; fine_cix < fine_cix_end; ++fine_cix) {
+						for (int fine_pix = pix * factor; fine_pix < fine_pix_end; ++fine_pix) {
+							refine_c_velt.add (fine_def.get_sep_c_velt (fine_cix));
+							refine_p_velt.add (fine_def.get_sep_p_velt (fine_pix));
+						}
+					}
+				}
+			}
+
+			System.out.println (
+				"Adaptive grid: refining "
+				+ refine_cell_count
+				+ " of "
+				+ cell_mass.length
+				+ " coarse cells, into "
+				+ refine_c_velt.size()
+				+ " (c, p) pairs"
+			);
+
+			// Second pass, on the refined (c, p) pairs
+
+			final VoxCollector fine_collector = new VoxCollector();
+			if (refine_c_velt.size() > 0) {
+				c_p_def = (new OEDisc2InitDefVoxCP()).set_from_combo_values (
+					refine_c_velt.toArray (new OEValueElement[0]),
+					refine_p_velt.toArray (new OEValueElement[0])
+				);
+				voxel_consumer = fine_collector;
+				fit_cache_key = adaptive_cache_key (base_cache_key, "refined", factor);
+				run_strategy (exec_timer);
+			}
+
+			// Deliver the unrefined coarse voxels and the fine voxels to the consumer
+
+			final ArrayList<OEDisc2InitStatVox> kept_voxels = new ArrayList<OEDisc2InitStatVox>();
+			for (int j = 0; j < coarse_vox_count; ++j) {
+				if (!( f_refine[vox_cell[j]] )) {
+					kept_voxels.add (coarse_collector.voxels.get (j));
+				}
+			}
+
+			final_consumer.begin_voxel_consume (fit_info, b_alpha_def.get_b_scaling());
+			final_consumer.add_voxels (kept_voxels);
+			final_consumer.add_voxels (fine_collector.voxels);
+			final_consumer.end_voxel_consume();
+
+			System.out.println (
+				"Adaptive grid: kept "
+				+ kept_voxels.size()
+				+ " coarse voxels and "
+				+ fine_collector.voxels.size()
+				+ " fine voxels"
+			);
+
+		} finally {
+			c_p_def = fine_def;
+			voxel_consumer = final_consumer;
+			fit_cache_key = base_cache_key;
+		}
+
+		return;
+	}
+
+
+
+
+	// Make the OEDisc2FitCache key for one pass of the adaptive grid.
+	// Parameters:
+	//  base_key = Key for the sequence, or null if the cache is not used.
+	//  pass_name = Name of the pass.
+	//  factor = Refinement factor.
+	// Returns null if base_key is null.
+
+	private static String adaptive_cache_key (String base_key, String pass_name, int factor) {
+		if (base_key == null) {
+			return null;
+		}
+		return base_key + "|adaptive:" + pass_name + ":" + factor;
+	}
+
+
+
+
+	// Build the list of voxels.
+	// Parameters:
+	//  exec_timer = Execution timer, provides executor, time limit, and progress message interval.
+	// Before calling, must set up the shared objects and the grid parameters.
+	// If the grid options select the adaptive grid, and the (c, p) grid has separate
+	// ranges, the voxels are built on the adaptive grid; otherwise on the full grid.
+
 	public void build_voxels (SimpleExecTimer exec_timer) throws OEException {
 
 		// Get the number of threads, or 0 if no fixed limit
@@ -1480,39 +2227,398 @@ public class OEDisc2InitVoxBuilder {
 			+ ((max_runtime < 0L) ? ("unlimited runtime") : (((max_runtime + 500L) / 1000L) + " seconds maximum runtime"))
 		);
 
-		// The number of (c, p) pairs
+		// Use the adaptive grid if selected
 
-		final int c_p_count = c_p_def.get_combo_count();
+		final OEGridOptions grid_options = fitter.get_grid_options();
+		if (grid_options != null && grid_options.use_adaptive_grid() && c_p_def.has_sep_ranges()) {
+			build_voxels_adaptive (exec_timer, grid_options.get_adaptive_factor(), grid_options.get_adaptive_threshold());
+		}
 
-		// The number of (b, alpha, c, p) quadruples
+		// Otherwise, the full grid
 
-		final int quad_count = b_alpha_def.get_combo_count() * c_p_def.get_combo_count();
+		else {
+			run_strategy (exec_timer);
+		}
+
+		return;
+	}
+
+
+
+
+	//----- Direct MLE search -----
+
+
+
+
+	// Result of a direct search for the maximum log-density.
 
-		// If there are enough (c, p) pairs to occupy all threads, use thread loop iteration per (c, p) pair
-		// (This also handles the case of no fixed limit on number of threads)
+	public static class DirectMle {
 
-		if (num_threads <= c_p_count) {
-			(new TM_omat_like_calc()).omat_calc_like (exec_timer);
+		// The Bayesian prior weight used for the search.
+
+		public double bay_weight = 0.0;
+
+		// The grid point at the maximum.
+
+		public OEGridPoint grid_point = new OEGridPoint();
+
+		// The log-density at the maximum.
+
+		public double log_density = Double.NEGATIVE_INFINITY;
+
+		// The number of times the log-density was evaluated.
+
+		public int eval_count = 0;
+
+		// The number of times the Omori matrix was built.
+
+		public int omat_count = 0;
+
+		// Display our contents.
+
+		@Override
+		public String toString() {
+			StringBuilder result = new StringBuilder();
+
+			result.append ("OEDisc2InitVoxBuilder.DirectMle:" + "\n");
+			result.append ("bay_weight = " + bay_weight + "\n");
+			result.append ("grid_point = " + grid_point.toString() + "\n");
+			result.append ("log_density = " + log_density + "\n");
+			result.append ("eval_count = " + eval_count + "\n");
+			result.append ("omat_count = " + omat_count + "\n");
+
+			return result.toString();
+		}
+	}
+
+
+
+
+	// Indexes of the search coordinates.
+
+	private static final int DMS_B = 0;
+	private static final int DMS_ALPHA = 1;
+	private static final int DMS_C = 2;		// log10(c)
+	private static final int DMS_P = 3;
+	private static final int DMS_N = 4;
+	private static final int DMS_ZAMS = 5;
+	private static final int DMS_ZMU = 6;
+	private static final int DMS_COUNT = 7;
+
+	// Final step size, as a fraction of the grid spacing.
+
+	private static final double DMS_STEP_FRACTION = 1.0 / 16.0;
+
+
+
+
+	// Evaluator for the log-density at a single parameter point.
+	// It holds one set of handles, and rebuilds the Omori matrix only when c or p changes,
+	// and the magnitude exponents only when b or alpha changes.
+
+	private class DirectMleEval implements AutoCloseable {
+
+		// Bayesian prior weight.
+
+		private double bay_weight;
+
+		// True if alpha is a separate parameter, false to force alpha == b.
+
+		private boolean f_alpha;
+
+		// True if zmu is a parameter.
+
+		private boolean f_zmu;
+
+		// The handles.
+
+		private OEDisc2ExtFit.MagExponentHandle mexp = null;
+		private OEDisc2ExtFit.OmoriMatrixHandle omat = null;
+		private OEDisc2ExtFit.PairMagOmoriHandle pmom = null;
+		private OEDisc2ExtFit.AValueProdHandle avpr = null;
+
+		// Parameters the handles were last built for.
+
+		private double last_b = Double.NaN;
+		private double last_alpha = Double.NaN;
+		private double last_c = Double.NaN;
+		private double last_p = Double.NaN;
+
+		// The result being accumulated.
+
+		public final DirectMle result = new DirectMle();
+
+		// Constructor.
+
+		public DirectMleEval (double bay_weight, boolean f_alpha, boolean f_zmu) {
+			this.bay_weight = bay_weight;
+			this.f_alpha = f_alpha;
+			this.f_zmu = f_zmu;
+			result.bay_weight = bay_weight;
+			mexp = fitter.make_MagExponentHandle();
+			omat = fitter.make_OmoriMatrixHandle();
+			pmom = fitter.make_PairMagOmoriHandle();
+			avpr = fitter.make_AValueProdHandle();
 		}
 
-		// Otherwise, if there are enough (b, alpha, c, p) quadruples to occupy all threads, use thread loop iteration per (b, alpha, c, p) quadruple
+		// Evaluate the log-density at a point in search coordinates.
+		// If it exceeds the best so far, the point becomes the result.
+		// Returns the log-density, or negative infinity if it is not finite.
+
+		public double eval (double[] x) {
+			final double b = x[DMS_B];
+			final double alpha = (f_alpha ? x[DMS_ALPHA] : b);
+			final double c = Math.pow (10.0, x[DMS_C]);
+			final double p = x[DMS_P];
+			final double n = x[DMS_N];
+			final double zams = x[DMS_ZAMS];
+			final double zmu = x[DMS_ZMU];
+
+			// Rebuild the handles that depend on changed parameters
+
+			boolean f_pmom = false;
+			if (!( b == last_b && alpha == last_alpha )) {
+				mexp.mexp_build (b, alpha);
+				last_b = b;
+				last_alpha = alpha;
+				f_pmom = true;
+			}
+			if (!( c == last_c && p == last_p )) {
+				omat.omat_build (p, c);
+				last_c = c;
+				last_p = p;
+				f_pmom = true;
+				++result.omat_count;
+			}
+			if (f_pmom) {
+				pmom.pmom_build (mexp, omat);
+			}
+
+			// Make a voxel containing just this point
+
+			OEDisc2InitStatVox stat_vox = new OEDisc2InitStatVox();
+
+			stat_vox.set_voxel_def (
+				new OEValueElement (b),
+				(f_alpha ? (new OEValueElement (alpha)) : null),
+				new OEValueElement (c),
+				new OEValueElement (p),
+				new OEValueElement (n)
+			);
+
+			stat_vox.set_subvox_def (
+				new OEValueElement[] {new OEValueElement (zams)},
+				(f_zmu ? (new OEValueElement[] {new OEValueElement (zmu)}) : null)
+			);
+
+			stat_vox.apply_bay_prior (bay_prior, fit_info.bay_prior_params);
+			stat_vox.calc_likelihood (fit_info, avpr, pmom);
+
+			double log_density = stat_vox.get_subvox_log_density (0, bay_weight);
+			if (!( Double.isFinite (log_density) )) {
+				log_density = Double.NEGATIVE_INFINITY;
+			}
+
+			// Retain the best point
 
-		else if (num_threads <= quad_count) {
-			(new TM_pmom_like_calc()).pmom_calc_like (exec_timer);
+			++result.eval_count;
+			if (log_density > result.log_density) {
+				result.log_density = log_density;
+				stat_vox.get_subvox_grid_point (0, result.grid_point);
+			}
+
+			return log_density;
 		}
 
-		// Otherwise, use thread loop iteration per (b, alpha, c, p, n) quintuple
+		// Closing closes the handles.
 
-		else {
-			(new TM_avpr_like_calc()).avpr_calc_like (exec_timer);
+		@Override
+		public void close () {
+			if (avpr != null) {
+				avpr.close();
+				avpr = null;
+			}
+			if (pmom != null) {
+				pmom.close();
+				pmom = null;
+			}
+			if (omat != null) {
+				omat.close();
+				omat = null;
+			}
+			if (mexp != null) {
+				mexp.close();
+				mexp = null;
+			}
+			return;
 		}
+	}
 
+
+
+
+	// Set the search bounds for one coordinate, from an array of separate value elements.
+	// Parameters:
+	//  lo, hi, spacing = Arrays that receive the bounds and grid spacing.
+	//  d = Coordinate index.
+	//  first = First (lowest) value element.
+	//  last = Last (highest) value element.
+	//  count = Number of value elements.
+	//  f_log = True if the coordinate is log10 of the parameter.
+
+	private static void set_dms_bounds (double[] lo, double[] hi, double[] spacing, int d,
+		OEValueElement first, OEValueElement last, int count, boolean f_log)
+	{
+		lo[d] = (f_log ? Math.log10 (first.get_ve_lower()) : first.get_ve_lower());
+		hi[d] = (f_log ? Math.log10 (last.get_ve_upper()) : last.get_ve_upper());
+		spacing[d] = (hi[d] - lo[d]) / ((double)count);
 		return;
 	}
 
 
 
 
+	// Return true if the grid has the separate parameter ranges needed by search_mle_direct.
+	// Before calling, must set up the grid parameters.
+
+	public final boolean can_search_mle_direct () {
+		return b_alpha_def.get_sep_b_count() > 0 && c_p_def.has_sep_ranges() && n_def.get_sep_n_count() > 0 && sub_vox_def.get_sep_zams_count() > 0;
+	}
+
+
+
+
+	// Search directly for the parameters that maximize the log-density, without evaluating the grid.
+	// Parameters:
+	//  bay_weight = Bayesian prior weight, see OEConstants.BAY_WT_XXXX.  Use OEConstants.BAY_WT_BAYESIAN
+	//               for the point corresponding to the MLE of the voxel set, or OEConstants.BAY_WT_GENERIC
+	//               for the generic MLE.
+	//  max_evals = Maximum number of log-density evaluations.
+	//  exec_timer = Execution timer; the search stops early if the remaining time runs out.
+	// Returns the best point found, which lies within the range of the grid.
+	// Before calling, must set up the shared objects and the grid parameters, and the
+	// grid must have separate ranges for each parameter.
+	// The search is a bounded compass (pattern) search over (b, alpha, log10(c), p, n, zams, zmu),
+	// starting at the center of the grid, with initial step one quarter of the range.  A step
+	// in one coordinate is accepted as soon as it improves the log-density; when no step in any
+	// coordinate improves it, all steps are halved.  The search ends when the steps fall below a
+	// fraction of the grid spacing, or after max_evals evaluations.  It needs only one Omori matrix
+	// per (c, p) visited, typically a few hundred, instead of one per (c, p) in the grid.
+	// The result is a local maximum, which is the MLE when the log-density is unimodal over the grid.
+	// It is not a grid point, so it is advisory only; the voxel set reports the grid MLE.
+
+	public final DirectMle search_mle_direct (double bay_weight, int max_evals, SimpleExecTimer exec_timer) {
+		if (!( can_search_mle_direct() )) {
+			throw new IllegalStateException ("OEDisc2InitVoxBuilder.search_mle_direct: Separate parameter ranges are not available");
+		}
+
+		final boolean f_alpha = (b_alpha_def.get_sep_alpha_count() > 0);
+		final boolean f_zmu = (sub_vox_def.get_sep_zmu_count() > 0);
+
+		// Bounds and grid spacing for each coordinate
+
+		final double[] lo = new double[DMS_COUNT];
+		final double[] hi = new double[DMS_COUNT];
+		final double[] spacing = new double[DMS_COUNT];
+
+		int count = b_alpha_def.get_sep_b_count();
+		set_dms_bounds (lo, hi, spacing, DMS_B, b_alpha_def.get_sep_b_velt (0), b_alpha_def.get_sep_b_velt (count - 1), count, false);
+
+		if (f_alpha) {
+			count = b_alpha_def.get_sep_alpha_count();
+			set_dms_bounds (lo, hi, spacing, DMS_ALPHA, b_alpha_def.get_sep_alpha_velt (0), b_alpha_def.get_sep_alpha_velt (count - 1), count, false);
+		}
+
+		count = c_p_def.get_sep_c_count();
+		set_dms_bounds (lo, hi, spacing, DMS_C, c_p_def.get_sep_c_velt (0), c_p_def.get_sep_c_velt (count - 1), count, true);
+
+		count = c_p_def.get_sep_p_count();
+		set_dms_bounds (lo, hi, spacing, DMS_P, c_p_def.get_sep_p_velt (0), c_p_def.get_sep_p_velt (count - 1), count, false);
+
+		count = n_def.get_sep_n_count();
+		set_dms_bounds (lo, hi, spacing, DMS_N, n_def.get_sep_n_velt (0), n_def.get_sep_n_velt (count - 1), count, false);
+
+		count = sub_vox_def.get_sep_zams_count();
+		set_dms_bounds (lo, hi, spacing, DMS_ZAMS, sub_vox_def.get_sep_zams_velt (0), sub_vox_def.get_sep_zams_velt (count - 1), count, false);
+
+		if (f_zmu) {
+			count = sub_vox_def.get_sep_zmu_count();
+			set_dms_bounds (lo, hi, spacing, DMS_ZMU, sub_vox_def.get_sep_zmu_velt (0), sub_vox_def.get_sep_zmu_velt (count - 1), count, false);
+		}
+
+		// Initial point and step sizes; a coordinate with an empty range stays fixed
+
+		final double[] x = new double[DMS_COUNT];
+		final double[] step = new double[DMS_COUNT];
+		final double[] min_step = new double[DMS_COUNT];
+
+		for (int d = 0; d < DMS_COUNT; ++d) {
+			x[d] = 0.5 * (lo[d] + hi[d]);
+			step[d] = 0.25 * (hi[d] - lo[d]);
+			min_step[d] = DMS_STEP_FRACTION * spacing[d];
+		}
+
+		// Run the search
+
+		try (
+			DirectMleEval evaluator = new DirectMleEval (bay_weight, f_alpha, f_zmu);
+		) {
+			double f_best = evaluator.eval (x);
+
+			for (;;) {
+
+				// Active coordinates are those whose step is still above the minimum
+
+				boolean f_active = false;
+				boolean f_improved = false;
+
+				for (int d = 0; d < DMS_COUNT && evaluator.result.eval_count < max_evals; ++d) {
+					if (!( step[d] > 0.0 && step[d] >= min_step[d] )) {
+						continue;
+					}
+					f_active = true;
+
+					// Try a step in each direction, keeping the first that improves
+
+					final double x_save = x[d];
+					for (int sign = 1; sign >= -1 && evaluator.result.eval_count < max_evals; sign -= 2) {
+						x[d] = Math.max (lo[d], Math.min (hi[d], x_save + sign * step[d]));
+						if (x[d] == x_save) {
+							continue;
+						}
+						final double f = evaluator.eval (x);
+						if (f > f_best) {
+							f_best = f;
+							f_improved = true;
+							break;
+						}
+						x[d] = x_save;
+					}
+				}
+
+				// Stop if converged, out of evaluations, or out of time
+
+				if (!( f_active ) || evaluator.result.eval_count >= max_evals || exec_timer.get_remaining_time() == 0L) {
+					break;
+				}
+
+				// If no improvement, reduce the steps
+
+				if (!( f_improved )) {
+					for (int d = 0; d < DMS_COUNT; ++d) {
+						step[d] *= 0.5;
+					}
+				}
+			}
+
+			return evaluator.result;
+		}
+	}
+
+
+
+
 	//----- Construction -----
 
 
@@ -942,10 +942,7 @@ public class OEDisc2InitVoxSet implements OEEnsembleInitializer, OEDisc2InitVoxC
 		// Multi-threaded calculation
 
 		if (exec_timer != null) {
-			intensity_calc.calc_integrated_lambda_mt (exec_timer);
-			gen_intensity_calc.calc_integrated_lambda_mt (exec_timer);
-			seq_intensity_calc.calc_integrated_lambda_mt (exec_timer);
-			bay_intensity_calc.calc_integrated_lambda_mt (exec_timer);
+			OEDisc2IntensityCalc.calc_integrated_lambda_mt (exec_timer, intensity_calc, gen_intensity_calc, seq_intensity_calc, bay_intensity_calc);
 		}
 
 		// Single-threaded calculation
@@ -1005,10 +1002,7 @@ public class OEDisc2InitVoxSet implements OEEnsembleInitializer, OEDisc2InitVoxC
 		// Multi-threaded calculation
 
 		if (exec_timer != null) {
-			intensity_calc.calc_integrated_lambda_mt (exec_timer);
-			gen_intensity_calc.calc_integrated_lambda_mt (exec_timer);
-			seq_intensity_calc.calc_integrated_lambda_mt (exec_timer);
-			bay_intensity_calc.calc_integrated_lambda_mt (exec_timer);
+			OEDisc2IntensityCalc.calc_integrated_lambda_mt (exec_timer, intensity_calc, gen_intensity_calc, seq_intensity_calc, bay_intensity_calc);
 		}
 
 		// Single-threaded calculation
@@ -1313,14 +1313,89 @@ public class OEDisc2IntensityCalc {
 
 
 
-	// Class to integrate intensity function between every successive pair of timepoints.
+	// Number of timepoints integrated in one thread loop iteration.
+	// Each timepoint needs a loop over all prior ruptures, so a small block is enough
+	// to make the loop overhead negligible, while leaving many blocks to share among threads.
 
-	private class TM_integrate_lambda implements SimpleThreadTarget {
+	private static final int INTEGRATE_BLOCK_SIZE = 32;
+
+
+
+
+	// Prepare to integrate the intensity function.
+	// Builds rupture productivity and partial likelihood density, and allocates the incremental integrals.
+
+	private void begin_integrated_lambda () {
+
+		// Build rupture productivity
+
+		build_rup_prod();
+
+		// Build partial likelihood density
+
+		build_int_part_like_density();
+
+		// Create the array for incremental integrated lambda
+
+		incr_integrated_lambda = new double[a_timepoint_list.length];
+		incr_integrated_lambda[0] = 0.0;
+
+		return;
+	}
+
+
+
+
+	// Integrate the intensity function for a block of timepoints.
+	// Parameters:
+	//  block = Block number, the block contains timepoints block*INTEGRATE_BLOCK_SIZE + 1 and following.
+	// Threading: Can be called simultaneously by multiple threads, for different blocks.
+
+	private void integrate_lambda_block (int block) {
+		final int tp_begin = block * INTEGRATE_BLOCK_SIZE + 1;
+		final int tp_end = Math.min (tp_begin + INTEGRATE_BLOCK_SIZE, incr_integrated_lambda.length);
+
+		for (int index = tp_begin; index < tp_end; ++index) {
+
+			// Integrate lambda for the interval ending at timepoint index
+
+			incr_integrated_lambda[index] = integrate_lambda (index);
+		}
+
+		return;
+	}
+
+
+
+
+	// Get the number of blocks of timepoints to integrate.
+
+	private int get_integrate_block_count () {
+		return (a_timepoint_list.length - 1 + INTEGRATE_BLOCK_SIZE - 1) / INTEGRATE_BLOCK_SIZE;
+	}
+
+
+
+
+	// Class to integrate intensity function between every successive pair of timepoints,
+	// for one or more parameter sets.
+	// Each loop iteration is one block of timepoints for one parameter set, so that all
+	// parameter sets are computed in a single loop.
+
+	private static class TM_integrate_lambda implements SimpleThreadTarget {
 
 		// The loop helper.
 
 		private SimpleThreadLoopHelper loop_helper = new SimpleThreadLoopHelper (PMFMT_RUNNING);
 
+		// The intensity calculations.
+
+		private OEDisc2IntensityCalc[] calcs;
+
+		// Loop index of the first block of each calculation, with an extra element at the end holding the total.
+
+		private int[] block_begin;
+
 		// Entry point for a thread.
 		// Parameters:
 		//  thread_manager = The thread manager.
@@ -1334,11 +1409,22 @@ public class OEDisc2IntensityCalc {
 
 			// Loop until loop completed or prompt termination is requested
 
+			int n_calc = 0;
+
 			for (int index = loop_helper.get_loop_index(); index >= 0; index = loop_helper.get_next_index()) {
 
-				// Integrate lambda for the interval ending at timepoint index
+				// Find the calculation that contains this block (indexes increase within each thread)
 
-				incr_integrated_lambda[index] = integrate_lambda (index);
+				while (index >= block_begin[n_calc + 1]) {
+					++n_calc;
+				}
+				while (index < block_begin[n_calc]) {
+					--n_calc;
+				}
+
+				// Integrate lambda for the block
+
+				calcs[n_calc].integrate_lambda_block (index - block_begin[n_calc]);
 			}
 
 			return;
@@ -1346,29 +1432,28 @@ public class OEDisc2IntensityCalc {
 
 		// Build the list lambda integrals for all pairs of successive timepoints.
 		//  exec_timer = Execution timer, provides executor, time limit, and progress message interval.
+		//  the_calcs = The intensity calculations, each with configuration and parameters set.
 
-		public void build_integrated_lambda (SimpleExecTimer exec_timer) throws OEException {
+		public void build_integrated_lambda (SimpleExecTimer exec_timer, OEDisc2IntensityCalc[] the_calcs) throws OEException {
 
 			// Say hello
 
 			System.out.println ("Start computing integrated ETAS intensity function");
 
-			// Build rupture productivity
-
-			build_rup_prod();
-
-			// Build partial likelihood density
+			// Prepare each calculation, and assign loop indexes to blocks
 
-			build_int_part_like_density();
+			calcs = the_calcs;
+			block_begin = new int[calcs.length + 1];
+			block_begin[0] = 0;
 
-			// Create the array for incremental integrated lambda
-
-			incr_integrated_lambda = new double[a_timepoint_list.length];
-			incr_integrated_lambda[0] = 0.0;
+			for (int n = 0; n < calcs.length; ++n) {
+				calcs[n].begin_integrated_lambda();
+				block_begin[n + 1] = block_begin[n] + calcs[n].get_integrate_block_count();
+			}
 
 			// Run the loop
 
-			loop_helper.run_loop (this, exec_timer, 1, incr_integrated_lambda.length);
+			loop_helper.run_loop (this, exec_timer, 0, block_begin[calcs.length]);
 
 			// Capture the result
 
@@ -1401,7 +1486,9 @@ public class OEDisc2IntensityCalc {
 
 			// Finish computing results
 
-			finish_results();
+			for (OEDisc2IntensityCalc calc : calcs) {
+				calc.finish_results();
+			}
 			System.out.println ("Finish computing integrated ETAS intensity function");
 
 			return;
@@ -1418,41 +1505,47 @@ public class OEDisc2IntensityCalc {
 
 	public final void calc_integrated_lambda_mt (SimpleExecTimer exec_timer) throws OEException {
 		TM_integrate_lambda tm = new TM_integrate_lambda();
-		tm.build_integrated_lambda (exec_timer);
+		tm.build_integrated_lambda (exec_timer, new OEDisc2IntensityCalc[] {this});
 		return;
 	}
 
 
 
 
-	// Calculate integrated lambda, with a single thread.
+	// Calculate integrated lambda for several parameter sets, with multiple threads.
+	// Parameters:
+	//  exec_timer = Execution timer, provides executor, time limit, and progress message interval.
+	//  calcs = The intensity calculations, each with configuration and parameters set.
+	// All the parameter sets are computed in a single thread loop, so the threads are
+	// kept busy across parameter sets, and the thread pool is only started once.
 
-	public final void calc_integrated_lambda_st () {
+	public static void calc_integrated_lambda_mt (SimpleExecTimer exec_timer, OEDisc2IntensityCalc... calcs) throws OEException {
+		TM_integrate_lambda tm = new TM_integrate_lambda();
+		tm.build_integrated_lambda (exec_timer, calcs);
+		return;
+	}
 
-		// Say hello
 
-		System.out.println ("Start computing integrated ETAS intensity function");
 
-		// Build rupture productivity
 
-		build_rup_prod();
+	// Calculate integrated lambda, with a single thread.
 
-		// Build partial likelihood density
+	public final void calc_integrated_lambda_st () {
 
-		build_int_part_like_density();
+		// Say hello
 
-		// Create the array for incremental integrated lambda
+		System.out.println ("Start computing integrated ETAS intensity function");
 
-		incr_integrated_lambda = new double[a_timepoint_list.length];
-		incr_integrated_lambda[0] = 0.0;
+		// Prepare the calculation
 
-		// Loop over timepoints
+		begin_integrated_lambda();
 
-		for (int index = 1; index < incr_integrated_lambda.length; ++index) {
+		// Loop over blocks of timepoints
 
-			// Integrate lambda for the interval ending at timepoint index
+		final int block_count = get_integrate_block_count();
 
-			incr_integrated_lambda[index] = integrate_lambda (index);
+		for (int block = 0; block < block_count; ++block) {
+			integrate_lambda_block (block);
 		}
 
 		// Finish computing results
@@ -174,6 +174,250 @@ public class OEFit2Test {
 
 
 
+	// Calculate a log-likelihood using the fitting code, with the given Omori matrix build options.
+	// Parameters:
+	//  history = History to use.
+	//  cat_params = Catalog parameters; the given p is used in place of cat_params.p.
+	//  seed_params = Seed parameters.
+	//  f_intervals = True to use intervals.
+	//  lmr_opt = Likelihood magnitude range option.
+	//  p = Omori exponent.
+	//  grid_options = Grid options to give the fitter, or null to use the default.
+	//  f_log_table = True to build the Omori matrices from a table of logarithms.
+	// Returns the log-likelihood.
+
+	public static double calc_kernel_log_like (OEDisc2History history, OECatalogParamsStats cat_params, OESeedParamsStats seed_params,
+		boolean f_intervals, int lmr_opt, double p, OEGridOptions grid_options, boolean f_log_table) {
+
+		// Create the fitter
+
+		OEDisc2ExtFit fitter = new OEDisc2ExtFit();
+
+		boolean f_likelihood = true;
+		boolean f_background = seed_params.has_background_rate();
+		fitter.dfit_build (history, cat_params.get_params_mags(), f_intervals, f_likelihood, lmr_opt, f_background);
+
+		if (grid_options != null) {
+			fitter.set_grid_options (grid_options);
+		}
+
+		// Allocate the data structures and obtain their handles
+
+		double loglike;
+
+		try (
+			OEDisc2ExtFit.MagExponentHandle mexp = fitter.make_MagExponentHandle();
+			OEDisc2ExtFit.OmoriMatrixHandle omat = fitter.make_OmoriMatrixHandle();
+			OEDisc2ExtFit.PairMagOmoriHandle pmom = fitter.make_PairMagOmoriHandle();
+			OEDisc2ExtFit.AValueProdHandle avpr = fitter.make_AValueProdHandle();
+		) {
+
+			// Build the data structures
+
+			mexp.mexp_build (cat_params.b, cat_params.alpha);
+
+			if (f_log_table) {
+				OEDisc2ExtFit.OmoriLogTable log_table = fitter.make_OmoriLogTable (cat_params.c);
+				omat.omat_build (p, cat_params.c, log_table);
+			} else {
+				omat.omat_build (p, cat_params.c);
+			}
+
+			pmom.pmom_build (mexp, omat);
+
+			double ten_aint_q = Math.pow(10.0, cat_params.a) * mexp.get_q_correction();
+
+			avpr.avpr_build (pmom, ten_aint_q);
+
+			// Calculate the likelihood
+
+			double ten_a_q = Math.pow(10.0, cat_params.a) * mexp.get_q_correction();
+
+			double ten_ams_q = Math.pow(10.0, seed_params.ams);
+
+			if (f_background) {
+				loglike = avpr.avpr_calc_log_like (ten_a_q, ten_ams_q, seed_params.mu);
+			} else {
+				loglike = avpr.avpr_calc_log_like (ten_a_q, ten_ams_q);
+			}
+
+			// Show how the rupture-rupture Omori matrix was represented
+
+			if (grid_options != null) {
+				System.out.println ();
+				System.out.println (omat.toString());
+			}
+		}
+
+		return loglike;
+	}
+
+
+
+
+	// Apply the rupture-rupture Omori matrix to fixed positive source vectors.
+	// Parameters:
+	//  history = History to use.
+	//  cat_params = Catalog parameters; the given p is used in place of cat_params.p.
+	//  f_intervals = True to use intervals.
+	//  lmr_opt = Likelihood magnitude range option.
+	//  f_background = True if there is a background rate.
+	//  p = Omori exponent.
+	//  grid_options = Grid options to give the fitter, or null to use the default.
+	// Returns an array of length 2*rupture_count, containing the products with the two source vectors.
+	// The source vectors are all ones, and a repeating pattern 1, 2, 3, 4, 5.
+
+	public static double[] calc_kernel_omat_product (OEDisc2History history, OECatalogParamsStats cat_params,
+		boolean f_intervals, int lmr_opt, boolean f_background, double p, OEGridOptions grid_options) {
+
+		// Create the fitter
+
+		OEDisc2ExtFit fitter = new OEDisc2ExtFit();
+
+		boolean f_likelihood = true;
+		fitter.dfit_build (history, cat_params.get_params_mags(), f_intervals, f_likelihood, lmr_opt, f_background);
+
+		if (grid_options != null) {
+			fitter.set_grid_options (grid_options);
+		}
+
+		// Source, target, and scaling vectors
+
+		final int rupture_count = history.rupture_count;
+		double[] x1 = new double[rupture_count];
+		double[] x2 = new double[rupture_count];
+		double[] y1 = new double[rupture_count];
+		double[] y2 = new double[rupture_count];
+		double[] d = new double[rupture_count];
+
+		for (int j = 0; j < rupture_count; ++j) {
+			x1[j] = 1.0;
+			x2[j] = (double)(1 + (j % 5));
+			d[j] = 1.0;
+		}
+
+		// Build the matrix and apply it
+
+		try (
+			OEDisc2ExtFit.OmoriMatrixHandle omat = fitter.make_OmoriMatrixHandle();
+		) {
+			omat.omat_build (p, cat_params.c);
+			omat.get_omat().apply_omat_rup_targ_rup_src (y1, y2, x1, x2, d);
+		}
+
+		double[] result = new double[2 * rupture_count];
+		for (int i = 0; i < rupture_count; ++i) {
+			result[i] = y1[i];
+			result[rupture_count + i] = y2[i];
+		}
+		return result;
+	}
+
+
+
+
+	// Compare the Omori matrix build options against the direct calculation.
+	// Parameters:
+	//  history = History to use.
+	//  cat_params = Catalog parameters.
+	//  seed_params = Seed parameters.
+	//  f_intervals = True to use intervals.
+	//  lmr_opt = Likelihood magnitude range option.
+	//  p_delta = Spacing of p values; comparisons are done at p - p_delta, p, and p + p_delta.
+	//  soe_rel_tol = Relative tolerance for the sum-of-exponentials approximation.
+	// For each p, the log-likelihood is calculated with direct matrices, with matrices built from a
+	// table of logarithms, and with the sum-of-exponentials approximation.  The table should agree with
+	// the direct calculation to rounding error.
+	// The approximation is checked per entry: the rupture-rupture matrix is applied to positive source
+	// vectors, and each entry of the product must have relative error at most soe_rel_tol, because it is
+	// a positive sum of kernel values that each have relative error at most soe_rel_tol.  Each rupture's
+	// log-rate then differs by at most -log(1 - soe_rel_tol), which bounds the log-likelihood difference.
+	// Returns the number of comparisons that failed.
+
+	public static int compare_omori_kernels (OEDisc2History history, OECatalogParamsStats cat_params, OESeedParamsStats seed_params,
+		boolean f_intervals, int lmr_opt, double p_delta, double soe_rel_tol) {
+
+		// Grid options that select the sum-of-exponentials approximation for any history
+
+		OEGridOptions soe_options = new OEGridOptions();
+		soe_options.set (
+			soe_options.get_relative_zams(),
+			2,
+			soe_rel_tol,
+			soe_options.get_adaptive_factor(),
+			soe_options.get_adaptive_threshold()
+		);
+
+		// Tolerances, with an allowance for rounding
+
+		final double table_tol = 1.0e-10;
+		final double soe_entry_tol = soe_rel_tol + table_tol;
+		final double soe_term_tol = -Math.log1p (-soe_rel_tol);
+
+		final boolean f_background = seed_params.has_background_rate();
+
+		int fail_count = 0;
+
+		for (int ip = -1; ip <= 1; ++ip) {
+			double p = cat_params.p + (((double)ip) * p_delta);
+
+			// Log-likelihoods
+
+			double ll_direct = calc_kernel_log_like (history, cat_params, seed_params, f_intervals, lmr_opt, p, null, false);
+			double ll_table = calc_kernel_log_like (history, cat_params, seed_params, f_intervals, lmr_opt, p, null, true);
+			double ll_soe = calc_kernel_log_like (history, cat_params, seed_params, f_intervals, lmr_opt, p, soe_options, false);
+
+			double diff_table = Math.abs (ll_table - ll_direct);
+			double diff_soe = Math.abs (ll_soe - ll_direct);
+
+			boolean f_table_ok = (diff_table <= table_tol * Math.max (1.0, Math.abs (ll_direct)));
+			boolean f_soe_ok = (diff_soe <= soe_term_tol * ((double)(history.rupture_count)) + table_tol * Math.max (1.0, Math.abs (ll_direct)));
+
+			// Per-entry comparison of the rupture-rupture matrix products
+
+			double[] prod_direct = calc_kernel_omat_product (history, cat_params, f_intervals, lmr_opt, f_background, p, null);
+			double[] prod_soe = calc_kernel_omat_product (history, cat_params, f_intervals, lmr_opt, f_background, p, soe_options);
+
+			double max_entry_err = 0.0;
+			for (int i = 0; i < prod_direct.length; ++i) {
+				double err;
+				if (prod_direct[i] == 0.0) {
+					err = ((prod_soe[i] == 0.0) ? 0.0 : Double.POSITIVE_INFINITY);
+				} else {
+					err = Math.abs (prod_soe[i] - prod_direct[i]) / prod_direct[i];
+				}
+				max_entry_err = Math.max (max_entry_err, err);
+			}
+
+			boolean f_entry_ok = (max_entry_err <= soe_entry_tol);
+
+			System.out.println ();
+			System.out.println ("p = " + p + ", c = " + cat_params.c);
+			System.out.println ("ll_direct = " + ll_direct);
+			System.out.println ("ll_table = " + ll_table + ", diff = " + diff_table + (f_table_ok ? "" : "  FAIL"));
+			System.out.println ("ll_soe = " + ll_soe + ", diff = " + diff_soe + (f_soe_ok ? "" : "  FAIL"));
+			System.out.println ("soe max_entry_err = " + max_entry_err + (f_entry_ok ? "" : "  FAIL"));
+
+			if (!( f_table_ok )) {
+				++fail_count;
+			}
+			if (!( f_soe_ok )) {
+				++fail_count;
+			}
+			if (!( f_entry_ok )) {
+				++fail_count;
+			}
+		}
+
+		System.out.println ();
+		System.out.println ("fail_count = " + fail_count);
+
+		return fail_count;
+	}
+
+
+
+
 	// Lay out an a/ams likelihood grid.
 	// grid[i][j] contains the likelihood value for a_range[i] and ams_range[j].
 
@@ -9674,6 +9918,152 @@ public class OEFit2Test {
 
 
 
+		// Subcommand : Test #36
+		// Command format:
+		//  test36  zams  n  p  c  b  alpha  mref  msup  tbegin  tend
+		//          magCat  helm_param  disc_delta  mag_cat_count  eligible_mag  eligible_count
+		//          durlim_ratio  durlim_min  durlim_max  t_interval_begin  before_max_count  mag_cat_int_join
+		//          f_intervals  lmr_opt  p_delta  soe_rel_tol
+		//          [t_day  rup_mag]...
+		// Generate a catalog with the given parameters.
+		// The catalog is seeded with ruptures at the given times and magnitudes.
+		// Then construct a history containing the catalog.
+		// Then calculate log-likelihoods at p - p_delta, p, and p + p_delta, building the Omori matrices
+		// directly, from a table of logarithms, and with the sum-of-exponentials approximation.
+		// Also compare each entry of the rupture-rupture matrix product against soe_rel_tol.
+		// Display catalog summary, history contents, and the differences from the direct calculation.
+		// Same as test #4 except compares the Omori matrix build options instead of running a smoke test.
+
+		if (testargs.is_test ("test36")) {
+			try {
+
+				System.out.println ("Generating catalog and history, and comparing Omori matrix build options");
+				double zams = testargs.get_double ("zams");
+				double n = testargs.get_double ("n");
+				double p = testargs.get_double ("p");
+				double c = testargs.get_double ("c");
+				double b = testargs.get_double ("b");
+				double alpha = testargs.get_double ("alpha");
+				double mref = testargs.get_double ("mref");
+				double msup = testargs.get_double ("msup");
+				double tbegin = testargs.get_double ("tbegin");
+				double tend = testargs.get_double ("tend");
+
+				double magCat = testargs.get_double ("magCat");
+				int helm_param = testargs.get_int ("helm_param");
+				double disc_delta = testargs.get_double ("disc_delta");
+				int mag_cat_count = testargs.get_int ("mag_cat_count");
+				double eligible_mag = testargs.get_double ("eligible_mag");
+				int eligible_count = testargs.get_int ("eligible_count");
+
+				double durlim_ratio = testargs.get_double ("durlim_ratio");
+				double durlim_min = testargs.get_double ("durlim_min");
+				double durlim_max = testargs.get_double ("durlim_max");
+				double t_interval_begin = testargs.get_double ("t_interval_begin");
+				int before_max_count = testargs.get_int ("before_max_count");
+				int mag_cat_int_join = testargs.get_int ("mag_cat_int_join");
+
+				boolean f_intervals = testargs.get_boolean ("f_intervals");
+				int lmr_opt = testargs.get_int ("lmr_opt");
+				double p_delta = testargs.get_double ("p_delta");
+				double soe_rel_tol = testargs.get_double ("soe_rel_tol");
+
+				double[] time_mag_array = testargs.get_double_tuple_array ("time_mag_array", -1, 0, 2, "time", "mag");
+				testargs.end_test();
+
+				// Make the catalog parameters
+
+				OECatalogParams cat_params = (new OECatalogParams()).set_to_fixed_mag_br (
+					n,		// n
+					p,		// p
+					c,		// c
+					b,		// b
+					alpha,	// alpha
+					mref,	// mref
+					msup,	// msup
+					tbegin,	// tbegin
+					tend	// tend
+				);
+
+				// Make the seed parameters
+
+				OESeedParams seed_params = (new OESeedParams()).set_from_zams (zams, cat_params);
+
+				// Make the catalog initializer
+
+				OEEnsembleInitializer initializer = (new OEInitFixedState()).setup_time_mag_list (cat_params, seed_params, time_mag_array, true);
+
+				// Make the catalog examiner
+
+				ArrayList<OERupture> rup_list = new ArrayList<OERupture>();
+				OEExaminerSaveList examiner = new OEExaminerSaveList (rup_list, true);
+
+				// Generate a catalog
+
+				OESimulator.gen_single_catalog (initializer, examiner);
+
+				System.out.println ();
+				System.out.println ("Catalog size = " + rup_list.size());
+
+				// Make time-splitting function
+
+				OEMagCompFnDisc.SplitFn split_fn = new OEMagCompFnDisc.SplitFnRatio (durlim_ratio, durlim_min, durlim_max);
+
+				// Make the history parameters
+
+				double t_range_begin = Math.min (tbegin, t_interval_begin);
+				double t_range_end = tend;
+				for (int itm = 0; itm < time_mag_array.length; itm += 2) {
+					t_range_begin = Math.min (t_range_begin, time_mag_array[itm]);
+				}
+
+				OEDiscFGHParams hist_params = new OEDiscFGHParams();
+
+				hist_params.set_sim_history_typical (
+					magCat,				// magCat
+					helm_param,			// helm_param
+					t_range_begin,		// t_range_begin
+					t_range_end,		// t_range_end
+					disc_delta,			// disc_delta
+					mag_cat_count,		// mag_cat_count
+					eligible_mag,		// eligible_mag
+					eligible_count,		// eligible_count
+					split_fn,			// split_fn
+					t_interval_begin,	// t_interval_begin
+					before_max_count,	// before_max_count
+					mag_cat_int_join	// mag_cat_int_join
+				);
+
+				// Display the history parameters
+
+				System.out.println ();
+				System.out.println (hist_params.toString());
+
+				// Make a history
+
+				OEDisc2History history = new OEDisc2History();
+
+				history.build_from_fgh (hist_params, rup_list);
+
+				// Display the history
+
+				System.out.println ();
+				System.out.println (history.toString());
+
+				// Compare the Omori matrix build options
+
+				compare_omori_kernels (history, cat_params.get_params_stats(), seed_params.get_params_stats(), f_intervals, lmr_opt, p_delta, soe_rel_tol);
+
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+
+			return;
+		}
+
+
+
+
 		// Unrecognized subcommand.
 
 		System.err.println ("OEFit2Test : Unrecognized subcommand : " + args[0]);
@@ -33,6 +33,79 @@ public class OEGridOptions implements Marshalable {
 	}
 
 
+	// Minimum number of ruptures for which the Omori function between ruptures is evaluated
+	// using a sum-of-exponentials approximation, instead of storing a triangular matrix.
+	// The approximation takes time and memory proportional to the number of ruptures,
+	// rather than its square.  A value <= 0 means the approximation is never used.
+
+	private int omori_soe_min_rups;
+
+	public final int get_omori_soe_min_rups () {
+		return omori_soe_min_rups;
+	}
+
+	// Default value: never use the approximation.
+
+	public static final int DEF_OMORI_SOE_MIN_RUPS = 0;
+
+
+	// Relative tolerance for the sum-of-exponentials approximation of the Omori function.
+
+	private double omori_soe_rel_tol;
+
+	public final double get_omori_soe_rel_tol () {
+		return omori_soe_rel_tol;
+	}
+
+	// Default value.
+
+	public static final double DEF_OMORI_SOE_REL_TOL = 1.0e-8;
+
+
+	// Return true if the sum-of-exponentials approximation should be used for the given number of ruptures.
+
+	public final boolean use_omori_soe (int rupture_count) {
+		return omori_soe_min_rups > 0 && rupture_count >= omori_soe_min_rups;
+	}
+
+
+	// Refinement factor for the adaptive (c, p) grid.
+	// If > 1, the grid is first evaluated with (c, p) cells that each combine up to
+	// adaptive_factor^2 cells of the full grid, and then only the coarse cells with
+	// enough posterior probability are refined to the full grid.
+	// A value <= 1 means the full grid is always evaluated.
+
+	private int adaptive_factor;
+
+	public final int get_adaptive_factor () {
+		return adaptive_factor;
+	}
+
+	// Default value: no adaptive grid.
+
+	public static final int DEF_ADAPTIVE_FACTOR = 0;
+
+
+	// Threshold for refining a coarse cell of the adaptive grid, as a fraction of the total posterior probability.
+
+	private double adaptive_threshold;
+
+	public final double get_adaptive_threshold () {
+		return adaptive_threshold;
+	}
+
+	// Default value.
+
+	public static final double DEF_ADAPTIVE_THRESHOLD = 1.0e-4;
+
+
+	// Return true if the adaptive grid is selected.
+
+	public final boolean use_adaptive_grid () {
+		return adaptive_factor > 1;
+	}
+
+
 
 
 	//----- Construction -----
@@ -44,6 +117,10 @@ public class OEGridOptions implements Marshalable {
 
 	public final void clear () {
 		relative_zams = false;
+		omori_soe_min_rups = DEF_OMORI_SOE_MIN_RUPS;
+		omori_soe_rel_tol = DEF_OMORI_SOE_REL_TOL;
+		adaptive_factor = DEF_ADAPTIVE_FACTOR;
+		adaptive_threshold = DEF_ADAPTIVE_THRESHOLD;
 		return;
 	}
 
@@ -60,23 +137,73 @@ public class OEGridOptions implements Marshalable {
 
 
 	// Constructor that sets the supplied values.
+	// The Omori sum-of-exponentials and adaptive grid options are set to default values.
 
 	public OEGridOptions (
 		boolean relative_zams
 	) {
 		this.relative_zams = relative_zams;
+		this.omori_soe_min_rups = DEF_OMORI_SOE_MIN_RUPS;
+		this.omori_soe_rel_tol = DEF_OMORI_SOE_REL_TOL;
+		this.adaptive_factor = DEF_ADAPTIVE_FACTOR;
+		this.adaptive_threshold = DEF_ADAPTIVE_THRESHOLD;
+	}
+
+
+
+
+	// Constructor that sets the supplied values.
+
+	public OEGridOptions (
+		boolean relative_zams,
+		int omori_soe_min_rups,
+		double omori_soe_rel_tol,
+		int adaptive_factor,
+		double adaptive_threshold
+	) {
+		this.relative_zams = relative_zams;
+		this.omori_soe_min_rups = omori_soe_min_rups;
+		this.omori_soe_rel_tol = omori_soe_rel_tol;
+		this.adaptive_factor = adaptive_factor;
+		this.adaptive_threshold = adaptive_threshold;
 	}
 
 
 
 
 	// Set up the options with the supplied values.
+	// The Omori sum-of-exponentials and adaptive grid options are set to default values.
 	// Returns this object.
 
 	public final OEGridOptions set (
 		boolean relative_zams
 	) {
 		this.relative_zams = relative_zams;
+		this.omori_soe_min_rups = DEF_OMORI_SOE_MIN_RUPS;
+		this.omori_soe_rel_tol = DEF_OMORI_SOE_REL_TOL;
+		this.adaptive_factor = DEF_ADAPTIVE_FACTOR;
+		this.adaptive_threshold = DEF_ADAPTIVE_THRESHOLD;
+		return this;
+	}
+
+
+
+
+	// Set up the options with the supplied values.
+	// Returns this object.
+
+	public final OEGridOptions set (
+		boolean relative_zams,
+		int omori_soe_min_rups,
+		double omori_soe_rel_tol,
+		int adaptive_factor,
+		double adaptive_threshold
+	) {
+		this.relative_zams = relative_zams;
+		this.omori_soe_min_rups = omori_soe_min_rups;
+		this.omori_soe_rel_tol = omori_soe_rel_tol;
+		this.adaptive_factor = adaptive_factor;
+		this.adaptive_threshold = adaptive_threshold;
 		return this;
 	}
 
@@ -88,6 +215,10 @@ public class OEGridOptions implements Marshalable {
 
 	public final OEGridOptions copy_from (OEGridOptions other) {
 		this.relative_zams = other.relative_zams;
+		this.omori_soe_min_rups = other.omori_soe_min_rups;
+		this.omori_soe_rel_tol = other.omori_soe_rel_tol;
+		this.adaptive_factor = other.adaptive_factor;
+		this.adaptive_threshold = other.adaptive_threshold;
 		return this;
 	}
 
@@ -103,6 +234,10 @@ public class OEGridOptions implements Marshalable {
 		result.append ("OEGridOptions:" + "\n");
 
 		result.append ("relative_zams = " + relative_zams + "\n");
+		result.append ("omori_soe_min_rups = " + omori_soe_min_rups + "\n");
+		result.append ("omori_soe_rel_tol = " + omori_soe_rel_tol + "\n");
+		result.append ("adaptive_factor = " + adaptive_factor + "\n");
+		result.append ("adaptive_threshold = " + adaptive_threshold + "\n");
 
 		return result.toString();
 	}
@@ -118,6 +253,8 @@ public class OEGridOptions implements Marshalable {
 	// Marshal version number.
 
 	private static final int MARSHAL_VER_1 = 140001;
+	private static final int MARSHAL_VER_2 = 140002;
+	private static final int MARSHAL_VER_3 = 140003;
 
 	private static final String M_VERSION_NAME = "OEGridOptions";
 
@@ -127,7 +264,7 @@ public class OEGridOptions implements Marshalable {
 
 		// Version
 
-		int ver = MARSHAL_VER_1;
+		int ver = MARSHAL_VER_3;
 
 		writer.marshalInt (M_VERSION_NAME, ver);
 
@@ -142,6 +279,26 @@ public class OEGridOptions implements Marshalable {
 		}
 		break;
 
+		case MARSHAL_VER_2: {
+
+			writer.marshalBoolean ("relative_zams", relative_zams);
+			writer.marshalInt ("omori_soe_min_rups", omori_soe_min_rups);
+			writer.marshalDouble ("omori_soe_rel_tol", omori_soe_rel_tol);
+
+		}
+		break;
+
+		case MARSHAL_VER_3: {
+
+			writer.marshalBoolean ("relative_zams", relative_zams);
+			writer.marshalInt ("omori_soe_min_rups", omori_soe_min_rups);
+			writer.marshalDouble ("omori_soe_rel_tol", omori_soe_rel_tol);
+			writer.marshalInt ("adaptive_factor", adaptive_factor);
+			writer.marshalDouble ("adaptive_threshold", adaptive_threshold);
+
+		}
+		break;
+
 		}
 
 		return;
@@ -153,7 +310,7 @@ public class OEGridOptions implements Marshalable {
 	
 		// Version
 
-		int ver = reader.unmarshalInt (M_VERSION_NAME, MARSHAL_VER_1, MARSHAL_VER_1);
+		int ver = reader.unmarshalInt (M_VERSION_NAME, MARSHAL_VER_1, MARSHAL_VER_3);
 
 		// Contents
 
@@ -162,6 +319,32 @@ public class OEGridOptions implements Marshalable {
 		case MARSHAL_VER_1: {
 
 			relative_zams = reader.unmarshalBoolean ("relative_zams");
+			omori_soe_min_rups = DEF_OMORI_SOE_MIN_RUPS;
+			omori_soe_rel_tol = DEF_OMORI_SOE_REL_TOL;
+			adaptive_factor = DEF_ADAPTIVE_FACTOR;
+			adaptive_threshold = DEF_ADAPTIVE_THRESHOLD;
+
+		}
+		break;
+
+		case MARSHAL_VER_2: {
+
+			relative_zams = reader.unmarshalBoolean ("relative_zams");
+			omori_soe_min_rups = reader.unmarshalInt ("omori_soe_min_rups");
+			omori_soe_rel_tol = reader.unmarshalDouble ("omori_soe_rel_tol");
+			adaptive_factor = DEF_ADAPTIVE_FACTOR;
+			adaptive_threshold = DEF_ADAPTIVE_THRESHOLD;
+
+		}
+		break;
+
+		case MARSHAL_VER_3: {
+
+			relative_zams = reader.unmarshalBoolean ("relative_zams");
+			omori_soe_min_rups = reader.unmarshalInt ("omori_soe_min_rups");
+			omori_soe_rel_tol = reader.unmarshalDouble ("omori_soe_rel_tol");
+			adaptive_factor = reader.unmarshalInt ("adaptive_factor");
+			adaptive_threshold = reader.unmarshalDouble ("adaptive_threshold");
 
 		}
 		break;
@@ -229,7 +412,11 @@ public class OEGridOptions implements Marshalable {
 		OEGridOptions grid_options = new OEGridOptions();
 
 		grid_options.set (
-			true		// relative_zams
+			true,		// relative_zams
+			5000,		// omori_soe_min_rups
+			1.0e-6,		// omori_soe_rel_tol
+			3,			// adaptive_factor
+			1.0e-3		// adaptive_threshold
 		);
 
 		return grid_options;
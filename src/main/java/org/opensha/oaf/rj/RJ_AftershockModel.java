@@ -7,6 +7,7 @@ import java.util.LinkedHashMap;
 import java.util.Locale;
 
 import org.apache.commons.math3.distribution.PoissonDistribution;
+import org.apache.commons.math3.special.Gamma;
 import org.opensha.commons.data.function.ArbDiscrEmpiricalDistFunc;
 import org.opensha.commons.data.function.EvenlyDiscretizedFunc;
 import org.opensha.commons.data.function.HistogramFunction;
@@ -175,6 +176,22 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 	protected int c_support_lo = -1;
 	protected int c_support_hi = -1;
 
+	// The support of the (a,p,c) probability distribution, held as parallel primitive arrays.
+	// Each array has length apc_support_size, and element i describes one element of the support:
+	//  support_index[i] = Single index of the element, as defined by get_single_index().
+	//  support_a[i], support_p[i], support_c[i] = Values of a, p, and c.
+	//  support_weight[i] = Probability, equal to apc_likelihood / apc_support_total, so the weights sum to 1.0.
+	// Elements are sorted by weight from high to low, with equal weights in order of single index,
+	// so support_weight[0] is the maximum likelihood element.
+	// These arrays are used for all calculations that are weighted by the (clipped) probability,
+	// so that elements in the tail are never visited.
+
+	protected int[] support_index = null;
+	protected double[] support_a = null;
+	protected double[] support_p = null;
+	protected double[] support_c = null;
+	protected double[] support_weight = null;
+
 	// The calculated mean, standard deviation, and maximum likelihood value of each parameter.
 
 	protected double stat_a_mean = 0.0;
@@ -220,6 +237,17 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 
 	protected ArbDiscrEmpiricalDistFunc numMag5_DistributionFunc = null;
 
+	// The same distribution as numMag5_DistributionFunc, held in primitive arrays.
+	// numMag5_x[i] is the i-th distinct expected number of aftershocks, in strictly increasing order.
+	// numMag5_y[i] is the total likelihood of all (a,p,c) triples that produce numMag5_x[i].
+	// The arrays have length numMag5_size, and are used for all internal calculations.
+	// numMag5_DistributionFunc is created from these arrays only when requested
+	// by a call to computeNumMag5_DistributionFunc.
+
+	protected double[] numMag5_x = null;
+	protected double[] numMag5_y = null;
+	protected int numMag5_size = 0;
+
 	// The time interval used to calculate numMag5_DistributionFunc,
 	// measured in days after the mainshock.
 	// Note: The value of numMag5_DistributionFunc is cached so it need not be recomputed
@@ -230,8 +258,9 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 	protected double tMaxDaysCurrent = -1.0;
 
 	// The cumulative probability distribution of (a,p,c) values.
-	// The length of this array is apc_total_size.
-	// Indexes into this array are single indexes, as defined by get_single_index();
+	// The length of this array is apc_support_size.
+	// Indexes into this array are indexes into the support arrays, so that
+	// cum_apc_probability[i] is the sum of support_weight[0] through support_weight[i].
 	// This is used only when sampling from the (a,p,c) distribution.
 
 	protected double[] cum_apc_probability = null;
@@ -522,11 +551,20 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 		// Invalidate the event count likelihood function
 
 		numMag5_DistributionFunc = null;
+		numMag5_x = null;
+		numMag5_y = null;
+		numMag5_size = 0;
 		tMinDaysCurrent = -1.0;
 		tMaxDaysCurrent = -1.0;
 
 		cum_apc_probability = null;
 
+		support_index = null;
+		support_a = null;
+		support_p = null;
+		support_c = null;
+		support_weight = null;
+
 		// Find the biggest element in the matrix
 
 		double max_element = apc_likelihood[0][0][0];
@@ -698,6 +736,10 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 			}
 		}
 
+		// Build the support arrays
+
+		apcBuildSupport();
+
 		// Verbose output if desired
 		
 		if(D) {
@@ -714,9 +756,115 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 		return;
 	}
 
-	
 
-	
+
+
+	// Build the support arrays support_index, support_a, support_p, support_c, and support_weight.
+	// This is called from apcFinish, after apc_max_tail_element, apc_support_size, apc_support_total,
+	// and the support index ranges have been computed.
+
+	private void apcBuildSupport() {
+
+		// Collect the single indexes of all elements in the support
+
+		final int[] cand = new int[apc_support_size];
+		int n = 0;
+
+		for (int aIndex = a_support_lo; aIndex < a_support_hi; aIndex++) {
+			for (int pIndex = p_support_lo; pIndex < p_support_hi; pIndex++) {
+				for (int cIndex = c_support_lo; cIndex < c_support_hi; cIndex++) {
+					if (apc_likelihood[aIndex][pIndex][cIndex] > apc_max_tail_element) {
+						cand[n] = get_single_index (aIndex, pIndex, cIndex);
+						n++;
+					}
+				}
+			}
+		}
+
+		if (n != apc_support_size) {
+			throw new IllegalStateException ("RJ_AftershockModel.apcBuildSupport: Support size mismatch: expected = " + apc_support_size + ", found = " + n);
+		}
+
+		// Sort by likelihood from high to low, then by single index
+		// (The candidates are in order of single index, and the sort is stable)
+
+		final double[] cand_like = new double[n];
+		final int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			final int index = cand[i];
+			cand_like[i] = apc_likelihood[index / (num_p * num_c)][(index / num_c) % num_p][index % num_c];
+			order[i] = i;
+		}
+
+		sort_order_desc (cand_like, order, new int[n], 0, n);
+
+		// Fill in the arrays
+
+		support_index = new int[n];
+		support_a = new double[n];
+		support_p = new double[n];
+		support_c = new double[n];
+		support_weight = new double[n];
+
+		for (int i = 0; i < n; i++) {
+			final int j = order[i];
+			final int index = cand[j];
+			support_index[i] = index;
+			support_a[i] = get_a_from_single_index (index);
+			support_p[i] = get_p_from_single_index (index);
+			support_c[i] = get_c_from_single_index (index);
+			support_weight[i] = cand_like[j] / apc_support_total;
+		}
+
+		return;
+	}
+
+
+
+
+	// Stable merge sort of an array of positions, so that key values are in decreasing order.
+	// Parameters:
+	//  key = Key values.
+	//  order = Array of positions into key, the range lo to hi-1 is sorted.
+	//  tmp = Workspace, same length as order.
+	//  lo = Beginning of range to sort.
+	//  hi = End of range to sort.
+	// Positions with equal key values keep their original relative order.
+
+	private static void sort_order_desc (final double[] key, final int[] order, final int[] tmp, int lo, int hi) {
+		if (hi - lo < 2) {
+			return;
+		}
+
+		final int mid = (lo + hi) >>> 1;
+		sort_order_desc (key, order, tmp, lo, mid);
+		sort_order_desc (key, order, tmp, mid, hi);
+
+		// If the two halves are already in order, there is nothing to merge
+
+		if (key[order[mid - 1]] >= key[order[mid]]) {
+			return;
+		}
+
+		// Merge the halves, taking from the lower half on ties
+
+		System.arraycopy (order, lo, tmp, lo, hi - lo);
+		int i = lo;
+		int j = mid;
+		for (int k = lo; k < hi; k++) {
+			if (j >= hi || (i < mid && key[tmp[i]] >= key[tmp[j]])) {
+				order[k] = tmp[i++];
+			} else {
+				order[k] = tmp[j++];
+			}
+		}
+
+		return;
+	}
+
+
+
+
 	/**
 	 * This computes the distribution of the number of M >= 5.0 events given all a, p, and c values, as well as the associated
 	 * weight for each set of values.  This is used as a reference function that can be scaled to other magnitudes for greater
@@ -729,42 +877,188 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 	 */
 	public ArbDiscrEmpiricalDistFunc computeNumMag5_DistributionFunc(double tMinDays, double tMaxDays) {
 		
-		// If we already have a function computed for this time interval, then just return it
+		// Make sure the arrays are computed for this time interval
+
+		computeNumMag5_Arrays(tMinDays, tMaxDays);
+
+		// If we don't already have a function, create it from the arrays
+
+		if (numMag5_DistributionFunc == null) {
+			numMag5_DistributionFunc = new ArbDiscrEmpiricalDistFunc();
+			for (int i = 0; i < numMag5_size; i++) {
+				numMag5_DistributionFunc.set(numMag5_x[i], numMag5_y[i]);
+			}
+		}
+
+		return numMag5_DistributionFunc;
+	}
+
+
+
+
+	// Compute the distribution of the number of M >= 5.0 events into the arrays numMag5_x and numMag5_y.
+	// Parameters:
+	//  tMinDays = Beginning of the time interval, in days since the mainshock.
+	//  tMaxDays = End of the time interval, in days since the mainshock.
+	// The expected number for (a,p,c) is k(a) * I(p,c), where k(a) = 10^(a + b*(magMain - 5))
+	// and I(p,c) is the integral of the Omori kernel over the time interval.  These factors are
+	// computed once per a-value and once per (p,c) pair, and give exactly the same values as
+	// AftershockStatsCalc.getExpectedNumEvents.  Points with exactly equal x-values are combined
+	// by adding their y-values, as in ArbDiscrEmpiricalDistFunc.
+	// If the arrays are already computed for this time interval, this function does nothing.
+
+	protected final void computeNumMag5_Arrays(double tMinDays, double tMaxDays) {
+		
+		// If we already have arrays computed for this time interval, then just return
 
-		if(tMinDaysCurrent == tMinDays && tMaxDaysCurrent == tMaxDays && numMag5_DistributionFunc != null) { // already computed
-			return numMag5_DistributionFunc;
+		if(tMinDaysCurrent == tMinDays && tMaxDaysCurrent == tMaxDays && numMag5_x != null) { // already computed
+			return;
 		}
 
-		// Allocate a new function for this time interval
+		// Discard any prior function for a different time interval
 		
 		tMinDaysCurrent = tMinDays;
 		tMaxDaysCurrent = tMaxDays;
-		numMag5_DistributionFunc = new ArbDiscrEmpiricalDistFunc();
+		numMag5_DistributionFunc = null;
 
-		// Add points to the function, x = expected number of M5 aftershocks, y = probability of (a,p,c)
+		// Productivity factor for each a-value in the support
 
+		final int a_count = a_support_hi - a_support_lo;
+		final double[] a_k = new double[a_count];
 		for (int aIndex = a_support_lo; aIndex < a_support_hi; aIndex++) {
-			for (int pIndex = p_support_lo; pIndex < p_support_hi; pIndex++) {
-				for (int cIndex = c_support_lo; cIndex < c_support_hi; cIndex++) {
-					if (apc_likelihood[aIndex][pIndex][cIndex] > apc_max_tail_element) {
-						double numM5 = AftershockStatsCalc.getExpectedNumEvents(get_a(aIndex), b, magMain, 5.0, get_p(pIndex), get_c(cIndex), tMinDays, tMaxDays);
-						numMag5_DistributionFunc.set(numM5, apc_likelihood[aIndex][pIndex][cIndex] / apc_support_total);
-					}
-				}
+			a_k[aIndex - a_support_lo] = AftershockStatsCalc.convertProductivityTo_k(get_a(aIndex), b, magMain, 5.0);
+		}
+
+		// Time integral for each (p,c) pair in the support
+
+		final int c_count = c_support_hi - c_support_lo;
+		final double[] pc_integral = new double[(p_support_hi - p_support_lo) * c_count];
+		for (int pIndex = p_support_lo; pIndex < p_support_hi; pIndex++) {
+			final double p = get_p(pIndex);
+			for (int cIndex = c_support_lo; cIndex < c_support_hi; cIndex++) {
+				final double c = get_c(cIndex);
+				pc_integral[(pIndex - p_support_lo) * c_count + (cIndex - c_support_lo)] = AftershockStatsCalc.pow_diff_div(c + tMaxDays, c + tMinDays, 1.0 - p);
+			}
+		}
+
+		// Collect the points, x = expected number of M5 aftershocks, y = probability of (a,p,c)
+
+		final int n = apc_support_size;
+		final int pc_size = num_p * num_c;
+		final double[] x = new double[n];
+		final double[] y = support_weight;
+
+		for (int i = 0; i < n; i++) {
+			final int index = support_index[i];
+			final int aIndex = index / pc_size;
+			final int pIndex = (index / num_c) % num_p;
+			final int cIndex = index % num_c;
+			x[i] = a_k[aIndex - a_support_lo] * pc_integral[(pIndex - p_support_lo) * c_count + (cIndex - c_support_lo)];
+		}
+
+		// Sort the distinct x-values
+
+		double[] xs = Arrays.copyOf(x, n);
+		Arrays.sort(xs);
+
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			if (m == 0 || xs[i] != xs[m - 1]) {
+				xs[m] = xs[i];
+				m++;
 			}
 		}
 
+		// Accumulate the y-values for each distinct x-value
+
+		double[] ys = new double[m];
+		for (int i = 0; i < m; i++) {
+			ys[i] = 0.0;
+		}
+
+		for (int i = 0; i < n; i++) {
+			ys[Arrays.binarySearch(xs, 0, m, x[i])] += y[i];
+		}
+
+		numMag5_x = (m == xs.length) ? xs : Arrays.copyOf(xs, m);
+		numMag5_y = ys;
+		numMag5_size = m;
+
 		// Debug or verbose output
 
 		if(D) {
-			System.out.println("M>=5 mean = " + String.format("%.6g", numMag5_DistributionFunc.getMean()));
-			//System.out.println("M>=5 mode (caution) = " + String.format("%.6g", numMag5_DistributionFunc.getApparentMode()));	// don't do this because it can throw
-			System.out.println("M>=5 median = " + String.format("%.6g", numMag5_DistributionFunc.getMedian()));
-			System.out.println("M>=5 2.5 Percentile = " + String.format("%.6g", numMag5_DistributionFunc.getInterpolatedFractile(0.025)));
-			System.out.println("M>=5 97.5 Percentile = " + String.format("%.6g", numMag5_DistributionFunc.getInterpolatedFractile(0.975)));
+			System.out.println("M>=5 mean = " + String.format("%.6g", getNumMag5_Mean()));
+			System.out.println("M>=5 median = " + String.format("%.6g", getNumMag5_Fractile(0.5)));
+			System.out.println("M>=5 2.5 Percentile = " + String.format("%.6g", getNumMag5_Fractile(0.025)));
+			System.out.println("M>=5 97.5 Percentile = " + String.format("%.6g", getNumMag5_Fractile(0.975)));
 		}
 
-		return numMag5_DistributionFunc;
+		return;
+	}
+
+
+
+
+	// Get the mean of the distribution of the number of M >= 5.0 events.
+	// Must be called after computeNumMag5_Arrays.
+	// This is the same as numMag5_DistributionFunc.getMean().
+
+	protected final double getNumMag5_Mean() {
+		double sum_xy = 0.0;
+		double sum_y = 0.0;
+		for (int i = 0; i < numMag5_size; i++) {
+			sum_xy += numMag5_x[i] * numMag5_y[i];
+			sum_y += numMag5_y[i];
+		}
+		return sum_xy / sum_y;
+	}
+
+
+
+
+	// Get a fractile of the distribution of the number of M >= 5.0 events.
+	// Parameters:
+	//  fractile = Desired fractile, between 0 and 1.
+	// Must be called after computeNumMag5_Arrays.
+	// This is the same as numMag5_DistributionFunc.getInterpolatedFractile(fractile):  the result
+	// is found by linear interpolation in the normalized cumulative distribution, and is the
+	// smallest x-value if the fractile lies below the first cumulative value.
+
+	protected final double getNumMag5_Fractile(double fractile) {
+		if (!( fractile >= 0.0 && fractile <= 1.0 )) {
+			throw new IllegalArgumentException("RJ_AftershockModel.getNumMag5_Fractile: Fractile out of range: fractile = " + fractile);
+		}
+
+		// Total weight
+
+		double total = 0.0;
+		for (int i = 0; i < numMag5_size; i++) {
+			total += numMag5_y[i];
+		}
+
+		// Scan the normalized cumulative distribution
+
+		double sum = numMag5_y[0];
+		double cum_lo = sum / total;
+		if (fractile <= cum_lo) {
+			return numMag5_x[0];
+		}
+
+		for (int i = 1; i < numMag5_size; i++) {
+			sum += numMag5_y[i];
+			double cum_hi = sum / total;
+			if (fractile <= cum_hi) {
+				if (cum_hi == cum_lo) {
+					return numMag5_x[i - 1];
+				}
+				return numMag5_x[i - 1] + (fractile - cum_lo) * (numMag5_x[i] - numMag5_x[i - 1]) / (cum_hi - cum_lo);
+			}
+			cum_lo = cum_hi;
+		}
+
+		// Can only get here due to rounding in the cumulative sum
+
+		return numMag5_x[numMag5_size - 1];
 	}
 	
 
@@ -828,16 +1122,10 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 	public double getProbOneOrMoreEvents(double magMin, double tMinDays, double tMaxDays) {
 		double result = 0.0;
 
-		for (int aIndex = a_support_lo; aIndex < a_support_hi; aIndex++) {
-			for (int pIndex = p_support_lo; pIndex < p_support_hi; pIndex++) {
-				for (int cIndex = c_support_lo; cIndex < c_support_hi; cIndex++) {
-					if (apc_likelihood[aIndex][pIndex][cIndex] > apc_max_tail_element) {
-						double expectedVal = AftershockStatsCalc.getExpectedNumEvents(get_a(aIndex), b, magMain, magMin, get_p(pIndex), get_c(cIndex), tMinDays, tMaxDays);
-						double poissonProb = 1.0 - Math.exp(-expectedVal);
-						result += (poissonProb * apc_likelihood[aIndex][pIndex][cIndex] / apc_support_total);
-					}
-				}
-			}
+		for (int i = 0; i < apc_support_size; i++) {
+			double expectedVal = AftershockStatsCalc.getExpectedNumEvents(support_a[i], b, magMain, magMin, support_p[i], support_c[i], tMinDays, tMaxDays);
+			double poissonProb = 1.0 - Math.exp(-expectedVal);
+			result += (poissonProb * support_weight[i]);
 		}
 
 		if (result > 1.0) {
@@ -985,8 +1273,8 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 //		double m5val = mfd.getInterpolatedY(5.0);	// fails if minMag > 5 || maxMag < 5
 		double m5val = getModalNumEvents(5.0, tMinDays, tMaxDays);
 
-		computeNumMag5_DistributionFunc(tMinDays, tMaxDays);
-		mfd.scale(numMag5_DistributionFunc.getMean()/m5val);	// scale MFD to the mean at M5
+		computeNumMag5_Arrays(tMinDays, tMaxDays);
+		mfd.scale(getNumMag5_Mean()/m5val);	// scale MFD to the mean at M5
 		mfd.setName("Mean Num Events");
 		mfd.setInfo("Cumulative distribution (greater than or equal to each magnitude)");
 		return mfd;
@@ -1040,8 +1328,8 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 //			m5val = mfd.getInterpolatedY(5.0);
 		double m5val = getModalNumEvents(5.0, tMinDays, tMaxDays);
 
-		computeNumMag5_DistributionFunc(tMinDays, tMaxDays);
-		mfd.scale(numMag5_DistributionFunc.getInterpolatedFractile(fractile)/m5val);
+		computeNumMag5_Arrays(tMinDays, tMaxDays);
+		mfd.scale(getNumMag5_Fractile(fractile)/m5val);
 		mfd.setName(fractile+" Fractile for Num Events");
 		mfd.setInfo("Cumulative distribution (greater than or equal to each magnitude)");
 		return mfd;
@@ -1083,14 +1371,15 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 			mfdArray[i].setName(fractileArray[i]+" Fractile for Num Events, including aleatory variability");
 			mfdArray[i].setInfo("Cumulative distribution (greater than or equal to each magnitude)");
 		}
+		double[] magArray = new double[numMag];
+		for(int i=0;i<numMag;i++) {
+			magArray[i] = mfdArray[0].getX(i);	// any MFD will do, as they all have the same x-axis values
+		}
+		double[][] valsTable = getCumNumFractileWithAleatory(fractileArray, magArray, tMinDays, tMaxDays);
 		for(int i=0;i<numMag;i++) {
-			double mag = mfdArray[0].getX(i);	// any MFD will do, as they all have the same x-axis values
-			double[] valsArray = getCumNumFractileWithAleatory(fractileArray, mag, tMinDays, tMaxDays);
 			for(int j=0;j<fractileArray.length;j++) {
-				mfdArray[j].set(i,valsArray[j]);
-//				System.out.println("\tworking on "+mag);
+				mfdArray[j].set(i,valsTable[i][j]);
 			}
-
 		}
 		return mfdArray;
 	}
@@ -1124,87 +1413,285 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 	 * Note that, although the return type is double[], the return values are integers.
 	 *
 	 * Implementation notes:
-	 * Documentation for PoissonDistribution is here:
-	 * http://commons.apache.org/proper/commons-math/javadocs/api-3.6/org/apache/commons/math3/distribution/PoissonDistribution.html
-	 * Since we do not generate samples from PoissonDistribution, it is better to use the constructor:
-	 * PoissonDistribution(RandomGenerator rng, double p, double epsilon, int maxIterations)
-	 * Set rng = null so that it does not create a random number generator.
-	 * Set epsilon and maxIterations to their default values.
-	 * However, this constructor is apparently planned for removal from Apache Math 4.0,
-	 * so leave the original constructor commented-out in case it needs to be restored.
+	 * This is computed by the batched version of this function, with a single magnitude.
 	 */
 
 	@Override
 	public double[] getCumNumFractileWithAleatory(double[] fractileArray, double mag, double tMinDays, double tMaxDays) {
+		double[] magArray = new double[1];
+		magArray[0] = mag;
+		return getCumNumFractileWithAleatory(fractileArray, magArray, tMinDays, tMaxDays)[0];
+	}
+
+
+
+
+	// Get fractiles for several minimum magnitudes at once.
+	// Parameters:
+	//  fractileArray = Desired fractiles (percentile/100) of the probability distribution.
+	//  magArray = Minimum magnitudes of aftershocks considered.
+	//  tMinDays = Start of time range, in days after the mainshock.
+	//  tMaxDays = End of time range, in days after the mainshock.
+	// Returns an array with dimension [magArray.length][fractileArray.length], where
+	// element [m][i] is the fractileArray[i] fractile for magnitude magArray[m], with the
+	// same meaning as getCumNumFractileWithAleatory(fractileArray, magArray[m], tMinDays, tMaxDays).
+	//
+	// Implementation notes:
+	// The expected number for magnitude mag is the M>=5 expected number times 10^(b*(5 - mag)),
+	// so all magnitudes are stacked in a single pass over the points of the M>=5 distribution.
+	// Each Poisson distribution is computed by recurrence outward from its mode into a reusable
+	// buffer (see PoissonWindow), instead of constructing a PoissonDistribution per point.
+	// As before, each Poisson distribution is truncated to the range between its 0.0001 and 0.9999
+	// fractiles, and the stacked distribution extends to the 0.999 fractile of the Poisson
+	// distribution with the largest expected number.
+	// Magnitudes with the same scale factor (for example, a magnitude that appears more than
+	// once in magArray) share one stacked distribution, so each Poisson window is computed
+	// once per point and distinct scale factor, and its cumulative distribution is used for
+	// the truncation of every such magnitude.
+
+	@Override
+	public double[][] getCumNumFractileWithAleatory(double[] fractileArray, double[] magArray, double tMinDays, double tMaxDays) {
 		// compute the distribution for the expected num aftershocks with M >= 5 (which we will scale to other magnitudes)
-		computeNumMag5_DistributionFunc(tMinDays, tMaxDays);
+		computeNumMag5_Arrays(tMinDays, tMaxDays);
 
-		// get the maximum expected num, which we will use to set the maximum num in the distribution function
-//System.out.print("\tworking on M "+mag+"\nunm="+numMag5_DistributionFunc.size()+"\n");
-		double maxExpNum = numMag5_DistributionFunc.getMaxX()*Math.pow(10d, b*(5.0 - mag));
+		final PoissonWindow poisson = new PoissonWindow();
+
+		// For each magnitude, the scale factor from M>=5, and the index of the distinct
+		// scale factor whose stacked distribution it uses
+
+		final double[] all_scale = new double[magArray.length];
+		final int[] mag_to_scale = new int[magArray.length];
+		int num_mag = 0;
 
-		if (maxExpNum > 10000000.0) {	// should never matter for sensible data
-			maxExpNum = 10000000.0;
+		for (int k = 0; k < magArray.length; k++) {
+			final double scale = Math.pow(10d, b*(5.0 - magArray[k]));
+			int m = 0;
+			while (m < num_mag && all_scale[m] != scale) {
+				m++;
+			}
+			if (m == num_mag) {
+				all_scale[num_mag++] = scale;
+			}
+			mag_to_scale[k] = m;
 		}
 
-//		PoissonDistribution poissDist = new PoissonDistribution(maxExpNum);
-		PoissonDistribution poissDist = new PoissonDistribution(null, maxExpNum, PoissonDistribution.DEFAULT_EPSILON, PoissonDistribution.DEFAULT_MAX_ITERATIONS);
-		int maxAleatoryNum = poissDist.inverseCumulativeProbability(0.999);
-		
-		double[] distFunc = new double[maxAleatoryNum + 1];
-		double totWt = 0.0;
-		for(int j = 0; j < distFunc.length; j++) {
-			distFunc[j] = 0.0;
+		final double[] mag_scale = Arrays.copyOf(all_scale, num_mag);
+
+		// For each distinct scale factor, the stacked distribution sized using the maximum expected num
+
+		final double[][] distFunc = new double[num_mag][];
+
+		for (int m = 0; m < num_mag; m++) {
+			double maxExpNum = numMag5_x[numMag5_size - 1]*mag_scale[m];
+			if (maxExpNum > 10000000.0) {	// should never matter for sensible data
+				maxExpNum = 10000000.0;
+			}
+
+			poisson.set_mean(maxExpNum);
+			int maxAleatoryNum = poisson.inverse_cum(0.999);
+
+			distFunc[m] = new double[maxAleatoryNum + 1];
+			for(int j = 0; j < distFunc[m].length; j++) {
+				distFunc[m][j] = 0.0;
+			}
 		}
 
 		// Stack the Poisson probability distributions, weighted by likelihoods
-		
-		for(int i = 0; i < numMag5_DistributionFunc.size(); i++) {
-			double expNum = numMag5_DistributionFunc.getX(i)*Math.pow(10d, b*(5.0 - mag));
-			double wt = numMag5_DistributionFunc.getY(i);
-//			poissDist = new PoissonDistribution(expNum);
-			poissDist = new PoissonDistribution(null, expNum, PoissonDistribution.DEFAULT_EPSILON, PoissonDistribution.DEFAULT_MAX_ITERATIONS);
-			totWt += wt;
-			
-			int minLoopVal = poissDist.inverseCumulativeProbability(0.0001);
-			int maxLoopVal = poissDist.inverseCumulativeProbability(0.9999);
-			if(maxLoopVal > distFunc.length - 1) {
-				maxLoopVal = distFunc.length - 1;
+
+		for(int i = 0; i < numMag5_size; i++) {
+			final double x5 = numMag5_x[i];
+			final double wt = numMag5_y[i];
+
+			for (int m = 0; m < num_mag; m++) {
+				final double[] dist = distFunc[m];
+				poisson.set_mean(x5*mag_scale[m]);
+
+				int minLoopVal = poisson.inverse_cum(0.0001);
+				int maxLoopVal = poisson.inverse_cum(0.9999);
+				if(maxLoopVal > dist.length - 1) {
+					maxLoopVal = dist.length - 1;
+				}
+				for(int j = minLoopVal; j <= maxLoopVal; j++) {
+					dist[j] += poisson.probability(j)*wt;
+				}
 			}
-			if(minLoopVal < 0) {
-				minLoopVal = 0;
+		}
+
+		// For each distinct scale factor ...
+
+		final double[][] scaleFractVal = new double[num_mag][fractileArray.length];
+
+		for (int m = 0; m < num_mag; m++) {
+			final double[] dist = distFunc[m];
+
+			// Convert to a cumulative distribution
+
+			double sum = 0.0;
+			for(int j = 0; j < dist.length; j++) {
+				sum += dist[j];
+				dist[j] = sum;
 			}
-			for(int j = minLoopVal; j <= maxLoopVal; j++) {
-				distFunc[j] += poissDist.probability(j)*wt;
+
+			// Get the fractiles, using binary search
+
+			for(int i = 0; i < fractileArray.length; i++) {
+				int lo = -1;
+				int hi = dist.length;
+				while (hi - lo > 1) {
+					int mid = (lo + hi) / 2;
+					if (dist[mid] >= fractileArray[i]) {
+						hi = mid;		// preserve the condition dist[hi] >= fractile
+					} else {
+						lo = mid;
+					}
+				}
+				scaleFractVal[m][i] = (double)hi;
 			}
 		}
 
-		// Convert to a cumulative distribution
+		// Copy to each magnitude
+
+		final double[][] fractValTable = new double[magArray.length][];
 
-		double sum = 0.0;
-		for(int j = 0; j < distFunc.length; j++) {
-			sum += distFunc[j];
-			distFunc[j] = sum;
+		for (int k = 0; k < magArray.length; k++) {
+			fractValTable[k] = Arrays.copyOf(scaleFractVal[mag_to_scale[k]], fractileArray.length);
 		}
 
-		// Get the fractiles, using binary search
+		return fractValTable;
+	}
 
-		double[] fractValArray = new double[fractileArray.length];
-		for(int i = 0; i < fractileArray.length; i++) {
-			int lo = -1;
-			int hi = distFunc.length;
-			while (hi - lo > 1) {
-				int mid = (lo + hi) / 2;
-				if (distFunc[mid] >= fractileArray[i]) {
-					hi = mid;		// preserve the condition distFunc[hi] >= fractile
-				} else {
-					lo = mid;
+
+
+
+	// Class to hold the significant portion of a Poisson distribution.
+	// The probabilities are computed by recurrence outward from the mode, and held
+	// in a buffer that is re-used for each mean, so no objects are created per point.
+	// The window extends until the probability falls below POISSON_WINDOW_EPS times
+	// the probability at the mode, so the mass outside the window is negligible.
+
+	private static final double POISSON_WINDOW_EPS = 1.0e-17;
+
+	private static class PoissonWindow {
+
+		// The smallest value in the window.
+
+		private int lo;
+
+		// The number of values in the window.
+
+		private int size;
+
+		// Probabilities, pmf[j - lo] is the probability of value j, for lo <= j < lo + size.
+
+		private double[] pmf = new double[64];
+
+		// Cumulative probabilities, cdf[j - lo] is the probability of value <= j.
+
+		private double[] cdf = new double[64];
+
+		// Set up the distribution for the given mean.
+		// Parameters:
+		//  lambda = Mean of the Poisson distribution, must be >= 0.
+
+		public final void set_mean (double lambda) {
+
+			// Zero mean is a point mass at zero
+
+			if (!( lambda > 0.0 )) {
+				lo = 0;
+				size = 1;
+				pmf[0] = 1.0;
+				cdf[0] = 1.0;
+				return;
+			}
+
+			// Probability at the mode
+
+			final int mode = (int)Math.floor(lambda);
+			final double p_mode = Math.exp(((double)mode)*Math.log(lambda) - lambda - Gamma.logGamma(((double)mode) + 1.0));
+			final double p_min = p_mode * POISSON_WINDOW_EPS;
+
+			// Find the lower end of the window
+
+			int j_lo = mode;
+			double p = p_mode;
+			while (j_lo > 0) {
+				double p_next = p * ((double)j_lo) / lambda;
+				if (p_next < p_min) {
+					break;
+				}
+				p = p_next;
+				--j_lo;
+			}
+
+			// Find the upper end of the window
+
+			int j_hi = mode;
+			p = p_mode;
+			for (;;) {
+				double p_next = p * lambda / ((double)(j_hi + 1));
+				if (p_next < p_min) {
+					break;
 				}
+				p = p_next;
+				++j_hi;
+			}
+
+			// Make sure the buffers are big enough
+
+			lo = j_lo;
+			size = j_hi - j_lo + 1;
+			if (pmf.length < size) {
+				int new_length = Math.max(size, 2 * pmf.length);
+				pmf = new double[new_length];
+				cdf = new double[new_length];
+			}
+
+			// Fill in the probabilities
+
+			pmf[mode - lo] = p_mode;
+			for (int j = mode; j > lo; --j) {
+				pmf[j - 1 - lo] = pmf[j - lo] * ((double)j) / lambda;
+			}
+			for (int j = mode; j < j_hi; ++j) {
+				pmf[j + 1 - lo] = pmf[j - lo] * lambda / ((double)(j + 1));
 			}
-			fractValArray[i] = (double)hi;
+
+			// Cumulate
+
+			double sum = 0.0;
+			for (int k = 0; k < size; ++k) {
+				sum += pmf[k];
+				cdf[k] = sum;
+			}
+			return;
 		}
 
-		return fractValArray;
+		// Get the probability of the given value.
+
+		public final double probability (int j) {
+			int k = j - lo;
+			if (k < 0 || k >= size) {
+				return 0.0;
+			}
+			return pmf[k];
+		}
+
+		// Get the smallest value j such that the probability of j or fewer is >= frac.
+
+		public final int inverse_cum (double frac) {
+			int klo = -1;
+			int khi = size - 1;
+			while (khi - klo > 1) {
+				int mid = (klo + khi) / 2;
+				if (cdf[mid] >= frac) {
+					khi = mid;
+				} else {
+					klo = mid;
+				}
+			}
+			return lo + khi;
+		}
 	}
 
 
@@ -1270,11 +1757,11 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 	 */
 	public double[] getDistFuncWithAleatory(double mag, double tMinDays, double tMaxDays) {
 		// compute the distribution for the expected num aftershocks with M >= 5 (which we will scale to other magnitudes)
-		computeNumMag5_DistributionFunc(tMinDays, tMaxDays);
+		computeNumMag5_Arrays(tMinDays, tMaxDays);
 
 		// get the maximum expected num, which we will use to set the maximum num in the distribution function
 //System.out.print("\tworking on M "+mag+"\nunm="+numMag5_DistributionFunc.size()+"\n");
-		double maxExpNum = numMag5_DistributionFunc.getMaxX()*Math.pow(10d, b*(5-mag));
+		double maxExpNum = numMag5_x[numMag5_size - 1]*Math.pow(10d, b*(5-mag));
 
 //		PoissonDistribution poissDist = new PoissonDistribution(maxExpNum);
 		PoissonDistribution poissDist = new PoissonDistribution(null, maxExpNum, PoissonDistribution.DEFAULT_EPSILON, PoissonDistribution.DEFAULT_MAX_ITERATIONS);
@@ -1283,10 +1770,10 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 		double[] distFunc = new double[maxAleatoryNum+1];
 		double totWt=0;
 		
-		for(int i=0;i<numMag5_DistributionFunc.size();i++) {
+		for(int i=0;i<numMag5_size;i++) {
 //System.out.print(", "+i);
-			double expNum = numMag5_DistributionFunc.getX(i)*Math.pow(10d, b*(5-mag));
-			double wt = numMag5_DistributionFunc.getY(i);
+			double expNum = numMag5_x[i]*Math.pow(10d, b*(5-mag));
+			double wt = numMag5_y[i];
 //			poissDist = new PoissonDistribution(expNum);
 			poissDist = new PoissonDistribution(null, expNum, PoissonDistribution.DEFAULT_EPSILON, PoissonDistribution.DEFAULT_MAX_ITERATIONS);
 			totWt+=wt;
@@ -1326,20 +1813,14 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 
 			// Allocate the array
 
-			cum_apc_probability = new double[apc_total_size];
+			cum_apc_probability = new double[apc_support_size];
 
-			// Compute the cumulative distribution, neglecting elements in the tail
+			// Compute the cumulative distribution over the support
 
 			double cum_prob = 0.0;
-			for (int aIndex = 0; aIndex < num_a; aIndex++) {
-				for (int pIndex = 0; pIndex < num_p; pIndex++) {
-					for (int cIndex = 0; cIndex < num_c; cIndex++) {
-						if (apc_likelihood[aIndex][pIndex][cIndex] > apc_max_tail_element) {
-							cum_prob += apc_likelihood[aIndex][pIndex][cIndex];
-						}
-						cum_apc_probability[get_single_index (aIndex, pIndex, cIndex)] = cum_prob;
-					}
-				}
+			for (int i = 0; i < apc_support_size; i++) {
+				cum_prob += support_weight[i];
+				cum_apc_probability[i] = cum_prob;
 			}
 		}
 
@@ -1354,12 +1835,12 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 
 		// Scale the random value by the top of the cumulative distribution
 
-		ranval *= cum_apc_probability[apc_total_size - 1];
+		ranval *= cum_apc_probability[apc_support_size - 1];
 
 		// Use binary search to find the first entry with cumulative probability >= ranval
 
 		int lo = -1;
-		int hi = apc_total_size - 1;
+		int hi = apc_support_size - 1;
 		while (hi - lo > 1) {
 			int mid = (lo + hi) / 2;
 			if (cum_apc_probability[mid] >= ranval) {
@@ -1371,9 +1852,9 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 
 		// Return the (a,p,c) values
 
-		apcval[0] = get_a_from_single_index (hi);
-		apcval[1] = get_p_from_single_index (hi);
-		apcval[2] = get_c_from_single_index (hi);
+		apcval[0] = support_a[hi];
+		apcval[1] = support_p[hi];
+		apcval[2] = support_c[hi];
 	
 		return;
 	}
@@ -1638,10 +2119,111 @@ public abstract class RJ_AftershockModel implements USGS_ForecastModel {
 
 
 
+	// Check PoissonWindow against PoissonDistribution.
+	// For a range of means, compare the integer fractiles from inverse_cum with
+	// PoissonDistribution.inverseCumulativeProbability, and the probabilities with
+	// PoissonDistribution.probability, over the window.
+	// Returns the number of mismatches.
+
+	private static int test_poisson_window () {
+		final double[] means = {1.0e-8, 1.0e-3, 0.1, 0.5, 1.0, 2.0, 3.7, 10.0, 25.5, 100.0, 1234.5, 1.0e5, 1.0e7};
+		final double[] fracs = {1.0e-12, 0.0001, 0.001, 0.025, 0.16, 0.5, 0.84, 0.975, 0.999, 0.9999};
+		final double prob_tol = 1.0e-9;
+
+		PoissonWindow poisson = new PoissonWindow();
+		int total_mismatch = 0;
+
+		for (double lambda : means) {
+			poisson.set_mean(lambda);
+			PoissonDistribution poissDist = new PoissonDistribution(null, lambda, PoissonDistribution.DEFAULT_EPSILON, PoissonDistribution.DEFAULT_MAX_ITERATIONS);
+			int mismatch = 0;
+
+			// Integer fractiles
+
+			for (double frac : fracs) {
+				int j_window = poisson.inverse_cum(frac);
+				int j_dist = poissDist.inverseCumulativeProbability(frac);
+				if (j_window != j_dist) {
+					System.out.println("Fractile mismatch: lambda = " + lambda + ", frac = " + frac + ", window = " + j_window + ", PoissonDistribution = " + j_dist);
+					mismatch++;
+				}
+			}
+
+			// Probabilities, over the window and one value beyond each end
+
+			double max_rel_diff = 0.0;
+			for (int j = Math.max(0, poisson.lo - 1); j <= poisson.lo + poisson.size; j++) {
+				double p_window = poisson.probability(j);
+				double p_dist = poissDist.probability(j);
+				if (j < poisson.lo || j >= poisson.lo + poisson.size) {
+					if (!( p_dist <= 1.0e-15 )) {		// window drops values below 1.0e-17 times the mode probability
+						System.out.println("Probability outside window: lambda = " + lambda + ", j = " + j + ", PoissonDistribution = " + p_dist);
+						mismatch++;
+					}
+				} else if (p_dist > 1.0e-250) {
+					double rel_diff = Math.abs(p_window - p_dist) / p_dist;
+					max_rel_diff = Math.max(max_rel_diff, rel_diff);
+					if (!( rel_diff <= prob_tol )) {
+						if (mismatch < 10) {
+							System.out.println("Probability mismatch: lambda = " + lambda + ", j = " + j + ", window = " + p_window + ", PoissonDistribution = " + p_dist);
+						}
+						mismatch++;
+					}
+				}
+			}
+
+			System.out.println("lambda = " + lambda + ": window = [" + poisson.lo + ", " + (poisson.lo + poisson.size - 1) + "], mismatches = " + mismatch
+				+ ", max_rel_diff = " + String.format("%.3e", max_rel_diff));
+			total_mismatch += mismatch;
+		}
+
+		return total_mismatch;
+	}
+
+
+
+
 	public static void main(String[] args) {
-		// TODO Auto-generated method stub
 
+		// There needs to be at least one argument, which is the subcommand
+
+		if (args.length < 1) {
+			System.err.println ("RJ_AftershockModel : Missing subcommand");
+			return;
+		}
+
+
+		// Subcommand : Test #1
+		// Command format:
+		//  test1
+		// Check that the Poisson windows used for aleatory fractiles give the same integer
+		// fractiles and probabilities as PoissonDistribution.
+
+		if (args[0].equalsIgnoreCase ("test1")) {
+
+			// No additional arguments
+
+			if (args.length != 1) {
+				System.err.println ("RJ_AftershockModel : Invalid 'test1' subcommand");
+				return;
+			}
+
+			// Run the test
+
+			int total_mismatch = test_poisson_window();
+			System.out.println ((total_mismatch == 0) ? "All values match" : ("Total mismatches = " + total_mismatch));
+
+			return;
+		}
+
+
+
+
+		// Unrecognized subcommand.
+
+		System.err.println ("RJ_AftershockModel : Unrecognized subcommand : " + args[0]);
 		return;
+	
 	}
 
 }
@@ -349,6 +349,108 @@ public class RJ_AftershockModel_Generic extends RJ_AftershockModel {
 
 
 
+		// Subcommand : Test #3
+		// Command format:
+		//  test3
+		// Check that getNumMag5_Fractile, which works on primitive arrays, agrees with
+		// ArbDiscrEmpiricalDistFunc.getInterpolatedFractile.  Fractiles include 0, 1, values
+		// very close to 0 and 1, and values exactly equal to each cumulative probability (ties).
+		// Done first for a generic model, then for a synthetic distribution that contains
+		// zero weights (repeated cumulative values), a dominant point, and a single point.
+
+		if (args[0].equalsIgnoreCase ("test3")) {
+
+			// No additional arguments
+
+			if (args.length != 1) {
+				System.err.println ("RJ_AftershockModel_Generic : Invalid 'test3' subcommand");
+				return;
+			}
+
+			// Run the test
+
+			GenericRJ_ParametersFetch fetch = new GenericRJ_ParametersFetch();
+			Location loc = new Location(33.0, -120, 6.0);
+			RJ_AftershockModel_Generic gen = new RJ_AftershockModel_Generic(7d,fetch.get(loc));
+
+			double[][] synth_x = {
+				null,
+				{0.5, 1.0, 2.0, 3.0, 4.0, 5.0},
+				{0.5, 1.0, 2.0, 3.0},
+				{1.5}
+			};
+			double[][] synth_y = {
+				null,
+				{0.1, 0.0, 0.3, 0.0, 0.0, 0.6},
+				{1.0e-15, 1.0, 1.0e-15, 1.0e-15},
+				{2.0}
+			};
+			String[] case_name = {"generic model", "zero weights", "dominant point", "single point"};
+
+			int total_mismatch = 0;
+
+			for (int ncase = 0; ncase < case_name.length; ++ncase) {
+
+				// Compute the arrays, or replace them with the synthetic distribution
+
+				gen.computeNumMag5_Arrays(0d, 7d);
+				if (synth_x[ncase] != null) {
+					gen.numMag5_x = synth_x[ncase];
+					gen.numMag5_y = synth_y[ncase];
+					gen.numMag5_size = synth_x[ncase].length;
+					gen.numMag5_DistributionFunc = null;
+				}
+				ArbDiscrEmpiricalDistFunc dist_func = gen.computeNumMag5_DistributionFunc(0d, 7d);
+
+				// List of fractiles, including each cumulative probability
+
+				ArrayList<Double> fractiles = new ArrayList<Double>();
+				double[] fixed_fractiles = {0.0, 1.0e-12, 0.001, 0.025, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 0.975, 0.999, 1.0 - 1.0e-12, 1.0};
+				for (double fractile : fixed_fractiles) {
+					fractiles.add (fractile);
+				}
+				double total = 0.0;
+				for (int i = 0; i < gen.numMag5_size; i++) {
+					total += gen.numMag5_y[i];
+				}
+				double sum = 0.0;
+				for (int i = 0; i < gen.numMag5_size; i++) {
+					sum += gen.numMag5_y[i];
+					fractiles.add (Math.min (1.0, sum / total));
+				}
+
+				// Compare
+
+				int mismatch = 0;
+				double max_rel_diff = 0.0;
+				for (double fractile : fractiles) {
+					double v_arrays = gen.getNumMag5_Fractile(fractile);
+					double v_func = dist_func.getInterpolatedFractile(fractile);
+					double rel_diff = Math.abs (v_arrays - v_func) / Math.max (1.0e-300, Math.abs (v_func));
+					max_rel_diff = Math.max (max_rel_diff, rel_diff);
+					if (!( rel_diff <= 1.0e-12 )) {
+						System.out.println ("Mismatch: case = " + case_name[ncase] + ", fractile = " + fractile + ", arrays = " + v_arrays + ", function = " + v_func);
+						++mismatch;
+					}
+				}
+
+				System.out.println (case_name[ncase] + ": points = " + gen.numMag5_size + ", fractiles = " + fractiles.size()
+					+ ", mismatches = " + mismatch + ", max_rel_diff = " + max_rel_diff);
+				total_mismatch += mismatch;
+
+				// Force recomputation for the next case
+
+				gen.numMag5_x = null;
+				gen.numMag5_DistributionFunc = null;
+			}
+
+			System.out.println ((total_mismatch == 0) ? "All fractiles match" : ("Total mismatches = " + total_mismatch));
+
+			return;
+		}
+
+
+
 
 		// Unrecognized subcommand.
 
@@ -11,6 +11,8 @@ import org.opensha.sha.earthquake.observedEarthquake.ObsEqkRupture;
 import org.opensha.sha.magdist.ArbIncrementalMagFreqDist;
 import org.opensha.sha.magdist.GutenbergRichterMagFreqDist;
 
+import org.opensha.oaf.util.AutoExecutorService;
+import org.opensha.oaf.util.SimpleParallelHelper;
 import org.opensha.oaf.util.MarshalReader;
 import org.opensha.oaf.util.MarshalWriter;
 import org.opensha.oaf.util.MarshalException;
@@ -72,6 +74,17 @@ public class RJ_AftershockModel_SequenceSpecific extends RJ_AftershockModel {
 
 	protected int numAftershocks = 0;
 
+	// Minimum number of (p,c) pairs for which the likelihood is computed in parallel.
+
+	private static final int APC_PARALLEL_MIN_SIZE = 16;
+
+	// Number of threads used to compute the likelihood, in the format used by AutoExecutorService.
+	// The default, AESNUM_DEFAULT, uses AutoExecutorService.get_default_num_threads().
+	// AESNUM_SINGLE computes the likelihood in the calling thread, with no executor.
+	// A caller that runs other work at the same time can use this to bound the total number of threads.
+
+	protected int apc_num_threads = AutoExecutorService.AESNUM_DEFAULT;
+
 
 
 
@@ -94,6 +107,20 @@ public class RJ_AftershockModel_SequenceSpecific extends RJ_AftershockModel {
 
 
 
+	// Get or set the number of threads used to compute the likelihood.
+	// The setting takes effect the next time apc_build is called.
+
+	public int get_apc_num_threads () {
+		return apc_num_threads;
+	}
+
+	public void set_apc_num_threads (int the_apc_num_threads) {
+		apc_num_threads = the_apc_num_threads;
+		return;
+	}
+
+
+
 	// Get the magnitude of completeness function.
 
 	public MagCompFn get_magCompFn () {
@@ -123,12 +150,35 @@ public class RJ_AftershockModel_SequenceSpecific extends RJ_AftershockModel {
 				double dataStartTimeDays, double dataEndTimeDays,
 				MagCompPage_Parameters mcParam, SeqSpecRJ_Parameters sqParam) {
 		
+		this(mainShock, aftershockList, dataStartTimeDays, dataEndTimeDays,
+				mcParam, sqParam, AutoExecutorService.AESNUM_DEFAULT);
+
+	}
+
+
+
+	
+	/**
+	 * Use this constructor to initialize from parameter holders, with a given number of threads.
+	 * @param mainShock - the mainshock
+	 * @param aftershockList - list of aftershocks; events with mag below magCat will be filtered out
+	 * @param dataStartTimeDays - start time for data, in days since the mainshock
+	 * @param dataEndTimeDays - end time for data, in days since the mainshock
+	 * @param mcParam - magnitude of completeness parameters
+	 * @param sqParam - sequence-specific range parameters
+	 * @param num_threads - number of threads used to compute the likelihood, see apc_num_threads
+	 */
+	public RJ_AftershockModel_SequenceSpecific(ObsEqkRupture mainShock, List<ObsEqkRupture> aftershockList,
+				double dataStartTimeDays, double dataEndTimeDays,
+				MagCompPage_Parameters mcParam, SeqSpecRJ_Parameters sqParam, int num_threads) {
+		
 		this(mainShock, aftershockList,
 				mcParam.get_magCat(mainShock.getMag()), mcParam.get_magCompFn(),
 				sqParam.get_b(), dataStartTimeDays, dataEndTimeDays,
 				sqParam.get_min_a(), sqParam.get_max_a(), sqParam.get_num_a(),
 				sqParam.get_min_p(), sqParam.get_max_p(), sqParam.get_num_p(),
-				sqParam.get_min_c(), sqParam.get_max_c(), sqParam.get_num_c());
+				sqParam.get_min_c(), sqParam.get_max_c(), sqParam.get_num_c(),
+				num_threads);
 
 	}
 
@@ -201,6 +251,26 @@ public class RJ_AftershockModel_SequenceSpecific extends RJ_AftershockModel {
 											double min_p, double max_p, int num_p, 
 											double min_c, double max_c, int num_c) {
 		
+		this(mainShock, aftershockList, magCat, magCompFn, b, dataStartTimeDays, dataEndTimeDays,
+				min_a, max_a, num_a, min_p, max_p, num_p, min_c, max_c, num_c, AutoExecutorService.AESNUM_DEFAULT);
+
+	}
+
+
+
+	
+	/**
+	 * This is the same as the constructor above, with a given number of threads.
+	 * @param num_threads - number of threads used to compute the likelihood, see apc_num_threads
+	 */
+	public RJ_AftershockModel_SequenceSpecific(ObsEqkRupture mainShock, List<ObsEqkRupture> aftershockList,
+			 								double magCat, MagCompFn magCompFn,
+											double b, double dataStartTimeDays, double dataEndTimeDays,
+											double min_a, double max_a, int num_a, 
+											double min_p, double max_p, int num_p, 
+											double min_c, double max_c, int num_c,
+											int num_threads) {
+		
 		// check range values
 		if(num_a == 1 && min_a != max_a) {
 			throw new RuntimeException("RJ_AftershockModel_SequenceSpecific: num_a == 1 && min_a != max_a");
@@ -241,6 +311,7 @@ public class RJ_AftershockModel_SequenceSpecific extends RJ_AftershockModel {
 		this.dataEndTimeDays=dataEndTimeDays;
 		
 		this.magMain = mainShock.getMag();
+		this.apc_num_threads = num_threads;
 
 		if(num_a>1) {
 			this.delta_a = (max_a-min_a)/((double)num_a - 1.0);
@@ -298,18 +369,15 @@ public class RJ_AftershockModel_SequenceSpecific extends RJ_AftershockModel {
 		// Allocate the array
 
 		apc_likelihood = new double[num_a][num_p][num_c];
-		double ln10 = Math.log(10);
+		final double ln10 = Math.log(10);
 
 		// Sum of magMain - magMin(t_i)
 
 		double sum1 = 0.0;
 
-		// Sum of log(t_i + c)
+		// Times of the accepted aftershocks, in days since the mainshock
 
-		double[] sum2 = new double[num_c];
-		for(int cIndex = 0; cIndex < num_c; cIndex++) {
-			sum2[cIndex] = 0.0;
-		}
+		double[] eventTimes = new double[Math.max(1, aftershockList.size())];
 
 		// Number of aftershocks
 
@@ -333,39 +401,81 @@ public class RJ_AftershockModel_SequenceSpecific extends RJ_AftershockModel {
 			// If the aftershock magnitude is at least the magnitude of completeness, accumulate it
 
 			if(rup.getMag() >= magMin) {
+				eventTimes[numEvents] = timeSinceMainDays;
 				numEvents += 1;
 				sum1 += (magMain - magMin);
-				for(int cIndex = 0; cIndex < num_c; cIndex++) {
-					double c = get_c(cIndex);
-					sum2[cIndex] += Math.log(timeSinceMainDays + c);
-				}
 				++numAftershocks;
 			}
 		}
 
-		// Now loop over p and a and c
+		// Each a-value, and its contribution to the log likelihood
 
-		for(int pIndex=0;pIndex<num_p;pIndex++) {
-			double p = get_p(pIndex);
-			for(int aIndex=0;aIndex<num_a;aIndex++) {
-				double a = get_a(aIndex);
-				for(int cIndex = 0; cIndex < num_c; cIndex++) {
-					double c = get_c(cIndex);
+		final double[] a_pow10 = new double[num_a];
+		final double[] a_term = new double[num_a];
+		for(int aIndex=0;aIndex<num_a;aIndex++) {
+			double a = get_a(aIndex);
+			a_pow10[aIndex] = Math.pow(10.0, a);
+			a_term[aIndex] = numEvents*a*ln10 + b*ln10*sum1;
+		}
+
+		// Sum of log(t_i + c), for each c
+
+		final double[] sum2 = new double[num_c];
+		final double[] f_eventTimes = eventTimes;
+		final int f_numEvents = numEvents;
+
+		// The interval for the integral
 
-					// Compute the integral of the aftershock rate over the time interval
+		final double tIntMin = Math.max (0.0, dataStartTimeDays);
+		final double tIntMax = dataEndTimeDays;
 
-					double integral = AftershockStatsCalc.getPageExpectedNumEvents(
-						a, b, magMain, magCat, magCompFn, p, c, Math.max (0.0, dataStartTimeDays), dataEndTimeDays);
+		// Run the sufficient statistics in parallel if the grid is large enough,
+		// using no more than the requested number of threads
 
-					// Form the log likelihood
+		try (
+			AutoExecutorService executor = (num_p * num_c >= APC_PARALLEL_MIN_SIZE && apc_num_threads != AutoExecutorService.AESNUM_SINGLE)
+				? new AutoExecutorService(apc_num_threads) : null;
+		) {
 
-					double logLike = numEvents*a*ln10 + b*ln10*sum1 - p*sum2[cIndex] - integral;
+			// Compute the sum of log(t_i + c) for each c
 
-					// Save it as the array element
+			SimpleParallelHelper.parallel_for (0, num_c, new SimpleParallelHelper.LoopBody() {
+				@Override
+				public void run_iteration (int cIndex) {
+					double c = get_c(cIndex);
+					double sum = 0.0;
+					for (int i = 0; i < f_numEvents; i++) {
+						sum += Math.log(f_eventTimes[i] + c);
+					}
+					sum2[cIndex] = sum;
+				}
+			}, executor);
+
+			// For each (p,c), compute the integral of the aftershock rate over the time interval.
+			// The integral is proportional to 10^a, so it is computed once with a = 0, and then
+			// the log likelihood is filled in analytically along the a-axis.
+
+			SimpleParallelHelper.parallel_for (0, num_p * num_c, new SimpleParallelHelper.LoopBody() {
+				@Override
+				public void run_iteration (int pcIndex) {
+					int pIndex = pcIndex / num_c;
+					int cIndex = pcIndex % num_c;
+					double p = get_p(pIndex);
+					double c = get_c(cIndex);
+
+					// Integral for a = 0
 
-					apc_likelihood[aIndex][pIndex][cIndex] = logLike;
+					double unitIntegral = AftershockStatsCalc.getPageExpectedNumEvents(
+						0.0, b, magMain, magCat, magCompFn, p, c, tIntMin, tIntMax);
+
+					// Form the log likelihood for each a
+
+					double pcTerm = p*sum2[cIndex];
+					for(int aIndex=0;aIndex<num_a;aIndex++) {
+						apc_likelihood[aIndex][pIndex][cIndex] = a_term[aIndex] - pcTerm - a_pow10[aIndex]*unitIntegral;
+					}
 				}
-			}
+			}, executor);
 		}
 
 		// Complete the likelihood setup
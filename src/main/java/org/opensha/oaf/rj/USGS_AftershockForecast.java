@@ -628,10 +628,12 @@ public class USGS_AftershockForecast {
 			
 			endDates[i] = endDate;
 			
+			double[][] fractileTable = model.getCumNumFractileWithAleatory(combinedCalcFractiles, calcMags, tMinDays, tMaxDays);
+			
 			for (int m=0; m<calcMags.length; m++) {
 				double minMag = calcMags[m];
 				
-				double[] fractiles = model.getCumNumFractileWithAleatory(combinedCalcFractiles, minMag, tMinDays, tMaxDays);
+				double[] fractiles = fractileTable[m];
 				
 				numEventsLower.put(duration, minMag, fractiles[0]);
 				numEventsUpper.put(duration, minMag, fractiles[1]);
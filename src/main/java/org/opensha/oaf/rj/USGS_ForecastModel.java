@@ -51,6 +51,31 @@ public interface USGS_ForecastModel {
 	// cannot supply the requested results.
 
 	public double[] getCumNumFractileWithAleatory (double[] fractileArray, double mag, double tMinDays, double tMaxDays);
+
+
+
+
+	// Get fractiles for the probability distribution of forecasted number of aftershocks,
+	// for several minimum magnitudes at once.
+	// Parameters:
+	//  fractileArray = Desired fractiles (percentile/100) of the probability distribution.
+	//  magArray = Minimum magnitudes of aftershocks considered.
+	//  tMinDays = Start of time range, in days after some origin time.
+	//  tMaxDays = End of time range, in days after some origin time.
+	// The return value is an array with dimension [magArray.length][fractileArray.length].
+	// Element [m][i] is the same as element i of the value returned by
+	// getCumNumFractileWithAleatory(fractileArray, magArray[m], tMinDays, tMaxDays).
+	//
+	// Note: The default implementation calls the single-magnitude function for each
+	// magnitude.  A model can override this if it can share work between magnitudes.
+
+	public default double[][] getCumNumFractileWithAleatory (double[] fractileArray, double[] magArray, double tMinDays, double tMaxDays) {
+		double[][] result = new double[magArray.length][];
+		for (int m = 0; m < magArray.length; ++m) {
+			result[m] = getCumNumFractileWithAleatory (fractileArray, magArray[m], tMinDays, tMaxDays);
+		}
+		return result;
+	}
 	
 
 
@@ -0,0 +1,174 @@
+package org.opensha.oaf.util;
+
+import java.util.List;
+import java.util.ArrayList;
+
+
+// Helper functions for running small parallel operations on an executor.
+//
+// These are intended for work done between multi-threaded loops, such as
+// finishing accumulation after all worker threads have terminated, which would
+// otherwise run serially in the main thread.
+//
+// Each function uses SimpleThreadLoopHelper to run a loop on the executor, and
+// waits for it to finish.  If the executor is null or single-threaded, or if
+// there is too little work to share, the loop is run in the calling thread.
+// The results are the same either way.
+
+public class SimpleParallelHelper {
+
+	//----- Parallel loop -----
+
+	// Interface for the body of a parallel loop.
+
+	public interface LoopBody {
+
+		// Execute one iteration of the loop.
+		// Parameters:
+		//  index = The loop index.
+		// Threading: Called concurrently from multiple threads, each with a different index.
+
+		public void run_iteration (int index) throws Exception;
+	}
+
+
+	// Thread target that runs a loop body.
+
+	private static class LoopRunner implements SimpleThreadTarget {
+
+		// The loop helper.
+
+		private SimpleThreadLoopHelper loop_helper = new SimpleThreadLoopHelper();
+
+		// The loop body.
+
+		private LoopBody loop_body;
+
+		// Constructor.
+
+		public LoopRunner (LoopBody loop_body) {
+			this.loop_body = loop_body;
+		}
+
+		// Entry point for a thread.
+		// Note: get_next_index counts the completion of the prior iteration.
+
+		@Override
+		public void thread_entry (SimpleThreadManager thread_manager, int thread_number) throws Exception {
+			for (int n = loop_helper.get_loop_index(); n >= 0; n = loop_helper.get_next_index()) {
+				loop_body.run_iteration (n);
+			}
+			return;
+		}
+
+		// Run the loop, and throw an exception if any thread aborted,
+		// or if the number of completed iterations is not the loop count.
+
+		public void run (AutoExecutorService executor, int begin_index, int end_index) {
+			loop_helper.run_loop (this, executor, begin_index, end_index, -1L, -1L);
+			if (loop_helper.is_abort()) {
+				throw new IllegalStateException ("SimpleParallelHelper.parallel_for: Thread abort: " + loop_helper.get_abort_message_string());
+			}
+			if (loop_helper.get_completions() != loop_helper.get_loop_count()) {
+				throw new IllegalStateException ("SimpleParallelHelper.parallel_for: Completion count mismatch: completions = " + loop_helper.get_completions() + ", loop count = " + loop_helper.get_loop_count());
+			}
+			return;
+		}
+	}
+
+
+	// Return true if the executor can be used to run the given number of iterations in parallel.
+
+	private static boolean is_parallel (AutoExecutorService executor, int count) {
+		return executor != null && executor.get_num_threads() != 1 && count >= 2;
+	}
+
+
+	// Run a loop, possibly in parallel.
+	// Parameters:
+	//  begin_index = The beginning index of the loop, inclusive.
+	//  end_index = The ending index of the loop, exclusive.
+	//  loop_body = The loop body, which is called once for each index.
+	//  executor = Executor to use, or null to run in the calling thread.
+	// Iterations may run in any order, and must be independent of each other.
+	// Throws IllegalStateException if an iteration throws an exception.
+
+	public static void parallel_for (int begin_index, int end_index, LoopBody loop_body, AutoExecutorService executor) {
+		if (is_parallel (executor, end_index - begin_index)) {
+			(new LoopRunner (loop_body)).run (executor, begin_index, end_index);
+		} else {
+			try {
+				for (int n = begin_index; n < end_index; ++n) {
+					loop_body.run_iteration (n);
+				}
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException ("SimpleParallelHelper.parallel_for: Exception in loop body", e);
+			}
+		}
+		return;
+	}
+
+
+
+
+	//----- Tree reduction -----
+
+	// Interface for combining two objects.
+
+	public interface Combiner<T> {
+
+		// Combine the contents of src into dest.
+		// Threading: Called concurrently from multiple threads, but never with the same
+		// object passed to two calls at the same time.
+
+		public void combine (T dest, T src);
+	}
+
+
+	// Combine a list of objects by pairwise (tree) reduction.
+	// Parameters:
+	//  items = List of objects to combine.
+	//  combiner = Function that combines one object into another.
+	//  executor = Executor to use, or null to run in the calling thread.
+	// Returns the first object in the list, into which all the others have been combined;
+	// or null if the list is empty.
+	// The reduction runs in rounds.  In each round, the objects at positions 2*k+1 are
+	// combined into the objects at positions 2*k, in parallel, and the combined objects
+	// go on to the next round.  So n objects take ceil(log2(n)) rounds.
+	// The pairing depends only on the order of the list, so the result does not depend
+	// on the executor.  The objects other than the first are left in an unspecified state.
+
+	public static <T> T tree_reduce (List<T> items, Combiner<T> combiner, AutoExecutorService executor) {
+		if (items.isEmpty()) {
+			return null;
+		}
+
+		final ArrayList<T> level = new ArrayList<T>(items);
+
+		while (level.size() > 1) {
+			final int size = level.size();
+
+			// Combine each pair
+
+			parallel_for (0, size / 2, new LoopBody() {
+				@Override
+				public void run_iteration (int index) {
+					combiner.combine (level.get (2*index), level.get (2*index + 1));
+				}
+			}, executor);
+
+			// Keep the combined objects, plus the last object if it was unpaired
+
+			int n = 0;
+			for (int i = 0; i < size; i += 2) {
+				level.set (n++, level.get (i));
+			}
+			level.subList (n, size).clear();
+		}
+
+		return level.get (0);
+	}
+
+}
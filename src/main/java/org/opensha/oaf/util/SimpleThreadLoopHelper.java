@@ -131,6 +131,7 @@ public class SimpleThreadLoopHelper {
 		current_loop_index.set (begin_index);
 		current_completions.set (0);
 		max_used_memory.set (-1L);
+		eff_chunk_target_nanos = chunk_target_nanos;
 		return;
 	}
 
@@ -272,6 +273,286 @@ public class SimpleThreadLoopHelper {
 
 
 
+	//----- Chunked loop -----
+	//
+	// Threads can claim loop indexes in chunks, instead of one at a time, by using
+	// a ChunkCursor.  This reduces contention on the shared loop index and completion
+	// counters when iterations are short and there are many threads.
+	//
+	// The chunk size is chosen by each thread from its own measured time per iteration,
+	// so that a chunk takes about eff_chunk_target_nanos.  It is also limited to a fraction
+	// of the remaining iterations divided by the number of threads (guided scheduling),
+	// so that chunks shrink near the end of the loop and threads finish together.
+	//
+	// Prompt termination is checked before every iteration, exactly as with
+	// get_loop_index() and get_next_index().  When termination is requested, any
+	// unstarted indexes in a thread's current chunk are simply not executed.
+	//
+	// Completions are counted locally and added to the shared count when a chunk is
+	// finished, so the completion count seen by progress messages can lag by up to
+	// one chunk per thread.  All completions are counted by the time a thread's cursor
+	// returns a negative index.
+
+	// Default target time for one chunk, in nanoseconds.
+
+	public static final long DEF_CHUNK_TARGET_NANOS = 50000000L;
+
+	// Maximum number of iterations in one chunk.
+
+	public static final int MAX_CHUNK_SIZE = 4096;
+
+	// Guided scheduling divisor: a chunk is at most remaining / (CHUNK_GUIDED_FACTOR * num_threads).
+
+	private static final int CHUNK_GUIDED_FACTOR = 2;
+
+	// Target time for one chunk, in nanoseconds.
+	// Threads must treat this as read-only.
+
+	private long chunk_target_nanos = DEF_CHUNK_TARGET_NANOS;
+
+	// Target time for one chunk in use for the current loop, in nanoseconds.
+	// This is chunk_target_nanos, reduced if needed to be well under the progress message interval.
+	// Threads must treat this as read-only.
+
+	private long eff_chunk_target_nanos = DEF_CHUNK_TARGET_NANOS;
+
+
+	// Set the target time for one chunk.
+	// Parameters:
+	//  target_nanos = Target time in nanoseconds, must be > 0.
+	// Threading: Cannot be called while threads are running (must be called before init_loop_bounds or run_loop).
+
+	public final void set_chunk_target_nanos (long target_nanos) {
+		if (!( target_nanos > 0L )) {
+			throw new IllegalArgumentException ("SimpleThreadLoopHelper.set_chunk_target_nanos: Invalid target time: " + target_nanos);
+		}
+		chunk_target_nanos = target_nanos;
+		return;
+	}
+
+
+	// Get the target time for one chunk, in nanoseconds.
+
+	public final long get_chunk_target_nanos () {
+		return chunk_target_nanos;
+	}
+
+
+	// Make a cursor for claiming loop indexes in chunks.
+	// Threading: Each thread should make its own cursor, after threads are launched.
+
+	public final ChunkCursor make_chunk_cursor () {
+		return new ChunkCursor();
+	}
+
+
+	// Cursor for claiming loop indexes in chunks.
+	// This permits the thread handler to use a loop like:
+	//   ChunkCursor cursor = make_chunk_cursor();
+	//   for (int loop_index = cursor.get_loop_index(); loop_index >= 0; loop_index = cursor.get_next_index())
+	// The loop indexes returned have the same meaning as for get_loop_index() and get_next_index().
+	// Threading: A cursor must only be used by one thread.
+
+	public final class ChunkCursor {
+
+		// The next index to return from the current chunk.
+
+		private int chunk_next;
+
+		// The end of the current chunk, exclusive.
+
+		private int chunk_end;
+
+		// The number of iterations in the current chunk.
+
+		private int chunk_size;
+
+		// Start time of the current chunk, from System.nanoTime().
+
+		private long chunk_start_nanos;
+
+		// Smoothed time per iteration, in nanoseconds, or 0.0 if not yet measured.
+
+		private double nanos_per_iter;
+
+		// Number of completions not yet added to the shared count.
+
+		private int pending_completions;
+
+		// Constructor starts with no chunk.
+
+		private ChunkCursor () {
+			chunk_next = 0;
+			chunk_end = 0;
+			chunk_size = 0;
+			chunk_start_nanos = 0L;
+			nanos_per_iter = 0.0;
+			pending_completions = 0;
+		}
+
+		// Add pending completions to the shared count.
+
+		private void flush_completions () {
+			if (pending_completions > 0) {
+				current_completions.addAndGet (pending_completions);
+				pending_completions = 0;
+			}
+			return;
+		}
+
+		// Choose the size of the next chunk.
+
+		private int choose_chunk_size () {
+
+			// Guided limit, from the number of remaining iterations
+
+			long remaining = ((long)my_end_index) - ((long)(current_loop_index.get()));
+			int threads = Math.max (1, thread_manager.get_num_threads());
+			long size = remaining / ((long)(CHUNK_GUIDED_FACTOR * threads));
+
+			// Time limit, from the measured time per iteration (one iteration if not yet measured)
+
+			if (nanos_per_iter > 0.0) {
+				size = Math.min (size, (long)(((double)eff_chunk_target_nanos) / nanos_per_iter));
+			} else {
+				size = 1L;
+			}
+
+			return (int)(Math.max (1L, Math.min (size, (long)MAX_CHUNK_SIZE)));
+		}
+
+		// Finish the current chunk, and claim a new chunk.
+		// Returns the first index in the new chunk, or -1 if no more iterations.
+
+		private int next_chunk () {
+
+			// Update the time per iteration, if a chunk was completed
+
+			long time_now = System.nanoTime();
+			if (chunk_size > 0) {
+				double t = ((double)(time_now - chunk_start_nanos)) / ((double)chunk_size);
+				nanos_per_iter = ((nanos_per_iter > 0.0) ? (0.5 * (nanos_per_iter + t)) : t);
+			}
+			flush_completions();
+
+			// Claim a chunk, never advancing the shared index past the end
+			// (so the index cannot overflow when the end is close to Integer.MAX_VALUE)
+
+			int size = choose_chunk_size();
+			int start;
+			int stop;
+			do {
+				start = current_loop_index.get();
+				if (start >= my_end_index) {
+					chunk_next = 0;
+					chunk_end = 0;
+					chunk_size = 0;
+					return -1;
+				}
+				stop = (int)(Math.min (((long)start) + ((long)size), (long)my_end_index));
+			} while (!( current_loop_index.compareAndSet (start, stop) ));
+
+			chunk_next = start + 1;
+			chunk_end = stop;
+			chunk_size = chunk_end - start;
+			chunk_start_nanos = time_now;
+			return start;
+		}
+
+		// Get the first loop index.
+		// Returns -1 if no more iterations.
+		// Returns -2 if prompt termination has been requested.
+
+		public int get_loop_index () {
+			if (thread_manager.get_req_termination()) {
+				return -2;
+			}
+			return next_chunk();
+		}
+
+		// Count a complete iteration, and then get the next loop index.
+		// Returns -1 if no more iterations.
+		// Returns -2 if prompt termination has been requested.
+
+		public int get_next_index () {
+			++pending_completions;
+			if (thread_manager.get_req_termination()) {
+				flush_completions();
+				return -2;
+			}
+			if (chunk_next < chunk_end) {
+				return chunk_next++;
+			}
+			return next_chunk();
+		}
+	}
+
+
+
+
+	//----- Loop monitor -----
+
+	// A loop monitor is called periodically, in the thread that called run_loop,
+	// while the worker threads are running.  It can request that the loop stop early,
+	// for example because the results are already accurate enough.
+	//
+	// When the monitor requests a stop, prompt termination is requested exactly as
+	// for a timeout, so is_timeout() and is_incomplete() return true afterwards.
+	// Use is_monitor_stop() to distinguish a monitor stop from a timeout.
+
+	public interface LoopMonitor {
+
+		// Check if the loop should stop early.
+		// Parameters:
+		//  loop_helper = The loop helper that is running the loop.
+		// Returns true to request prompt termination of the loop.
+		// Threading: Called only from the thread that called run_loop, while worker
+		// threads are running, so the monitor must synchronize its access to any data
+		// that worker threads are updating.
+
+		public boolean check_stop (SimpleThreadLoopHelper loop_helper);
+	}
+
+	// The loop monitor, or null if none.
+
+	private LoopMonitor loop_monitor = null;
+
+	// Time interval between calls to the loop monitor, in milliseconds.
+
+	private long monitor_time = -1L;
+
+	// True if the loop monitor requested a stop during the current loop.
+
+	private boolean f_monitor_stop = false;
+
+
+	// Set the loop monitor.
+	// Parameters:
+	//  the_loop_monitor = The loop monitor, or null to remove the monitor.
+	//  the_monitor_time = Time interval between calls to the monitor, in milliseconds, must be > 0 if the monitor is non-null.
+	// The monitor remains in effect for all subsequent loops, until it is changed.
+	// Threading: Cannot be called while threads are running.
+
+	public final void set_loop_monitor (LoopMonitor the_loop_monitor, long the_monitor_time) {
+		if (the_loop_monitor != null && !( the_monitor_time > 0L )) {
+			throw new IllegalArgumentException ("SimpleThreadLoopHelper.set_loop_monitor: Invalid monitor time: " + the_monitor_time);
+		}
+		loop_monitor = the_loop_monitor;
+		monitor_time = ((the_loop_monitor == null) ? -1L : the_monitor_time);
+		return;
+	}
+
+
+	// Return true if the loop monitor requested a stop during the most recent loop.
+	// Threading: Intended to be accessed after all threads have terminated.
+
+	public final boolean is_monitor_stop () {
+		return f_monitor_stop;
+	}
+
+
+
+
 	//----- Services -----
 
 	// Default progress message format.
@@ -458,10 +739,12 @@ public class SimpleThreadLoopHelper {
 	//  max_runtime = Maximum runtime requested, in milliseconds, can be -1L for no limit, or 0L for immediate timeout.
 	//  progress_time = Time interval for progress messages, in milliseconds, can be -1L for no progress messages.
 	// This function sets up the loop control variables and then launches threads.
-	// It waits for all threads to terminate, writing progress messages if enabled.
+	// It waits for all threads to terminate, writing progress messages if enabled,
+	// and calling the loop monitor if one has been set.
 	// This function does not write a final progress message.
 	// After return, the caller should call is_abort() and then is_timeout() to
-	// check if termination was due to a thread abort or timeout.
+	// check if termination was due to a thread abort or timeout, and is_monitor_stop()
+	// to check if a timeout was requested by the loop monitor.
 
 	public void run_loop (SimpleThreadTarget thread_target, AutoExecutorService executor,
 		int begin_index, int end_index, long max_runtime, long progress_time)
@@ -484,6 +767,13 @@ public class SimpleThreadLoopHelper {
 		// Set up loop control variables
 
 		init_loop_bounds (begin_index, end_index);
+		f_monitor_stop = false;
+
+		// Keep chunks short compared to the progress message interval
+
+		if (progress_time > 0L) {
+			eff_chunk_target_nanos = Math.max (1L, Math.min (chunk_target_nanos, progress_time * 100000L));
+		}
 
 		// Check for immediate timeout
 
@@ -496,13 +786,58 @@ public class SimpleThreadLoopHelper {
 
 		thread_manager.launch_threads (thread_target, executor);
 
-		// Loop until terminated
+		// Loop until terminated, if there is no monitor
+
+		if (loop_monitor == null) {
+			while (!( thread_manager.await_termination (max_runtime, progress_time) )) {
+
+				// Display progress message
+
+				System.out.println (make_progress_message ());
+			}
+			return;
+		}
+
+		// Loop until terminated, waking up for progress messages and monitor checks
+
+		long time_now = System.currentTimeMillis();
+		long next_progress = time_now + progress_time;
+		long next_monitor = time_now + monitor_time;
 
-		while (!( thread_manager.await_termination (max_runtime, progress_time) )) {
+		for (;;) {
 
-			// Display progress message
+			// Wait until the next progress message or monitor check, whichever comes first
+
+			long wait_time = Math.max (0L, next_monitor - time_now);
+			if (progress_time >= 0L) {
+				wait_time = Math.min (wait_time, Math.max (0L, next_progress - time_now));
+			}
+
+			if (thread_manager.await_termination (max_runtime, wait_time)) {
+				break;
+			}
 
-			System.out.println (make_progress_message ());
+			time_now = System.currentTimeMillis();
+
+			// Display progress message, if it is time
+
+			if (progress_time >= 0L && time_now >= next_progress) {
+				System.out.println (make_progress_message ());
+				next_progress = time_now + progress_time;
+			}
+
+			// Call the monitor, if it is time and termination has not already been requested
+
+			if (time_now >= next_monitor) {
+				if (!( f_monitor_stop || thread_manager.get_req_termination() )) {
+					if (loop_monitor.check_stop (this)) {
+						f_monitor_stop = true;
+						thread_manager.request_termination();
+					}
+				}
+				time_now = System.currentTimeMillis();
+				next_monitor = time_now + monitor_time;
+			}
 		}
 
 		return;
@@ -573,6 +908,7 @@ public class SimpleThreadLoopHelper {
 		my_end_index = 0;
 		current_loop_index.set (0);
 		current_completions.set (0);
+		f_monitor_stop = false;
 		return;
 	}
 
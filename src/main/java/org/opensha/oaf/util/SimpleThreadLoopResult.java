@@ -45,6 +45,20 @@ public class SimpleThreadLoopResult {
 
 	public int abort_count;
 
+	// The number of items placed in storage, or 0L if not tracked.
+	// For example, the number of ruptures stored in catalogs.
+
+	public long storage_item_count;
+
+	// The total number of bytes used to store the items, or 0L if not tracked.
+
+	public long storage_bytes;
+
+	// The peak number of bytes held in caches of intermediate data, or 0L if not tracked.
+	// For example, the partial voxels held at one time while fitting parameters.
+
+	public long peak_cache_bytes;
+
 
 	//----- Transient information -----
 
@@ -124,6 +138,33 @@ public class SimpleThreadLoopResult {
 
 
 
+	// Return true if we have storage statistics.
+
+	public final boolean has_storage_stats () {
+		return storage_item_count > 0L;
+	}
+
+	// Return the average number of bytes per stored item, or 0.0 if not available.
+
+	public final double get_bytes_per_item () {
+		if (!( has_storage_stats() )) {
+			return 0.0;
+		}
+		return ((double)storage_bytes) / ((double)storage_item_count);
+	}
+
+
+
+
+	// Return true if we have the peak cache size.
+
+	public final boolean has_peak_cache_bytes () {
+		return peak_cache_bytes > 0L;
+	}
+
+
+
+
 	// Return true if we have an abort message.
 
 	public final boolean has_abort_message () {
@@ -150,6 +191,9 @@ public class SimpleThreadLoopResult {
 		incomplete_count = 0;
 		timeout_count = 0;
 		abort_count = 0;
+		storage_item_count = 0L;
+		storage_bytes = 0L;
+		peak_cache_bytes = 0L;
 		abort_message = null;
 		return this;
 	}
@@ -186,6 +230,15 @@ public class SimpleThreadLoopResult {
 		result.append ("timeout_count = " + timeout_count + "\n");
 		result.append ("abort_count = " + abort_count + "\n");
 
+		if (has_storage_stats()) {
+			result.append ("storage_item_count = " + storage_item_count + "\n");
+			result.append ("storage_bytes = " + storage_bytes + String.format (" (%.1f bytes per item)", get_bytes_per_item()) + "\n");
+		}
+
+		if (has_peak_cache_bytes()) {
+			result.append ("peak_cache_bytes = " + peak_cache_bytes + " (" + SimpleUtils.used_memory_to_string (peak_cache_bytes) + ")" + "\n");
+		}
+
 		if (has_abort_message()) {
 			result.append ("abort_message:" + "\n");
 			result.append (abort_message + "\n");
@@ -236,6 +289,19 @@ public class SimpleThreadLoopResult {
 				result.append (", mem = " + megabytes + " M");
 			}
 
+			// Bytes per stored item, if known
+
+			if (has_storage_stats()) {
+				result.append (String.format (", bpi = %.1f", get_bytes_per_item()));
+			}
+
+			// Peak cache size in megabytes, if known
+
+			if (has_peak_cache_bytes()) {
+				long megabytes = peak_cache_bytes / 1048576L;
+				result.append (", cache = " + megabytes + " M");
+			}
+
 			// Possible errors
 
 			if (incomplete_count > 0) {
@@ -320,6 +386,38 @@ public class SimpleThreadLoopResult {
 
 
 
+	// Add storage statistics.
+	// Parameters:
+	//  the_item_count = Number of items placed in storage.
+	//  the_bytes = Number of bytes used to store the items.
+	// Storage statistics are accumulated by adding.
+
+	public final void add_storage (long the_item_count, long the_bytes) {
+		for (SimpleThreadLoopResult p = this; p != null; p = p.upstream) {
+			p.storage_item_count += the_item_count;
+			p.storage_bytes += the_bytes;
+		}
+		return;
+	}
+
+
+
+
+	// Add a cache size, in bytes.
+	// Parameters:
+	//  the_cache_bytes = Number of bytes held in caches of intermediate data.
+	// Cache sizes are accumulated by taking the maximum.
+
+	public final void add_peak_cache_bytes (long the_cache_bytes) {
+		for (SimpleThreadLoopResult p = this; p != null; p = p.upstream) {
+			p.peak_cache_bytes = Math.max (p.peak_cache_bytes, the_cache_bytes);
+		}
+		return;
+	}
+
+
+
+
 	// Local operation to add an abort message.
 	// Parameters:
 	//  the_abort_message = Abort message.  Can be null if none.
@@ -362,6 +460,9 @@ public class SimpleThreadLoopResult {
 		this.incomplete_count	= other.incomplete_count;
 		this.timeout_count		= other.timeout_count;
 		this.abort_count		= other.abort_count;
+		this.storage_item_count	= other.storage_item_count;
+		this.storage_bytes		= other.storage_bytes;
+		this.peak_cache_bytes	= other.peak_cache_bytes;
 		this.abort_message		= other.abort_message;
 		return this;
 	}
@@ -382,6 +483,9 @@ public class SimpleThreadLoopResult {
 			p.incomplete_count       += other.incomplete_count;
 			p.timeout_count          += other.timeout_count;
 			p.abort_count            += other.abort_count;
+			p.storage_item_count     += other.storage_item_count;
+			p.storage_bytes          += other.storage_bytes;
+			p.peak_cache_bytes        = Math.max (p.peak_cache_bytes, other.peak_cache_bytes);
 			p.local_add_abort_message  (other.abort_message);
 		}
 		return this;
@@ -532,6 +636,8 @@ public class SimpleThreadLoopResult {
 	// Marshal version number.
 
 	private static final int MARSHAL_VER_1 = 124001;
+	private static final int MARSHAL_VER_2 = 124002;
+	private static final int MARSHAL_VER_3 = 124003;
 
 	private static final String M_VERSION_NAME = "SimpleThreadLoopResult";
 
@@ -541,7 +647,7 @@ public class SimpleThreadLoopResult {
 
 		// Version
 
-		int ver = MARSHAL_VER_1;
+		int ver = MARSHAL_VER_3;
 
 		writer.marshalInt (M_VERSION_NAME, ver);
 
@@ -549,7 +655,9 @@ public class SimpleThreadLoopResult {
 
 		switch (ver) {
 
-		case MARSHAL_VER_1: {
+		case MARSHAL_VER_1:
+		case MARSHAL_VER_2:
+		case MARSHAL_VER_3: {
 
 			writer.marshalInt ("result_count", result_count);
 			writer.marshalLong ("elapsed_time", elapsed_time);
@@ -560,6 +668,15 @@ public class SimpleThreadLoopResult {
 			writer.marshalInt ("timeout_count", timeout_count);
 			writer.marshalInt ("abort_count", abort_count);
 
+			if (ver >= MARSHAL_VER_2) {
+				writer.marshalLong ("storage_item_count", storage_item_count);
+				writer.marshalLong ("storage_bytes", storage_bytes);
+			}
+
+			if (ver >= MARSHAL_VER_3) {
+				writer.marshalLong ("peak_cache_bytes", peak_cache_bytes);
+			}
+
 		}
 		break;
 
@@ -574,13 +691,15 @@ public class SimpleThreadLoopResult {
 	
 		// Version
 
-		int ver = reader.unmarshalInt (M_VERSION_NAME, MARSHAL_VER_1, MARSHAL_VER_1);
+		int ver = reader.unmarshalInt (M_VERSION_NAME, MARSHAL_VER_1, MARSHAL_VER_3);
 
 		// Contents
 
 		switch (ver) {
 
-		case MARSHAL_VER_1: {
+		case MARSHAL_VER_1:
+		case MARSHAL_VER_2:
+		case MARSHAL_VER_3: {
 
 			clear();		// for unmarshaled fields
 
@@ -593,6 +712,15 @@ public class SimpleThreadLoopResult {
 			timeout_count = reader.unmarshalInt ("timeout_count");
 			abort_count = reader.unmarshalInt ("abort_count");
 
+			if (ver >= MARSHAL_VER_2) {
+				storage_item_count = reader.unmarshalLong ("storage_item_count");
+				storage_bytes = reader.unmarshalLong ("storage_bytes");
+			}
+
+			if (ver >= MARSHAL_VER_3) {
+				peak_cache_bytes = reader.unmarshalLong ("peak_cache_bytes");
+			}
+
 		}
 		break;
 
@@ -659,6 +787,7 @@ public class SimpleThreadLoopResult {
 		loop_result.incomplete_count = 3;
 		loop_result.timeout_count = 2;
 		loop_result.abort_count = 1;
+		loop_result.peak_cache_bytes = 3L * 1024L * 1024L * 1024L;
 		loop_result.abort_message = "Test of the abort message";
 
 		return loop_result;